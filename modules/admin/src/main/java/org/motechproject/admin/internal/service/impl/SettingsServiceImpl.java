@@ -87,6 +87,8 @@ public class SettingsServiceImpl implements SettingsService {
             securityOptions.add(passwordReminderOption);
             SettingsOption passwordRemindDaysOption = ParamParser.parseParam(ConfigurationConstants.PASSWORD_REMINDER_DAYS, motechSettings.getNumberOfDaysForReminder());
             securityOptions.add(passwordRemindDaysOption);
+            SettingsOption authenticationCacheTimeOption = ParamParser.parseParam(ConfigurationConstants.AUTHENTICATION_CACHE_TIME, motechSettings.getAuthenticationCacheTime());
+            securityOptions.add(authenticationCacheTimeOption);
 
             SettingsOption jmxUrlOption = ParamParser.parseParam(ConfigurationConstants.JMX_HOST, motechSettings.getJmxHost());
             jmxOptions.add(jmxUrlOption);
@@ -0,0 +1,35 @@
+package org.motechproject.scheduler.factory;
+
+import org.quartz.utils.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A Quartz connection provider handing out connections from a shared data source. The data source is owned
+ * by the connection pool service, so it is not closed when Quartz shuts down.
+ */
+class DataSourceConnectionProvider implements ConnectionProvider {
+
+    private final DataSource dataSource;
+
+    DataSourceConnectionProvider(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void shutdown() throws SQLException {
+        // the pool is shared, it will be closed by its owner
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        // nothing to initialize, the pool is created by the connection pool service
+    }
+}
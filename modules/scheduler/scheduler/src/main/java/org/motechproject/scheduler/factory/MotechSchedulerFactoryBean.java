@@ -1,9 +1,12 @@
 package org.motechproject.scheduler.factory;
 
+import org.motechproject.commons.sql.service.ConnectionPoolService;
 import org.motechproject.scheduler.exception.SchedulerInstantiationException;
 import org.motechproject.scheduler.exception.SchedulerShutdownException;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.utils.DBConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
@@ -12,6 +15,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
 import java.util.Properties;
 
 import static java.lang.Boolean.getBoolean;
@@ -22,8 +26,13 @@ import static java.lang.Boolean.getBoolean;
 @Component("motechSchedulerFactoryBean")
 public class MotechSchedulerFactoryBean {
 
+    private static final String JOB_STORE_DATA_SOURCE = StdSchedulerFactory.PROP_JOB_STORE_PREFIX + ".dataSource";
+    private static final String POOL_CONSUMER = "scheduler";
+
     private ApplicationContext applicationContext;
 
+    private ConnectionPoolService connectionPoolService;
+
     private SchedulerFactoryBean schedulerFactoryBean;
 
     private Properties schedulerProperties;
@@ -46,7 +55,7 @@ public class MotechSchedulerFactoryBean {
     @PostConstruct
     public void init() {
         schedulerFactoryBean = new SchedulerFactoryBean();
-        schedulerFactoryBean.setQuartzProperties(schedulerProperties);
+        schedulerFactoryBean.setQuartzProperties(usePooledDataSource(schedulerProperties));
         schedulerFactoryBean.setWaitForJobsToCompleteOnShutdown(getBooleanWithDefault(schedulerProperties.getProperty("scheduler.waitForJobsToCompleteOnShutdown"), true));
         schedulerFactoryBean.setApplicationContextSchedulerContextKey("applicationContext");
         schedulerFactoryBean.setApplicationContext(applicationContext);
@@ -83,6 +92,46 @@ public class MotechSchedulerFactoryBean {
         return getQuartzSchedulerFactoryBean().getScheduler();
     }
 
+    /**
+     * Sets the service providing the shared connection pools. If it is set, Quartz uses the scheduler pool from
+     * this service instead of creating its own.
+     *
+     * @param connectionPoolService the connection pool service
+     */
+    @Autowired(required = false)
+    public void setConnectionPoolService(ConnectionPoolService connectionPoolService) {
+        this.connectionPoolService = connectionPoolService;
+    }
+
+    private Properties usePooledDataSource(Properties properties) {
+        String dataSourceName = properties.getProperty(JOB_STORE_DATA_SOURCE);
+
+        if (null == connectionPoolService || null == dataSourceName) {
+            return properties;
+        }
+
+        String prefix = StdSchedulerFactory.PROP_DATASOURCE_PREFIX + '.' + dataSourceName + '.';
+
+        DataSource dataSource = connectionPoolService.getDataSource(POOL_CONSUMER,
+                properties.getProperty(prefix + StdSchedulerFactory.PROP_DATASOURCE_DRIVER),
+                properties.getProperty(prefix + StdSchedulerFactory.PROP_DATASOURCE_URL),
+                properties.getProperty(prefix + StdSchedulerFactory.PROP_DATASOURCE_USER),
+                properties.getProperty(prefix + StdSchedulerFactory.PROP_DATASOURCE_PASSWORD));
+
+        DBConnectionManager.getInstance().addConnectionProvider(dataSourceName,
+                new DataSourceConnectionProvider(dataSource));
+
+        // without the data source properties Quartz will not replace the provider with its own pool
+        Properties quartzProperties = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith(prefix)) {
+                quartzProperties.setProperty(name, properties.getProperty(name));
+            }
+        }
+
+        return quartzProperties;
+    }
+
     private boolean getBooleanWithDefault(String s, boolean defaultValue) {
         return s != null ? getBoolean(s) : defaultValue;
     }
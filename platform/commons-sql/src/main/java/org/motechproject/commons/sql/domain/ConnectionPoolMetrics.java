@@ -0,0 +1,101 @@
+package org.motechproject.commons.sql.domain;
+
+/**
+ * A snapshot of the usage of a single connection pool managed by the
+ * {@link org.motechproject.commons.sql.service.ConnectionPoolService}.
+ */
+public class ConnectionPoolMetrics {
+
+    private final String consumer;
+    private final String url;
+    private final int active;
+    private final int idle;
+    private final int maxActive;
+    private final long checkouts;
+    private final long failedCheckouts;
+    private final long totalWaitTime;
+    private final long maxWaitTime;
+
+    /**
+     * Constructor.
+     *
+     * @param consumer the name of the consumer using the pool
+     * @param url the database URL of the pool
+     * @param active the number of connections currently borrowed from the pool
+     * @param idle the number of connections currently idle in the pool
+     * @param maxActive the maximum number of connections that can be borrowed at the same time
+     * @param checkouts the number of connections borrowed from the pool so far
+     * @param failedCheckouts the number of attempts to borrow a connection that failed
+     * @param totalWaitTime the total time in milliseconds spent waiting for connections
+     * @param maxWaitTime the longest time in milliseconds spent waiting for a single connection
+     */
+    public ConnectionPoolMetrics(String consumer, String url, int active, int idle, int maxActive, long checkouts,
+                                 long failedCheckouts, long totalWaitTime, long maxWaitTime) {
+        this.consumer = consumer;
+        this.url = url;
+        this.active = active;
+        this.idle = idle;
+        this.maxActive = maxActive;
+        this.checkouts = checkouts;
+        this.failedCheckouts = failedCheckouts;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    public String getConsumer() {
+        return consumer;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public long getCheckouts() {
+        return checkouts;
+    }
+
+    public long getFailedCheckouts() {
+        return failedCheckouts;
+    }
+
+    public long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * @return the average time in milliseconds spent waiting for a connection
+     */
+    public double getAverageWaitTime() {
+        return checkouts == 0 ? 0 : (double) totalWaitTime / checkouts;
+    }
+
+    /**
+     * @return the fraction of the pool that is currently in use, between 0 and 1
+     */
+    public double getUsage() {
+        return maxActive <= 0 ? 0 : (double) active / maxActive;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPoolMetrics{consumer='%s', url='%s', active=%d, idle=%d, maxActive=%d, " +
+                        "checkouts=%d, failedCheckouts=%d, totalWaitTime=%d, maxWaitTime=%d}",
+                consumer, url, active, idle, maxActive, checkouts, failedCheckouts, totalWaitTime, maxWaitTime);
+    }
+}
@@ -0,0 +1,36 @@
+package org.motechproject.commons.sql.service;
+
+import org.motechproject.commons.sql.domain.ConnectionPoolMetrics;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Manages the pools of JDBC connections used by the platform. Every consumer, for example the MDS data
+ * database or the scheduler, gets its own pool for each database it connects to, so that one consumer can't
+ * exhaust the connections of the others. Limits of the pools can be configured per consumer. Pools cache prepared
+ * statements, detect leaked connections and validate idle connections in the background instead of on every
+ * checkout.
+ */
+public interface ConnectionPoolService {
+
+    /**
+     * Returns the pooled data source of the given consumer for the given database. The pool is created on first
+     * use and shared with all later callers using the same consumer name, URL and user.
+     *
+     * @param consumer the name of the consumer, used for selecting the pool limits and in the metrics
+     * @param driverClassName the class name of the JDBC driver
+     * @param url the JDBC URL of the database
+     * @param username the user name used for connecting to the database
+     * @param password the password used for connecting to the database
+     * @return the pooled data source
+     */
+    DataSource getDataSource(String consumer, String driverClassName, String url, String username, String password);
+
+    /**
+     * Returns the current metrics of all pools.
+     *
+     * @return the list of metrics, one for every pool
+     */
+    List<ConnectionPoolMetrics> getMetrics();
+}
@@ -0,0 +1,187 @@
+package org.motechproject.commons.sql.service.impl;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.commons.sql.domain.ConnectionPoolMetrics;
+import org.motechproject.commons.sql.service.ConnectionPoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default implementation of the {@link org.motechproject.commons.sql.service.ConnectionPoolService}, which
+ * uses DBCP pools. The limits of the pools are read from the <code>connection-pool.properties</code> file and
+ * can be overridden with system properties.
+ */
+@Service("connectionPoolService")
+public class ConnectionPoolServiceImpl implements ConnectionPoolService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolServiceImpl.class);
+
+    private static final String SETTINGS_FILE = "connection-pool.properties";
+    private static final String DEFAULT_CONSUMER = "default";
+    private static final String SYSTEM_PROPERTY_PREFIX = "motech.sql.pool.";
+
+    private final ConcurrentMap<String, PooledDataSource> pools = new ConcurrentHashMap<>();
+    private final Properties settings;
+
+    public ConnectionPoolServiceImpl() {
+        this(new Properties());
+    }
+
+    /**
+     * Constructs the instance with the given pool settings, which override the ones from the settings file.
+     *
+     * @param settings the settings of the pools, in the same format as in the settings file
+     */
+    public ConnectionPoolServiceImpl(Properties settings) {
+        this.settings = loadSettings();
+        this.settings.putAll(settings);
+    }
+
+    @Override
+    public DataSource getDataSource(String consumer, String driverClassName, String url, String username,
+                                    String password) {
+        String key = StringUtils.join(new Object[]{consumer, url, username}, '|');
+
+        PooledDataSource dataSource = pools.get(key);
+
+        if (null == dataSource) {
+            PooledDataSource created = createDataSource(consumer, driverClassName, url, username, password);
+            dataSource = pools.putIfAbsent(key, created);
+
+            if (null == dataSource) {
+                LOGGER.info("Created connection pool for {} connecting to {}", consumer, url);
+                dataSource = created;
+            } else {
+                close(created);
+            }
+        }
+
+        return dataSource;
+    }
+
+    @Override
+    public List<ConnectionPoolMetrics> getMetrics() {
+        List<ConnectionPoolMetrics> metrics = new ArrayList<>();
+
+        for (PooledDataSource dataSource : pools.values()) {
+            metrics.add(dataSource.getMetrics());
+        }
+
+        return metrics;
+    }
+
+    @PreDestroy
+    public void closePools() {
+        for (PooledDataSource dataSource : pools.values()) {
+            LOGGER.info("Closing connection pool: {}", dataSource.getMetrics());
+            close(dataSource);
+        }
+
+        pools.clear();
+    }
+
+    private PooledDataSource createDataSource(String consumer, String driverClassName, String url, String username,
+                                              String password) {
+        BasicDataSource dataSource = new BasicDataSource();
+
+        dataSource.setDriverClassName(driverClassName);
+        // the driver is loaded by this bundle, so that consumers don't have to import driver packages
+        dataSource.setDriverClassLoader(getClass().getClassLoader());
+        dataSource.setUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+
+        dataSource.setMaxActive(getInt(consumer, "maxActive"));
+        dataSource.setMaxIdle(getInt(consumer, "maxIdle"));
+        dataSource.setMinIdle(getInt(consumer, "minIdle"));
+        dataSource.setMaxWait(getLong(consumer, "maxWait"));
+
+        String defaultReadOnly = getSetting(consumer, "defaultReadOnly");
+        if (StringUtils.isNotBlank(defaultReadOnly)) {
+            dataSource.setDefaultReadOnly(Boolean.parseBoolean(defaultReadOnly));
+        }
+
+        dataSource.setPoolPreparedStatements(getBoolean(consumer, "poolPreparedStatements"));
+        dataSource.setMaxOpenPreparedStatements(getInt(consumer, "maxOpenPreparedStatements"));
+
+        String validationQuery = getSetting(consumer, "validationQuery");
+        if (StringUtils.isNotBlank(validationQuery)) {
+            dataSource.setValidationQuery(validationQuery);
+            dataSource.setTestWhileIdle(getBoolean(consumer, "testWhileIdle"));
+        }
+        dataSource.setTestOnBorrow(getBoolean(consumer, "testOnBorrow"));
+        dataSource.setTimeBetweenEvictionRunsMillis(getLong(consumer, "timeBetweenEvictionRunsMillis"));
+        dataSource.setMinEvictableIdleTimeMillis(getLong(consumer, "minEvictableIdleTimeMillis"));
+
+        dataSource.setRemoveAbandoned(getBoolean(consumer, "removeAbandoned"));
+        dataSource.setRemoveAbandonedTimeout(getInt(consumer, "removeAbandonedTimeout"));
+        dataSource.setLogAbandoned(getBoolean(consumer, "logAbandoned"));
+
+        return new PooledDataSource(consumer, dataSource);
+    }
+
+    private String getSetting(String consumer, String name) {
+        String value = System.getProperty(SYSTEM_PROPERTY_PREFIX + consumer + '.' + name);
+
+        if (null == value) {
+            value = settings.getProperty(consumer + '.' + name);
+        }
+
+        if (null == value) {
+            value = System.getProperty(SYSTEM_PROPERTY_PREFIX + DEFAULT_CONSUMER + '.' + name);
+        }
+
+        if (null == value) {
+            value = settings.getProperty(DEFAULT_CONSUMER + '.' + name);
+        }
+
+        return StringUtils.trim(value);
+    }
+
+    private int getInt(String consumer, String name) {
+        return Integer.parseInt(getSetting(consumer, name));
+    }
+
+    private long getLong(String consumer, String name) {
+        return Long.parseLong(getSetting(consumer, name));
+    }
+
+    private boolean getBoolean(String consumer, String name) {
+        return Boolean.parseBoolean(getSetting(consumer, name));
+    }
+
+    private void close(PooledDataSource dataSource) {
+        try {
+            dataSource.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to close the connection pool", e);
+        }
+    }
+
+    private static Properties loadSettings() {
+        Properties properties = new Properties();
+
+        try (InputStream in = ConnectionPoolServiceImpl.class.getClassLoader().getResourceAsStream(SETTINGS_FILE)) {
+            if (null != in) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to load the connection pool settings from " + SETTINGS_FILE, e);
+        }
+
+        return properties;
+    }
+}
@@ -0,0 +1,110 @@
+package org.motechproject.commons.sql.service.impl;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.motechproject.commons.sql.domain.ConnectionPoolMetrics;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A data source backed by a DBCP pool, which records how long callers wait for connections.
+ */
+class PooledDataSource implements DataSource {
+
+    private final String consumer;
+    private final BasicDataSource dataSource;
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong failedCheckouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    PooledDataSource(String consumer, BasicDataSource dataSource) {
+        this.consumer = consumer;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+
+        try {
+            Connection connection = dataSource.getConnection();
+            recordWait(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            failedCheckouts.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // pools are created for a single user, so we can't hand out connections of other users
+        throw new SQLFeatureNotSupportedException("Pooled connections can't be retrieved for a different user");
+    }
+
+    ConnectionPoolMetrics getMetrics() {
+        return new ConnectionPoolMetrics(consumer, dataSource.getUrl(), dataSource.getNumActive(),
+                dataSource.getNumIdle(), dataSource.getMaxActive(), checkouts.get(), failedCheckouts.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    void close() throws SQLException {
+        dataSource.close();
+    }
+
+    private void recordWait(long waitNanos) {
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("The connection pool does not use java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+}
@@ -1,6 +1,7 @@
 package org.motechproject.commons.sql.service.impl;
 
 import org.apache.commons.lang.text.StrSubstitutor;
+import org.motechproject.commons.sql.service.ConnectionPoolService;
 import org.motechproject.commons.sql.service.SqlDBManager;
 import org.motechproject.commons.sql.util.Drivers;
 import org.motechproject.commons.sql.util.JdbcUrl;
@@ -37,9 +38,11 @@ public class SqlDBManagerImpl implements SqlDBManager {
     private static final String MYSQL_DRIVER_CLASSNAME = "com.mysql.jdbc.Driver";
     private static final String CONNECTION_URL_KEY = "javax.jdo.option.ConnectionURL";
     private static final String SQL_VARIABLE = "${sql.url}";
+    private static final String POOL_CONSUMER = "sqlDbManager";
 
     private Properties sqlProperties;
     private CoreConfigurationService coreConfigurationService;
+    private ConnectionPoolService connectionPoolService;
 
     /**
      * Constructs the instance using a {@link org.motechproject.config.core.service.CoreConfigurationService}
@@ -226,7 +229,22 @@ public class SqlDBManagerImpl implements SqlDBManager {
     }
 
     private Connection buildConnection(String jdbcUrl) throws SQLException {
+        if (null != connectionPoolService) {
+            return connectionPoolService.getDataSource(POOL_CONSUMER, getChosenSQLDriver(), jdbcUrl,
+                    sqlProperties.getProperty(SQL_USER), sqlProperties.getProperty(SQL_PASSWORD)).getConnection();
+        }
+
         return DriverManager.getConnection(jdbcUrl, sqlProperties.getProperty(SQL_USER),
                 sqlProperties.getProperty(SQL_PASSWORD));
     }
+
+    /**
+     * Sets the service providing pooled connections. Without it, a new connection is opened for every operation.
+     *
+     * @param connectionPoolService the connection pool service
+     */
+    @Autowired(required = false)
+    public void setConnectionPoolService(ConnectionPoolService connectionPoolService) {
+        this.connectionPoolService = connectionPoolService;
+    }
 }
@@ -0,0 +1,82 @@
+package org.motechproject.commons.sql.service.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.motechproject.commons.sql.domain.ConnectionPoolMetrics;
+import org.motechproject.commons.sql.service.ConnectionPoolService;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Properties;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ConnectionPoolServiceTest {
+
+    private static final String DRIVER = "com.mysql.jdbc.Driver";
+    private static final String URL = "jdbc:mysql://localhost:3306/motechdata";
+
+    private ConnectionPoolServiceImpl connectionPoolService;
+
+    @After
+    public void tearDown() {
+        System.clearProperty("motech.sql.pool.test.maxActive");
+
+        if (null != connectionPoolService) {
+            connectionPoolService.closePools();
+        }
+    }
+
+    @Test
+    public void shouldSharePoolsBetweenCallersOfTheSameConsumer() {
+        connectionPoolService = new ConnectionPoolServiceImpl();
+
+        DataSource dataSource = connectionPoolService.getDataSource("mds.data", DRIVER, URL, "root", "pass");
+
+        assertSame(dataSource, connectionPoolService.getDataSource("mds.data", DRIVER, URL, "root", "pass"));
+        assertNotSame(dataSource, connectionPoolService.getDataSource("scheduler", DRIVER, URL, "root", "pass"));
+        assertNotSame(dataSource, connectionPoolService.getDataSource("mds.data", DRIVER, URL + "2", "root", "pass"));
+
+        assertEquals(3, connectionPoolService.getMetrics().size());
+    }
+
+    @Test
+    public void shouldUseConsumerSettings() {
+        Properties settings = new Properties();
+        settings.setProperty("test.maxActive", "7");
+
+        connectionPoolService = new ConnectionPoolServiceImpl(settings);
+
+        connectionPoolService.getDataSource("test", DRIVER, URL, "root", "pass");
+        connectionPoolService.getDataSource("other", DRIVER, URL, "root", "pass");
+
+        assertEquals(7, getMetrics(connectionPoolService, "test").getMaxActive());
+        assertEquals(20, getMetrics(connectionPoolService, "other").getMaxActive());
+        assertEquals(0, getMetrics(connectionPoolService, "test").getActive());
+        assertEquals(0, getMetrics(connectionPoolService, "test").getCheckouts());
+    }
+
+    @Test
+    public void shouldOverrideSettingsWithSystemProperties() {
+        System.setProperty("motech.sql.pool.test.maxActive", "3");
+
+        connectionPoolService = new ConnectionPoolServiceImpl();
+        connectionPoolService.getDataSource("test", DRIVER, URL, "root", "pass");
+
+        assertEquals(3, getMetrics(connectionPoolService, "test").getMaxActive());
+    }
+
+    private ConnectionPoolMetrics getMetrics(ConnectionPoolService service, String consumer) {
+        List<ConnectionPoolMetrics> metrics = service.getMetrics();
+
+        for (ConnectionPoolMetrics poolMetrics : metrics) {
+            if (consumer.equals(poolMetrics.getConsumer())) {
+                return poolMetrics;
+            }
+        }
+
+        throw new IllegalStateException("No pool for " + consumer);
+    }
+}
@@ -55,6 +55,7 @@ public final class ConfigurationConstants {
     public static final String PASSWORD_RESET_DAYS = "security.password.reset.days";
     public static final String PASSWORD_REMINDER = "security.password.reminder.sendReminder";
     public static final String PASSWORD_REMINDER_DAYS = "security.password.reminder.daysBeforeExpiration";
+    public static final String AUTHENTICATION_CACHE_TIME = "security.authentication.cacheTime";
 
     public static final String DATANUCLEUS_DATA_SETTINGS_FILE_NAME = "datanucleus_data.properties";
     public static final String DATANUCLEUS_SCHEMA_SETTINGS_FILE_NAME = "datanucleus_schema.properties";
@@ -0,0 +1,172 @@
+package org.motechproject.email.domain;
+
+import org.joda.time.DateTime;
+import org.motechproject.email.constants.EmailRolesConstants;
+import org.motechproject.mds.annotations.Access;
+import org.motechproject.mds.annotations.Entity;
+import org.motechproject.mds.annotations.Field;
+import org.motechproject.mds.annotations.NonEditable;
+import org.motechproject.mds.util.SecurityMode;
+
+import javax.jdo.annotations.Extension;
+import javax.jdo.annotations.Version;
+import javax.jdo.annotations.VersionStrategy;
+
+import static org.motechproject.mds.util.Constants.Util.DATANUCLEUS;
+
+/**
+ * The <code>OutgoingEmail</code> class represents an email waiting in the outbox to be sent.
+ * This class is exposed as an {@link org.motechproject.mds.annotations.Entity} through
+ * Motech Data Services. The emails are versioned, so that an email can be claimed for sending by only one node.
+ *
+ * @see org.motechproject.mds.annotations
+ */
+@Entity(nonEditable = true)
+@Access(value = SecurityMode.PERMISSIONS, members = { EmailRolesConstants.DETAILED_EMAIL_LOGS })
+@Version(strategy = VersionStrategy.VERSION_NUMBER, column = "version",
+        extensions = { @Extension(vendorName = DATANUCLEUS, key = "field-name", value = "version") })
+public class OutgoingEmail {
+
+    @Field
+    private Long id;
+
+    @Field
+    private String fromAddress;
+
+    @Field(required = true)
+    private String toAddress;
+
+    @Field
+    private String subject;
+
+    @Field(type = "text")
+    private String message;
+
+    @Field(required = true)
+    private DateTime nextAttemptTime;
+
+    @Field(required = true)
+    private Integer attempts;
+
+    @Field
+    @NonEditable
+    private Long version;
+
+    /**
+     * Creates a new instance of <code>OutgoingEmail</code>, with all fields set to null.
+     */
+    public OutgoingEmail() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a new instance of <code>OutgoingEmail</code> for the given mail, which was not sent yet.
+     *
+     * @param mail  the mail to send
+     * @param nextAttemptTime  the date and time from which the email can be sent
+     */
+    public OutgoingEmail(Mail mail, DateTime nextAttemptTime) {
+        if (mail != null) {
+            this.fromAddress = mail.getFromAddress();
+            this.toAddress = mail.getToAddress();
+            this.subject = mail.getSubject();
+            this.message = mail.getMessage();
+        }
+        this.nextAttemptTime = nextAttemptTime;
+        this.attempts = 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFromAddress() {
+        return fromAddress;
+    }
+
+    public void setFromAddress(String fromAddress) {
+        this.fromAddress = fromAddress;
+    }
+
+    public String getToAddress() {
+        return toAddress;
+    }
+
+    public void setToAddress(String toAddress) {
+        this.toAddress = toAddress;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gets the date and time from which the email can be sent, either for the first time or again after a failure.
+     *
+     * @return the time of the next attempt
+     */
+    public DateTime getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(DateTime nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    /**
+     * Gets the number of failed attempts to send the email.
+     *
+     * @return the number of failed attempts
+     */
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Gets the version of the email, incremented with each update. An update of an outdated email fails.
+     *
+     * @return the version of the email
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns the mail this email was created from.
+     *
+     * @return the mail to send
+     */
+    public Mail toMail() {
+        return new Mail(fromAddress, toAddress, subject, message);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutgoingEmail{id=%d, toAddress='%s', subject='%s', nextAttemptTime='%s', attempts=%d}",
+                id, toAddress, subject, nextAttemptTime, attempts);
+    }
+}
@@ -13,6 +13,14 @@ import java.util.List;
 
 public interface EmailAuditService {
 
+    /**
+     * Adds the given <code>EmailRecord</code> entries to the email log, in a single transaction. The address,
+     * subject and body of the emails are left out if logging them is disabled in the settings.
+     *
+     * @param emailRecords  the records to add
+     */
+    void log(List<EmailRecord> emailRecords);
+
     /**
      * Finds an <code>EmailRecord</code> in the log by ID.
      *
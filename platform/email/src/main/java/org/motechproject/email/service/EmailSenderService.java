@@ -17,4 +17,17 @@ public interface EmailSenderService {
      * @param message  the body of the email
      */
     void send(String fromAddress, String toAddress, String subject, String message) throws EmailSendException;
+
+    /**
+     * Adds the supplied email message to the outbox, from which it is sent asynchronously, together with other queued
+     * messages. Messages which could not be sent are retried later. An {@link org.motechproject.email.domain.EmailRecord}
+     * entry is added to the log once the message is sent, or once all attempts to send it failed. If the outbox is
+     * disabled in the settings of the module, the message is sent right away, as with
+     * {@link #send(String, String, String, String)}.
+     * @param fromAddress  the email address of the sender
+     * @param toAddress  the email address of the recipient
+     * @param subject  the subject of the email
+     * @param message  the body of the email
+     */
+    void queue(String fromAddress, String toAddress, String subject, String message) throws EmailSendException;
 }
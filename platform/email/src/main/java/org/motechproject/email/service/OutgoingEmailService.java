@@ -0,0 +1,29 @@
+package org.motechproject.email.service;
+
+import org.joda.time.DateTime;
+import org.motechproject.commons.api.Range;
+import org.motechproject.email.domain.OutgoingEmail;
+import org.motechproject.mds.annotations.Lookup;
+import org.motechproject.mds.annotations.LookupField;
+import org.motechproject.mds.query.QueryParams;
+import org.motechproject.mds.service.MotechDataService;
+
+import java.util.List;
+
+/**
+ * This service provides data access for {@link org.motechproject.email.domain.OutgoingEmail}, the emails waiting
+ * in the outbox. The implementation is generated by Motech Data Services and published as an OSGi service.
+ */
+public interface OutgoingEmailService extends MotechDataService<OutgoingEmail> {
+
+    /**
+     * Finds and returns the <code>OutgoingEmail</code> entries which should be sent within the given time range.
+     *
+     * @param nextAttemptTime  the range of the time of the next attempt
+     * @param queryParams  the query parameters to include with the search criteria
+     * @return the list of <code>OutgoingEmail</code> entries that match the specified criteria
+     */
+    @Lookup(name = "By next attempt time")
+    List<OutgoingEmail> findByNextAttemptTime(@LookupField(name = "nextAttemptTime") Range<DateTime> nextAttemptTime,
+                                              QueryParams queryParams);
+}
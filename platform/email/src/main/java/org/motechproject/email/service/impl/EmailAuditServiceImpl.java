@@ -1,13 +1,17 @@
 package org.motechproject.email.service.impl;
 
 import org.joda.time.DateTime;
+import org.motechproject.config.SettingsFacade;
 import org.motechproject.email.domain.EmailRecord;
 import org.motechproject.email.search.CountSearch;
 import org.motechproject.email.search.RecordSearch;
 import org.motechproject.email.service.EmailAuditService;
 import org.motechproject.email.builder.EmailRecordSearchCriteria;
 import org.motechproject.email.service.EmailRecordService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,9 +24,49 @@ import java.util.List;
 @Service("emailAuditService")
 public class EmailAuditServiceImpl implements EmailAuditService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailAuditServiceImpl.class);
+
+    private static final String EMAIL_LOG_BODY = "mail.log.body";
+    private static final String EMAIL_LOG_ADDRESS = "mail.log.address";
+    private static final String EMAIL_LOG_SUBJECT = "mail.log.subject";
+    private static final String FALSE = "false";
+
+    @Autowired
+    @Qualifier("emailSettings")
+    private SettingsFacade settings;
+
     @Autowired
     private EmailRecordService emailRecordService;
 
+    @Override
+    @Transactional
+    public void log(List<EmailRecord> emailRecords) {
+        boolean logBody = !FALSE.equals(settings.getProperty(EMAIL_LOG_BODY));
+        boolean logAddress = !FALSE.equals(settings.getProperty(EMAIL_LOG_ADDRESS));
+        boolean logSubject = !FALSE.equals(settings.getProperty(EMAIL_LOG_SUBJECT));
+
+        for (EmailRecord emailRecord : emailRecords) {
+            if (!logBody) {
+                emailRecord.setMessage("");
+            }
+
+            if (!logAddress) {
+                emailRecord.setFromAddress("");
+                emailRecord.setToAddress("");
+            }
+
+            if (!logSubject) {
+                emailRecord.setSubject("");
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Logging: {}", emailRecord.toString());
+            }
+
+            emailRecordService.create(emailRecord);
+        }
+    }
+
     @Override
     @Transactional
     public EmailRecord findById(long id) {
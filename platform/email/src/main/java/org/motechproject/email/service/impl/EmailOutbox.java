@@ -0,0 +1,415 @@
+package org.motechproject.email.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.joda.time.DateTime;
+import org.motechproject.commons.api.Range;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.email.domain.DeliveryStatus;
+import org.motechproject.email.domain.EmailRecord;
+import org.motechproject.email.domain.Mail;
+import org.motechproject.email.domain.OutgoingEmail;
+import org.motechproject.email.service.EmailAuditService;
+import org.motechproject.email.service.OutgoingEmailService;
+import org.motechproject.mds.query.QueryParams;
+import org.motechproject.mds.util.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.motechproject.commons.date.util.DateUtil.now;
+
+/**
+ * The <code>EmailOutbox</code> class sends the emails queued with
+ * {@link org.motechproject.email.service.EmailSenderService#queue(String, String, String, String)}. Queued emails are
+ * kept in the database, and a dispatcher thread regularly claims the emails due for sending and hands them over to
+ * a pool of workers. The emails are versioned, so that an email claimed by one node is not sent by the others.
+ * Each worker sends several emails over a single connection to the mail server, then removes the
+ * sent emails from the outbox and logs them, in one transaction. Emails which could not be sent are retried with an
+ * exponential backoff, until the maximum number of attempts is reached.
+ */
+@Component("emailOutbox")
+public class EmailOutbox {
+
+    public static final String OUTBOX_ENABLED_PROPERTY = "mail.outbox.enabled";
+    public static final String OUTBOX_THREADS_PROPERTY = "mail.outbox.threads";
+    public static final String OUTBOX_SESSION_SIZE_PROPERTY = "mail.outbox.sessionSize";
+    public static final String OUTBOX_RATE_LIMIT_PROPERTY = "mail.outbox.rateLimit";
+    public static final String OUTBOX_MAX_ATTEMPTS_PROPERTY = "mail.outbox.maxAttempts";
+    public static final String OUTBOX_RETRY_DELAY_PROPERTY = "mail.outbox.retryDelay";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailOutbox.class);
+
+    private static final String NEXT_ATTEMPT_TIME = "nextAttemptTime";
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_SESSION_SIZE = 50;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_DELAY = 60; // 1 min
+    private static final int MAX_RETRY_DELAY = 3600; // 1 h
+    private static final int CLAIM_SIZE = 500;
+    private static final int CLAIM_LEASE = 600; // 10 min
+    private static final long POLL_INTERVAL = 1000; // 1 s
+
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService workers;
+
+    @Autowired
+    @Qualifier("emailSettings")
+    private SettingsFacade settings;
+
+    @Autowired
+    private OutgoingEmailService outgoingEmailService;
+
+    @Autowired
+    private EmailAuditService emailAuditService;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @PostConstruct
+    public void start() {
+        if (isEnabled()) {
+            startDispatcher();
+        } else {
+            LOGGER.info("The email outbox is disabled, emails will be sent right away");
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        // emails claimed by the stopped workers will be sent again once their lease expires
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks whether emails should be queued in the outbox, as set in the settings of the module.
+     *
+     * @return true if the outbox is enabled, false if emails should be sent right away
+     */
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(StringUtils.trim(settings.getProperty(OUTBOX_ENABLED_PROPERTY)));
+    }
+
+    /**
+     * Adds the given mail to the outbox. It will be sent by one of the workers shortly after the current transaction
+     * is committed.
+     *
+     * @param mail  the mail to send
+     */
+    public void add(Mail mail) {
+        outgoingEmailService.create(new OutgoingEmail(mail, now()));
+        // the outbox could have been enabled after the module was started
+        startDispatcher();
+    }
+
+    /**
+     * Checks whether the dispatcher is polling the outbox for emails due for sending.
+     *
+     * @return true if the dispatcher was started, false otherwise
+     */
+    synchronized boolean isDispatching() {
+        return dispatcher != null && !dispatcher.isShutdown();
+    }
+
+    /**
+     * Sends all emails from the outbox which are due for sending. The emails are sent by the workers, or in the
+     * calling thread if the outbox was not started.
+     */
+    void dispatch() {
+        List<QueuedMail> claimed;
+
+        do {
+            claimed = claim();
+
+            int sessionSize = Math.max(getIntProperty(OUTBOX_SESSION_SIZE_PROPERTY, DEFAULT_SESSION_SIZE), 1);
+            List<Future<?>> sessions = new ArrayList<>();
+
+            for (int i = 0; i < claimed.size(); i += sessionSize) {
+                final List<QueuedMail> session = claimed.subList(i, Math.min(i + sessionSize, claimed.size()));
+                Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        send(session);
+                    }
+                };
+
+                if (workers == null) {
+                    task.run();
+                } else {
+                    sessions.add(workers.submit(task));
+                }
+            }
+
+            if (!await(sessions)) {
+                return;
+            }
+        } while (claimed.size() == CLAIM_SIZE);
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+
+        workers = Executors.newFixedThreadPool(getIntProperty(OUTBOX_THREADS_PROPERTY, DEFAULT_THREADS),
+                threadFactory("email-outbox-worker-"));
+        dispatcher = Executors.newSingleThreadScheduledExecutor(threadFactory("email-outbox-dispatcher-"));
+
+        dispatcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dispatch();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to send emails from the outbox", e);
+                }
+            }
+        }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the time after which an email is sent again, after the given number of failed attempts.
+     *
+     * @param retryDelay  the delay after the first failed attempt, in seconds
+     * @param attempts  the number of failed attempts
+     * @return the delay before the next attempt, in seconds
+     */
+    static long getRetryDelay(int retryDelay, int attempts) {
+        long delay = (long) retryDelay << Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(delay, MAX_RETRY_DELAY);
+    }
+
+    private List<QueuedMail> claim() {
+        try {
+            return outgoingEmailService.doInTransaction(new TransactionCallback<List<QueuedMail>>() {
+                @Override
+                public List<QueuedMail> doInTransaction(TransactionStatus status) {
+                    DateTime now = now();
+                    List<OutgoingEmail> due = outgoingEmailService.findByNextAttemptTime(
+                            new Range<>(new DateTime(0), now),
+                            new QueryParams(1, CLAIM_SIZE, new Order(NEXT_ATTEMPT_TIME, Order.Direction.ASC)));
+
+                    List<QueuedMail> claimed = new ArrayList<>(due.size());
+                    for (OutgoingEmail email : due) {
+                        // other nodes skip the claimed emails, until the lease expires
+                        email.setNextAttemptTime(now.plusSeconds(CLAIM_LEASE));
+                        outgoingEmailService.update(email);
+
+                        claimed.add(new QueuedMail(email.getId(), email.toMail(), email.getAttempts()));
+                    }
+
+                    return claimed;
+                }
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // the emails are versioned, so only one of the nodes claiming the same emails at once can commit
+            LOGGER.debug("Emails from the outbox were claimed by another node, claiming again later", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private void send(List<QueuedMail> session) {
+        Map<MimeMessage, QueuedMail> messages = new LinkedHashMap<>();
+        Map<QueuedMail, Exception> failures = new LinkedHashMap<>();
+
+        for (QueuedMail queued : session) {
+            rateLimiter.acquire(getIntProperty(OUTBOX_RATE_LIMIT_PROPERTY, 0));
+
+            try {
+                MimeMessage mimeMessage = mailSender.createMimeMessage();
+                new MotechMimeMessagePreparator(queued.mail).prepare(mimeMessage);
+                messages.put(mimeMessage, queued);
+            } catch (MessagingException e) {
+                failures.put(queued, e);
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                // all messages are sent over a single connection
+                mailSender.send(messages.keySet().toArray(new MimeMessage[messages.size()]));
+            } catch (MailSendException e) {
+                addFailures(failures, messages, e);
+            } catch (MailException e) {
+                for (QueuedMail queued : messages.values()) {
+                    failures.put(queued, e);
+                }
+            }
+        }
+
+        complete(session, failures);
+    }
+
+    private void addFailures(Map<QueuedMail, Exception> failures, Map<MimeMessage, QueuedMail> messages,
+                             MailSendException exception) {
+        Map<Object, Exception> failedMessages = exception.getFailedMessages();
+
+        for (Map.Entry<MimeMessage, QueuedMail> entry : messages.entrySet()) {
+            if (failedMessages.isEmpty()) {
+                failures.put(entry.getValue(), exception);
+            } else if (failedMessages.containsKey(entry.getKey())) {
+                failures.put(entry.getValue(), failedMessages.get(entry.getKey()));
+            }
+        }
+    }
+
+    private void complete(final List<QueuedMail> session, final Map<QueuedMail, Exception> failures) {
+        final int maxAttempts = getIntProperty(OUTBOX_MAX_ATTEMPTS_PROPERTY, DEFAULT_MAX_ATTEMPTS);
+        final int retryDelay = getIntProperty(OUTBOX_RETRY_DELAY_PROPERTY, DEFAULT_RETRY_DELAY);
+
+        outgoingEmailService.doInTransaction(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                DateTime now = now();
+                List<EmailRecord> records = new ArrayList<>();
+
+                for (QueuedMail queued : session) {
+                    Exception failure = failures.get(queued);
+                    int attempts = queued.attempts + 1;
+
+                    if (failure == null) {
+                        outgoingEmailService.deleteById(queued.id);
+                        records.add(toRecord(queued.mail, now, DeliveryStatus.SENT));
+                    } else if (attempts >= maxAttempts) {
+                        LOGGER.error("Unable to send an email to {}, giving up after {} attempts",
+                                queued.mail.getToAddress(), attempts, failure);
+                        outgoingEmailService.deleteById(queued.id);
+                        records.add(toRecord(queued.mail, now, DeliveryStatus.ERROR));
+                    } else {
+                        LOGGER.warn("Unable to send an email to {}, attempt {} of {}",
+                                queued.mail.getToAddress(), attempts, maxAttempts, failure);
+                        retry(queued, attempts, now.plusSeconds((int) getRetryDelay(retryDelay, attempts)));
+                    }
+                }
+
+                if (!records.isEmpty()) {
+                    emailAuditService.log(records);
+                }
+            }
+        });
+    }
+
+    private void retry(QueuedMail queued, int attempts, DateTime nextAttemptTime) {
+        OutgoingEmail email = outgoingEmailService.findById(queued.id);
+
+        if (email != null) {
+            email.setAttempts(attempts);
+            email.setNextAttemptTime(nextAttemptTime);
+            outgoingEmailService.update(email);
+        }
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        return NumberUtils.toInt(StringUtils.trim(settings.getProperty(key)), defaultValue);
+    }
+
+    private static EmailRecord toRecord(Mail mail, DateTime deliveryTime, DeliveryStatus deliveryStatus) {
+        return new EmailRecord(mail.getFromAddress(), mail.getToAddress(), mail.getSubject(), mail.getMessage(),
+                deliveryTime, deliveryStatus);
+    }
+
+    private static boolean await(List<Future<?>> sessions) {
+        for (Future<?> session : sessions) {
+            try {
+                session.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                LOGGER.error("Unable to send emails from the outbox", e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private static ThreadFactory threadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * An email claimed from the outbox.
+     */
+    private static final class QueuedMail {
+
+        private final long id;
+        private final Mail mail;
+        private final int attempts;
+
+        private QueuedMail(long id, Mail mail, Integer attempts) {
+            this.id = id;
+            this.mail = mail;
+            this.attempts = (attempts == null) ? 0 : attempts;
+        }
+    }
+
+    /**
+     * Spaces out the sent emails evenly, so that no more than the given number of emails is sent per second.
+     */
+    private static final class RateLimiter {
+
+        private long nextPermitTime = System.nanoTime();
+
+        private void acquire(int permitsPerSecond) {
+            if (permitsPerSecond <= 0) {
+                return;
+            }
+
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                wait = Math.max(nextPermitTime - now, 0);
+                nextPermitTime = now + wait + TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            }
+
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -4,18 +4,18 @@ import org.motechproject.email.domain.Mail;
 import org.motechproject.email.domain.DeliveryStatus;
 import org.motechproject.email.domain.EmailRecord;
 import org.motechproject.email.exception.EmailSendException;
-import org.motechproject.email.service.EmailRecordService;
+import org.motechproject.email.service.EmailAuditService;
 import org.motechproject.email.service.EmailSenderService;
-import org.motechproject.config.SettingsFacade;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+
 import static org.motechproject.commons.date.util.DateUtil.now;
 
 /**
@@ -25,22 +25,15 @@ import static org.motechproject.commons.date.util.DateUtil.now;
 @Service("emailSenderService")
 public class EmailSenderServiceImpl implements EmailSenderService {
 
-    private static final String EMAIL_LOG_BODY = "mail.log.body";
-    private static final String EMAIL_LOG_ADDRESS = "mail.log.address";
-    private static final String EMAIL_LOG_SUBJECT = "mail.log.subject";
-    private static final String FALSE = "false";
-
-
-    @Autowired()
-    @Qualifier("emailSettings")
-    private SettingsFacade settings;
-
     @Autowired
-    private EmailRecordService emailRecordService;
+    private EmailAuditService emailAuditService;
 
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private EmailOutbox emailOutbox;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailSenderServiceImpl.class);
 
     @Override
@@ -60,25 +53,23 @@ public class EmailSenderServiceImpl implements EmailSenderService {
         }
     }
 
-    private void log(EmailRecord emailRecord) {
-        if (FALSE.equals(settings.getProperty(EMAIL_LOG_BODY))) {
-            emailRecord.setMessage("");
-        }
-
-        if (FALSE.equals(settings.getProperty(EMAIL_LOG_ADDRESS))) {
-            emailRecord.setFromAddress("");
-            emailRecord.setToAddress("");
+    @Override
+    @Transactional
+    public void queue(String fromAddress, String toAddress, String subject, String message) throws EmailSendException {
+        if (!emailOutbox.isEnabled()) {
+            send(fromAddress, toAddress, subject, message);
+            return;
         }
 
-        if (FALSE.equals(settings.getProperty(EMAIL_LOG_SUBJECT))) {
-            emailRecord.setSubject("");
-        }
+        Mail mail = new Mail(fromAddress, toAddress, subject, message);
+        LOGGER.info(String.format("Queueing message [%s] from [%s] to [%s] with subject [%s].",
+                mail.getMessage(), mail.getFromAddress(), mail.getToAddress(), mail.getSubject()));
 
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Logging: {}", emailRecord.toString());
-        }
+        emailOutbox.add(mail);
+    }
 
-        emailRecordService.create(emailRecord);
+    private void log(EmailRecord emailRecord) {
+        emailAuditService.log(Collections.singletonList(emailRecord));
     }
 
     MotechMimeMessagePreparator getMimeMessagePreparator(Mail mail) {
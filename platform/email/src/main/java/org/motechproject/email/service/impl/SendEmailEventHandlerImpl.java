@@ -34,6 +34,6 @@ public class SendEmailEventHandlerImpl {
                     fromAddress, toAddress, subject, message);
         }
 
-        emailSenderService.send(fromAddress, toAddress, subject, message);
+        emailSenderService.queue(fromAddress, toAddress, subject, message);
     }
 }
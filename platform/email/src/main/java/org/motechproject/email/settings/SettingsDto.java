@@ -26,6 +26,13 @@ public class SettingsDto {
     public static final String MAIL_LOG_PURGE_ENABLE_PROPERTY = "mail.log.purgeenable";
     public static final String MAIL_LOG_PURGE_TIME_PROPERY = "mail.log.purgetime";
     public static final String MAIL_LOG_PURGE_TIME_MULTIPLIER_PROPERTY = "mail.log.purgetimemultiplier";
+    public static final String MAIL_SMTP_CONNECTION_TIMEOUT_PROPERTY = "mail.smtp.connectiontimeout";
+    public static final String MAIL_SMTP_TIMEOUT_PROPERTY = "mail.smtp.timeout";
+    public static final String MAIL_SMTP_WRITE_TIMEOUT_PROPERTY = "mail.smtp.writetimeout";
+
+    // in milliseconds, well below the lease on the emails claimed from the outbox
+    private static final String DEFAULT_SMTP_CONNECTION_TIMEOUT = "30000";
+    private static final String DEFAULT_SMTP_TIMEOUT = "60000";
 
     private String host;
     private String port;
@@ -224,6 +231,22 @@ public class SettingsDto {
         return props;
     }
 
+    /**
+     * Returns the properties of the mail sessions: the additional properties, with the default SMTP timeouts set
+     * unless overridden. Without the timeouts, a stuck connection to the mail server would block the sender forever.
+     *
+     * @return the properties of the mail sessions
+     */
+    @JsonIgnore
+    public Properties getMailProps() {
+        Properties props = new Properties();
+        props.setProperty(MAIL_SMTP_CONNECTION_TIMEOUT_PROPERTY, DEFAULT_SMTP_CONNECTION_TIMEOUT);
+        props.setProperty(MAIL_SMTP_TIMEOUT_PROPERTY, DEFAULT_SMTP_TIMEOUT);
+        props.setProperty(MAIL_SMTP_WRITE_TIMEOUT_PROPERTY, DEFAULT_SMTP_TIMEOUT);
+        props.putAll(this.additionalProperties);
+        return props;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(host, port, username, password, additionalProperties,  logAddress, logSubject, logBody, logPurgeEnable, logPurgeTime, logPurgeTimeMultiplier);
@@ -121,7 +121,7 @@ public class SettingsController {
         mailSender.setPort(Integer.valueOf(port));
         mailSender.setUsername(username);
         mailSender.setPassword(password);
-        mailSender.setJavaMailProperties(settings.getAdditionalProps());
+        mailSender.setJavaMailProperties(settings.getMailProps());
     }
 
     @ExceptionHandler(Exception.class)
@@ -8,6 +8,7 @@ import org.motechproject.email.domain.Mail;
 import org.motechproject.email.exception.EmailSendException;
 import org.motechproject.email.service.EmailRecordService;
 import org.motechproject.email.service.EmailSenderService;
+import org.motechproject.email.service.OutgoingEmailService;
 import org.motechproject.testing.osgi.BasePaxIT;
 import org.motechproject.testing.osgi.container.MotechNativeTestContainerFactory;
 import org.ops4j.pax.exam.ExamFactory;
@@ -25,6 +26,7 @@ import java.util.Collection;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(PaxExam.class)
 @ExamReactorStrategy(PerSuite.class)
@@ -37,6 +39,9 @@ public class EmailBundleIT extends BasePaxIT {
     @Inject
     private EmailRecordService emailRecordService;
 
+    @Inject
+    private OutgoingEmailService outgoingEmailService;
+
     private Wiser smtpServer;
 
     @Override
@@ -67,9 +72,31 @@ public class EmailBundleIT extends BasePaxIT {
         assertEquals("test", msgTxt.trim());
     }
 
+    @Test
+    public void testEmailOutbox() throws EmailSendException, InterruptedException {
+        final int count = 200;
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            mailService.queue("from@from.com", "to" + i + "@to.com", "test " + i, "test");
+        }
+
+        long deadline = start + 60000;
+        while (emailRecordService.count() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        getLogger().info("Sent {} queued emails in {} ms", count, System.currentTimeMillis() - start);
+
+        assertEquals(count, smtpServer.getMessages().size());
+        assertEquals(count, emailRecordService.count());
+        assertTrue(outgoingEmailService.retrieveAll().isEmpty());
+    }
+
     @After
     public void tearDown() {
         smtpServer.stop();
         emailRecordService.deleteAll();
+        outgoingEmailService.deleteAll();
     }
 }
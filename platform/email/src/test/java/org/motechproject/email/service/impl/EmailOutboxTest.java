@@ -0,0 +1,201 @@
+package org.motechproject.email.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.motechproject.commons.api.Range;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.email.domain.DeliveryStatus;
+import org.motechproject.email.domain.EmailRecord;
+import org.motechproject.email.domain.Mail;
+import org.motechproject.email.domain.OutgoingEmail;
+import org.motechproject.email.service.EmailAuditService;
+import org.motechproject.email.service.OutgoingEmailService;
+import org.motechproject.mds.query.QueryParams;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.support.TransactionCallback;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.motechproject.commons.date.util.DateUtil.now;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmailOutboxTest {
+
+    @Mock
+    private SettingsFacade settings;
+
+    @Mock
+    private OutgoingEmailService outgoingEmailService;
+
+    @Mock
+    private EmailAuditService emailAuditService;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @InjectMocks
+    private EmailOutbox emailOutbox = new EmailOutbox();
+
+    private OutgoingEmail first;
+    private OutgoingEmail second;
+    private OutgoingEmail third;
+
+    @Before
+    public void setUp() {
+        first = outgoingEmail(1L, "first@motech.org", 0);
+        second = outgoingEmail(2L, "second@motech.org", 0);
+        third = outgoingEmail(3L, "third@motech.org", 4);
+
+        when(settings.getProperty(EmailOutbox.OUTBOX_SESSION_SIZE_PROPERTY)).thenReturn("2");
+        when(settings.getProperty(EmailOutbox.OUTBOX_MAX_ATTEMPTS_PROPERTY)).thenReturn("5");
+        when(settings.getProperty(EmailOutbox.OUTBOX_RETRY_DELAY_PROPERTY)).thenReturn("60");
+
+        when(outgoingEmailService.findByNextAttemptTime(any(Range.class), any(QueryParams.class)))
+                .thenReturn(Arrays.asList(first, second, third));
+        when(outgoingEmailService.findById(2L)).thenReturn(second);
+        when(outgoingEmailService.doInTransaction(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return ((TransactionCallback) invocation.getArguments()[0]).doInTransaction(null);
+            }
+        });
+        when(mailSender.createMimeMessage()).thenAnswer(new Answer<MimeMessage>() {
+            @Override
+            public MimeMessage answer(InvocationOnMock invocation) {
+                return new MimeMessage((Session) null);
+            }
+        });
+    }
+
+    @Test
+    public void shouldSendEmailsInSessionsAndLogThemInBatches() {
+        emailOutbox.dispatch();
+
+        ArgumentCaptor<MimeMessage[]> sessionCaptor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(2)).send(sessionCaptor.capture());
+        assertEquals(2, sessionCaptor.getAllValues().get(0).length);
+        assertEquals(1, sessionCaptor.getAllValues().get(1).length);
+
+        verify(outgoingEmailService).deleteById(1L);
+        verify(outgoingEmailService).deleteById(2L);
+        verify(outgoingEmailService).deleteById(3L);
+
+        ArgumentCaptor<List> recordsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(emailAuditService, times(2)).log(recordsCaptor.capture());
+        assertEquals(2, recordsCaptor.getAllValues().get(0).size());
+        assertEquals(DeliveryStatus.SENT, ((EmailRecord) recordsCaptor.getAllValues().get(1).get(0)).getDeliveryStatus());
+    }
+
+    @Test
+    public void shouldRetryFailedEmailsWithBackoffAndGiveUpAfterMaxAttempts() {
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                MimeMessage[] messages = (MimeMessage[]) invocation.getArguments()[0];
+                Map<Object, Exception> failedMessages = new HashMap<>();
+
+                for (MimeMessage message : messages) {
+                    try {
+                        if (!"first@motech.org".equals(message.getAllRecipients()[0].toString())) {
+                            failedMessages.put(message, new MessagingException("Rejected"));
+                        }
+                    } catch (MessagingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+
+                throw new MailSendException("Failed messages", null, failedMessages);
+            }
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        emailOutbox.dispatch();
+
+        verify(outgoingEmailService).deleteById(1L);
+        verify(outgoingEmailService, never()).deleteById(2L);
+        verify(outgoingEmailService).deleteById(3L);
+
+        // claimed for the lease, then scheduled for the retry
+        verify(outgoingEmailService, times(2)).update(second);
+        assertEquals(Integer.valueOf(1), second.getAttempts());
+        assertEquals(60, (second.getNextAttemptTime().getMillis() - now().getMillis()) / 1000, 5);
+
+        ArgumentCaptor<List> recordsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(emailAuditService, times(2)).log(recordsCaptor.capture());
+        assertEquals(DeliveryStatus.ERROR, ((EmailRecord) recordsCaptor.getAllValues().get(1).get(0)).getDeliveryStatus());
+    }
+
+    @Test
+    public void shouldNotSendEmailsClaimedByAnotherNode() {
+        when(outgoingEmailService.doInTransaction(any(TransactionCallback.class)))
+                .thenThrow(new OptimisticLockingFailureException("Claimed by another node"));
+
+        emailOutbox.dispatch();
+
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+        verify(emailAuditService, never()).log(any(List.class));
+    }
+
+    @Test
+    public void shouldNotScheduleDispatcherWhenOutboxDisabled() {
+        when(settings.getProperty(EmailOutbox.OUTBOX_ENABLED_PROPERTY)).thenReturn("false");
+
+        emailOutbox.start();
+
+        assertFalse(emailOutbox.isDispatching());
+    }
+
+    @Test
+    public void shouldScheduleDispatcherWhenEmailQueued() {
+        when(settings.getProperty(EmailOutbox.OUTBOX_ENABLED_PROPERTY)).thenReturn("false");
+        emailOutbox.start();
+
+        try {
+            emailOutbox.add(new Mail("from@motech.org", "to@motech.org", "subject", "text"));
+
+            verify(outgoingEmailService).create(any(OutgoingEmail.class));
+            assertTrue(emailOutbox.isDispatching());
+        } finally {
+            emailOutbox.stop();
+        }
+    }
+
+    @Test
+    public void shouldDoubleTheRetryDelayUpToAnHour() {
+        assertEquals(60, EmailOutbox.getRetryDelay(60, 1));
+        assertEquals(120, EmailOutbox.getRetryDelay(60, 2));
+        assertEquals(480, EmailOutbox.getRetryDelay(60, 4));
+        assertEquals(3600, EmailOutbox.getRetryDelay(60, 10));
+        assertEquals(3600, EmailOutbox.getRetryDelay(60, 100));
+    }
+
+    private OutgoingEmail outgoingEmail(Long id, String toAddress, int attempts) {
+        OutgoingEmail email = new OutgoingEmail(new Mail("from@motech.org", toAddress, "subject", "text"), now());
+        email.setId(id);
+        email.setAttempts(attempts);
+        return email;
+    }
+}
@@ -5,12 +5,13 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.motechproject.email.domain.Mail;
-import org.motechproject.email.service.EmailRecordService;
+import org.motechproject.email.service.EmailAuditService;
 import org.motechproject.email.service.EmailSenderService;
-import org.motechproject.config.SettingsFacade;
 import org.springframework.mail.javamail.JavaMailSender;
 
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -21,10 +22,10 @@ public class EmailSenderServiceTest {
     private EmailSenderService emailSender = new EmailSenderServiceImpl();
 
     @Mock
-    private EmailRecordService emailRecordService;
+    private EmailAuditService emailAuditService;
 
     @Mock
-    private SettingsFacade settings;
+    private EmailOutbox emailOutbox;
 
     @Mock
     private JavaMailSender javaMailSender;
@@ -36,11 +37,29 @@ public class EmailSenderServiceTest {
 
     @Test
     public void shouldSendCriticalNotification() throws Exception {
-
-        when(settings.getProperty(anyString())).thenReturn("true");
         emailSender.send( "from", "to", "subject", "text");
 
         verify(javaMailSender).send(new MotechMimeMessagePreparator(new Mail ("from", "to", "subject", "text")));
+        verify(emailAuditService).log(anyList());
+    }
+
+    @Test
+    public void shouldQueueEmailsInOutbox() throws Exception {
+        when(emailOutbox.isEnabled()).thenReturn(true);
+
+        emailSender.queue("from", "to", "subject", "text");
+
+        verify(emailOutbox).add(new Mail("from", "to", "subject", "text"));
+        verify(javaMailSender, never()).send(any(MotechMimeMessagePreparator.class));
     }
 
+    @Test
+    public void shouldSendEmailsRightAwayWhenOutboxIsDisabled() throws Exception {
+        when(emailOutbox.isEnabled()).thenReturn(false);
+
+        emailSender.queue("from", "to", "subject", "text");
+
+        verify(emailOutbox, never()).add(any(Mail.class));
+        verify(javaMailSender).send(new MotechMimeMessagePreparator(new Mail ("from", "to", "subject", "text")));
+    }
 }
@@ -21,8 +21,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,6 +37,8 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerEventRelay.class);
 
     private static final String PROXY_IN_OSGI = "proxy-in-osgi";
+    private static final String BATCHED_PARAMETERS = "batched-parameters";
+    private static final int MAX_BATCHED_EVENTS = 100;
 
     private EventListenerRegistry eventListenerRegistry;
     private OutboundEventGateway outboundEventGateway;
@@ -89,11 +93,13 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         String messageDestination = event.getMessageDestination();
         if (null != messageDestination) {
             EventListener listener = getEventListener(event, messageDestination);
-            if (null != listener) {
+            if (null == listener) {
+                LOGGER.warn("Event listener with identifier {} not present to handle the event: {}", messageDestination, event);
+            } else if (event.getParameters().containsKey(BATCHED_PARAMETERS)) {
+                handleBatchedQueueEvents(listener, event);
+            } else {
                 MotechEvent e = copyMotechEvent(event);
                 handleQueueEvent(listener, e);
-            } else {
-                LOGGER.warn("Event listener with identifier {} not present to handle the event: {}", messageDestination, event);
             }
         } else {
             LOGGER.warn("Message destination not present in event: {}", event);
@@ -128,6 +134,14 @@ public class ServerEventRelay implements EventRelay, EventHandler {
     @Override
     public void handleEvent(Event osgiEvent) {
         String subject = (String) osgiEvent.getProperty(OsgiEventProxy.SUBJECT_PARAM);
+        List<Map<String, Object>> parametersList =
+                (List<Map<String, Object>>) osgiEvent.getProperty(OsgiEventProxy.PARAMETERS_LIST_PARAM);
+
+        if (parametersList != null) {
+            relayEvents(subject, parametersList);
+            return;
+        }
+
         Map<String, Object> parameters = (Map<String, Object>) osgiEvent.getProperty(OsgiEventProxy.PARAMETERS_PARAM);
         Boolean broadcast = (Boolean) osgiEvent.getProperty(OsgiEventProxy.BROADCAST_PARAM);
         Boolean proxyOnReceivingEnd = (Boolean) osgiEvent.getProperty(OsgiEventProxy.PROXY_ON_RECEIVING_END_PARAM);
@@ -154,6 +168,44 @@ public class ServerEventRelay implements EventRelay, EventHandler {
         }
     }
 
+    private void relayEvents(String subject, List<Map<String, Object>> parametersList) {
+        LOGGER.debug("Relaying {} OSGi events - subject: {}", parametersList.size(), subject);
+
+        // all events share the subject, so the listeners are looked up once for all of them
+        Set<EventListener> listeners = getEventListeners(new MotechEvent(subject));
+
+        // the events are packed into messages for each listener, instead of being sent one by one
+        for (EventListener listener : listeners) {
+            for (int from = 0; from < parametersList.size(); from += MAX_BATCHED_EVENTS) {
+                List<Map<String, Object>> batch = new ArrayList<>(
+                        parametersList.subList(from, Math.min(from + MAX_BATCHED_EVENTS, parametersList.size())));
+
+                Map<String, Object> parameters = new HashMap<>();
+                parameters.put(BATCHED_PARAMETERS, batch);
+
+                MotechEvent batchedEvent = new MotechEvent(subject, parameters);
+                batchedEvent.setMessageDestination(listener.getIdentifier());
+                outboundEventGateway.sendEventMessage(batchedEvent);
+            }
+        }
+    }
+
+    private void handleBatchedQueueEvents(EventListener listener, MotechEvent event) {
+        List<Map<String, Object>> parametersList = (List<Map<String, Object>>) event.getParameters().get(BATCHED_PARAMETERS);
+
+        for (Map<String, Object> parameters : parametersList) {
+            MotechEvent e = new MotechEvent(event.getSubject(), parameters);
+            e.setMessageDestination(event.getMessageDestination());
+
+            try {
+                handleQueueEvent(listener, e);
+            } catch (RuntimeException ex) {
+                // the other events of the message were handled already, so the message must not be redelivered
+                LOGGER.error("Discarding Motech event {} from a batched message", e, ex);
+            }
+        }
+    }
+
     private void handleQueueEvent(EventListener listener, MotechEvent event) {
         EventCallbackService callbackService = findCallbackService(event.getCallbackName());
         ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
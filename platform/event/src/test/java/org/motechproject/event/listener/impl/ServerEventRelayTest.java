@@ -15,6 +15,7 @@ import org.motechproject.event.listener.EventCallbackService;
 import org.motechproject.event.listener.EventListener;
 import org.motechproject.event.messaging.MotechEventConfig;
 import org.motechproject.event.messaging.OutboundEventGateway;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
@@ -23,6 +24,7 @@ import org.osgi.service.event.EventAdmin;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.core.Is.is;
@@ -258,6 +260,80 @@ public class ServerEventRelayTest {
         assertEquals("subject", captor.getValue().getTopic());
     }
 
+    @Test
+    public void shouldRelayManyProxiedEventsWithSingleListenerLookup() {
+        setUpListeners(SUBJECT, eventListener, secondaryEventListener);
+
+        List<Map<String, Object>> parametersList = Arrays.asList(createEvent().getParameters(),
+                createEvent().getParameters(), createEvent().getParameters());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        properties.put(OsgiEventProxy.PARAMETERS_LIST_PARAM, parametersList);
+        properties.put(OsgiEventProxy.BROADCAST_PARAM, false);
+
+        eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+
+        verify(registry).getListeners(SUBJECT);
+
+        // a single message for each listener
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(outboundEventGateway, times(2)).sendEventMessage(captor.capture());
+        assertEquals(LISTENER_IDENTIFIER, captor.getAllValues().get(0).getMessageDestination());
+        assertEquals(SECONDARY_LISTENER_IDENTIFIER, captor.getAllValues().get(1).getMessageDestination());
+
+        // the listener receives the events one by one
+        setUpListeners(SUBJECT, eventListener);
+        eventRelay.relayQueueEvent(captor.getAllValues().get(0));
+
+        ArgumentCaptor<MotechEvent> handledCaptor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventListener, times(3)).handle(handledCaptor.capture());
+        assertEquals("value", handledCaptor.getValue().getParameters().get("test"));
+    }
+
+    @Test
+    public void shouldRetryOnlyTheFailedEventOfBatchedMessage() {
+        setUpListeners(SUBJECT, eventListener);
+
+        Map<String, Object> failing = new HashMap<>();
+        failing.put("test", "failing");
+        List<Map<String, Object>> parametersList = Arrays.asList(failing, createEvent().getParameters());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        properties.put(OsgiEventProxy.PARAMETERS_LIST_PARAM, parametersList);
+        eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(outboundEventGateway).sendEventMessage(captor.capture());
+
+        MotechEvent failingEvent = new MotechEvent(SUBJECT, failing);
+        failingEvent.setMessageDestination(LISTENER_IDENTIFIER);
+        doThrow(new RuntimeException("Failed")).when(eventListener).handle(failingEvent);
+        when(motechEventConfig.getMessageMaxRedeliveryCount()).thenReturn(2);
+
+        eventRelay.relayQueueEvent(captor.getValue());
+
+        verify(eventListener, times(2)).handle(any(MotechEvent.class));
+        verify(outboundEventGateway, times(2)).sendEventMessage(captor.capture());
+        MotechEvent retried = captor.getValue();
+        assertEquals("failing", retried.getParameters().get("test"));
+        assertEquals(1, retried.getMessageRedeliveryCount());
+    }
+
+    @Test
+    public void shouldNotRelayManyProxiedEventsWithoutListeners() {
+        setUpListeners(SUBJECT);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(OsgiEventProxy.SUBJECT_PARAM, SUBJECT);
+        properties.put(OsgiEventProxy.PARAMETERS_LIST_PARAM, Arrays.asList(createEvent().getParameters()));
+
+        eventRelay.handleEvent(new Event(OsgiEventProxy.PROXY_EVENT_TOPIC, properties));
+
+        verify(outboundEventGateway, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
     private MotechEvent createEvent(String messageDestination) {
         MotechEvent event = createEvent();
         event.setMessageDestination(messageDestination);
@@ -13,6 +13,7 @@ import org.motechproject.mds.exception.csv.CsvImportException;
 import org.motechproject.mds.exception.entity.EntityNotFoundException;
 import org.motechproject.mds.filter.Filter;
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.CountResult;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.CsvImportExportService;
 import org.motechproject.mds.util.Constants;
@@ -112,24 +113,26 @@ public class InstanceController extends MdsController {
     @ResponseBody
     public void getBlobField(@PathVariable Long entityId, @PathVariable Long instanceId,
                              @PathVariable String fieldName, HttpServletResponse response) throws IOException, InstanceNotFoundException {
-        byte[] content;
-        Object value = instanceService.getInstanceField(entityId, instanceId, fieldName);
-        if (value instanceof  byte[]) {
-            content = (byte[]) value;
-        } else {
-            content = ArrayUtils.toPrimitive((Byte[]) value);
-        }
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setStatus(HttpServletResponse.SC_OK);
 
+        // the content is copied from the JDBC stream in chunks, instead of being loaded as a Byte[] first
         try (OutputStream outputStream = response.getOutputStream()) {
-            response.setHeader("Accept-Ranges", "bytes");
+            long written = instanceService.streamInstanceField(entityId, instanceId, fieldName, outputStream);
 
-            if (content.length == 0) {
+            if (written <= 0) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            } else {
-                response.setStatus(HttpServletResponse.SC_OK);
             }
+        }
+    }
 
-            outputStream.write(content);
+    @RequestMapping(value = "/instances/{entityId}/{instanceId}/{fieldName}", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void uploadBlobField(@PathVariable Long entityId, @PathVariable Long instanceId,
+                                @PathVariable String fieldName, @RequestParam(required = true) MultipartFile file)
+            throws IOException, InstanceNotFoundException {
+        try (InputStream inputStream = file.getInputStream()) {
+            instanceService.uploadInstanceField(entityId, instanceId, fieldName, inputStream);
         }
     }
 
@@ -294,6 +297,7 @@ public class InstanceController extends MdsController {
 
         List<BasicEntityRecord> entityRecords;
         long recordCount;
+        boolean exactCount = true;
 
         if (StringUtils.isNotBlank(lookup)) {
             entityRecords = instanceService.getEntityRecordsFromLookup(entityId, lookup, fieldMap, queryParams);
@@ -306,12 +310,15 @@ public class InstanceController extends MdsController {
             recordCount = instanceService.countRecordsWithFilters(entityId, filters);
         } else {
             entityRecords = instanceService.getEntityRecords(entityId, queryParams);
-            recordCount = instanceService.countRecords(entityId);
+            CountResult countResult = instanceService.estimateRecordCount(entityId);
+            recordCount = countResult.getCount();
+            exactCount = countResult.isExact();
         }
 
         int rowCount = (int) Math.ceil(recordCount / (double) queryParams.getPageSize());
 
         Records<BasicEntityRecord> records = new Records<>(queryParams.getPage(), rowCount, (int) recordCount, entityRecords);
+        records.setExactCount(exactCount);
         processFieldsForUI(records);
         return records;
     }
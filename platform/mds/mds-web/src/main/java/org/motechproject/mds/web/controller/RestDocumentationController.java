@@ -1,15 +1,15 @@
 package org.motechproject.mds.web.controller;
 
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.docs.RestDocumentation;
 import org.motechproject.mds.service.RestDocumentationService;
 import org.motechproject.osgi.web.service.LocaleService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseStatus;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -22,6 +22,15 @@ import java.io.IOException;
 @Controller
 public class RestDocumentationController {
 
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String ETAG = "ETag";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String VARY = "Vary";
+    private static final String GZIP = "gzip";
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
     @Autowired
     private RestDocumentationService restDocService;
 
@@ -30,7 +39,8 @@ public class RestDocumentationController {
 
     /**
      * Prints the spec of the MDS REST API to the response. The server prefix is used for substituting the
-     * base path in the schema.
+     * base path in the schema. The documentation is sent gzipped if the client accepts it, and not sent at all
+     * if the ETag given in the If-None-Match header matches the current documentation.
      *
      * @param request  the request sent do the server
      * @param serverPrefix  the server prefix for this server(deduced using javascript), the most common one is /motech-platform-server
@@ -38,10 +48,46 @@ public class RestDocumentationController {
      * @throws IOException if there were problems writing the documentation to the response
      */
     @RequestMapping(value = "/rest-doc", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
     public void printMdsRestDocumentation(HttpServletRequest request,
                                           @RequestParam(value = "serverPrefix", required = false) String serverPrefix,
                                               HttpServletResponse response) throws IOException {
-        restDocService.retrieveDocumentation(response.getWriter(), serverPrefix, localeService.getUserLocale(request));
+        RestDocumentation documentation = restDocService.getDocumentation(serverPrefix,
+                localeService.getUserLocale(request));
+
+        response.setHeader(ETAG, documentation.getEtag());
+        response.setHeader(CACHE_CONTROL, "no-cache");
+        response.setHeader(VARY, ACCEPT_ENCODING);
+
+        if (etagMatches(request.getHeader(IF_NONE_MATCH), documentation.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] content;
+        if (StringUtils.contains(request.getHeader(ACCEPT_ENCODING), GZIP)) {
+            response.setHeader(CONTENT_ENCODING, GZIP);
+            content = documentation.getGzippedContent();
+        } else {
+            content = documentation.getContent();
+        }
+
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+
+        for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            String trimmed = StringUtils.removeStart(candidate.trim(), "W/");
+            if ("*".equals(trimmed) || etag.equals(trimmed)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 }
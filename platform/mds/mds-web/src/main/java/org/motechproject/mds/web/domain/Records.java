@@ -10,6 +10,7 @@ public class Records<T> {
     private Integer total; // number of rows per page
     private Integer records; // total number of records
     private List<T> rows; // data to display
+    private Boolean exactCount; // false if the number of records was estimated
 
     public Records(int page, int rows, int totalRecords, List<T> list) {
         this.page = page;
@@ -52,4 +53,12 @@ public class Records<T> {
     public void setRows(List<T> rows) {
         this.rows = rows;
     }
+
+    public Boolean getExactCount() {
+        return exactCount;
+    }
+
+    public void setExactCount(Boolean exactCount) {
+        this.exactCount = exactCount;
+    }
 }
@@ -5,6 +5,7 @@ import org.datanucleus.exceptions.NucleusOptimisticException;
 import org.datanucleus.exceptions.NucleusUserException;
 import org.motechproject.mds.exception.rest.RestBadBodyFormatException;
 import org.motechproject.mds.exception.rest.RestEntityNotFoundException;
+import org.motechproject.mds.exception.rest.RestInternalException;
 import org.motechproject.mds.exception.rest.RestLookupExecutionForbiddenException;
 import org.motechproject.mds.exception.rest.RestLookupNotFoundException;
 import org.motechproject.mds.exception.rest.RestNoLookupResultException;
@@ -29,10 +30,14 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import javax.jdo.JDOUserException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.ConstraintViolationException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The main entry point for the MDS Rest api. It delegates requests
@@ -44,53 +49,66 @@ public class MdsRestController  {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MdsRestController.class);
 
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
     @Autowired
     private MdsRestFacadeRetriever restFacadeRetriever;
 
     @RequestMapping(value = "/{moduleName}/{namespace}/{entityName}", method = RequestMethod.GET)
     @ResponseBody
     public Object get(@PathVariable String moduleName, @PathVariable String namespace,
-                    @PathVariable String entityName, @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, moduleName, namespace, requestParams, null);
+                    @PathVariable String entityName, @RequestParam Map<String, String> requestParams,
+                    HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, moduleName, namespace, requestParams, null, request, response);
     }
 
     @RequestMapping(value = "/{moduleName}/{entityName}", method = RequestMethod.GET)
     @ResponseBody
     public Object get(@PathVariable String moduleName, @PathVariable String entityName,
-                    @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, moduleName, null, requestParams, null);
+                    @RequestParam Map<String, String> requestParams,
+                    HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, moduleName, null, requestParams, null, request, response);
     }
 
     @RequestMapping(value = "/lookup/{entityName}/{lookupName}", method = RequestMethod.GET)
     @ResponseBody
     public Object lookupGet(@PathVariable String entityName, @PathVariable String lookupName,
-                      @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, null, null, requestParams, lookupName);
+                      @RequestParam Map<String, String> requestParams,
+                    HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, null, null, requestParams, lookupName, request, response);
     }
 
     @RequestMapping(value = "/lookup/{moduleName}/{entityName}/{lookupName}", method = RequestMethod.GET)
     @ResponseBody
     public Object lookupGet(@PathVariable String moduleName, @PathVariable String entityName,
-                      @PathVariable String lookupName, @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, moduleName, null, requestParams, lookupName);
+                      @PathVariable String lookupName, @RequestParam Map<String, String> requestParams,
+                      HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, moduleName, null, requestParams, lookupName, request, response);
     }
 
     @RequestMapping(value = "/lookup/{moduleName}/{namespace}/{entityName}/{lookupName}", method = RequestMethod.GET)
     @ResponseBody
     public Object lookupGet(@PathVariable String moduleName, @PathVariable String namespace,
                       @PathVariable String entityName, @PathVariable String lookupName,
-                      @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, moduleName, namespace, requestParams, lookupName);
+                      @RequestParam Map<String, String> requestParams,
+                    HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, moduleName, namespace, requestParams, lookupName, request, response);
     }
 
     @RequestMapping(value = "/{entityName}", method = RequestMethod.GET)
     @ResponseBody
-    public Object get(@PathVariable String entityName, @RequestParam Map<String, String> requestParams) {
-        return doGet(entityName, null, null, requestParams, null);
+    public Object get(@PathVariable String entityName, @RequestParam Map<String, String> requestParams,
+                      HttpServletRequest request, HttpServletResponse response) {
+        return doGet(entityName, null, null, requestParams, null, request, response);
     }
 
     private Object doGet(String entityName, String moduleName, String namespace,
-                       Map<String, String> requestParams, String pathLookupName) {
+                         Map<String, String> requestParams, String pathLookupName,
+                         HttpServletRequest request, HttpServletResponse response) {
         debugRequest("GET", entityName, moduleName, namespace);
 
         QueryParams queryParams = ParamParser.buildQueryParams(requestParams);
@@ -102,8 +120,14 @@ public class MdsRestController  {
         MdsRestFacade restFacade = restFacadeRetriever.getRestFacade(entityName, moduleName, namespace);
 
         Boolean includeBlob = ParamParser.getIncludeBlob(requestParams);
-
-        if (lookupName != null) {
+        List<String> fields = ParamParser.getFields(requestParams);
+
+        if (isStreamed(requestParams, id, fields)) {
+            // the client asked for the instances to be written directly to the response, metadata comes last
+            stream(restFacade, lookupName, requestParams, queryParams, includeBlob != null && includeBlob, fields,
+                    request, response);
+            return null;
+        } else if (lookupName != null) {
             // lookup
             return restFacade.executeLookup(lookupName, requestParams, queryParams, includeBlob != null && includeBlob);
         } else if (id != null) {
@@ -115,6 +139,53 @@ public class MdsRestController  {
         }
     }
 
+    private boolean isStreamed(Map<String, String> requestParams, Long id, List<String> fields) {
+        // streaming must be requested explicitly, since it changes the format of the response
+        boolean streamed = id == null && ParamParser.isStream(requestParams);
+
+        if (fields != null && !streamed) {
+            throw new InvalidParameterException("The \"fields\" parameter can only be used with \"stream=true\"");
+        }
+
+        return streamed;
+    }
+
+    private void stream(MdsRestFacade restFacade, String lookupName, Map<String, String> requestParams,
+                        QueryParams queryParams, boolean includeBlob, List<String> fields,
+                        HttpServletRequest request, HttpServletResponse response) {
+        boolean gzip = StringUtils.contains(request.getHeader(ACCEPT_ENCODING), GZIP);
+
+        response.setContentType(JSON_CONTENT_TYPE);
+        if (gzip) {
+            response.setHeader(CONTENT_ENCODING, GZIP);
+        }
+
+        try {
+            OutputStream out = gzip
+                    ? new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)
+                    : response.getOutputStream();
+
+            if (lookupName != null) {
+                restFacade.streamLookup(lookupName, requestParams, queryParams, includeBlob, fields, out);
+            } else {
+                restFacade.stream(queryParams, includeBlob, fields, out);
+            }
+
+            if (gzip) {
+                ((GZIPOutputStream) out).finish();
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RestInternalException("Unable to write the response", e);
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                // nothing was sent yet, so the error can still be reported with a proper status
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
     @RequestMapping(value = "/{moduleName}/{namespace}/{entityName}", method = RequestMethod.POST)
     @ResponseBody
     public Object post(@PathVariable String moduleName, @PathVariable String namespace,
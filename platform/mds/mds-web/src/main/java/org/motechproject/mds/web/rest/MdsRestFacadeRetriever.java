@@ -12,6 +12,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class for retrieving {@link org.motechproject.mds.rest.MdsRestFacade} objects
@@ -25,10 +27,34 @@ public class MdsRestFacadeRetriever {
     @Autowired
     private BundleContext bundleContext;
 
+    private final Map<String, ServiceReference<MdsRestFacade>> references = new ConcurrentHashMap<>();
+
     public MdsRestFacade getRestFacade(String entityName, String moduleName, String namespace) {
         String restId = ClassName.restId(entityName, moduleName, namespace);
 
+        // a reference stays valid until the entities bundle unregisters the facade, for example on regeneration
+        ServiceReference<MdsRestFacade> ref = references.get(restId);
+        if (ref == null || ref.getBundle() == null) {
+            ref = findReference(restId, entityName, moduleName, namespace);
+        }
+
         MdsRestFacade restFacade = null;
+        if (ref != null) {
+            restFacade = bundleContext.getService(ref);
+        }
+
+        if (restFacade == null) {
+            references.remove(restId);
+            throw new RestNotSupportedException(entityName, moduleName, namespace);
+        }
+
+        references.put(restId, ref);
+
+        return restFacade;
+    }
+
+    private ServiceReference<MdsRestFacade> findReference(String restId, String entityName, String moduleName,
+                                                          String namespace) {
         try {
             String filter = String.format("(org.eclipse.gemini.blueprint.bean.name=%s)", restId);
             Collection<ServiceReference<MdsRestFacade>> refs = bundleContext.getServiceReferences(
@@ -39,18 +65,9 @@ public class MdsRestFacadeRetriever {
                         "Using first one available.", entityName, moduleName, namespace);
             }
 
-            if (refs != null && refs.size() > 0) {
-                ServiceReference<MdsRestFacade> ref = refs.iterator().next();
-                restFacade = bundleContext.getService(ref);
-            }
+            return refs != null && refs.size() > 0 ? refs.iterator().next() : null;
         } catch (InvalidSyntaxException e) {
             throw new IllegalArgumentException("Invalid Syntax for Rest Facade retrieval", e);
         }
-
-        if (restFacade == null) {
-            throw new RestNotSupportedException(entityName, moduleName, namespace);
-        }
-
-        return restFacade;
     }
 }
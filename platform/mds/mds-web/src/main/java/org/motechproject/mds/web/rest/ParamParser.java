@@ -1,10 +1,13 @@
 package org.motechproject.mds.web.rest;
 
 import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.query.KeysetCursor;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.util.Order;
 import org.motechproject.mds.web.exception.InvalidParameterException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +23,10 @@ public final class ParamParser {
     public static final String LOOKUP_NAME = "lookup";
     public static final String ID = "id";
     public static final String INCLUDE_BLOB = "includeBlob";
+    public static final String AFTER = "after";
+    public static final String FIELDS = "fields";
+    public static final String STREAM = "stream";
+    public static final String FETCH_GROUPS = "fetchGroups";
 
     public static QueryParams buildQueryParams(Map<String, String> requestParams) {
         Integer page;
@@ -45,7 +52,28 @@ public final class ParamParser {
 
         order = buildOrder(sortBy, orderDir);
 
-        return new QueryParams(page, pageSize, order);
+        QueryParams queryParams;
+
+        if (requestParams.containsKey(AFTER)) {
+            // keyset pagination, an empty token means the first page
+            try {
+                List<Order> orderList = new ArrayList<>();
+                if (order != null) {
+                    orderList.add(order);
+                }
+                queryParams = QueryParams.keyset(pageSize, orderList, KeysetCursor.fromToken(requestParams.get(AFTER)));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidParameterException("Given after token is not valid!", e);
+            }
+        } else {
+            queryParams = new QueryParams(page, pageSize, order);
+        }
+
+        if (requestParams.containsKey(FETCH_GROUPS)) {
+            queryParams = queryParams.withFetchGroups(splitList(requestParams.get(FETCH_GROUPS)));
+        }
+
+        return queryParams;
     }
 
     public static String getLookupName(Map<String, String> requestParams) {
@@ -85,6 +113,38 @@ public final class ParamParser {
         return includeBlob;
     }
 
+    public static boolean isStream(Map<String, String> requestParams) {
+        if (!requestParams.containsKey(STREAM)) {
+            return false;
+        }
+
+        String value = requestParams.get(STREAM);
+
+        if (value.toLowerCase().equals("true")) {
+            return true;
+        } else if (value.toLowerCase().equals("false")) {
+            return false;
+        } else {
+            throw new InvalidParameterException("The \"stream\" is neither \"true\" nor \"false\"");
+        }
+    }
+
+    public static List<String> getFields(Map<String, String> requestParams) {
+        return requestParams.containsKey(FIELDS) ? splitList(requestParams.get(FIELDS)) : null;
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> list = new ArrayList<>();
+
+        for (String element : StringUtils.split(value, ',')) {
+            if (StringUtils.isNotBlank(element)) {
+                list.add(element.trim());
+            }
+        }
+
+        return list;
+    }
+
     private static Integer getInteger(Map<String, String> requestParams, String key, Integer defaultVal) {
         return requestParams.containsKey(key) ? Integer.valueOf(requestParams.get(key)) : defaultVal;
     }
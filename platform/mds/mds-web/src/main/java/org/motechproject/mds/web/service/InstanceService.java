@@ -4,6 +4,7 @@ import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.dto.FieldInstanceDto;
 import org.motechproject.mds.exception.entity.EntityInstancesNonEditableException;
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.CountResult;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.web.domain.BasicEntityRecord;
 import org.motechproject.mds.web.domain.BasicHistoryRecord;
@@ -14,6 +15,9 @@ import org.motechproject.mds.web.domain.Records;
 import org.motechproject.mds.web.domain.RelationshipsUpdate;
 
 import javax.management.InstanceNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +35,15 @@ public interface InstanceService {
      */
     long countRecords(Long entityId);
 
+    /**
+     * Gets a total number of instances, for the given entity. The count of large entities can be estimated
+     * from database statistics, instead of counting the instances.
+     *
+     * @param entityId id of the entity
+     * @return number of instances, together with the information whether it is exact
+     */
+    CountResult estimateRecordCount(Long entityId);
+
     /**
      * Saves the given instance representation in MDS. If the representation has the id field assigned,
      * an update will be performed. Otherwise, it will attempt to create a new instance.
@@ -287,6 +300,34 @@ public interface InstanceService {
      */
     Object getInstanceField(Long entityId, Long instanceId, String fieldName) throws InstanceNotFoundException;
 
+    /**
+     * Writes the value of the blob field of the given instance to the stream. The value is copied from
+     * a JDBC stream, instead of being loaded as an array first.
+     *
+     * @param entityId id of the entity
+     * @param instanceId id of the instance
+     * @param fieldName name of the blob field
+     * @param outputStream the stream to which the value will be written
+     * @throws InstanceNotFoundException if instance with the given id does not exist
+     * @throws IOException if the value could not be written to the stream
+     * @return the number of bytes written
+     */
+    long streamInstanceField(Long entityId, Long instanceId, String fieldName, OutputStream outputStream)
+            throws InstanceNotFoundException, IOException;
+
+    /**
+     * Replaces the value of the blob field of the given instance with the content of the stream. The stream
+     * is passed to the JDBC driver, instead of being read into an array first.
+     *
+     * @param entityId id of the entity
+     * @param instanceId id of the instance
+     * @param fieldName name of the blob field
+     * @param inputStream the new value of the field
+     * @throws InstanceNotFoundException if instance with the given id does not exist
+     */
+    void uploadInstanceField(Long entityId, Long instanceId, String fieldName, InputStream inputStream)
+            throws InstanceNotFoundException;
+
     /**
      * Checks whether the logged in user has access to the entity with the given ID.
      *
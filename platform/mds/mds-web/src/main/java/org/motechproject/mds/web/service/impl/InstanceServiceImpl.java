@@ -1,6 +1,7 @@
 package org.motechproject.mds.web.service.impl;
 
 import javassist.CannotCompileException;
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
@@ -10,6 +11,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.motechproject.commons.date.model.Time;
+import org.motechproject.mds.config.ModuleSettings;
 import org.motechproject.mds.display.DisplayHelper;
 import org.motechproject.mds.domain.EntityType;
 import org.motechproject.mds.dto.EntityDto;
@@ -34,6 +36,7 @@ import org.motechproject.mds.filter.Filters;
 import org.motechproject.mds.helper.DataServiceHelper;
 import org.motechproject.mds.helper.bundle.MdsBundleHelper;
 import org.motechproject.mds.lookup.LookupExecutor;
+import org.motechproject.mds.query.CountResult;
 import org.motechproject.mds.query.InMemoryQueryFilter;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.EntityService;
@@ -46,6 +49,7 @@ import org.motechproject.mds.service.UserPreferencesService;
 import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.MDSClassLoader;
 import org.motechproject.mds.util.MemberUtil;
+import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.SecurityMode;
 import org.motechproject.mds.util.StateManagerUtil;
@@ -73,6 +77,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.management.InstanceNotFoundException;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -233,6 +240,35 @@ public class InstanceServiceImpl implements InstanceService {
         return service.getDetachedField(instance, fieldName);
     }
 
+    @Override
+    public long streamInstanceField(Long entityId, Long instanceId, String fieldName, OutputStream outputStream)
+            throws InstanceNotFoundException, IOException {
+        EntityDto entity = getEntity(entityId);
+        MotechDataService service = getServiceForEntity(entity);
+        validateCredentialsForReading(entity);
+
+        try {
+            return service.streamBlob(instanceId, fieldName, outputStream);
+        } catch (ObjectNotFoundException e) {
+            throw new InstanceNotFoundException(String.format("Cannot find instance with id: %d", instanceId));
+        }
+    }
+
+    @Override
+    public void uploadInstanceField(Long entityId, Long instanceId, String fieldName, InputStream inputStream)
+            throws InstanceNotFoundException {
+        EntityDto entity = getEntity(entityId);
+        validateCredentials(entity);
+        validateNonEditableProperty(entity);
+        MotechDataService service = getServiceForEntity(entity);
+
+        try {
+            service.writeBlob(instanceId, fieldName, inputStream);
+        } catch (ObjectNotFoundException e) {
+            throw new InstanceNotFoundException(String.format("Cannot find instance with id: %d", instanceId));
+        }
+    }
+
     @Override
     public List<BasicEntityRecord> getEntityRecordsFromLookup(Long entityId, String lookupName, Map<String, Object> lookupMap,
                                                          QueryParams queryParams) {
@@ -300,6 +336,15 @@ public class InstanceServiceImpl implements InstanceService {
         return service.count();
     }
 
+    @Override
+    public CountResult estimateRecordCount(Long entityId) {
+        EntityDto entity = getEntity(entityId);
+        validateCredentialsForReading(entity);
+        MotechDataService service = getServiceForEntity(entity);
+
+        return service.estimateCount();
+    }
+
     @Override
     public long countRecordsByLookup(Long entityId, String lookupName, Map<String, Object> lookupMap) {
         EntityDto entity = getEntity(entityId);
@@ -514,6 +559,19 @@ public class InstanceServiceImpl implements InstanceService {
             List<FieldDto> relatedFields = getEntityFields(relatedEntity.getId());
             MotechDataService relatedDataService = getServiceForEntity(relatedEntity);
             Collection relatedAsColl = new ArrayList<>();
+            QueryParams params = withDefaultPageSize(queryParams);
+
+            // without changes made on the UI, the related instances are paged and ordered by the database
+            if (instanceId != null && isEmpty(filter)) {
+                List related = service.retrieveRelated(instanceId, fieldName, params);
+                long recordCount = service.countRelated(instanceId, fieldName);
+
+                List<BasicEntityRecord> entityRecords = instancesToBasicRecords(related, relatedEntity, relatedFields,
+                        relatedDataService, EntityType.STANDARD);
+                int rowCount = (int) Math.ceil(recordCount / (double) params.getPageSize());
+
+                return new Records<>(params.getPage(), rowCount, (int) recordCount, entityRecords);
+            }
 
             // If the relationship already exists, fetch instances and use correct type
             if (instanceId != null) {
@@ -551,7 +609,7 @@ public class InstanceServiceImpl implements InstanceService {
             }
 
             // apply pagination ordering (currently in memory)
-            List filtered = InMemoryQueryFilter.filter(relatedAsColl, queryParams);
+            List filtered = InMemoryQueryFilter.filter(relatedAsColl, params);
 
             // convert the instance to a grid-friendly form
             List<BasicEntityRecord> entityRecords = instancesToBasicRecords(filtered, relatedEntity, relatedFields,
@@ -559,16 +617,32 @@ public class InstanceServiceImpl implements InstanceService {
 
             // counts for the grid
             int recordCount = relatedAsColl.size();
-            int rowCount = (int) Math.ceil(recordCount / (double) queryParams.getPageSize());
+            int rowCount = (int) Math.ceil(recordCount / (double) params.getPageSize());
 
             // package as records
-            return new Records<>(queryParams.getPage(), rowCount, recordCount, entityRecords);
+            return new Records<>(params.getPage(), rowCount, recordCount, entityRecords);
         } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException | IllegalArgumentException |
                 ClassNotFoundException | CannotCompileException | InstantiationException | NoSuchFieldException e) {
            throw new ObjectReadException(entityId, e);
         }
     }
 
+    private QueryParams withDefaultPageSize(QueryParams queryParams) {
+        if (queryParams != null && queryParams.getPageSize() != null) {
+            return queryParams;
+        }
+
+        Integer page = (queryParams == null || queryParams.getPage() == null) ? 1 : queryParams.getPage();
+        List<Order> orderList = (queryParams == null) ? null : queryParams.getOrderList();
+
+        return new QueryParams(page, ModuleSettings.DEFAULT_GRID_SIZE, orderList);
+    }
+
+    private boolean isEmpty(RelationshipsUpdate filter) {
+        return filter == null || (CollectionUtils.isEmpty(filter.getAddedIds()) &&
+                CollectionUtils.isEmpty(filter.getRemovedIds()) && CollectionUtils.isEmpty(filter.getAddedNewRecords()));
+    }
+
     private Object newInstanceFromEntityRecord(Class<?> entityClass, List<FieldDto> entityFields, List<FieldRecord> fields, MotechDataService service)
             throws IllegalAccessException, InstantiationException, ClassNotFoundException, NoSuchMethodException, CannotCompileException, NoSuchFieldException {
         Object instance = entityClass.newInstance();
@@ -184,6 +184,21 @@
         }
     }
 
+    /*
+    * This function marks the number of records shown in the pager of the grid
+    * as estimated, if the server did not count the records exactly
+    */
+    function showEstimatedCount(gridId, data, scope) {
+        var pagingInfo = $('#gbox_' + gridId + ' .ui-paging-info');
+
+        pagingInfo.find('.ui-jqgrid-estimated-count').remove();
+        if (data !== undefined && data !== null && data.exactCount === false) {
+            pagingInfo.append($('<span>').addClass('ui-jqgrid-estimated-count')
+                .text(' ' + scope.msg('mds.dataBrowsing.estimatedCount'))
+                .attr('title', scope.msg('mds.dataBrowsing.estimatedCountInfo')));
+        }
+    }
+
     function buildGridColModel(colModel, fields, scope, removeVersionField, ignoreHideFields) {
         var i, j, cmd, field, skip = false, widthTable;
         widthTable = scope.getColumnsWidth();
@@ -1389,6 +1404,9 @@
                                     firstLoad = false;
                                 }
                             },
+                            loadComplete: function (data) {
+                                showEstimatedCount(gridId, data, scope);
+                            },
                             loadError: function(e) {
                                 scope.setDataRetrievalError(true, e.responseText);
                             }
@@ -1521,6 +1539,9 @@
                                     $('#gview_' + gridId + ' .ui-jqgrid-hdiv').width('100%').show();
                                     $('#gview_' + gridId + ' .ui-jqgrid-view').width('100%');
                                     $('#gbox_' + gridId + ' .ui-jqgrid-pager').width('100%');
+                                },
+                                loadComplete: function (data) {
+                                    showEstimatedCount(gridId, data, scope);
                                 }
                             });
                         }
@@ -5,29 +5,33 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
+import org.motechproject.mds.docs.RestDocumentation;
 import org.motechproject.mds.service.RestDocumentationService;
 import org.motechproject.osgi.web.service.LocaleService;
 import org.springframework.test.web.server.MockMvc;
 import org.springframework.test.web.server.setup.MockMvcBuilders;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.Writer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.server.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.server.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.server.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.server.result.MockMvcResultMatchers.status;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RestDocumentationControllerTest {
 
+    private static final Locale LOCALE = new Locale("en", "US");
+
     @InjectMocks
     private RestDocumentationController restDocController = new RestDocumentationController();
 
@@ -46,23 +50,53 @@ public class RestDocumentationControllerTest {
 
     @Test
     public void shouldReturnRestDocumentation() throws Exception {
-        doAnswer(new Answer() {
-            @Override
-            public Object answer(InvocationOnMock invocation) throws Throwable {
-                Writer writer = (Writer) invocation.getArguments()[0];
-                String prefix = (String) invocation.getArguments()[1];
-
-                writer.write("Rest docs with prefix: " + prefix);
+        RestDocumentation documentation = new RestDocumentation("Rest docs with prefix: /testPrefix");
 
-                return null;
-            }
-        }).when(restDocService).retrieveDocumentation(any(Writer.class), anyString(), any(Locale.class));
-
-        when(localeService.getUserLocale(any(HttpServletRequest.class))).thenReturn(new Locale("en", "US"));
+        when(localeService.getUserLocale(any(HttpServletRequest.class))).thenReturn(LOCALE);
+        when(restDocService.getDocumentation("/testPrefix", LOCALE)).thenReturn(documentation);
 
         mockMvc.perform(
                 get("/rest-doc?serverPrefix=/testPrefix")
         ).andExpect(status().isOk())
+        .andExpect(header().string("ETag", documentation.getEtag()))
         .andExpect(content().string("Rest docs with prefix: /testPrefix"));
     }
+
+    @Test
+    public void shouldNotReturnUnmodifiedRestDocumentation() throws Exception {
+        RestDocumentation documentation = new RestDocumentation("Rest docs");
+
+        when(localeService.getUserLocale(any(HttpServletRequest.class))).thenReturn(LOCALE);
+        when(restDocService.getDocumentation("/testPrefix", LOCALE)).thenReturn(documentation);
+
+        mockMvc.perform(
+                get("/rest-doc?serverPrefix=/testPrefix").header("If-None-Match", documentation.getEtag())
+        ).andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    }
+
+    @Test
+    public void shouldReturnGzippedRestDocumentation() throws Exception {
+        RestDocumentation documentation = new RestDocumentation("Rest docs");
+
+        when(localeService.getUserLocale(any(HttpServletRequest.class))).thenReturn(LOCALE);
+        when(restDocService.getDocumentation("/testPrefix", LOCALE)).thenReturn(documentation);
+
+        byte[] content = mockMvc.perform(
+                get("/rest-doc?serverPrefix=/testPrefix").header("Accept-Encoding", "gzip, deflate")
+        ).andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        assertEquals("Rest docs", out.toString("UTF-8"));
+    }
 }
@@ -27,6 +27,7 @@ import org.springframework.test.web.server.setup.MockMvcBuilders;
 
 import javax.validation.ConstraintViolationException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,8 +38,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.server.request.MockMvcRequestBuilders.delete;
@@ -98,6 +102,47 @@ public class MdsRestControllerTest {
         testRead(ENTITY_NAME, MODULE_NAME, NAMESPACE);
     }
 
+    @Test
+    public void shouldStreamOnlyWhenRequested() throws Exception {
+        when(restFacadeRetriever.getRestFacade(ENTITY_NAME, MODULE_NAME, NAMESPACE))
+                .thenReturn(restFacade);
+
+        mockMvc.perform(
+                get(buildUrl(ENTITY_NAME, MODULE_NAME, NAMESPACE) + "?pageSize=5000")
+        ).andExpect(status().isOk());
+
+        verify(restFacade).get(any(QueryParams.class), eq(false));
+        verify(restFacade, never()).stream(any(QueryParams.class), anyBoolean(), anyList(), any(OutputStream.class));
+
+        mockMvc.perform(
+                get(buildUrl(ENTITY_NAME, MODULE_NAME, NAMESPACE) + "?pageSize=5000&stream=true")
+        ).andExpect(status().isOk());
+
+        mockMvc.perform(
+                get(buildUrl(ENTITY_NAME, MODULE_NAME, NAMESPACE) + "?stream=true&fields=name,val&lookup=" + LOOKUP_NAME
+                        + "&" + LOOKUP_PAGINATION_STR)
+        ).andExpect(status().isOk());
+
+        ArgumentCaptor<QueryParams> captor = ArgumentCaptor.forClass(QueryParams.class);
+        verify(restFacade).stream(captor.capture(), eq(false), (List<String>) isNull(), any(OutputStream.class));
+        assertEquals(Integer.valueOf(5000), captor.getValue().getPageSize());
+
+        verify(restFacade).streamLookup(eq(LOOKUP_NAME), any(Map.class), any(QueryParams.class), eq(false),
+                eq(asList(NAME_FIELD, VAL_FIELD)), any(OutputStream.class));
+    }
+
+    @Test
+    public void shouldRejectFieldSelectionWithoutStreaming() throws Exception {
+        when(restFacadeRetriever.getRestFacade(ENTITY_NAME, MODULE_NAME, NAMESPACE))
+                .thenReturn(restFacade);
+
+        mockMvc.perform(
+                get(buildUrl(ENTITY_NAME, MODULE_NAME, NAMESPACE) + "?fields=name,val")
+        ).andExpect(status().isBadRequest());
+
+        verify(restFacade, never()).get(any(QueryParams.class), anyBoolean());
+    }
+
     // POST
 
     @Test
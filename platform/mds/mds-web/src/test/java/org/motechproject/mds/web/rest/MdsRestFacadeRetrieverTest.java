@@ -8,12 +8,15 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.motechproject.mds.exception.rest.RestNotSupportedException;
 import org.motechproject.mds.rest.MdsRestFacade;
 import org.motechproject.mds.util.ClassName;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -32,6 +35,9 @@ public class MdsRestFacadeRetrieverTest {
     @Mock
     private MdsRestFacade mdsRestFacade;
 
+    @Mock
+    private Bundle bundle;
+
     @InjectMocks
     private MdsRestFacadeRetriever restFacadeRetriever = new MdsRestFacadeRetriever();
 
@@ -50,6 +56,27 @@ public class MdsRestFacadeRetrieverTest {
         testRetrieval(ENTITY_NAME, MODULE_NAME, NAMESPACE);
     }
 
+    @Test
+    public void shouldCacheServiceReferences() throws InvalidSyntaxException {
+        String filter = filter(ClassName.restId(ENTITY_NAME, MODULE_NAME, NAMESPACE));
+        when(bundleContext.getServiceReferences(MdsRestFacade.class, filter))
+                .thenReturn(asList(serviceRef));
+        when(bundleContext.getService(serviceRef)).thenReturn(mdsRestFacade);
+        when(serviceRef.getBundle()).thenReturn(bundle);
+
+        assertEquals(mdsRestFacade, restFacadeRetriever.getRestFacade(ENTITY_NAME, MODULE_NAME, NAMESPACE));
+        assertEquals(mdsRestFacade, restFacadeRetriever.getRestFacade(ENTITY_NAME, MODULE_NAME, NAMESPACE));
+
+        verify(bundleContext, times(1)).getServiceReferences(MdsRestFacade.class, filter);
+
+        // the facade was unregistered
+        when(serviceRef.getBundle()).thenReturn(null);
+
+        assertEquals(mdsRestFacade, restFacadeRetriever.getRestFacade(ENTITY_NAME, MODULE_NAME, NAMESPACE));
+
+        verify(bundleContext, times(2)).getServiceReferences(MdsRestFacade.class, filter);
+    }
+
     @Test(expected = RestNotSupportedException.class)
     public void shouldThrowRestUnsupportedExceptionIfThereIsNoFacadeRef() {
         restFacadeRetriever.getRestFacade("unsupported", null, null);
@@ -1,9 +1,12 @@
 package org.motechproject.mds.web.rest;
 
 import org.junit.Test;
+import org.motechproject.mds.query.KeysetCursor;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.util.Order;
+import org.motechproject.mds.web.exception.InvalidParameterException;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -52,6 +55,55 @@ public class ParamParserTest {
         assertEquals(Order.Direction.ASC, queryParams.getOrderList().get(0).getDirection());
     }
 
+    @Test
+    public void shouldBuildKeysetQueryParams() {
+        Map<String, String> requestParams = new HashMap<>();
+        requestParams.put("pageSize", "50");
+        requestParams.put("sort", "someColumn");
+        requestParams.put("after", "");
+
+        QueryParams queryParams = ParamParser.buildQueryParams(requestParams);
+
+        assertTrue(queryParams.isKeysetSet());
+        assertTrue(queryParams.getAfter().isEmpty());
+        assertEquals(Integer.valueOf(50), queryParams.getPageSize());
+        assertEquals(2, queryParams.getKeysetOrderList().size());
+        assertEquals("someColumn", queryParams.getKeysetOrderList().get(0).getField());
+        assertEquals("id", queryParams.getKeysetOrderList().get(1).getField());
+
+        requestParams.put("after", KeysetCursor.toToken(Arrays.<Object>asList("value", 7L)));
+
+        queryParams = ParamParser.buildQueryParams(requestParams);
+
+        assertEquals(Arrays.<Object>asList("value", "7"), queryParams.getAfter());
+    }
+
+    @Test
+    public void shouldBuildQueryParamsWithFetchGroups() {
+        Map<String, String> requestParams = new HashMap<>();
+        requestParams.put("fetchGroups", "default, mds.relationships");
+
+        QueryParams queryParams = ParamParser.buildQueryParams(requestParams);
+
+        assertTrue(queryParams.isFetchGroupsSet());
+        assertEquals(Arrays.asList("default", "mds.relationships"), queryParams.getFetchGroups());
+
+        requestParams.put("after", "");
+
+        queryParams = ParamParser.buildQueryParams(requestParams);
+
+        assertTrue(queryParams.isKeysetSet());
+        assertEquals(Arrays.asList("default", "mds.relationships"), queryParams.getFetchGroups());
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void shouldThrowExceptionForInvalidKeysetToken() {
+        Map<String, String> requestParams = new HashMap<>();
+        requestParams.put("after", "notAToken");
+
+        ParamParser.buildQueryParams(requestParams);
+    }
+
     @Test
     public void shouldGetLookupName() {
         Map<String, String> requestParams = new HashMap<>();
@@ -12,6 +12,7 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.motechproject.commons.date.model.Time;
 import org.motechproject.commons.date.util.DateUtil;
+import org.motechproject.mds.config.ModuleSettings;
 import org.motechproject.mds.domain.OneToManyRelationship;
 import org.motechproject.mds.dto.EntityDto;
 import org.motechproject.mds.dto.FieldDto;
@@ -54,6 +55,11 @@ import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.core.userdetails.User;
 
 import javax.management.InstanceNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -78,6 +84,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -641,6 +648,10 @@ public class InstanceServiceTest {
         when(serviceForAnotherSample.findById(INSTANCE_ID)).thenReturn(sampleForRelationshipTesting());
 
         QueryParams queryParams = new QueryParams(1, 2, new Order(Constants.Util.ID_FIELD_NAME, Order.Direction.ASC));
+        when(serviceForAnotherSample.retrieveRelated(INSTANCE_ID, "testClasses", queryParams))
+                .thenReturn(Arrays.<Object>asList(new TestClass(1), new TestClass(2)));
+        when(serviceForAnotherSample.countRelated(INSTANCE_ID, "testClasses")).thenReturn(3L);
+
         Records<BasicEntityRecord> records = instanceService.getRelatedFieldValue(ANOTHER_ENTITY_ID, INSTANCE_ID,
                 "testClasses", new RelationshipsUpdate(), queryParams);
 
@@ -649,6 +660,8 @@ public class InstanceServiceTest {
         assertEquals(Integer.valueOf(2), records.getTotal()); // 2 pages total
         assertEquals(Integer.valueOf(3), records.getRecords()); // 3 records total
         assertEquals(asList(1L, 2L), extract(records.getRows(), on(BasicEntityRecord.class).getFieldByName("id").getValue()));
+        // without changes from the UI, the related instances are paged by the database
+        verify(serviceForAnotherSample, never()).findById(INSTANCE_ID);
 
         RelationshipsUpdate filter = new RelationshipsUpdate();
         filter.setRemovedIds(Arrays.asList(1L, 2L));
@@ -666,6 +679,52 @@ public class InstanceServiceTest {
         assertEquals(asList(3L, 50L), extract(records.getRows(), on(BasicEntityRecord.class).getFieldByName("id").getValue()));
     }
 
+    @Test
+    public void shouldUseDefaultPageSizeForRelatedInstances() {
+        mockDataService();
+        mockAnotherEntity();
+        mockEntity();
+        mockSampleFields();
+        mockAnotherEntityFields();
+        mockTestClassEntity();
+        mockTestClassService();
+        mockTestClassFields();
+
+        when(serviceForAnotherSample.retrieveRelated(eq(INSTANCE_ID), eq("testClasses"), any(QueryParams.class)))
+                .thenReturn(Arrays.<Object>asList(new TestClass(1), new TestClass(2)));
+        when(serviceForAnotherSample.countRelated(INSTANCE_ID, "testClasses")).thenReturn(120L);
+
+        Records<BasicEntityRecord> records = instanceService.getRelatedFieldValue(ANOTHER_ENTITY_ID, INSTANCE_ID,
+                "testClasses", new RelationshipsUpdate(), new QueryParams(null, null));
+
+        ArgumentCaptor<QueryParams> captor = ArgumentCaptor.forClass(QueryParams.class);
+        verify(serviceForAnotherSample).retrieveRelated(eq(INSTANCE_ID), eq("testClasses"), captor.capture());
+        assertEquals(Integer.valueOf(1), captor.getValue().getPage());
+        assertEquals(ModuleSettings.DEFAULT_GRID_SIZE, captor.getValue().getPageSize());
+
+        assertEquals(Integer.valueOf(1), records.getPage());
+        assertEquals(Integer.valueOf(3), records.getTotal()); // 120 records in pages of 50
+    }
+
+    @Test(expected = ObjectNotFoundException.class)
+    public void shouldThrowExceptionWhenOwnerOfRelatedInstancesDoesNotExist() {
+        mockDataService();
+        mockAnotherEntity();
+        mockEntity();
+        mockSampleFields();
+        mockAnotherEntityFields();
+        mockTestClassEntity();
+        mockTestClassService();
+        mockTestClassFields();
+
+        QueryParams queryParams = new QueryParams(1, 2);
+        when(serviceForAnotherSample.retrieveRelated(INSTANCE_ID, "testClasses", queryParams))
+                .thenThrow(new ObjectNotFoundException(AnotherSample.class.getName(), INSTANCE_ID));
+
+        instanceService.getRelatedFieldValue(ANOTHER_ENTITY_ID, INSTANCE_ID, "testClasses",
+                new RelationshipsUpdate(), queryParams);
+    }
+
     private RelationshipsUpdate buildRelationshipUpdate() {
         EntityRecord relatedRecord = new EntityRecord(null, 1L, new ArrayList<>());
         RelationshipsUpdate relationshipsUpdate = new RelationshipsUpdate();
@@ -730,6 +789,40 @@ public class InstanceServiceTest {
         verify(motechDataService).getDetachedField(instance, "blobField");
     }
 
+    @Test
+    public void shouldStreamBlobField() throws InstanceNotFoundException, IOException {
+        EntityDto entityDto = new EntityDto();
+        entityDto.setReadOnlySecurityMode(null);
+        entityDto.setSecurityMode(null);
+        entityDto.setClassName(TestSample.class.getName());
+
+        when(entityService.getEntity(ENTITY_ID + 1)).thenReturn(entityDto);
+        mockDataService();
+
+        OutputStream outputStream = new ByteArrayOutputStream();
+        when(motechDataService.streamBlob(ENTITY_ID + 1, "blobField", outputStream)).thenReturn(42L);
+
+        assertEquals(42L, instanceService.streamInstanceField(12l, ENTITY_ID + 1, "blobField", outputStream));
+        verify(motechDataService, never()).getDetachedField(any(), anyString());
+    }
+
+    @Test(expected = InstanceNotFoundException.class)
+    public void shouldNotUploadBlobFieldOfMissingInstance() throws InstanceNotFoundException {
+        EntityDto entityDto = new EntityDto();
+        entityDto.setReadOnlySecurityMode(null);
+        entityDto.setSecurityMode(null);
+        entityDto.setClassName(TestSample.class.getName());
+
+        when(entityService.getEntity(ENTITY_ID + 1)).thenReturn(entityDto);
+        mockDataService();
+
+        InputStream inputStream = new ByteArrayInputStream(new byte[] {1, 2, 3});
+        doThrow(new ObjectNotFoundException(TestSample.class.getName(), ENTITY_ID + 1))
+                .when(motechDataService).writeBlob(ENTITY_ID + 1, "blobField", inputStream);
+
+        instanceService.uploadInstanceField(12l, ENTITY_ID + 1, "blobField", inputStream);
+    }
+
     private void setUpSecurityContext() {
         SimpleGrantedAuthority authority = new SimpleGrantedAuthority("mdsSchemaAccess");
         List<SimpleGrantedAuthority> authorities = asList(authority);
@@ -77,4 +77,12 @@ public @interface Field {
      */
     String placeholder() default EMPTY;
 
+    /**
+     * Sets the names of the fetch groups this field belongs to. Named fetch groups can be passed in
+     * {@link org.motechproject.mds.query.QueryParams} in order to control which fields are loaded by a query.
+     *
+     * @return the names of the fetch groups of the field.
+     */
+    String[] fetchGroups() default {};
+
 }
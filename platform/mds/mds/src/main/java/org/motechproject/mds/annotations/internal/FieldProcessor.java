@@ -75,6 +75,7 @@ import static org.motechproject.mds.util.Constants.AnnotationFields.VALUE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.DATABASE_COLUMN_NAME;
 import static org.motechproject.mds.util.Constants.MetadataKeys.ENUM_CLASS_NAME;
 import static org.motechproject.mds.util.Constants.MetadataKeys.ENUM_COLLECTION_TYPE;
+import static org.motechproject.mds.util.Constants.MetadataKeys.FETCH_GROUPS;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_KEY_TYPE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.OWNING_SIDE;
@@ -196,6 +197,10 @@ class FieldProcessor extends AbstractListProcessor<Field, FieldDto> {
                 if (!fn.equals(EMPTY)) {
                     field.addMetadata(new MetadataDto(DATABASE_COLUMN_NAME, fn));
                 }
+
+                if (ArrayUtils.isNotEmpty(annotation.fetchGroups())) {
+                    field.addMetadata(new MetadataDto(FETCH_GROUPS, StringUtils.join(annotation.fetchGroups(), ',')));
+                }
             }
 
             field.setEntityId(entity.getId());
@@ -34,6 +34,7 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import static org.apache.commons.lang.StringUtils.isBlank;
@@ -133,6 +134,13 @@ public class EntityBuilderImpl implements EntityBuilder {
                 case TRASH:
                     // this field contains information about the schema version of an entity
                     addProperty(declaring, Long.class.getName(), Constants.Util.SCHEMA_VERSION_FIELD_NAME, null);
+
+                    // this field contains the date when the instance was moved to trash
+                    addProperty(
+                            declaring, Date.class.getName(),
+                            ClassName.getSimpleName(type.getClassName(entity.getClassName())) + Constants.Util.DELETION_DATE,
+                            null
+                    );
                     break;
                 default:
             }
@@ -0,0 +1,208 @@
+package org.motechproject.mds.builder.impl;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.motechproject.mds.domain.ClassData;
+import org.motechproject.mds.domain.RelationshipHolder;
+import org.motechproject.mds.dto.EntityDto;
+import org.motechproject.mds.dto.FieldDto;
+import org.motechproject.mds.dto.SchemaHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The <code>EntityClassCache</code> keeps the classes generated for entities during the last construction
+ * of the entities, together with a fingerprint of the entity schema they were generated from. Entities whose
+ * schema did not change, and which are not connected through inheritance or relationships with an entity that
+ * did change, can reuse the cached bytecode instead of being built and enhanced again. DDE entities are always
+ * rebuilt, since their classes come from module bundles which can change without a schema change.
+ */
+public class EntityClassCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityClassCache.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Returns class names of entities that must be built again. These are entities with a changed schema or
+     * without cached classes, together with all entities connected to them by inheritance or relationships.
+     *
+     * @param entities the entities that will be constructed
+     * @param schemaHolder the holder of the current schema
+     * @return the class names of entities to build
+     */
+    public Set<String> findEntitiesToBuild(List<EntityDto> entities, SchemaHolder schemaHolder) {
+        Set<String> changed = new HashSet<>();
+        Map<String, String> parents = new HashMap<>();
+
+        for (EntityDto entity : entities) {
+            parents.put(entity.getClassName(), entity.getClassName());
+        }
+
+        for (EntityDto entity : entities) {
+            String className = entity.getClassName();
+            List<FieldDto> fields = schemaHolder.getFields(entity);
+
+            Entry entry = entries.get(className);
+            String fingerprint = fingerprint(entity, fields);
+
+            if (null == entry || null == fingerprint || !fingerprint.equals(entry.getFingerprint())) {
+                changed.add(className);
+            }
+
+            // classes which know about each other are built together
+            union(parents, className, entity.getSuperClass());
+            for (FieldDto field : fields) {
+                if (field.getType().isRelationship()) {
+                    union(parents, className, new RelationshipHolder(field).getRelatedClass());
+                }
+            }
+        }
+
+        Set<String> changedGroups = new HashSet<>();
+        for (String className : changed) {
+            changedGroups.add(find(parents, className));
+        }
+
+        Set<String> toBuild = new HashSet<>();
+        for (EntityDto entity : entities) {
+            if (changedGroups.contains(find(parents, entity.getClassName()))) {
+                toBuild.add(entity.getClassName());
+            }
+        }
+
+        LOGGER.info("{} of {} entities have to be built, the rest will reuse cached classes",
+                toBuild.size(), entities.size());
+
+        return toBuild;
+    }
+
+    /**
+     * Returns the cached, not enhanced class of the given entity.
+     *
+     * @param entityClassName the class name of the entity
+     * @param className the class name of the entity, its history or its trash class
+     * @return the class data or null if it is not cached
+     */
+    public ClassData getClassData(String entityClassName, String className) {
+        Entry entry = entries.get(entityClassName);
+        return null == entry ? null : entry.getClassData().get(className);
+    }
+
+    /**
+     * Returns the cached, enhanced bytecode of a class of the given entity.
+     *
+     * @param entityClassName the class name of the entity
+     * @param className the class name of the entity, its history or its trash class
+     * @return the enhanced bytecode or null if it is not cached
+     */
+    public byte[] getEnhancedBytes(String entityClassName, String className) {
+        Entry entry = entries.get(entityClassName);
+        return null == entry ? null : entry.getEnhancedBytes().get(className);
+    }
+
+    /**
+     * Stores the classes of the entity, replacing the previously cached ones.
+     *
+     * @param entity the entity
+     * @param fields the fields of the entity the classes were built from
+     * @param classData the not enhanced classes, mapped by their names
+     * @param enhancedBytes the enhanced bytecode, mapped by class names
+     */
+    public void put(EntityDto entity, List<FieldDto> fields, Map<String, ClassData> classData,
+                    Map<String, byte[]> enhancedBytes) {
+        String fingerprint = fingerprint(entity, fields);
+
+        if (null == fingerprint) {
+            entries.remove(entity.getClassName());
+        } else {
+            entries.put(entity.getClassName(), new Entry(fingerprint, classData, enhancedBytes));
+        }
+    }
+
+    /**
+     * Removes the entities that no longer exist from the cache.
+     *
+     * @param entities the current entities
+     */
+    public void retain(Collection<EntityDto> entities) {
+        Set<String> classNames = new HashSet<>();
+        for (EntityDto entity : entities) {
+            classNames.add(entity.getClassName());
+        }
+
+        entries.keySet().retainAll(classNames);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private String fingerprint(EntityDto entity, List<FieldDto> fields) {
+        if (entity.isDDE()) {
+            return null;
+        }
+
+        List<Object> schema = new ArrayList<>();
+        schema.add(entity);
+        schema.add(fields);
+
+        try {
+            return DigestUtils.sha1Hex(OBJECT_MAPPER.writeValueAsBytes(schema));
+        } catch (IOException e) {
+            LOGGER.debug("Unable to compute the fingerprint of entity {}, it will be built", entity.getClassName(), e);
+            return null;
+        }
+    }
+
+    private void union(Map<String, String> parents, String className, String otherClassName) {
+        // classes outside of the constructed entities, like Object or MdsEntity, are ignored
+        if (null != otherClassName && parents.containsKey(otherClassName)) {
+            parents.put(find(parents, className), find(parents, otherClassName));
+        }
+    }
+
+    private String find(Map<String, String> parents, String className) {
+        String root = className;
+        while (!root.equals(parents.get(root))) {
+            root = parents.get(root);
+        }
+        return root;
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final Map<String, ClassData> classData;
+        private final Map<String, byte[]> enhancedBytes;
+
+        private Entry(String fingerprint, Map<String, ClassData> classData, Map<String, byte[]> enhancedBytes) {
+            this.fingerprint = fingerprint;
+            this.classData = classData;
+            this.enhancedBytes = enhancedBytes;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public Map<String, ClassData> getClassData() {
+            return classData;
+        }
+
+        public Map<String, byte[]> getEnhancedBytes() {
+            return enhancedBytes;
+        }
+    }
+}
@@ -143,8 +143,8 @@ public class EntityInfrastructureBuilderImpl implements EntityInfrastructureBuil
 
             List<CtMethod> methods = new ArrayList<>();
 
-            // for each lookup we generate three methods - normal lookup, lookup with query params and
-            // a count method for the lookup
+            // for each lookup we generate four methods - normal lookup, lookup with query params,
+            // a count method and an iterate method for the lookup
             if (null != entity) {
                 List<LookupDto> lookups = schemaHolder.getLookups(entity);
 
@@ -187,8 +187,8 @@ public class EntityInfrastructureBuilderImpl implements EntityInfrastructureBuil
 
             List<CtMethod> methods = new ArrayList<>();
 
-            // for each lookup we generate three methods - normal lookup, lookup with query params and
-            // a count method for the lookup
+            // for each lookup we generate four methods - normal lookup, lookup with query params,
+            // a count method and an iterate method for the lookup
             if (null != entity) {
                 List<LookupDto> lookups = schemaHolder.getLookups(entity);
 
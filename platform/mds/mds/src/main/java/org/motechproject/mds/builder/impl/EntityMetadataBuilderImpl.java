@@ -48,6 +48,7 @@ import javax.jdo.metadata.ClassPersistenceModifier;
 import javax.jdo.metadata.CollectionMetadata;
 import javax.jdo.metadata.ColumnMetadata;
 import javax.jdo.metadata.ElementMetadata;
+import javax.jdo.metadata.FetchGroupMetadata;
 import javax.jdo.metadata.FieldMetadata;
 import javax.jdo.metadata.ForeignKeyMetadata;
 import javax.jdo.metadata.IndexMetadata;
@@ -60,12 +61,15 @@ import javax.jdo.metadata.PackageMetadata;
 import javax.jdo.metadata.UniqueMetadata;
 import javax.jdo.metadata.ValueMetadata;
 import javax.jdo.metadata.VersionMetadata;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.apache.commons.lang.StringUtils.defaultIfBlank;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.motechproject.mds.util.Constants.MetadataKeys.DATABASE_COLUMN_NAME;
+import static org.motechproject.mds.util.Constants.MetadataKeys.FETCH_GROUPS;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_KEY_TYPE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
 import static org.motechproject.mds.util.Constants.Util.CREATION_DATE_FIELD_NAME;
@@ -120,6 +124,7 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
         }
 
         addMetadataForFields(cmd, null, entity, EntityType.STANDARD, definition, schemaHolder);
+        addFetchGroupMetadata(cmd, entity, schemaHolder);
     }
 
     @Override
@@ -271,6 +276,47 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
         }
     }
 
+    private void addFetchGroupMetadata(ClassMetadata cmd, EntityDto entity, SchemaHolder schemaHolder) {
+        Map<String, List<String>> fetchGroups = new LinkedHashMap<>();
+
+        for (FieldDto field : schemaHolder.getFields(entity)) {
+            String fieldName = getNameForMetadata(field);
+
+            if (fieldName.equals(ID_FIELD_NAME) || !isFieldNotInherited(fieldName, entity, schemaHolder)) {
+                continue;
+            }
+
+            // relationships are loaded together when the lookup asks for the relationships group
+            if (field.getType().isRelationship()) {
+                addToFetchGroup(fetchGroups, Constants.FetchGroups.RELATIONSHIPS, fieldName);
+            }
+
+            MetadataDto metadata = field.getMetadata(FETCH_GROUPS);
+            if (null != metadata && isNotBlank(metadata.getValue())) {
+                for (String group : StringUtils.split(metadata.getValue(), ',')) {
+                    if (isNotBlank(group)) {
+                        addToFetchGroup(fetchGroups, group.trim(), fieldName);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<String>> entry : fetchGroups.entrySet()) {
+            FetchGroupMetadata fgmd = cmd.newFetchGroupMetadata(entry.getKey());
+
+            for (String fieldName : entry.getValue()) {
+                fgmd.newFieldMetadata(fieldName);
+            }
+        }
+    }
+
+    private void addToFetchGroup(Map<String, List<String>> fetchGroups, String group, String fieldName) {
+        if (!fetchGroups.containsKey(group)) {
+            fetchGroups.put(group, new ArrayList<String>());
+        }
+        fetchGroups.get(group).add(fieldName);
+    }
+
     private void addMetadataForFields(ClassMetadata cmd, ClassData classData, EntityDto entity,
                                       EntityType entityType, Class<?> definition, SchemaHolder schemaHolder) {
         List<FieldDto> fields = schemaHolder.getFields(entity);
@@ -372,6 +418,8 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
             return setMapMetadata(cmd, entity, field, definition, entityType);
         } else if (Time.class.isAssignableFrom(typeClass)) {
             return setTimeMetadata(cmd, name);
+        } else if (type.isBlob()) {
+            return setBlobMetadata(cmd, name, definition);
         }
         return cmd.newFieldMetadata(name);
     }
@@ -451,6 +499,22 @@ public class EntityMetadataBuilderImpl implements EntityMetadataBuilder {
         return fmd;
     }
 
+    private FieldMetadata setBlobMetadata(ClassMetadata cmd, String name, Class<?> definition) {
+        FieldMetadata fmd = cmd.newFieldMetadata(name);
+
+        // blobs can be large, so they are only loaded when accessed, unless a JDO annotation says otherwise
+        java.lang.reflect.Field field = FieldUtils.getField(definition, name, true);
+        Persistent persistentAnnotation = null == field
+                ? null
+                : ReflectionsUtil.getAnnotationSelfOrAccessor(field, Persistent.class);
+
+        if (persistentAnnotation == null || StringUtils.isBlank(persistentAnnotation.defaultFetchGroup())) {
+            fmd.setDefaultFetchGroup(false);
+        }
+
+        return fmd;
+    }
+
     private FieldMetadata setMapMetadata(ClassMetadata cmd, EntityDto entity, FieldDto field,
                                          Class<?> definition, EntityType entityType) {
         FieldMetadata fmd = cmd.newFieldMetadata(getNameForMetadata(field));
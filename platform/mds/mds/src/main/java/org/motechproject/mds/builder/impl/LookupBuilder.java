@@ -17,6 +17,7 @@ import org.motechproject.mds.dto.LookupFieldType;
 import org.motechproject.mds.dto.SchemaHolder;
 import org.motechproject.mds.dto.TypeDto;
 import org.motechproject.mds.query.CollectionProperty;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.PropertyBuilder;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.util.JavassistUtil;
@@ -32,6 +33,7 @@ import java.util.Objects;
 import java.util.Set;
 
 import static org.motechproject.mds.builder.impl.LookupType.COUNT;
+import static org.motechproject.mds.builder.impl.LookupType.ITERATE;
 import static org.motechproject.mds.builder.impl.LookupType.SIMPLE;
 import static org.motechproject.mds.builder.impl.LookupType.WITH_QUERY_PARAMS;
 
@@ -57,9 +59,7 @@ class LookupBuilder {
 
         this.lookup = lookup;
         this.lookupType = lookupType;
-        this.lookupName = (lookupType == COUNT)
-                ? LookupName.lookupCountMethod(lookup.getMethodName())
-                : lookup.getMethodName();
+        this.lookupName = buildLookupName(lookup, lookupType);
 
         this.schemaHolder = schemaHolder;
     }
@@ -103,12 +103,17 @@ class LookupBuilder {
         }
 
         // query params at the end for ordering/paging
-        if (WITH_QUERY_PARAMS == lookupType) {
+        if (WITH_QUERY_PARAMS == lookupType || ITERATE == lookupType) {
             String queryParam = String.format("%s queryParams", QueryParams.class.getName());
 
             paramCollection.add(queryParam);
         }
 
+        // the callback processing the results goes last
+        if (ITERATE == lookupType) {
+            paramCollection.add(String.format("%s callback", InstanceCallback.class.getName()));
+        }
+
         String params = StringUtils.join(paramCollection, ", ");
         String signature = String.format("public %s %s(%s)", returnType(), lookupName, params);
         String methodAsString = body
@@ -253,6 +258,8 @@ class LookupBuilder {
         StringBuilder sb = new StringBuilder();
         if (COUNT == lookupType) {
             sb.append("return count(properties);");
+        } else if (ITERATE == lookupType) {
+            sb.append("return iterateAll(properties, queryParams, callback);");
         } else {
             if (lookup.isSingleObjectReturn()) {
                 sb.append("Object result = retrieveUnique(properties");
@@ -279,12 +286,23 @@ class LookupBuilder {
         return sb.toString();
     }
 
+    private static String buildLookupName(LookupDto lookup, LookupType lookupType) {
+        switch (lookupType) {
+            case COUNT:
+                return LookupName.lookupCountMethod(lookup.getMethodName());
+            case ITERATE:
+                return LookupName.lookupIterateMethod(lookup.getMethodName());
+            default:
+                return lookup.getMethodName();
+        }
+    }
+
     private String buildJdoVariableName(String lookupFieldName) {
         return String.format("%s%s%s", "element", LookupName.getFieldName(lookupFieldName), LookupName.getRelatedFieldName(lookupFieldName));
     }
 
     private String returnType() {
-        if (lookupType == LookupType.COUNT) {
+        if (lookupType == LookupType.COUNT || lookupType == LookupType.ITERATE) {
             return "long";
         } else if (lookup.isSingleObjectReturn()) {
             return className;
@@ -320,7 +338,8 @@ class LookupBuilder {
     private String copyParamTypeFromMethod(int idx, FieldDto field) throws NotFoundException {
         for (CtMethod method : definition.getMethods()) {
             if (method.getName().equalsIgnoreCase(lookupName) ||
-                    LookupName.lookupCountMethod(method.getName()).equalsIgnoreCase(lookupName)) {
+                    LookupName.lookupCountMethod(method.getName()).equalsIgnoreCase(lookupName) ||
+                    LookupName.lookupIterateMethod(method.getName()).equalsIgnoreCase(lookupName)) {
                 CtClass[] types = method.getParameterTypes();
 
                 if (types.length > idx) {
@@ -388,9 +407,17 @@ class LookupBuilder {
                 sb.append(JavassistUtil.genericSignature(paramType, genericType));
             }
         }
+
+        if (ITERATE == lookupType) {
+            sb.append(JavassistUtil.toGenericParam(QueryParams.class));
+            sb.append(JavassistUtil.genericSignature(InstanceCallback.class, className));
+        }
+
         sb.append(')');
 
-        if (lookup.isSingleObjectReturn()) {
+        if (ITERATE == lookupType) {
+            sb.append(JavassistUtil.toGenericParam(returnType()));
+        } else if (lookup.isSingleObjectReturn()) {
             sb.append(JavassistUtil.toGenericParam(className));
         } else {
             sb.append(JavassistUtil.genericSignature(List.class.getName(), className));
@@ -1,7 +1,7 @@
 package org.motechproject.mds.builder.impl;
 
 /**
- * Represents the three lookup methods generated.
+ * Represents the lookup methods generated.
  */
 enum LookupType {
     /**
@@ -15,5 +15,9 @@ enum LookupType {
     /**
      * result count lookup.
      */
-    COUNT
+    COUNT,
+    /**
+     * Paged/ordered lookup passing the results to a callback, using a database cursor.
+     */
+    ITERATE
 }
@@ -55,12 +55,14 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Default implementation of {@link org.motechproject.mds.builder.MDSConstructor} interface.
@@ -80,8 +82,20 @@ public class MDSConstructorImpl implements MDSConstructor {
     private PersistenceManagerFactory persistenceManagerFactory;
     private SqlDBManager sqlDBManager;
 
+    private final EntityClassCache classCache = new EntityClassCache();
+
     @Override
     public synchronized boolean constructEntities(SchemaHolder schemaHolder) {
+        try {
+            return doConstructEntities(schemaHolder);
+        } catch (RuntimeException e) {
+            // we cannot tell which cached classes are still valid
+            classCache.clear();
+            throw e;
+        }
+    }
+
+    private boolean doConstructEntities(SchemaHolder schemaHolder) {
         // To be able to register updated class, we need to reload class loader
         // and therefore add all the classes again
         MotechClassPool.clearEnhancedData();
@@ -98,6 +112,9 @@ public class MDSConstructorImpl implements MDSConstructor {
         filterEntities(entities);
         sortEntities(entities, schemaHolder);
 
+        // only changed entities and entities connected with them are built and enhanced
+        Set<String> entitiesToBuild = classCache.findEntitiesToBuild(entities, schemaHolder);
+
         // create enum for appropriate combobox fields
         for (EntityDto entity : entities) {
             buildEnum(loader, enhancer, entity, schemaHolder);
@@ -115,6 +132,9 @@ public class MDSConstructorImpl implements MDSConstructor {
         // (We don't have to generate it for main class,
         // since we just fetch fields from existing definition
         for (EntityDto entity : entities) {
+            if (!entitiesToBuild.contains(entity.getClassName())) {
+                continue;
+            }
             if (entity.isRecordHistory()) {
                 entityBuilder.prepareHistoryClass(entity);
             }
@@ -122,19 +142,20 @@ public class MDSConstructorImpl implements MDSConstructor {
         }
 
         // Build classes
-        Map<String, ClassData> classDataMap = buildClasses(entities, schemaHolder);
+        Map<String, ClassData> classDataMap = buildClasses(entities, schemaHolder, entitiesToBuild);
         List<Class> classes = new ArrayList<>();
 
-        // We add the java classes to both
-        // the temporary ClassLoader and enhancer
+        // We add the java classes to the temporary ClassLoader, only the classes
+        // that were built are added to the enhancer
         for (EntityDto entity : entities) {
             String className = entity.getClassName();
+            MdsJDOEnhancer entityEnhancer = entitiesToBuild.contains(className) ? enhancer : null;
 
-            Class<?> definition = addClassData(loader, enhancer, classDataMap.get(className));
+            Class<?> definition = addClassData(loader, entityEnhancer, classDataMap.get(className));
             if (entity.isRecordHistory()) {
-                addClassData(loader, enhancer, classDataMap.get(ClassName.getHistoryClassName(className)));
+                addClassData(loader, entityEnhancer, classDataMap.get(ClassName.getHistoryClassName(className)));
             }
-            addClassData(loader, enhancer, classDataMap.get(ClassName.getTrashClassName(className)));
+            addClassData(loader, entityEnhancer, classDataMap.get(ClassName.getTrashClassName(className)));
 
             classes.add(definition);
 
@@ -151,29 +172,58 @@ public class MDSConstructorImpl implements MDSConstructor {
         // after the classes are defined, we register their metadata
         enhancer.registerMetadata(jdoMetadata);
 
-        // then, we commence with enhancement
-        enhancer.enhance();
+        // then, we commence with enhancement, cached classes are already enhanced
+        if (!entitiesToBuild.isEmpty()) {
+            enhancer.enhance();
+        }
 
         // we register the enhanced class bytes
         // and build the infrastructure classes
-        registerEnhancedClassBytes(entities, enhancer, schemaHolder);
+        registerEnhancedClassBytes(entities, enhancer, schemaHolder, classDataMap, entitiesToBuild);
+        classCache.retain(entities);
 
         metadataBuilder.fixEnhancerIssuesInMetadata(jdoMetadata, schemaHolder);
 
         return CollectionUtils.isNotEmpty(entities);
     }
 
-    private void registerEnhancedClassBytes(List<EntityDto> entities, MdsJDOEnhancer enhancer, SchemaHolder schemaHolder) {
+    private void registerEnhancedClassBytes(List<EntityDto> entities, MdsJDOEnhancer enhancer, SchemaHolder schemaHolder,
+                                            Map<String, ClassData> classDataMap, Set<String> entitiesToBuild) {
         for (EntityDto entity : entities) {
             // register
             String className = entity.getClassName();
+            String historyClassName = ClassName.getHistoryClassName(className);
+            String trashClassName = ClassName.getTrashClassName(className);
             LOGGER.debug("Registering {}", className);
 
-            registerClass(enhancer, entity);
+            Map<String, byte[]> enhancedBytes = new HashMap<>();
+            if (entitiesToBuild.contains(className)) {
+                enhancedBytes.put(className, enhancer.getEnhancedBytes(className));
+                if (entity.isRecordHistory()) {
+                    enhancedBytes.put(historyClassName, enhancer.getEnhancedBytes(historyClassName));
+                }
+                enhancedBytes.put(trashClassName, enhancer.getEnhancedBytes(trashClassName));
+            } else {
+                enhancedBytes.put(className, classCache.getEnhancedBytes(className, className));
+                if (entity.isRecordHistory()) {
+                    enhancedBytes.put(historyClassName, classCache.getEnhancedBytes(className, historyClassName));
+                }
+                enhancedBytes.put(trashClassName, classCache.getEnhancedBytes(className, trashClassName));
+            }
+
+            registerClass(entity, enhancedBytes.get(className));
             if (entity.isRecordHistory()) {
-                registerHistoryClass(enhancer, className);
+                registerHistoryClass(historyClassName, enhancedBytes.get(historyClassName));
+            }
+            registerTrashClass(trashClassName, enhancedBytes.get(trashClassName));
+
+            if (entitiesToBuild.contains(className)) {
+                Map<String, ClassData> entityClassData = new HashMap<>();
+                for (String name : enhancedBytes.keySet()) {
+                    entityClassData.put(name, classDataMap.get(name));
+                }
+                classCache.put(entity, schemaHolder.getFields(entity), entityClassData, enhancedBytes);
             }
-            registerTrashClass(enhancer, className);
 
             LOGGER.debug("Building infrastructure for {}", className);
             buildInfrastructure(entity, schemaHolder);
@@ -190,11 +240,17 @@ public class MDSConstructorImpl implements MDSConstructor {
         entities.addAll(byHasARelation);
     }
 
-    private Map<String, ClassData> buildClasses(List<EntityDto> entities, SchemaHolder schemaHolder) {
+    private Map<String, ClassData> buildClasses(List<EntityDto> entities, SchemaHolder schemaHolder,
+                                                Set<String> entitiesToBuild) {
         Map<String, ClassData> classDataMap = new LinkedHashMap<>();
 
-        //We build classes for all entities
+        //We build classes for entities that changed, the rest is taken from the cache
         for (EntityDto entity : entities) {
+            if (!entitiesToBuild.contains(entity.getClassName())) {
+                addCachedClassData(classDataMap, entity);
+                continue;
+            }
+
             List<FieldDto> fields = schemaHolder.getFields(entity);
 
             ClassData classData = buildClass(entity, fields);
@@ -339,10 +395,19 @@ public class MDSConstructorImpl implements MDSConstructor {
         }
     }
 
-    private void registerHistoryClass(MdsJDOEnhancer enhancer, String className) {
-        String historyClassName = ClassName.getHistoryClassName(className);
+    private void addCachedClassData(Map<String, ClassData> classDataMap, EntityDto entity) {
+        String className = entity.getClassName();
+
+        classDataMap.put(className, classCache.getClassData(className, className));
+        if (entity.isRecordHistory()) {
+            String historyClassName = ClassName.getHistoryClassName(className);
+            classDataMap.put(historyClassName, classCache.getClassData(className, historyClassName));
+        }
+        String trashClassName = ClassName.getTrashClassName(className);
+        classDataMap.put(trashClassName, classCache.getClassData(className, trashClassName));
+    }
 
-        byte[] enhancedBytes = enhancer.getEnhancedBytes(historyClassName);
+    private void registerHistoryClass(String historyClassName, byte[] enhancedBytes) {
         ClassData classData = new ClassData(historyClassName, enhancedBytes);
 
         // register with the classloader so that we avoid issues with the persistence manager
@@ -351,10 +416,7 @@ public class MDSConstructorImpl implements MDSConstructor {
         MotechClassPool.registerHistoryClassData(classData);
     }
 
-    private void registerTrashClass(MdsJDOEnhancer enhancer, String className) {
-        String trashClassName = ClassName.getTrashClassName(className);
-
-        byte[] enhancedBytes = enhancer.getEnhancedBytes(trashClassName);
+    private void registerTrashClass(String trashClassName, byte[] enhancedBytes) {
         ClassData classData = new ClassData(trashClassName, enhancedBytes);
 
         // register with the classloader so that we avoid issues with the persistence manager
@@ -363,8 +425,7 @@ public class MDSConstructorImpl implements MDSConstructor {
         MotechClassPool.registerTrashClassData(classData);
     }
 
-    private void registerClass(MdsJDOEnhancer enhancer, EntityDto entity) {
-        byte[] enhancedBytes = enhancer.getEnhancedBytes(entity.getClassName());
+    private void registerClass(EntityDto entity, byte[] enhancedBytes) {
         ClassData classData = new ClassData(entity, enhancedBytes);
 
         // register with the classloader so that we avoid issues with the persistence manager
@@ -375,7 +436,9 @@ public class MDSConstructorImpl implements MDSConstructor {
 
     private Class<?> addClassData(JavassistLoader loader, MdsJDOEnhancer enhancer, ClassData data) {
         Class<?> definition = loader.loadClass(data);
-        enhancer.addClass(data);
+        if (null != enhancer) {
+            enhancer.addClass(data);
+        }
         return definition;
     }
 
@@ -1,23 +1,40 @@
 package org.motechproject.mds.config;
 
+import org.apache.commons.lang.StringUtils;
 import org.datanucleus.PropertyNames;
+import org.datanucleus.store.rdbms.datasource.dbcp.BasicDataSource;
 import org.motechproject.commons.api.MotechException;
+import org.motechproject.commons.sql.service.ConnectionPoolService;
 import org.motechproject.commons.sql.service.SqlDBManager;
 import org.motechproject.commons.sql.util.JdbcUrl;
 import org.motechproject.config.core.service.CoreConfigurationService;
+import org.motechproject.mds.jdo.ReplicaRoutingDataSource;
+import org.motechproject.mds.jdo.ReplicationLagCheck;
 import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.JmxUtil;
+import org.motechproject.mds.util.StatementCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
+import javax.sql.DataSource;
 import javax.validation.Validation;
 import javax.validation.ValidatorFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static javax.jdo.Constants.PROPERTY_CONNECTION_DRIVER_NAME;
+import static javax.jdo.Constants.PROPERTY_CONNECTION_PASSWORD;
+import static javax.jdo.Constants.PROPERTY_CONNECTION_USER_NAME;
 
 /**
  * Class responsible for handling MDS configuration.
@@ -27,14 +44,24 @@ import java.util.Properties;
  */
 public class MdsConfig {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MdsConfig.class);
+
     private static final String FLYWAY_MYSQL_MIGRATION_PATH = "db/migration/mysql";
     private static final String FLYWAY_JAVA_MIGRATION_PATH = "org/motechproject/mdsmigration/java";
     private static final String FLYWAY_DEFAULT_MIGRATION_PATH = "db/migration/default";
     private static final String CONNECTION_URL_KEY = "javax.jdo.option.ConnectionURL";
+    private static final String REPLICA_CONSUMER_SUFFIX = ".replica";
+    private static final String NON_TRANSACTIONAL_CONSUMER_SUFFIX = ".nontx";
+    private static final String REPLICA_ROUTING_MBEAN_TYPE = "ReplicaRouting";
+    private static final long DEFAULT_REPLICA_STALENESS_WINDOW = 5000;
+    private static final long DEFAULT_REPLICA_RETRY_INTERVAL = 30000;
+    private static final long DEFAULT_REPLICA_LAG_CHECK_INTERVAL = 5000;
 
     private Map<String, Properties> config = new HashMap<>();
+    private Map<String, ReplicaRoutingDataSource> replicaRoutingDataSources = new ConcurrentHashMap<>();
 
     private SqlDBManager sqlDBManager;
+    private ConnectionPoolService connectionPoolService;
     private CoreConfigurationService coreConfigurationService;
     private Properties mdsDataSqlProperties;
     private Properties mdsInternalSqlProperties;
@@ -81,6 +108,10 @@ public class MdsConfig {
         this.sqlDBManager = sqlDBManager;
     }
 
+    public void setConnectionPoolService(ConnectionPoolService connectionPoolService) {
+        this.connectionPoolService = connectionPoolService;
+    }
+
     public  String getResourceFileName(Resource resource) {
         String name = resource.getFilename();
 
@@ -122,6 +153,11 @@ public class MdsConfig {
         Properties properties = new Properties();
         properties.putAll(coreConfigurationService.loadDatanucleusDataConfig());
         addBeanValidationFactoryProperty(properties);
+
+        if (StatementCounter.isEnabled()) {
+            properties.setProperty(PropertyNames.PROPERTY_ENABLE_STATISTICS, "true");
+        }
+
         return properties;
     }
 
@@ -148,6 +184,88 @@ public class MdsConfig {
         return migrationDirectory;
     }
 
+    public File getBundleScanCacheFile() {
+        return new File(coreConfigurationService.loadBootstrapConfig().getMotechDir(), Constants.Config.BUNDLE_SCAN_CACHE_FILE);
+    }
+
+    /**
+     * Makes DataNucleus use the shared connection pool of the given consumer, instead of creating its own.
+     * The properties must already contain the actual connection settings, with all sql variables replaced.
+     * If the properties list read replicas of the database, read-only transactions are routed to them.
+     * The non-transactional connections, used for example for generating identities while a transaction
+     * holds its own connection, are taken from a separate pool, so that the two can't wait for each other.
+     * They are never routed to the replicas, since DataNucleus also uses them for writes, such as schema
+     * updates and identity generation, so non-transactional reads always use the primary database.
+     *
+     * @param sqlProperties the DataNucleus properties
+     * @param consumer the name of the connection pool consumer
+     * @return the given properties, with the connection factories set
+     */
+    public Properties addConnectionFactory(Properties sqlProperties, String consumer) {
+        String replicaUrls = (String) sqlProperties.remove(Constants.Config.MDS_REPLICA_URLS);
+        String stalenessWindow = (String) sqlProperties.remove(Constants.Config.MDS_REPLICA_STALENESS_WINDOW);
+        String retryInterval = (String) sqlProperties.remove(Constants.Config.MDS_REPLICA_RETRY_INTERVAL);
+        String maxLag = (String) sqlProperties.remove(Constants.Config.MDS_REPLICA_MAX_LAG);
+        String lagCheckInterval = (String) sqlProperties.remove(Constants.Config.MDS_REPLICA_LAG_CHECK_INTERVAL);
+
+        if (null != connectionPoolService) {
+            DataSource dataSource = getDataSource(sqlProperties, consumer);
+
+            if (StringUtils.isNotBlank(replicaUrls)) {
+                long staleness = toLong(stalenessWindow, DEFAULT_REPLICA_STALENESS_WINDOW);
+                ReplicationLagCheck lagCheck = ReplicationLagCheck.forDriver(
+                        sqlProperties.getProperty(PROPERTY_CONNECTION_DRIVER_NAME), toLong(maxLag, staleness),
+                        toLong(lagCheckInterval, DEFAULT_REPLICA_LAG_CHECK_INTERVAL));
+
+                dataSource = getReplicaRoutingDataSource(sqlProperties, consumer, dataSource, replicaUrls,
+                        staleness, toLong(retryInterval, DEFAULT_REPLICA_RETRY_INTERVAL), lagCheck);
+            }
+
+            sqlProperties.put(PropertyNames.PROPERTY_CONNECTION_FACTORY, dataSource);
+            sqlProperties.put(PropertyNames.PROPERTY_CONNECTION_FACTORY2,
+                    getDataSource(sqlProperties, consumer + NON_TRANSACTIONAL_CONSUMER_SUFFIX));
+        }
+
+        return sqlProperties;
+    }
+
+    /**
+     * Returns the data source for the database from the given DataNucleus properties. If the connection pool
+     * service is available, the shared pool of the given consumer is returned.
+     *
+     * @param sqlProperties the DataNucleus properties, with all sql variables replaced
+     * @param consumer the name of the connection pool consumer
+     * @return the data source
+     */
+    public DataSource getDataSource(Properties sqlProperties, String consumer) {
+        String driverName = sqlProperties.getProperty(PROPERTY_CONNECTION_DRIVER_NAME);
+        String url = sqlProperties.getProperty(CONNECTION_URL_KEY);
+        String userName = sqlProperties.getProperty(PROPERTY_CONNECTION_USER_NAME);
+        String password = sqlProperties.getProperty(PROPERTY_CONNECTION_PASSWORD);
+
+        if (null != connectionPoolService) {
+            return connectionPoolService.getDataSource(consumer, driverName, url, userName, password);
+        }
+
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(driverName);
+        dataSource.setUrl(url);
+        dataSource.setUsername(userName);
+        dataSource.setPassword(password);
+
+        return dataSource;
+    }
+
+    /**
+     * Returns the data sources routing read-only transactions to the read replicas, created so far.
+     *
+     * @return the routing data sources, which expose the number of connections sent to the replicas; they are
+     *         also registered over JMX as <code>org.motechproject.mds:type=ReplicaRouting</code>
+     */
+    public Collection<ReplicaRoutingDataSource> getReplicaRoutingDataSources() {
+        return replicaRoutingDataSources.values();
+    }
+
     public Properties getFlywayDataProperties() {
         return coreConfigurationService.loadFlywayDataConfig();
     }
@@ -156,6 +274,43 @@ public class MdsConfig {
         return coreConfigurationService.loadFlywaySchemaConfig();
     }
 
+    private DataSource getReplicaRoutingDataSource(Properties sqlProperties, String consumer, DataSource primary,
+                                                   String replicaUrls, long stalenessWindow, long retryInterval,
+                                                   ReplicationLagCheck lagCheck) {
+        String primaryUrl = sqlProperties.getProperty(CONNECTION_URL_KEY);
+        String key = StringUtils.join(new Object[]{consumer, primaryUrl, replicaUrls}, '|');
+        ReplicaRoutingDataSource routingDataSource = replicaRoutingDataSources.get(key);
+
+        if (null == routingDataSource) {
+            String driverName = sqlProperties.getProperty(PROPERTY_CONNECTION_DRIVER_NAME);
+            String userName = sqlProperties.getProperty(PROPERTY_CONNECTION_USER_NAME);
+            String password = sqlProperties.getProperty(PROPERTY_CONNECTION_PASSWORD);
+
+            List<DataSource> replicas = new ArrayList<>();
+            for (String url : StringUtils.split(replicaUrls, ',')) {
+                replicas.add(connectionPoolService.getDataSource(consumer + REPLICA_CONSUMER_SUFFIX, driverName,
+                        url.trim(), userName, password));
+            }
+
+            if (null == lagCheck) {
+                LOGGER.warn("The replication lag can't be checked for the {} driver, lagging replicas will be used",
+                        driverName);
+            }
+
+            routingDataSource = new ReplicaRoutingDataSource(primary, replicas, stalenessWindow, retryInterval,
+                    lagCheck);
+            replicaRoutingDataSources.put(key, routingDataSource);
+
+            JmxUtil.register(routingDataSource, REPLICA_ROUTING_MBEAN_TYPE, consumer);
+        }
+
+        return routingDataSource;
+    }
+
+    private long toLong(String value, long defaultValue) {
+        return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
     private void addBeanValidationFactoryProperty(Properties properties) {
         // Datanucleus expects the validator factory as the actual object, not just a string property
         ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
@@ -0,0 +1,68 @@
+package org.motechproject.mds.docs;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.motechproject.mds.exception.MdsException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A generated REST API spec, kept in its serialized form so that it can be served many times without
+ * generating it again. Both the plain and the gzipped content are kept, together with an ETag computed
+ * from the content, which allows clients to skip downloading a spec that did not change.
+ */
+public class RestDocumentation {
+
+    private final byte[] content;
+    private final byte[] gzippedContent;
+    private final String etag;
+
+    public RestDocumentation(String json) {
+        this.content = json.getBytes(StandardCharsets.UTF_8);
+        this.gzippedContent = gzip(content);
+        this.etag = '"' + DigestUtils.sha1Hex(content) + '"';
+    }
+
+    /**
+     * @return the spec encoded in UTF-8
+     */
+    public byte[] getContent() {
+        return Arrays.copyOf(content, content.length);
+    }
+
+    /**
+     * @return the spec encoded in UTF-8 and compressed with gzip
+     */
+    public byte[] getGzippedContent() {
+        return Arrays.copyOf(gzippedContent, gzippedContent.length);
+    }
+
+    /**
+     * @return the spec as a string
+     */
+    public String getContentAsString() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the quoted entity tag of the spec, which changes whenever the spec changes
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new MdsException("Unable to compress the REST documentation", e);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -49,6 +49,7 @@ import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.API_DESC
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.ARRAY_TYPE;
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.BASE_PATH_KEY;
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.BLOB_DESC_KEY;
+import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.BOOLEAN_TYPE;
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.CREATE_BODY_DESC_KEY;
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.CREATE_DESC_KEY;
 import static org.motechproject.mds.docs.swagger.model.SwaggerConstants.CREATE_ID_KEY;
@@ -563,6 +564,7 @@ public class SwaggerGenerator implements RestDocumentationGenerator {
         properties.put("totalCount", new Property(INTEGER_TYPE, INT64_FORMAT));
         properties.put("page", new Property(INTEGER_TYPE, INT32_FORMAT));
         properties.put("pageSize", new Property(INTEGER_TYPE, INT32_FORMAT));
+        properties.put("exactCount", new Property(BOOLEAN_TYPE));
 
         final List<String> required = new ArrayList<>();
         required.add("totalCount");
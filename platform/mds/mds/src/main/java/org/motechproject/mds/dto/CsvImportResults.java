@@ -18,6 +18,7 @@ public class CsvImportResults implements Serializable {
     private final String entityModule;
     private final String entityNamespace;
     private final Map<Integer, String> rowErrors;
+    private final int rowCount;
 
     /**
      * @param entity entity for which this import was performed
@@ -27,6 +28,19 @@ public class CsvImportResults implements Serializable {
      */
     public CsvImportResults(EntityDto entity, List<Long> newInstanceIDs, List<Long> updatedInstanceIDs,
                             Map<Integer, String> rowErrors) {
+        this(entity, newInstanceIDs, updatedInstanceIDs, rowErrors,
+                newInstanceIDs.size() + updatedInstanceIDs.size() + (rowErrors == null ? 0 : rowErrors.size()));
+    }
+
+    /**
+     * @param entity entity for which this import was performed
+     * @param newInstanceIDs a list of IDs for instances that were newly created during import
+     * @param updatedInstanceIDs a list of IDs for instances that were updated during import
+     * @param rowErrors a list of errors thrown during import
+     * @param rowCount the number of rows read from the CSV file
+     */
+    public CsvImportResults(EntityDto entity, List<Long> newInstanceIDs, List<Long> updatedInstanceIDs,
+                            Map<Integer, String> rowErrors, int rowCount) {
         this.entityClassName = entity.getClassName();
         this.entityName = entity.getName();
         this.entityModule = entity.getModule();
@@ -34,6 +48,7 @@ public class CsvImportResults implements Serializable {
         this.newInstanceIDs = newInstanceIDs;
         this.updatedInstanceIDs = updatedInstanceIDs;
         this.rowErrors = rowErrors;
+        this.rowCount = rowCount;
     }
 
     /**
@@ -102,6 +117,15 @@ public class CsvImportResults implements Serializable {
         return newInstanceCount() + updatedInstanceCount();
     }
 
+    /**
+     * Returns the number of rows read from the CSV file. This includes the rows that were imported
+     * and the rows that failed to import.
+     * @return the number of processed rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
     /**
      * @return the map containing errors thrown during import
      */
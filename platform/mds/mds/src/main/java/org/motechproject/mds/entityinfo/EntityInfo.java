@@ -10,11 +10,15 @@ import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.dto.LookupDto;
 import org.motechproject.mds.exception.field.FieldNotFoundException;
 import org.motechproject.mds.util.ClassName;
+import org.motechproject.mds.util.PropertyUtil;
 import org.motechproject.mds.util.SecurityMode;
 
+import java.beans.PropertyDescriptor;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The <code>EntityInfo</code> class contains base information about the given entity, like its class
@@ -33,6 +37,9 @@ public class EntityInfo {
     private String serviceClass;
     private String serviceName;
 
+    private Map<String, FieldInfo> fieldsByName;
+    private Map<String, FieldAccessor> accessors;
+
     public String getRepository() {
         return repository;
     }
@@ -231,11 +238,58 @@ public class EntityInfo {
 
     @JsonIgnore
     public FieldInfo getField(String name) {
-        for (FieldInfo fieldInfo : fieldsInfo) {
-            if (StringUtils.equals(name, fieldInfo.getName())) {
+        if (fieldsByName != null) {
+            FieldInfo fieldInfo = fieldsByName.get(name);
+            if (fieldInfo != null) {
                 return fieldInfo;
             }
+        } else {
+            for (FieldInfo fieldInfo : fieldsInfo) {
+                if (StringUtils.equals(name, fieldInfo.getName())) {
+                    return fieldInfo;
+                }
+            }
         }
         throw new FieldNotFoundException(getClassName(), name);
     }
+
+    /**
+     * Returns the accessor for the given field. If the accessors were not resolved for this entity info,
+     * an accessor relying on {@link PropertyUtil} is returned.
+     *
+     * @param name the name of the field
+     * @return the accessor for the field
+     */
+    @JsonIgnore
+    public FieldAccessor getAccessor(String name) {
+        FieldAccessor accessor = accessors == null ? null : accessors.get(name);
+        return accessor == null ? new FieldAccessor(name) : accessor;
+    }
+
+    /**
+     * Indexes the fields of this entity by name and resolves the accessors for them using
+     * the given entity class. Should be called once, after the entity info was read.
+     *
+     * @param entityClass the class of the entity, can be null if it can't be loaded
+     */
+    public void initAccessors(Class<?> entityClass) {
+        Map<String, FieldInfo> fieldMap = new HashMap<>();
+        Map<String, FieldAccessor> accessorMap = new HashMap<>();
+
+        for (FieldInfo fieldInfo : fieldsInfo) {
+            fieldMap.put(fieldInfo.getName(), fieldInfo);
+        }
+
+        if (entityClass != null) {
+            for (PropertyDescriptor descriptor : PropertyUtil.getPropertyDescriptors(entityClass)) {
+                if (fieldMap.containsKey(descriptor.getName())) {
+                    accessorMap.put(descriptor.getName(), new FieldAccessor(descriptor.getName(),
+                            descriptor.getReadMethod(), descriptor.getWriteMethod()));
+                }
+            }
+        }
+
+        fieldsByName = fieldMap;
+        accessors = accessorMap;
+    }
 }
@@ -4,27 +4,38 @@ import org.apache.commons.lang.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.motechproject.mds.exception.entity.EntityNotFoundException;
 import org.motechproject.mds.helper.bundle.MdsBundleHelper;
+import org.motechproject.mds.service.JarGeneratorService;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.wiring.BundleWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Implementation of the {@link EntityInfoReader} which reads entity information from json
  * files from the META-INF/entity-info directory inside the classpath. Used by mds-entities bundle,
- * which has all entity schema packed inside of it.
+ * which has all entity schema packed inside of it. The information about all entities is read
+ * once, on first access, and kept in memory. Since this reader lives in the context of the
+ * mds-entities bundle, a new reader with fresh information replaces it each time the bundle is
+ * regenerated.
  */
 public class EntityInfoReaderImpl implements EntityInfoReader {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityInfoReaderImpl.class);
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private Map<Long, String> idMapping = new HashMap<>();
 
+    private volatile Map<String, EntityInfo> entityInfos;
+
     public EntityInfoReaderImpl(Map<Long, String> idMapping) {
         this.idMapping = idMapping;
     }
@@ -34,16 +45,15 @@ public class EntityInfoReaderImpl implements EntityInfoReader {
 
     @Override
     public EntityInfo getEntityInfo(String entityClassName) {
-        String file = "META-INF/entity-info/" + entityClassName + ".json";
-
-        // the file is inside the entities bundle
-        ClassLoader entitiesCl = getMdsEntitiesBundleClassLoader();
+        EntityInfo entityInfo = getEntityInfos().get(entityClassName);
 
-        try (InputStream in = entitiesCl.getResourceAsStream(file)) {
-            return objectMapper.readValue(in, EntityInfo.class);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to read entity info for " + entityClassName, e);
+        if (entityInfo == null) {
+            // not one of the entities from the mapping, read it directly
+            ClassLoader entitiesCl = getMdsEntitiesBundleClassLoader();
+            entityInfo = readEntityInfo(entityClassName, entitiesCl);
         }
+
+        return entityInfo;
     }
 
     public EntityInfo getEntityInfo(Long entityId) {
@@ -60,6 +70,58 @@ public class EntityInfoReaderImpl implements EntityInfoReader {
         return idMapping.values();
     }
 
+    private Map<String, EntityInfo> getEntityInfos() {
+        Map<String, EntityInfo> infos = entityInfos;
+        if (infos == null) {
+            synchronized (this) {
+                infos = entityInfos;
+                if (infos == null) {
+                    infos = loadEntityInfos();
+                    entityInfos = infos;
+                }
+            }
+        }
+        return infos;
+    }
+
+    private Map<String, EntityInfo> loadEntityInfos() {
+        // the files are inside the entities bundle
+        ClassLoader entitiesCl = getMdsEntitiesBundleClassLoader();
+
+        Map<String, EntityInfo> infos = new HashMap<>();
+        for (String entityClassName : idMapping.values()) {
+            infos.put(entityClassName, readEntityInfo(entityClassName, entitiesCl));
+        }
+
+        LOGGER.debug("Loaded entity info for {} entities", infos.size());
+
+        return Collections.unmodifiableMap(infos);
+    }
+
+    private EntityInfo readEntityInfo(String entityClassName, ClassLoader entitiesCl) {
+        String file = JarGeneratorService.ENTITY_INFO_DIR + entityClassName + ".json";
+
+        EntityInfo entityInfo;
+        try (InputStream in = entitiesCl.getResourceAsStream(file)) {
+            entityInfo = objectMapper.readValue(in, EntityInfo.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read entity info for " + entityClassName, e);
+        }
+
+        entityInfo.initAccessors(loadEntityClass(entityClassName, entitiesCl));
+
+        return entityInfo;
+    }
+
+    private Class<?> loadEntityClass(String entityClassName, ClassLoader entitiesCl) {
+        try {
+            return entitiesCl.loadClass(entityClassName);
+        } catch (ClassNotFoundException e) {
+            LOGGER.warn("Unable to load class {}, its fields will be accessed using reflection", entityClassName);
+            return null;
+        }
+    }
+
     private ClassLoader getMdsEntitiesBundleClassLoader() {
         Bundle bundle = MdsBundleHelper.findMdsEntitiesBundle(bundleContext);
         return bundle.adapt(BundleWiring.class).getClassLoader();
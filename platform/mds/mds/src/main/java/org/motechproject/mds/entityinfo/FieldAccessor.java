@@ -0,0 +1,68 @@
+package org.motechproject.mds.entityinfo;
+
+import org.motechproject.mds.util.PropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * The <code>FieldAccessor</code> holds the getter and setter of an entity field, resolved once when
+ * the entity info is loaded. This allows reading and writing field values without looking up the
+ * property descriptors on every access. If the accessor methods could not be resolved, the accessor
+ * falls back to {@link org.motechproject.mds.util.PropertyUtil}.
+ */
+public class FieldAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FieldAccessor.class);
+
+    private final String fieldName;
+    private final Method getter;
+    private final Method setter;
+
+    public FieldAccessor(String fieldName) {
+        this(fieldName, null, null);
+    }
+
+    public FieldAccessor(String fieldName, Method getter, Method setter) {
+        this.fieldName = fieldName;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Object getValue(Object instance) {
+        if (instance == null) {
+            return null;
+        } else if (getter == null || !getter.getDeclaringClass().isInstance(instance)) {
+            return PropertyUtil.safeGetProperty(instance, fieldName);
+        }
+
+        try {
+            return getter.invoke(instance);
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            LOGGER.error("There was a problem with get value of property {} in bean: {}", fieldName, instance, e);
+            return null;
+        }
+    }
+
+    public void setValue(Object instance, Object value) {
+        if (instance == null) {
+            return;
+        } else if (setter == null || !setter.getDeclaringClass().isInstance(instance)) {
+            PropertyUtil.safeSetProperty(instance, fieldName, value);
+            return;
+        }
+
+        try {
+            setter.invoke(instance, value);
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            LOGGER.error("There was a problem with set value {} for property {} in bean: {}",
+                    value, fieldName, instance, e);
+        }
+    }
+}
@@ -3,16 +3,21 @@ package org.motechproject.mds.event;
 import org.apache.commons.lang.StringUtils;
 import org.motechproject.mds.entityinfo.EntityInfo;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.motechproject.mds.util.ClassName.simplifiedModuleName;
+import static org.motechproject.mds.util.Constants.MDSEvents.ACTION;
 import static org.motechproject.mds.util.Constants.MDSEvents.BASE_SUBJECT;
+import static org.motechproject.mds.util.Constants.MDSEvents.BATCH_PREFIX;
 import static org.motechproject.mds.util.Constants.MDSEvents.ENTITY_CLASS;
 import static org.motechproject.mds.util.Constants.MDSEvents.ENTITY_NAME;
 import static org.motechproject.mds.util.Constants.MDSEvents.MODULE_NAME;
 import static org.motechproject.mds.util.Constants.MDSEvents.NAMESPACE;
 import static org.motechproject.mds.util.Constants.MDSEvents.OBJECT_ID;
+import static org.motechproject.mds.util.Constants.MDSEvents.OBJECT_IDS;
 
 /**
  * The <code>MDSCrudEvents</code> class is responsible for creating MDS CRUD events.
@@ -41,6 +46,30 @@ public final class CrudEventBuilder {
         return params;
     }
 
+    /**
+     * Builds parameters for a Motech CRUD batch event, which lists all instances affected
+     * by the given action in a single transaction.
+     *
+     * @param module module name of an entity
+     * @param namespace namespace of an entity
+     * @param entity entity name
+     * @param entityClassName entity class name
+     * @param ids ids of the affected instances
+     * @param action the CRUD event type
+     * @return constructed parameters for the event
+     */
+    public static Map<String, Object> buildBatchEventParams(String module, String namespace, String entity,
+                                                            String entityClassName, List<Long> ids,
+                                                            CrudEventType action) {
+        Map<String, Object> params = new HashMap<>();
+
+        params.put(OBJECT_IDS, new ArrayList<>(ids));
+        params.put(ACTION, action.toString());
+        setEntityData(params, module, namespace, entity, entityClassName);
+
+        return params;
+    }
+
     /**
      * Creates subject for a Motech event, sent upon encounter
      * of a CRUD event in MDS.
@@ -92,6 +121,20 @@ public final class CrudEventBuilder {
         return subject;
     }
 
+    /**
+     * Creates subject for a Motech Event, sent once a transaction
+     * creating, updating or deleting instances of an entity commits.
+     *
+     * @param module module name of an entity
+     * @param namespace namespace of an entity
+     * @param entity entity name
+     * @param action CRUD event type
+     * @return Constructed subject for the Motech Event
+     */
+    public static String createBatchSubject(String module, String namespace, String entity, CrudEventType action) {
+        return createSubject(module, namespace, entity, BATCH_PREFIX + action.toString());
+    }
+
     /**
      * Sets properties in the given {@link java.util.Map}.
      *
@@ -1,5 +1,8 @@
 package org.motechproject.mds.jdo;
 
+import org.datanucleus.ExecutionContext;
+import org.datanucleus.PropertyNames;
+import org.datanucleus.api.jdo.JDOPersistenceManager;
 import org.springframework.orm.jdo.DefaultJdoDialect;
 import org.springframework.transaction.TransactionDefinition;
 
@@ -9,12 +12,20 @@ import javax.jdo.Transaction;
 /**
  * This is an extensions of Springs default JDO dialect that allows controlling the transaction
  * serialization level per transaction with Spring transactions. This was fixed in newer versions of Spring
- * and this class should get removed once we upgrade to a newer Spring version.
+ * and this class should get removed once we upgrade to a newer Spring version. It also tells the
+ * {@link ReplicaRoutingDataSource} whether the transaction is read-only, so that it can be sent to a read replica.
+ * Objects read by such transactions are not stored in the level 2 cache, since a replica can return stale values,
+ * which would then be returned from the cache to transactions using the primary database.
  */
 public class MdsJdoDialect extends DefaultJdoDialect {
 
+    private static final String CACHE_MODE_BYPASS = "bypass";
+
+    private final boolean routed;
+
     public MdsJdoDialect(Object connectionFactory) {
         super(connectionFactory);
+        routed = connectionFactory instanceof ReplicaRoutingDataSource;
     }
 
     @Override
@@ -23,8 +34,25 @@ public class MdsJdoDialect extends DefaultJdoDialect {
         if (jdoIsolationLevel != null) {
             transaction.setIsolationLevel(jdoIsolationLevel);
         }
-        transaction.begin();
-        return null;
+        TransactionData transactionData = new TransactionData(ReplicaRouting.begin(definition.isReadOnly()));
+        try {
+            if (routed && definition.isReadOnly()) {
+                transactionData.bypassLevel2Cache(
+                        ((JDOPersistenceManager) transaction.getPersistenceManager()).getExecutionContext());
+            }
+            transaction.begin();
+        } catch (RuntimeException e) {
+            cleanupTransaction(transactionData);
+            throw e;
+        }
+        return transactionData;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof TransactionData) {
+            ((TransactionData) transactionData).cleanup();
+        }
     }
 
     protected String getJdoIsolationLevel(TransactionDefinition definition) {
@@ -41,4 +69,30 @@ public class MdsJdoDialect extends DefaultJdoDialect {
                 return null;
         }
     }
+
+    private static final class TransactionData {
+
+        private final Object routingState;
+        private ExecutionContext executionContext;
+        private Object previousStoreMode;
+
+        private TransactionData(Object routingState) {
+            this.routingState = routingState;
+        }
+
+        private void bypassLevel2Cache(ExecutionContext ec) {
+            executionContext = ec;
+            previousStoreMode = ec.getProperty(PropertyNames.PROPERTY_CACHE_L2_STORE_MODE);
+            ec.setProperty(PropertyNames.PROPERTY_CACHE_L2_STORE_MODE, CACHE_MODE_BYPASS);
+        }
+
+        private void cleanup() {
+            ReplicaRouting.end(routingState);
+
+            // the persistence manager is normally closed with the transaction, unless it is shared
+            if (null != executionContext && null != previousStoreMode && !executionContext.isClosed()) {
+                executionContext.setProperty(PropertyNames.PROPERTY_CACHE_L2_STORE_MODE, previousStoreMode);
+            }
+        }
+    }
 }
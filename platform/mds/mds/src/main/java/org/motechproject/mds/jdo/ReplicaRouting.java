@@ -0,0 +1,150 @@
+package org.motechproject.mds.jdo;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.util.SecurityUtil;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>ReplicaRouting</code> keeps the state used by the {@link ReplicaRoutingDataSource} for choosing
+ * between the primary database and its read replicas. It remembers whether the transaction running in the
+ * current thread is read-only, and when the current session (the logged user, or the current thread if nobody
+ * is logged in) last wrote to the primary database, so that it can read its own writes. The writes of users
+ * are only remembered for the longest staleness window of the routing data sources.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+    private static final ThreadLocal<Long> THREAD_LAST_WRITE = new ThreadLocal<>();
+    private static final ConcurrentMap<String, Long> USER_LAST_WRITE = new ConcurrentHashMap<>();
+    private static final AtomicLong RETENTION = new AtomicLong();
+    private static final AtomicLong NEXT_EXPIRY = new AtomicLong();
+
+    /**
+     * Marks the start of a transaction in the current thread.
+     *
+     * @param readOnly true if the transaction is read-only, false otherwise
+     * @return the state that must be passed to {@link #end(Object)} once the transaction completes
+     */
+    public static Object begin(boolean readOnly) {
+        State state = new State(READ_ONLY.get(), readOnly);
+        READ_ONLY.set(readOnly);
+        return state;
+    }
+
+    /**
+     * Marks the end of a transaction in the current thread. Transactions which were not read-only are treated
+     * as writes of the current session.
+     *
+     * @param state the state returned by {@link #begin(boolean)}
+     */
+    public static void end(Object state) {
+        if (!(state instanceof State)) {
+            return;
+        }
+
+        State routingState = (State) state;
+
+        if (!routingState.readOnly) {
+            recordWrite();
+        }
+
+        if (null == routingState.previous) {
+            READ_ONLY.remove();
+        } else {
+            READ_ONLY.set(routingState.previous);
+        }
+    }
+
+    /**
+     * @return true if the transaction running in the current thread is read-only, false otherwise
+     */
+    public static boolean isReadOnly() {
+        return Boolean.TRUE.equals(READ_ONLY.get());
+    }
+
+    /**
+     * Returns the time of the last write done by the current session.
+     *
+     * @return the time in milliseconds, or 0 if the session did not write anything
+     */
+    public static long getLastWriteTime() {
+        Long threadWrite = THREAD_LAST_WRITE.get();
+        long lastWrite = null == threadWrite ? 0 : threadWrite;
+
+        String username = SecurityUtil.getUsername();
+        if (StringUtils.isNotBlank(username)) {
+            Long userWrite = USER_LAST_WRITE.get(username);
+            if (null != userWrite && userWrite > lastWrite) {
+                lastWrite = userWrite;
+            }
+        }
+
+        return lastWrite;
+    }
+
+    /**
+     * Makes sure that the writes of users are remembered for at least the given time.
+     *
+     * @param stalenessWindow the staleness window of a routing data source, in milliseconds
+     */
+    public static void retainWrites(long stalenessWindow) {
+        long retention = RETENTION.get();
+        while (stalenessWindow > retention && !RETENTION.compareAndSet(retention, stalenessWindow)) {
+            retention = RETENTION.get();
+        }
+    }
+
+    /**
+     * @return the number of users whose last write is currently remembered
+     */
+    public static int getTrackedUsers() {
+        return USER_LAST_WRITE.size();
+    }
+
+    private static void recordWrite() {
+        long now = System.currentTimeMillis();
+        THREAD_LAST_WRITE.set(now);
+
+        String username = SecurityUtil.getUsername();
+        if (StringUtils.isNotBlank(username)) {
+            USER_LAST_WRITE.put(username, now);
+        }
+
+        expireWrites(now);
+    }
+
+    private static void expireWrites(long now) {
+        long nextExpiry = NEXT_EXPIRY.get();
+        long retention = RETENTION.get();
+
+        // only one thread removes the expired writes, at most once per retention time
+        if (now < nextExpiry || !NEXT_EXPIRY.compareAndSet(nextExpiry, now + retention)) {
+            return;
+        }
+
+        Iterator<Long> it = USER_LAST_WRITE.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() >= retention) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class State {
+
+        private final Boolean previous;
+        private final boolean readOnly;
+
+        private State(Boolean previous, boolean readOnly) {
+            this.previous = previous;
+            this.readOnly = readOnly;
+        }
+    }
+
+    private ReplicaRouting() {
+    }
+}
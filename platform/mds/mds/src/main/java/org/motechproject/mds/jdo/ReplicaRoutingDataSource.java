@@ -0,0 +1,288 @@
+package org.motechproject.mds.jdo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A data source which sends connections of read-only transactions to the read replicas of the primary
+ * database, chosen in turns. Everything else, as well as reads of sessions that wrote to the primary
+ * database within the staleness window, uses the primary database. A replica which fails to hand out
+ * a connection is skipped until the retry interval passes, and the primary database is used instead.
+ * The replication lag of each replica is checked regularly, a replica which lags behind more than allowed
+ * is skipped until its next check shows that it caught up. The routing statistics are exposed through the
+ * {@link ReplicaRoutingDataSourceMBean} interface.
+ */
+public class ReplicaRoutingDataSource implements DataSource, ReplicaRoutingDataSourceMBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long stalenessWindow;
+    private final long retryInterval;
+    private final ReplicationLagCheck lagCheck;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong replicaConnections = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong lagChecks = new AtomicLong();
+
+    /**
+     * Constructs the data source.
+     *
+     * @param primary the data source of the primary database
+     * @param replicas the data sources of the read replicas
+     * @param stalenessWindow the time in milliseconds after a write of a session, during which its reads
+     *                        are sent to the primary database
+     * @param retryInterval the time in milliseconds after which a failed replica is tried again
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long stalenessWindow,
+                                    long retryInterval) {
+        this(primary, replicas, stalenessWindow, retryInterval, null);
+    }
+
+    /**
+     * Constructs the data source.
+     *
+     * @param primary the data source of the primary database
+     * @param replicas the data sources of the read replicas
+     * @param stalenessWindow the time in milliseconds after a write of a session, during which its reads
+     *                        are sent to the primary database
+     * @param retryInterval the time in milliseconds after which a failed replica is tried again
+     * @param lagCheck the check of the replication lag of the replicas, or null if the lag is not checked
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long stalenessWindow,
+                                    long retryInterval, ReplicationLagCheck lagCheck) {
+        this.primary = primary;
+        this.stalenessWindow = stalenessWindow;
+        this.retryInterval = retryInterval;
+        this.lagCheck = lagCheck;
+
+        for (DataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+
+        ReplicaRouting.retainWrites(stalenessWindow);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaRouting.isReadOnly() || replicas.isEmpty()) {
+            return getPrimaryConnection();
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - ReplicaRouting.getLastWriteTime() < stalenessWindow) {
+            staleReads.incrementAndGet();
+            return getPrimaryConnection();
+        }
+
+        for (int i = 0; i < replicas.size(); ++i) {
+            Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+
+            Connection connection = getReplicaConnection(replica, now);
+            if (null != connection) {
+                replicaConnections.incrementAndGet();
+                return connection;
+            }
+        }
+
+        fallbacks.incrementAndGet();
+        return getPrimaryConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections can't be retrieved for a different user");
+    }
+
+    @Override
+    public long getPrimaryConnections() {
+        return primaryConnections.get();
+    }
+
+    @Override
+    public long getReplicaConnections() {
+        return replicaConnections.get();
+    }
+
+    @Override
+    public long getStaleReads() {
+        return staleReads.get();
+    }
+
+    @Override
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    @Override
+    public int getAvailableReplicas() {
+        long now = System.currentTimeMillis();
+        int available = 0;
+
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                ++available;
+            }
+        }
+
+        return available;
+    }
+
+    @Override
+    public int getLaggingReplicas() {
+        int lagging = 0;
+
+        for (Replica replica : replicas) {
+            if (replica.lagging) {
+                ++lagging;
+            }
+        }
+
+        return lagging;
+    }
+
+    @Override
+    public long getLagChecks() {
+        return lagChecks.get();
+    }
+
+    @Override
+    public int getTrackedUsers() {
+        return ReplicaRouting.getTrackedUsers();
+    }
+
+    private Connection getReplicaConnection(Replica replica, long now) {
+        if (now < replica.unavailableUntil) {
+            return null;
+        }
+
+        // only one thread checks the lag of a replica, the others use the result of the last check
+        boolean checkLag = null != lagCheck && replica.isLagCheckDue(now, lagCheck.getCheckInterval());
+        if (replica.lagging && !checkLag) {
+            return null;
+        }
+
+        Connection connection = null;
+        try {
+            connection = replica.dataSource.getConnection();
+
+            if (checkLag) {
+                lagChecks.incrementAndGet();
+                replica.lagging = lagCheck.isLagging(connection);
+
+                if (replica.lagging) {
+                    LOGGER.warn("A read replica lags behind the primary database more than {} ms, it will not be " +
+                            "used until it catches up", lagCheck.getMaxLag());
+                    close(connection);
+                    return null;
+                }
+            }
+
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("Unable to connect to a read replica, it will not be used for {} ms", retryInterval, e);
+            replica.unavailableUntil = now + retryInterval;
+            close(connection);
+            return null;
+        }
+    }
+
+    private void close(Connection connection) {
+        if (null != connection) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Unable to close a connection to a read replica", e);
+            }
+        }
+    }
+
+    private Connection getPrimaryConnection() throws SQLException {
+        Connection connection = primary.getConnection();
+        primaryConnections.incrementAndGet();
+        return connection;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReplicaRoutingDataSource{replicas=%d, available=%d, lagging=%d, primaryConnections=%d, " +
+                        "replicaConnections=%d, staleReads=%d, fallbacks=%d}", replicas.size(), getAvailableReplicas(),
+                getLaggingReplicas(), getPrimaryConnections(), getReplicaConnections(), getStaleReads(),
+                getFallbacks());
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+        private final AtomicLong nextLagCheck = new AtomicLong();
+        private volatile long unavailableUntil;
+        private volatile boolean lagging;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean isAvailable(long now) {
+            return now >= unavailableUntil && !lagging;
+        }
+
+        private boolean isLagCheckDue(long now, long checkInterval) {
+            long nextCheck = nextLagCheck.get();
+            return now >= nextCheck && nextLagCheck.compareAndSet(nextCheck, now + checkInterval);
+        }
+    }
+}
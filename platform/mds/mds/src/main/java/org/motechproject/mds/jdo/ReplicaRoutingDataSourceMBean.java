@@ -0,0 +1,48 @@
+package org.motechproject.mds.jdo;
+
+/**
+ * The management interface of the {@link ReplicaRoutingDataSource}, through which its routing statistics are
+ * exposed over JMX.
+ */
+public interface ReplicaRoutingDataSourceMBean {
+
+    /**
+     * @return the number of connections retrieved from the primary database
+     */
+    long getPrimaryConnections();
+
+    /**
+     * @return the number of connections retrieved from the read replicas
+     */
+    long getReplicaConnections();
+
+    /**
+     * @return the number of read-only connections sent to the primary database because of a recent write
+     */
+    long getStaleReads();
+
+    /**
+     * @return the number of read-only connections sent to the primary database because no replica was available
+     */
+    long getFallbacks();
+
+    /**
+     * @return the number of read replicas which are currently used
+     */
+    int getAvailableReplicas();
+
+    /**
+     * @return the number of read replicas which are not used because they lag behind the primary database
+     */
+    int getLaggingReplicas();
+
+    /**
+     * @return the number of checks of the replication lag of the read replicas
+     */
+    long getLagChecks();
+
+    /**
+     * @return the number of users whose recent write sends their reads to the primary database
+     */
+    int getTrackedUsers();
+}
@@ -0,0 +1,93 @@
+package org.motechproject.mds.jdo;
+
+import org.motechproject.mds.util.Constants;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The <code>ReplicationLagCheck</code> tells whether a read replica lags too far behind the primary database.
+ * The lag is read with a database specific query, on a connection to the replica. A replica which does not
+ * report any replication status is treated as up to date, while a replica whose replication is stopped is
+ * treated as lagging.
+ */
+public class ReplicationLagCheck {
+
+    private static final String MYSQL_LAG_SQL = "SHOW SLAVE STATUS";
+    private static final String MYSQL_LAG_COLUMN = "Seconds_Behind_Master";
+
+    private static final String POSTGRES_LAG_SQL = "SELECT CASE " +
+            "WHEN pg_last_xlog_receive_location() = pg_last_xlog_replay_location() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END AS lag " +
+            "WHERE pg_is_in_recovery()";
+    private static final String POSTGRES_LAG_COLUMN = "lag";
+
+    private static final double MILLIS_PER_SECOND = 1000;
+
+    private final String sql;
+    private final String column;
+    private final long maxLag;
+    private final long checkInterval;
+
+    /**
+     * Constructs the check.
+     *
+     * @param sql the query returning the replication lag in seconds
+     * @param column the name of the column holding the lag
+     * @param maxLag the lag in milliseconds above which the replica is not used
+     * @param checkInterval the time in milliseconds between two checks of the same replica
+     */
+    public ReplicationLagCheck(String sql, String column, long maxLag, long checkInterval) {
+        this.sql = sql;
+        this.column = column;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Returns the lag check for replicas of the given database.
+     *
+     * @param driverName the name of the JDBC driver
+     * @param maxLag the lag in milliseconds above which a replica is not used
+     * @param checkInterval the time in milliseconds between two checks of the same replica
+     * @return the lag check, or null if the lag of the database can't be checked
+     */
+    public static ReplicationLagCheck forDriver(String driverName, long maxLag, long checkInterval) {
+        if (Constants.Config.MYSQL_DRIVER_CLASSNAME.equals(driverName)) {
+            return new ReplicationLagCheck(MYSQL_LAG_SQL, MYSQL_LAG_COLUMN, maxLag, checkInterval);
+        } else if (Constants.Config.POSTGRES_DRIVER_CLASSNAME.equals(driverName)) {
+            return new ReplicationLagCheck(POSTGRES_LAG_SQL, POSTGRES_LAG_COLUMN, maxLag, checkInterval);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the replica of the given connection lags too far behind the primary database.
+     *
+     * @param connection the connection to the replica
+     * @return true if the replica should not be used, false otherwise
+     * @throws SQLException if the lag could not be retrieved
+     */
+    public boolean isLagging(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (!resultSet.next()) {
+                return false;
+            }
+
+            Object lag = resultSet.getObject(column);
+            return !(lag instanceof Number) || ((Number) lag).doubleValue() * MILLIS_PER_SECOND > maxLag;
+        }
+    }
+
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+}
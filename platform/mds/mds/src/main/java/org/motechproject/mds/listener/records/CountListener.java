@@ -0,0 +1,46 @@
+package org.motechproject.mds.listener.records;
+
+import org.motechproject.mds.service.CountService;
+
+import javax.jdo.listener.DeleteLifecycleListener;
+import javax.jdo.listener.InstanceLifecycleEvent;
+import javax.jdo.listener.StoreLifecycleListener;
+
+/**
+ * The count listener invalidates the cached instance counts of an entity, using the
+ * {@link org.motechproject.mds.service.CountService}, whenever its instances are stored or deleted.
+ * This covers instances changed through cascades and repositories, not only through data services.
+ */
+public class CountListener extends BaseListener<CountService> implements StoreLifecycleListener,
+        DeleteLifecycleListener {
+
+    @Override
+    public void preStore(InstanceLifecycleEvent event) {
+    }
+
+    @Override
+    public void postStore(InstanceLifecycleEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void preDelete(InstanceLifecycleEvent event) {
+    }
+
+    @Override
+    public void postDelete(InstanceLifecycleEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    protected Class<CountService> getServiceClass() {
+        return CountService.class;
+    }
+
+    private void invalidate(InstanceLifecycleEvent event) {
+        String className = event.getSource().getClass().getName();
+
+        getLogger().trace("Invalidating cached counts of {}", className);
+        getService().invalidate(className);
+    }
+}
@@ -2,6 +2,7 @@ package org.motechproject.mds.listener.register;
 
 import org.apache.commons.lang.StringUtils;
 import org.motechproject.mds.listener.proxy.ProxyJdoListener;
+import org.motechproject.mds.listener.records.CountListener;
 import org.motechproject.mds.listener.records.HistoryListener;
 import org.motechproject.mds.listener.records.TrashListener;
 
@@ -23,6 +24,7 @@ public class JdoListenerRegister {
 
         addEntityListener(resultProps);
         addTrashHistoryListeners(resultProps);
+        addCountListener(resultProps);
 
         return resultProps;
     }
@@ -34,6 +36,10 @@ public class JdoListenerRegister {
         }
     }
 
+    private void addCountListener(Properties properties) {
+        properties.setProperty(LISTENER_KEY_PREFIX + CountListener.class.getName(), EntitiesClassListLoader.entitiesStr());
+    }
+
     private void addTrashHistoryListeners(Properties properties) {
         properties.setProperty(LISTENER_KEY_PREFIX + TrashListener.class.getName(), EntitiesClassListLoader.entitiesStr());
 
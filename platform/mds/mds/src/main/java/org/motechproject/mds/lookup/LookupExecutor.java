@@ -9,6 +9,7 @@ import org.motechproject.mds.dto.LookupFieldDto;
 import org.motechproject.mds.dto.LookupFieldType;
 import org.motechproject.mds.exception.field.FieldNotFoundException;
 import org.motechproject.mds.exception.lookup.LookupExecutorException;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.util.LookupName;
@@ -97,6 +98,25 @@ public class LookupExecutor {
         }
     }
 
+    public long executeIterate(Map<String, ?> lookupMap, QueryParams queryParams, InstanceCallback callback) {
+        List<Object> args = getLookupArgs(lookupMap);
+        List<Class> argTypes = buildArgTypes();
+
+        args.add(queryParams);
+        argTypes.add(QueryParams.class);
+        args.add(callback);
+        argTypes.add(InstanceCallback.class);
+
+        String iterateMethodName = LookupName.lookupIterateMethod(lookup.getMethodName());
+
+        try {
+            return (long) MethodUtils.invokeMethod(dataService, iterateMethodName,
+                    args.toArray(new Object[args.size()]),
+                    argTypes.toArray(new Class[argTypes.size()]));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new LookupExecutorException("Unable to execute iterate lookup " + lookup.getLookupName() + ".", e, null);
+        }
+    }
 
     private List<Object> getLookupArgs(Map<String, ?> paramMap) {
         List<Object> args = new ArrayList<>();
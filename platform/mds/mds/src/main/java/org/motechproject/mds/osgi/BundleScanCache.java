@@ -0,0 +1,189 @@
+package org.motechproject.mds.osgi;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.motechproject.mds.annotations.internal.MDSProcessorOutput;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.dto.EntityDto;
+import org.motechproject.mds.dto.SchemaHolder;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The <code>BundleScanCache</code> remembers, between restarts, the results of scanning bundles for MDS
+ * annotations, together with a fingerprint of the MDS schema after they were processed. If a bundle with the
+ * same symbolic name and version produces the same scan output and the schema did not change in the meantime,
+ * saving the output again would not change anything, so the {@link MdsBundleWatcher} can skip it.
+ * The cache is stored in the MOTECH directory.
+ * <p>
+ * Only saving the output to the schema is skipped. Bundles are still scanned on every start, since the scan
+ * registers the entity classes and listeners of the bundle, and the entities are still built, since the
+ * weaving of refreshed bundles needs the enhanced classes in memory.
+ */
+@Component
+public class BundleScanCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BundleScanCache.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String SCHEMA_KEY = "schema";
+    private static final String BUNDLE_KEY_PREFIX = "bundle.";
+
+    private MdsConfig mdsConfig;
+
+    private Properties properties;
+
+    /**
+     * Checks whether the given output was already processed against the given schema.
+     *
+     * @param output the output of the bundle scan
+     * @param schemaFingerprint the fingerprint of the current schema
+     * @return true if the output does not have to be processed again, false otherwise
+     */
+    public synchronized boolean isProcessed(MDSProcessorOutput output, String schemaFingerprint) {
+        String entry = entry(output);
+
+        return null != entry && isCurrentSchema(schemaFingerprint) &&
+                entry.equals(getProperties().getProperty(key(output.getBundle())));
+    }
+
+    /**
+     * Checks whether the cache was saved with the given schema. If it was not, the schema was changed
+     * by something else than bundle processing and the remembered outputs can't be trusted.
+     *
+     * @param schemaFingerprint the fingerprint of the current schema
+     * @return true if the cache was saved with the given schema, false otherwise
+     */
+    public synchronized boolean isCurrentSchema(String schemaFingerprint) {
+        return null != schemaFingerprint && schemaFingerprint.equals(getProperties().getProperty(SCHEMA_KEY));
+    }
+
+    /**
+     * Remembers the given output as processed. The change is kept in memory until {@link #save(String)} is called.
+     *
+     * @param output the processed output of the bundle scan
+     */
+    public synchronized void processed(MDSProcessorOutput output) {
+        String entry = entry(output);
+
+        if (null == entry) {
+            getProperties().remove(key(output.getBundle()));
+        } else {
+            getProperties().setProperty(key(output.getBundle()), entry);
+        }
+    }
+
+    /**
+     * Stores the cache in the MOTECH directory.
+     *
+     * @param schemaFingerprint the fingerprint of the schema after all remembered outputs were processed
+     */
+    public synchronized void save(String schemaFingerprint) {
+        if (null == schemaFingerprint) {
+            getProperties().remove(SCHEMA_KEY);
+        } else {
+            getProperties().setProperty(SCHEMA_KEY, schemaFingerprint);
+        }
+
+        File file = mdsConfig.getBundleScanCacheFile();
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            getProperties().store(out, "MDS bundle scan cache");
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save the bundle scan cache to {}", file, e);
+        }
+    }
+
+    /**
+     * Builds the fingerprint of the given schema, which changes whenever entities, their fields, lookups or
+     * settings change.
+     *
+     * @param schemaHolder the holder of the schema
+     * @return the fingerprint or null if it could not be built
+     */
+    public String schemaFingerprint(SchemaHolder schemaHolder) {
+        TreeMap<String, List<Object>> schema = new TreeMap<>();
+
+        for (EntityDto entity : schemaHolder.getAllEntities()) {
+            List<Object> entitySchema = new ArrayList<>();
+
+            entitySchema.add(entity);
+            entitySchema.add(schemaHolder.getFields(entity));
+            entitySchema.add(schemaHolder.getLookups(entity));
+            entitySchema.add(schemaHolder.getAdvancedSettings(entity));
+
+            schema.put(entity.getClassName(), entitySchema);
+        }
+
+        return hash(schema);
+    }
+
+    private String entry(MDSProcessorOutput output) {
+        List<Object> content = new ArrayList<>();
+
+        content.add(output.getEntityProcessorOutputs());
+        content.add(new TreeMap<>(output.getLookupProcessorOutputs()));
+
+        String hash = hash(content);
+
+        return null == hash ? null : output.getBundle().getVersion() + ":" + hash;
+    }
+
+    private String key(Bundle bundle) {
+        return BUNDLE_KEY_PREFIX + bundle.getSymbolicName();
+    }
+
+    private String hash(Object object) {
+        try {
+            return DigestUtils.sha1Hex(OBJECT_MAPPER.writeValueAsBytes(object));
+        } catch (IOException e) {
+            LOGGER.debug("Unable to compute the hash, the result will not be cached", e);
+            return null;
+        }
+    }
+
+    private Properties getProperties() {
+        if (null == properties) {
+            properties = new Properties();
+
+            File file = mdsConfig.getBundleScanCacheFile();
+
+            if (file.exists()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    properties.load(in);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to read the bundle scan cache from {}, all bundles will be processed", file, e);
+                    properties.clear();
+                }
+            }
+
+            // entries saved without a schema fingerprint are useless
+            if (StringUtils.isBlank(properties.getProperty(SCHEMA_KEY))) {
+                properties.clear();
+            }
+        }
+
+        return properties;
+    }
+
+    @Autowired
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
+}
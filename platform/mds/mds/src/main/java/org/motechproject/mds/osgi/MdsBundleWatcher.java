@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -70,6 +71,7 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
     private SchemaChangeLockManager schemaChangeLockManager;
     private EditableLookupsLoader editableLookupsLoader;
     private SchemaComparator schemaComparator;
+    private BundleScanCache bundleScanCache;
 
     private boolean processingSuspended = false;
     private Queue<AwaitingBundle> awaitingBundles = new LinkedBlockingQueue<>();
@@ -81,25 +83,40 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
         LOGGER.info("Scanning for MDS annotations");
         bundlesToRefresh = new ArrayList<>();
 
+        Map<String, Long> phaseTimes = new LinkedHashMap<>();
         StopWatch stopWatch = new StopWatch();
 
+        stopWatch.start();
         SchemaHolder schemaHolder = lockAndGetSchema();
+        final String schemaFingerprint = bundleScanCache.schemaFingerprint(schemaHolder);
+        stopWatch.stop();
+        phaseTimes.put("schema retrieval", stopWatch.getTime());
+
+        StopWatchHelper.restart(stopWatch);
         final List<MDSProcessorOutput> mdsProcessorOutputs = processInstalledBundles(schemaHolder);
+        stopWatch.stop();
+        phaseTimes.put("annotation scanning", stopWatch.getTime());
 
-        stopWatch.start();
+        StopWatchHelper.restart(stopWatch);
         new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
             @Override
             protected void doInTransactionWithoutResult(TransactionStatus status) {
                 schemaChangeLockManager.acquireLock(MdsBundleWatcher.class.getName() + " - start annotation processing");
 
                 for (MDSProcessorOutput output : mdsProcessorOutputs) {
-                    processAnnotationScanningResults(output);
+                    processAnnotationScanningResults(output, schemaFingerprint);
                 }
 
                 schemaChangeLockManager.releaseLock(MdsBundleWatcher.class.getName() + " - start annotation processing");
             }
         });
         stopWatch.stop();
+        phaseTimes.put("annotation processing", stopWatch.getTime());
+
+        // remember the outputs only after they were committed
+        for (MDSProcessorOutput output : mdsProcessorOutputs) {
+            bundleScanCache.processed(output);
+        }
 
         LOGGER.info("Annotation processing finished in {} ms", stopWatch.getTime());
 
@@ -115,12 +132,17 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
             StopWatchHelper.restart(stopWatch);
             refreshBundles(bundlesToRefresh, schemaHolder);
             stopWatch.stop();
+            phaseTimes.put("bundle refresh", stopWatch.getTime());
 
             LOGGER.info("Bundle refresh finished in {} ms", stopWatch.getTime());
         } else {
             LOGGER.info("No bundles to refresh, proceeding");
         }
 
+        bundleScanCache.save(bundleScanCache.schemaFingerprint(schemaHolder));
+
+        LOGGER.info("MDS startup phase times in ms: {}", phaseTimes);
+
         bundleContext.addBundleListener(this);
     }
 
@@ -177,6 +199,7 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
 
     private void processSingleBundle(final Bundle bundle) {
         SchemaHolder schemaHolder = lockAndGetSchema();
+        final String schemaFingerprint = bundleScanCache.schemaFingerprint(schemaHolder);
 
         final MDSProcessorOutput output = process(bundle, schemaHolder);
 
@@ -187,7 +210,7 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
                 protected void doInTransactionWithoutResult(TransactionStatus status) {
                     schemaChangeLockManager.acquireLock(MdsBundleWatcher.class.getName() + " - saving output of bundle processing");
 
-                    processAnnotationScanningResults(output);
+                    processAnnotationScanningResults(output, schemaFingerprint);
 
                     schemaChangeLockManager.releaseLock(MdsBundleWatcher.class.getName() + " - saving output of bundle processing");
                 }
@@ -195,6 +218,12 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
 
             schemaHolder = lockAndGetSchema();
 
+            // if the schema was changed by something else, the cache will be rebuilt on the next start
+            if (bundleScanCache.isCurrentSchema(schemaFingerprint)) {
+                bundleScanCache.processed(output);
+                bundleScanCache.save(bundleScanCache.schemaFingerprint(schemaHolder));
+            }
+
             // if we found annotations, we will refresh the bundle in order to start weaving the
             // classes it exposes
             refreshBundle(bundle, schemaHolder);
@@ -282,7 +311,7 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
         monitor.start();
     }
 
-    private void processAnnotationScanningResults(MDSProcessorOutput output) {
+    private void processAnnotationScanningResults(MDSProcessorOutput output, String schemaFingerprint) {
         Map<String, Long> entityIdMappings = new HashMap<>();
         Set<String> newEntities = new HashSet<>();
 
@@ -300,6 +329,12 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
             LOGGER.error("Unable to read JSON defined lookups from bundle: {}", bundle, e);
         }
 
+        if (bundleScanCache.isProcessed(output, schemaFingerprint)) {
+            LOGGER.info("The annotations of bundle {} did not change since they were processed, not saving them",
+                    bundle.getSymbolicName());
+            return;
+        }
+
         for (EntityProcessorOutput result : output.getEntityProcessorOutputs()) {
             EntityDto processedEntity = result.getEntityProcessingResult();
 
@@ -430,6 +465,11 @@ public class MdsBundleWatcher implements SynchronousBundleListener {
         this.schemaComparator = schemaComparator;
     }
 
+    @Autowired
+    public void setBundleScanCache(BundleScanCache bundleScanCache) {
+        this.bundleScanCache = bundleScanCache;
+    }
+
     private class AwaitingBundle {
         private Bundle bundle;
         private int eventType;
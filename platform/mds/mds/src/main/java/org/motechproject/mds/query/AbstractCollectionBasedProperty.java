@@ -31,6 +31,12 @@ public abstract class AbstractCollectionBasedProperty<T extends Collection> exte
         return StringUtils.join(strings, ", ");
     }
 
+    @Override
+    protected CharSequence generateShapeDetails() {
+        // one parameter is declared for each element
+        return String.valueOf(getValue().size());
+    }
+
     @Override
     public Collection unwrap() {
         return CollectionUtils.isEmpty(getValue()) ? null : getValue();
@@ -0,0 +1,35 @@
+package org.motechproject.mds.query;
+
+/**
+ * The <code>CountResult</code> represents the number of instances returned by the counting methods, which
+ * are allowed to estimate the count from database statistics instead of counting the instances.
+ */
+public class CountResult {
+
+    private final long count;
+    private final boolean exact;
+
+    public CountResult(long count, boolean exact) {
+        this.count = count;
+        this.exact = exact;
+    }
+
+    /**
+     * @return the number of instances
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if the instances were counted, false if the count was estimated from database statistics
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CountResult{count=%d, exact=%s}", count, exact);
+    }
+}
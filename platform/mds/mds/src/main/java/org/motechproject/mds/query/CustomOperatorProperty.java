@@ -55,6 +55,11 @@ public class CustomOperatorProperty<T> extends Property<T> {
     }
 
 
+    @Override
+    protected CharSequence generateShapeDetails() {
+        return operator;
+    }
+
     public boolean isOperatorAMethod() {
         return StringUtils.endsWith(operator, "()");
     }
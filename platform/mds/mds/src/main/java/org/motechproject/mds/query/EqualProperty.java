@@ -27,4 +27,9 @@ public class EqualProperty<T> extends Property<T> {
         }
         return String.format("%s == param%d", getName(), idx);
     }
+
+    @Override
+    protected CharSequence generateShapeDetails() {
+        return "";
+    }
 }
@@ -0,0 +1,21 @@
+package org.motechproject.mds.query;
+
+/**
+ * Callback used by the streaming retrieval methods of MDS data services. Instead of returning
+ * a list holding all matching instances, those methods read the results using a database cursor and
+ * pass the instances to the callback one by one. Instances that were already processed are evicted
+ * from the persistence manager, so memory usage does not grow with the size of the result.
+ * The callback is invoked inside the transaction in which the query runs, so lazy loaded fields
+ * of the instance can be accessed. References to the instance should not be kept after the
+ * callback returns.
+ *
+ * @param <T> the type of the processed instances
+ */
+public interface InstanceCallback<T> {
+
+    /**
+     * Processes a single instance retrieved by the query.
+     * @param instance the retrieved instance
+     */
+    void process(T instance);
+}
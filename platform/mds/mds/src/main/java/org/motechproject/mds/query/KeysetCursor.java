@@ -0,0 +1,84 @@
+package org.motechproject.mds.query;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.motechproject.mds.util.Order;
+import org.motechproject.mds.util.PropertyUtil;
+import org.motechproject.mds.util.TypeHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>KeysetCursor</code> util class creates keyset cursors for
+ * {@link org.motechproject.mds.query.QueryParams#keyset(Integer, java.util.List, java.util.List)}
+ * and converts them to and from opaque tokens, which can be handed out to REST clients.
+ */
+public final class KeysetCursor {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Reads the keyset cursor pointing right after the given instance.
+     *
+     * @param instance the last instance of the current page
+     * @param queryParams the params used to retrieve the current page
+     * @return the values of the keyset ordering fields of the instance
+     */
+    public static List<Object> after(Object instance, QueryParams queryParams) {
+        List<Order> orderList = queryParams.getKeysetOrderList();
+        List<Object> cursor = new ArrayList<>(orderList.size());
+
+        for (Order order : orderList) {
+            cursor.add(PropertyUtil.safeGetProperty(instance, order.getField()));
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Converts the given cursor into a token. The values are stored as strings,
+     * {@link org.motechproject.mds.query.KeysetProperty} parses them back to the field types.
+     *
+     * @param cursor the keyset cursor
+     * @return the token, safe to use in urls
+     */
+    public static String toToken(List<Object> cursor) {
+        List<String> values = new ArrayList<>(cursor.size());
+        for (Object value : cursor) {
+            values.add(TypeHelper.format(value));
+        }
+
+        try {
+            return Base64.encodeBase64URLSafeString(OBJECT_MAPPER.writeValueAsBytes(values));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create a token for cursor " + cursor, e);
+        }
+    }
+
+    /**
+     * Reads the cursor from the given token.
+     *
+     * @param token the token created by {@link #toToken(java.util.List)}, blank for the first page
+     * @return the cursor values as strings, empty if the token was blank
+     */
+    public static List<Object> fromToken(String token) {
+        if (StringUtils.isBlank(token)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            String json = new String(Base64.decodeBase64(token), StandardCharsets.UTF_8);
+            return OBJECT_MAPPER.readValue(json, new TypeReference<List<Object>>() { });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid keyset token: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.motechproject.mds.query;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.Order;
+import org.motechproject.mds.util.TypeHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>KeysetProperty</code> class represents the keyset cursor of
+ * {@link org.motechproject.mds.query.QueryParams} in a JDO query. It restricts the results to
+ * records which come after the cursor in the keyset order. For the order {@code a asc, id asc}
+ * and cursor {@code (x, y)} the generated filter is {@code (a > x || (a == x && id > y))}.
+ */
+public class KeysetProperty extends Property<List<Object>> {
+
+    private final List<Order> orderList;
+    private final List<String> types;
+
+    public KeysetProperty(QueryParams queryParams, Map<String, String> fieldTypeMap) {
+        super(Constants.Util.ID_FIELD_NAME, new ArrayList<>(), Long.class.getName());
+
+        orderList = queryParams.getKeysetOrderList();
+        types = new ArrayList<>(orderList.size());
+
+        List<Object> after = queryParams.getAfter();
+        if (after != null && !after.isEmpty() && after.size() != orderList.size()) {
+            throw new IllegalArgumentException("The keyset cursor must contain " + orderList.size() +
+                    " values, one for each ordering field");
+        }
+
+        for (int i = 0; i < orderList.size(); ++i) {
+            String type = getFieldType(orderList.get(i).getField(), fieldTypeMap);
+            types.add(type);
+
+            if (after != null && !after.isEmpty()) {
+                // the cursor values can come as strings, for example from a REST request
+                getValue().add(TypeHelper.parse(after.get(i), type));
+            }
+        }
+    }
+
+    @Override
+    protected CharSequence generateFilter(int idx) {
+        List<String> alternatives = new ArrayList<>(orderList.size());
+
+        for (int i = 0; i < orderList.size(); ++i) {
+            List<String> conditions = new ArrayList<>(i + 1);
+
+            // all previous ordering fields are equal to the cursor values
+            for (int j = 0; j < i; ++j) {
+                conditions.add(String.format("%s == %s", orderList.get(j).getField(), paramName(idx, j)));
+            }
+
+            Order order = orderList.get(i);
+            String operator = order.getDirection() == Order.Direction.DESC ? "<" : ">";
+            conditions.add(String.format("%s %s %s", order.getField(), operator, paramName(idx, i)));
+
+            alternatives.add(StringUtils.join(conditions, " && "));
+        }
+
+        return String.format("(%s)", StringUtils.join(alternatives, " || "));
+    }
+
+    @Override
+    protected CharSequence generateDeclareParameter(int idx) {
+        List<String> declarations = new ArrayList<>(orderList.size());
+
+        for (int i = 0; i < orderList.size(); ++i) {
+            declarations.add(String.format("%s %s", types.get(i), paramName(idx, i)));
+        }
+
+        return StringUtils.join(declarations, ", ");
+    }
+
+    @Override
+    protected CharSequence generateShapeDetails() {
+        return String.format("%s:%s", orderList, types);
+    }
+
+    @Override
+    public Collection unwrap() {
+        return shouldIgnoreThisProperty() ? null : getValue();
+    }
+
+    @Override
+    protected boolean shouldIgnoreThisProperty() {
+        // first page, no cursor yet
+        return getValue() == null || getValue().isEmpty();
+    }
+
+    private String paramName(int idx, int fieldIdx) {
+        return String.format("param%dk%d", idx, fieldIdx);
+    }
+
+    private String getFieldType(String field, Map<String, String> fieldTypeMap) {
+        String type = fieldTypeMap == null ? null : fieldTypeMap.get(field);
+
+        if (type == null) {
+            if (Constants.Util.ID_FIELD_NAME.equals(field)) {
+                type = Long.class.getName();
+            } else {
+                throw new IllegalArgumentException("Unable to use field " + field + " for keyset paging, " +
+                        "its type is unknown");
+            }
+        }
+
+        return type;
+    }
+}
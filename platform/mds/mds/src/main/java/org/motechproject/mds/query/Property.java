@@ -64,6 +64,34 @@ public abstract class Property<T> {
         return String.format("%s param%d", getType(), idx);
     }
 
+    /**
+     * Returns the shape of this property in a JDO query. Properties with the same shape generate the same
+     * filter and parameter declaration, regardless of their values, so the query text can be reused.
+     *
+     * @return the shape of this property or null if the shape cannot be determined
+     */
+    public CharSequence asShape() {
+        if (shouldIgnoreThisProperty()) {
+            return "-";
+        }
+
+        CharSequence details = generateShapeDetails();
+
+        return null == details
+                ? null
+                : String.format("%s:%s:%s:%s:%s", getClass().getName(), jdoVariableName, name, type, details);
+    }
+
+    /**
+     * Returns the part of the shape that depends on the property value or on the subclass. By default
+     * the shape is unknown, which means that queries using this property will not be cached.
+     *
+     * @return the value dependent part of the shape or null if it cannot be determined
+     */
+    protected CharSequence generateShapeDetails() {
+        return null;
+    }
+
     public Collection unwrap() {
         return shouldIgnoreThisProperty() ? null : Arrays.asList(getValue());
     }
@@ -74,6 +74,12 @@ public final class QueryExecutor {
         return query.executeWithArray(unwrappedValues);
     }
 
+    public static Object executeWithArray(Query query, List<Property> properties,
+                                          InstanceSecurityRestriction restriction) {
+        // the restriction parameter is declared after the parameters of the properties
+        return executeWithArray(query, properties.toArray(), restriction, QueryType.RETRIEVE);
+    }
+
     public static Object executeWithFilters(Query query, Filters filters,
                                             InstanceSecurityRestriction restriction) {
         return executeWithArray(query, filters.valuesForQuery(), restriction, QueryType.RETRIEVE);
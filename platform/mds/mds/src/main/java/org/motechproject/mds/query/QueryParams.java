@@ -20,6 +20,8 @@ public class QueryParams implements Serializable {
     private final Integer page;
     private final Integer pageSize;
     private final List<Order> orderList;
+    private final List<Object> after;
+    private final List<String> fetchGroups;
 
     /**
      * Constant query parameter, that orders records ascending by ID.
@@ -65,6 +67,7 @@ public class QueryParams implements Serializable {
         this.page = page;
         this.pageSize = pageSize;
         this.orderList = new ArrayList<>();
+        this.after = null;
         if (order != null) {
             orderList.add(order);
         }
@@ -78,9 +81,20 @@ public class QueryParams implements Serializable {
      * @param orderList the list of order instructions that will be applied to the query
      */
     public QueryParams(Integer page, Integer pageSize, List<Order> orderList) {
+        this(page, pageSize, orderList, null);
+    }
+
+    private QueryParams(Integer page, Integer pageSize, List<Order> orderList, List<Object> after) {
+        this(page, pageSize, orderList, after, null);
+    }
+
+    private QueryParams(Integer page, Integer pageSize, List<Order> orderList, List<Object> after,
+                        List<String> fetchGroups) {
         this.page = page;
         this.pageSize = pageSize;
         this.orderList = (orderList == null) ? new ArrayList<Order>() : orderList;
+        this.after = after;
+        this.fetchGroups = fetchGroups;
     }
 
     public Integer getPage() {
@@ -103,6 +117,67 @@ public class QueryParams implements Serializable {
         return page != null && pageSize != null;
     }
 
+    /**
+     * Returns the values of the ordering fields (as returned by {@link #getKeysetOrderList()}) of the
+     * last instance from the previous page. Results will start right after that instance.
+     *
+     * @return the keyset cursor, empty for the first page, null if keyset paging is not used
+     */
+    public List<Object> getAfter() {
+        return after;
+    }
+
+    /**
+     * Checks whether keyset (seek) pagination should be used instead of an offset.
+     *
+     * @return true if these params were created using {@link #keyset(Integer, List, List)}
+     */
+    public boolean isKeysetSet() {
+        return after != null;
+    }
+
+    /**
+     * Returns the order used for keyset pagination. This is the order of these params, followed by an
+     * ascending order on the id field, unless the params already order by the id. The id makes the order
+     * unique, which is required for a keyset cursor.
+     *
+     * @return the list of order instructions used with keyset pagination
+     */
+    public List<Order> getKeysetOrderList() {
+        List<Order> keysetOrder = new ArrayList<>(orderList);
+        if (!containsOrderOnField(Constants.Util.ID_FIELD_NAME)) {
+            keysetOrder.add(new Order(Constants.Util.ID_FIELD_NAME, Order.Direction.ASC));
+        }
+        return keysetOrder;
+    }
+
+    /**
+     * Returns the names of the fetch groups, that will be used as the fetch plan of the query. These groups
+     * control which fields of the instances are loaded together with the query results.
+     *
+     * @return the fetch group names, null if the default fetch plan should be used
+     * @see org.motechproject.mds.util.Constants.FetchGroups
+     */
+    public List<String> getFetchGroups() {
+        return fetchGroups;
+    }
+
+    public boolean isFetchGroupsSet() {
+        return fetchGroups != null && !fetchGroups.isEmpty();
+    }
+
+    /**
+     * Creates a copy of these query parameters, which will use the given fetch groups as the fetch plan
+     * of the query. The default group is not included automatically, it has to be passed explicitly if the
+     * fields from it should be loaded.
+     *
+     * @param groups names of the fetch groups
+     * @return query parameters using the given fetch groups
+     */
+    public QueryParams withFetchGroups(List<String> groups) {
+        return new QueryParams(page, pageSize, orderList, after, groups);
+    }
+
     public void addOrder(Order order) {
         orderList.add(order);
     }
@@ -136,6 +211,22 @@ public class QueryParams implements Serializable {
         return new QueryParams(new Order(field, Order.Direction.DESC));
     }
 
+    /**
+     * Creates query parameters for keyset (seek) pagination. Instead of skipping a number of records,
+     * the query will return records which come after the record identified by the given cursor, in the
+     * order returned by {@link #getKeysetOrderList()}. This keeps retrieval of deep pages fast on large tables.
+     * Null values in the ordering fields are not supported by the cursor.
+     *
+     * @param pageSize amount of entries to include, per page
+     * @param orderList the list of order instructions that will be applied to the query
+     * @param after values of the ordering fields of the last record of the previous page,
+     *              an empty list or null in order to retrieve the first page
+     * @return query parameters using keyset pagination
+     */
+    public static QueryParams keyset(Integer pageSize, List<Order> orderList, List<Object> after) {
+        return new QueryParams(1, pageSize, orderList, after == null ? new ArrayList<Object>() : after);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -147,7 +238,9 @@ public class QueryParams implements Serializable {
 
             return ObjectUtils.equals(page, other.page)
                     && ObjectUtils.equals(pageSize, other.pageSize)
-                    && ObjectUtils.equals(orderList, other.orderList);
+                    && ObjectUtils.equals(orderList, other.orderList)
+                    && ObjectUtils.equals(after, other.after)
+                    && ObjectUtils.equals(fetchGroups, other.fetchGroups);
         }
 
         return false;
@@ -159,6 +252,8 @@ public class QueryParams implements Serializable {
                 .append(page)
                 .append(pageSize)
                 .append(orderList)
+                .append(after)
+                .append(fetchGroups)
                 .toHashCode();
     }
 }
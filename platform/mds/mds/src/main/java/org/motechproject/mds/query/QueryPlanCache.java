@@ -0,0 +1,234 @@
+package org.motechproject.mds.query;
+
+import org.motechproject.mds.util.JmxUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jdo.PersistenceManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>QueryPlanCache</code> keeps the JDOQL filters and parameter declarations generated for
+ * lists of {@link org.motechproject.mds.query.Property}, keyed by the shape of the properties. Lookups
+ * and filters executed with different values but the same shape get exactly the same query text, without
+ * building it again, which also allows DataNucleus to reuse its own query compilations. There is a cache
+ * for every persistence manager factory, and each one keeps only the most recently used plans. The caches
+ * must be cleared when the entities schema is regenerated. The statistics of all caches are exposed over JMX.
+ */
+public final class QueryPlanCache implements QueryPlanCacheMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanCache.class);
+
+    private static final int MAX_SIZE = 2048;
+
+    private static final String MBEAN_TYPE = "QueryPlanCache";
+    private static final String MBEAN_NAME = "all";
+
+    // the factories are weak keys, so that the caches go away together with their factories
+    private static final Map<PersistenceManagerFactory, QueryPlanCache> CACHES = new WeakHashMap<>();
+
+    private final Map<String, QueryPlan> plans = new LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+        private static final long serialVersionUID = -4390178326620958721L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong compilations = new AtomicLong();
+
+    static {
+        // an MBean registered by an earlier instance of the bundle is replaced
+        JmxUtil.register(new Statistics(), MBEAN_TYPE, MBEAN_NAME);
+    }
+
+    private QueryPlanCache() {
+    }
+
+    /**
+     * Returns the cache for queries created by the given persistence manager factory.
+     *
+     * @param factory the persistence manager factory, can be null if the query is not bound to one
+     * @return the cache for the factory
+     */
+    public static QueryPlanCache forFactory(PersistenceManagerFactory factory) {
+        synchronized (CACHES) {
+            QueryPlanCache cache = CACHES.get(factory);
+
+            if (null == cache) {
+                cache = new QueryPlanCache();
+                CACHES.put(factory, cache);
+            }
+
+            return cache;
+        }
+    }
+
+    /**
+     * Removes the cached plans of all factories. Should be called when the entities schema changes.
+     */
+    public static void clearAll() {
+        for (QueryPlanCache cache : getCaches()) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Builds the cache key for the given properties.
+     *
+     * @param properties the properties used in the query, in the order of their parameters
+     * @return the key or null if the shape of some property is unknown and the query cannot be cached
+     */
+    public static String key(List<Property> properties) {
+        StringBuilder key = new StringBuilder();
+
+        for (Property property : properties) {
+            CharSequence shape = property.asShape();
+
+            if (null == shape) {
+                return null;
+            }
+
+            key.append(shape).append(';');
+        }
+
+        return key.toString();
+    }
+
+    public QueryPlan get(String key) {
+        QueryPlan plan;
+        synchronized (plans) {
+            plan = null == key ? null : plans.get(key);
+        }
+
+        if (null != plan) {
+            hits.incrementAndGet();
+        }
+
+        return plan;
+    }
+
+    public QueryPlan put(String key, String filter, String declareParameters) {
+        compilations.incrementAndGet();
+        QueryPlan plan = new QueryPlan(filter, declareParameters);
+
+        if (null != key) {
+            synchronized (plans) {
+                plans.put(key, plan);
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Removes all plans cached for this factory.
+     */
+    public void clear() {
+        LOGGER.info("Clearing the query plan cache. Entries: {}, hits: {}, compilations: {}, hit rate: {}",
+                getSize(), getHits(), getCompilations(), String.format("%.2f", getHitRate()));
+
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getCompilations() {
+        return compilations.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        return hitRate(getHits(), getCompilations());
+    }
+
+    private static double hitRate(long hitCount, long compilationCount) {
+        long total = hitCount + compilationCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static List<QueryPlanCache> getCaches() {
+        synchronized (CACHES) {
+            return new ArrayList<>(CACHES.values());
+        }
+    }
+
+    /**
+     * The filter and parameter declaration of a JDO query.
+     */
+    public static final class QueryPlan {
+
+        private final String filter;
+        private final String declareParameters;
+
+        private QueryPlan(String filter, String declareParameters) {
+            this.filter = filter;
+            this.declareParameters = declareParameters;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        public String getDeclareParameters() {
+            return declareParameters;
+        }
+    }
+
+    /**
+     * The statistics of all caches, registered as a single MBean.
+     */
+    static final class Statistics implements QueryPlanCacheMXBean {
+
+        @Override
+        public int getSize() {
+            int size = 0;
+            for (QueryPlanCache cache : getCaches()) {
+                size += cache.getSize();
+            }
+            return size;
+        }
+
+        @Override
+        public long getHits() {
+            long hitCount = 0;
+            for (QueryPlanCache cache : getCaches()) {
+                hitCount += cache.getHits();
+            }
+            return hitCount;
+        }
+
+        @Override
+        public long getCompilations() {
+            long compilationCount = 0;
+            for (QueryPlanCache cache : getCaches()) {
+                compilationCount += cache.getCompilations();
+            }
+            return compilationCount;
+        }
+
+        @Override
+        public double getHitRate() {
+            return hitRate(getHits(), getCompilations());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.motechproject.mds.query;
+
+/**
+ * The management interface through which the statistics of the {@link QueryPlanCache} are exposed over JMX.
+ * The values are summed over the caches of all persistence manager factories.
+ */
+public interface QueryPlanCacheMXBean {
+
+    /**
+     * @return the number of plans currently cached
+     */
+    int getSize();
+
+    /**
+     * @return the number of times a cached plan was used
+     */
+    long getHits();
+
+    /**
+     * @return the number of times a query filter had to be built, because it was not cached
+     */
+    long getCompilations();
+
+    /**
+     * @return the ratio of hits to all lookups, between 0 and 1
+     */
+    double getHitRate();
+}
@@ -5,6 +5,7 @@ import org.apache.commons.lang.StringUtils;
 import org.motechproject.mds.filter.Filters;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
 
+import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -23,6 +24,10 @@ public final class QueryUtil {
 
     private static final String QUERY_CANNOT_BE_NULL = "Query cannot be null";
 
+    private static final String RESULT_SET_TYPE_EXTENSION = "datanucleus.rdbms.query.resultSetType";
+    private static final String RESULT_CACHE_TYPE_EXTENSION = "datanucleus.query.resultCacheType";
+    private static final String LOAD_RESULTS_AT_COMMIT_EXTENSION = "datanucleus.query.loadResultsAtCommit";
+
     private QueryUtil() {
     }
 
@@ -42,13 +47,40 @@ public final class QueryUtil {
 
                 query.setRange(fromIncl, toExcl);
             }
-            if (queryParams.isOrderSet()) {
+            if (queryParams.isKeysetSet()) {
+                // keyset paging requires a unique order
+                String order = StringUtils.join(queryParams.getKeysetOrderList(), ", ");
+                query.setOrdering(order);
+            } else if (queryParams.isOrderSet()) {
                 String order = StringUtils.join(queryParams.getOrderList(), ", ");
                 query.setOrdering(order);
             }
+            if (queryParams.isFetchGroupsSet()) {
+                List<String> groups = queryParams.getFetchGroups();
+                query.getFetchPlan().setGroups(groups.toArray(new String[groups.size()]));
+            }
         }
     }
 
+    /**
+     * Prepares the query for reading its results using a forward-only database cursor. The JDBC driver
+     * will fetch the given number of rows at once and the returned query result will not cache
+     * the instances that were already read, which allows iterating over large results with constant memory.
+     *
+     * @param query the query that will be read with a cursor
+     * @param fetchSize the number of rows fetched from the database in a single round trip
+     */
+    public static void useCursor(Query query, int fetchSize) {
+        if (query == null) {
+            throw new IllegalArgumentException(QUERY_CANNOT_BE_NULL);
+        }
+
+        query.getFetchPlan().setFetchSize(fetchSize);
+        query.addExtension(RESULT_SET_TYPE_EXTENSION, "forward-only");
+        query.addExtension(RESULT_CACHE_TYPE_EXTENSION, "none");
+        query.addExtension(LOAD_RESULTS_AT_COMMIT_EXTENSION, "false");
+    }
+
     public static void useFilters(Query query, Filters filters) {
         if (query == null) {
             throw new IllegalArgumentException(QUERY_CANNOT_BE_NULL);
@@ -103,18 +135,31 @@ public final class QueryUtil {
             copy.add(new RestrictionProperty(restriction, getUsername()));
         }
 
-        Collection<CharSequence> filters = new ArrayList<>(copy.size());
-        Collection<CharSequence> declareParameter = new ArrayList<>(copy.size());
+        PersistenceManager persistenceManager = query.getPersistenceManager();
+        QueryPlanCache cache = QueryPlanCache.forFactory(null == persistenceManager
+                ? null
+                : persistenceManager.getPersistenceManagerFactory());
+
+        String key = QueryPlanCache.key(copy);
+        QueryPlanCache.QueryPlan plan = cache.get(key);
 
-        for (int idx = 0; idx < copy.size(); ++idx) {
-            Property property = copy.get(idx);
+        if (null == plan) {
+            Collection<CharSequence> filters = new ArrayList<>(copy.size());
+            Collection<CharSequence> declareParameter = new ArrayList<>(copy.size());
+
+            for (int idx = 0; idx < copy.size(); ++idx) {
+                Property property = copy.get(idx);
+
+                CollectionUtils.addIgnoreNull(filters, property.asFilter(idx));
+                CollectionUtils.addIgnoreNull(declareParameter, property.asDeclareParameter(idx));
+            }
 
-            CollectionUtils.addIgnoreNull(filters, property.asFilter(idx));
-            CollectionUtils.addIgnoreNull(declareParameter, property.asDeclareParameter(idx));
+            plan = cache.put(key, StringUtils.join(filters, " && "),
+                    StringUtils.join(declareParameter, ", "));
         }
 
-        query.setFilter(StringUtils.join(filters, " && "));
-        query.declareParameters(StringUtils.join(declareParameter, ", "));
+        query.setFilter(plan.getFilter());
+        query.declareParameters(plan.getDeclareParameters());
     }
 
     public static void useFilterFromPattern(Query query, String pattern, List<Property> properties) {
@@ -94,6 +94,11 @@ public class RangeProperty<T> extends Property<Range<T>> {
         return sb.toString();
     }
 
+    @Override
+    protected CharSequence generateShapeDetails() {
+        return String.format("%b:%b", getValue().getMin() != null, getValue().getMax() != null);
+    }
+
     @Override
     public Collection unwrap() {
         if (shouldIgnoreThisProperty()) {
@@ -1,16 +1,45 @@
 package org.motechproject.mds.repository;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.reflect.FieldUtils;
+import org.datanucleus.ClassLoaderResolver;
+import org.datanucleus.ExecutionContext;
+import org.datanucleus.api.jdo.JDOPersistenceManager;
+import org.datanucleus.metadata.AbstractMemberMetaData;
+import org.datanucleus.store.rdbms.RDBMSStoreManager;
+import org.datanucleus.store.rdbms.table.DatastoreClass;
+import org.motechproject.mds.exception.object.ObjectReadException;
+import org.motechproject.mds.exception.object.ObjectUpdateException;
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.EqualProperty;
+import org.motechproject.mds.query.InstanceCallback;
+import org.motechproject.mds.query.KeysetProperty;
 import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.QueryExecutor;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.query.QueryUtil;
+import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
+import org.motechproject.mds.util.MemberUtil;
 import org.motechproject.mds.util.PropertyUtil;
+import org.motechproject.mds.util.StatementCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
+import javax.jdo.datastore.JDOConnection;
+import javax.jdo.metadata.TypeMetadata;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +57,15 @@ import java.util.Map;
 @Repository
 public abstract class MotechDataRepository<T> extends AbstractRepository {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MotechDataRepository.class);
+
+    private static final int CURSOR_FETCH_SIZE = 500;
+    private static final String MYSQL_ESTIMATE =
+            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+    private static final String POSTGRES_ESTIMATE =
+            "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE relkind = 'r' AND relname = ?";
+    private static final String RELATED_OWNER = "relatedOwner";
+
     private Class<T> classType;
     private Integer fetchDepth;
     private Map<String, String> fieldTypeMap;
@@ -57,6 +95,8 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
             pm.getFetchPlan().setMaxFetchDepth(fetchDepth);
         }
 
+        StatementCounter.track(getPersistenceManagerFactory(), classType.getName());
+
         return pm;
     }
 
@@ -127,6 +167,10 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
     }
 
     public List<T> retrieveAll(QueryParams queryParams, InstanceSecurityRestriction restriction) {
+        if (queryParams != null && queryParams.isKeysetSet()) {
+            return retrieveAll(new ArrayList<Property>(), queryParams, restriction);
+        }
+
         Query query = createQuery(new String[0], new Object[0], restriction);
         QueryUtil.setQueryParams(query, queryParams);
         Collection collection = (Collection) QueryExecutor.execute(query, restriction);
@@ -143,14 +187,44 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
     }
 
     public List<T> retrieveAll(List<Property> properties, QueryParams queryParams, InstanceSecurityRestriction restriction) {
-        Query query = createQuery(properties, restriction);
+        List<Property> propertiesToUse = withKeyset(properties, queryParams);
+
+        Query query = createQuery(propertiesToUse, restriction);
         QueryUtil.setQueryParams(query, queryParams);
 
-        Collection collection = (Collection) QueryExecutor.executeWithArray(query, properties);
+        Collection collection = (Collection) QueryExecutor.executeWithArray(query, propertiesToUse, restriction);
 
         return new ArrayList<>(collection);
     }
 
+    public long iterateAll(QueryParams queryParams, InstanceSecurityRestriction restriction,
+                           InstanceCallback<T> callback) {
+        if (queryParams != null && queryParams.isKeysetSet()) {
+            return iterateAll(new ArrayList<Property>(), queryParams, restriction, callback);
+        }
+
+        Query query = createQuery(new String[0], new Object[0], restriction);
+        QueryUtil.setQueryParams(query, queryParams);
+        QueryUtil.useCursor(query, CURSOR_FETCH_SIZE);
+
+        Collection collection = (Collection) QueryExecutor.execute(query, restriction);
+
+        return iterate(query, collection, callback);
+    }
+
+    public long iterateAll(List<Property> properties, QueryParams queryParams, InstanceSecurityRestriction restriction,
+                           InstanceCallback<T> callback) {
+        List<Property> propertiesToUse = withKeyset(properties, queryParams);
+
+        Query query = createQuery(propertiesToUse, restriction);
+        QueryUtil.setQueryParams(query, queryParams);
+        QueryUtil.useCursor(query, CURSOR_FETCH_SIZE);
+
+        Collection collection = (Collection) QueryExecutor.executeWithArray(query, propertiesToUse, restriction);
+
+        return iterate(query, collection, callback);
+    }
+
     public T retrieve(String property, Object value) {
         return retrieve(new String[]{property}, new Object[]{value}, null);
     }
@@ -225,6 +299,47 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return (long) QueryExecutor.executeWithArray(query, values, restriction);
     }
 
+    /**
+     * Returns the number of rows in the table of the entity, as estimated by the database statistics.
+     * The estimate can be far from the actual count, but it is retrieved without scanning the table.
+     *
+     * @return the estimated number of instances, or null if the statistics are not available
+     */
+    public Long estimateCount() {
+        PersistenceManager pm = getPersistenceManager();
+
+        TypeMetadata metadata = pm.getPersistenceManagerFactory().getMetadata(classType.getName());
+        String table = null == metadata ? null : metadata.getTable();
+
+        if (StringUtils.isBlank(table)) {
+            return null;
+        }
+
+        JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            Connection connection = (Connection) jdoConnection.getNativeConnection();
+            String productName = connection.getMetaData().getDatabaseProductName();
+            String sql = StringUtils.containsIgnoreCase(productName, "postgres") ? POSTGRES_ESTIMATE : MYSQL_ESTIMATE;
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, table);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        long estimate = resultSet.getLong(1);
+                        return resultSet.wasNull() || estimate < 0 ? null : estimate;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.debug("Unable to estimate the number of rows in " + table, e);
+        } finally {
+            jdoConnection.close();
+        }
+
+        return null;
+    }
+
     public List<T> filter(Filters filters, QueryParams queryParams, InstanceSecurityRestriction restriction) {
         Query query = queryForFilters(filters, queryParams, restriction);
 
@@ -233,6 +348,16 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return new ArrayList<>(collection);
     }
 
+    public long iterateForFilters(Filters filters, QueryParams queryParams, InstanceSecurityRestriction restriction,
+                                  InstanceCallback<T> callback) {
+        Query query = queryForFilters(filters, queryParams, restriction);
+        QueryUtil.useCursor(query, CURSOR_FETCH_SIZE);
+
+        Collection collection = (Collection) QueryExecutor.executeWithFilters(query, filters, restriction);
+
+        return iterate(query, collection, callback);
+    }
+
     public long countForFilters(Filters filters, InstanceSecurityRestriction restriction) {
         Query query = queryForFilters(filters, null, restriction);
         QueryUtil.setCountResult(query);
@@ -247,6 +372,170 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
         return (long) QueryExecutor.executeWithArray(query, properties);
     }
 
+    public List<Object> retrieveRelated(Long id, String field, QueryParams queryParams) {
+        if (queryParams != null && queryParams.isKeysetSet()) {
+            throw new IllegalArgumentException("Keyset paging is not supported for related instances");
+        }
+
+        List<Property> properties = new ArrayList<>();
+        Query query = createRelatedQuery(id, field, properties);
+        QueryUtil.setQueryParams(query, queryParams);
+
+        Collection collection = (Collection) QueryExecutor.executeWithArray(query, properties);
+
+        return new ArrayList<>(collection);
+    }
+
+    public long countRelated(Long id, String field) {
+        List<Property> properties = new ArrayList<>();
+        Query query = createRelatedQuery(id, field, properties);
+        QueryUtil.setCountResult(query);
+
+        return (long) QueryExecutor.executeWithArray(query, properties);
+    }
+
+    /**
+     * Copies the value of a blob field straight from the database to the given stream, without loading
+     * the whole value into an array of bytes.
+     *
+     * @param id the id of the instance
+     * @param field the name of the blob field
+     * @param outputStream the stream the value is written to
+     * @return the number of bytes written, or -1 if the instance does not exist
+     * @throws IOException if the value could not be written to the stream
+     */
+    public long streamBlob(Long id, String field, OutputStream outputStream) throws IOException {
+        PersistenceManager pm = getPersistenceManager();
+        BlobColumn blobColumn = getBlobColumn(pm, field);
+
+        JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            Connection connection = (Connection) jdoConnection.getNativeConnection();
+
+            try (PreparedStatement statement = connection.prepareStatement(blobColumn.selectSql())) {
+                statement.setLong(1, id);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return -1;
+                    }
+
+                    try (InputStream inputStream = resultSet.getBinaryStream(1)) {
+                        return null == inputStream ? 0 : IOUtils.copyLarge(inputStream, outputStream);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new ObjectReadException(classType.getName(), e);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+
+    /**
+     * Replaces the value of a blob field with the content of the given stream, without loading
+     * the whole value into an array of bytes. The change is not visible to instances already loaded.
+     *
+     * @param id the id of the instance
+     * @param field the name of the blob field
+     * @param inputStream the new value
+     * @return true if the value was written, false if the instance does not exist
+     */
+    public boolean writeBlob(Long id, String field, InputStream inputStream) {
+        PersistenceManager pm = getPersistenceManager();
+        BlobColumn blobColumn = getBlobColumn(pm, field);
+
+        JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            Connection connection = (Connection) jdoConnection.getNativeConnection();
+
+            try (PreparedStatement statement = connection.prepareStatement(blobColumn.updateSql())) {
+                statement.setBinaryStream(1, inputStream);
+                statement.setLong(2, id);
+
+                return statement.executeUpdate() > 0;
+            }
+        } catch (SQLException e) {
+            throw new ObjectUpdateException(classType.getName(), id, e);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+
+    private BlobColumn getBlobColumn(PersistenceManager pm, String field) {
+        String type = null == fieldTypeMap ? null : fieldTypeMap.get(field);
+        if (!Byte[].class.getName().equals(type) && !byte[].class.getName().equals(type)) {
+            throw new IllegalArgumentException("Field " + field + " of " + classType.getName() + " is not a blob");
+        }
+
+        ExecutionContext ec = ((JDOPersistenceManager) pm).getExecutionContext();
+        ClassLoaderResolver clr = ec.getClassLoaderResolver();
+
+        DatastoreClass table = ((RDBMSStoreManager) ec.getStoreManager()).getDatastoreClass(classType.getName(), clr);
+        AbstractMemberMetaData mmd = ec.getMetaDataManager().getMetaDataForClass(classType, clr)
+                .getMetaDataForMember(field);
+
+        return new BlobColumn(table.getIdentifier().getFullyQualifiedName(false),
+                table.getMemberMapping(mmd).getDatastoreMapping(0).getColumn().getIdentifier().toString(),
+                table.getIdMapping().getDatastoreMapping(0).getColumn().getIdentifier().toString());
+    }
+
+    private long iterate(Query query, Collection collection, InstanceCallback<T> callback) {
+        PersistenceManager pm = query.getPersistenceManager();
+        long processed = 0;
+
+        try {
+            for (Object instance : collection) {
+                callback.process((T) instance);
+                // the instance was handled, so we don't want the persistence manager to keep it
+                pm.evict(instance);
+                processed++;
+            }
+        } finally {
+            query.close(collection);
+        }
+
+        return processed;
+    }
+
+    private List<Property> withKeyset(List<Property> properties, QueryParams queryParams) {
+        if (queryParams == null || !queryParams.isKeysetSet()) {
+            return properties;
+        }
+
+        // the keyset condition goes before the security restriction, which is always added last
+        List<Property> withKeyset = new ArrayList<>(properties);
+        withKeyset.add(new KeysetProperty(queryParams, fieldTypeMap));
+
+        return withKeyset;
+    }
+
+    private Query createRelatedQuery(Long id, String field, List<Property> properties) {
+        Field relationshipField = FieldUtils.getField(classType, field, true);
+        if (relationshipField == null) {
+            throw new IllegalArgumentException("Field " + field + " not found in " + classType.getName());
+        }
+
+        // the query is executed on the related class, the owner is a variable, so
+        // paging and ordering are applied to the related instances by the database
+        boolean collection = Collection.class.isAssignableFrom(relationshipField.getType());
+        Class<?> relatedClass = collection ? MemberUtil.getGenericType(relationshipField) : relationshipField.getType();
+        if (relatedClass == null) {
+            throw new IllegalArgumentException("Unable to determine the related class of field " + field);
+        }
+
+        String pattern = collection ? "%s && " + RELATED_OWNER + "." + field + ".contains(this)"
+                : "%s && " + RELATED_OWNER + "." + field + " == this";
+
+        properties.add(new EqualProperty<>(RELATED_OWNER + "." + Constants.Util.ID_FIELD_NAME, id, Long.class.getName()));
+
+        Query query = getPersistenceManager().newQuery(relatedClass);
+        query.declareVariables(classType.getName() + " " + RELATED_OWNER);
+        QueryUtil.useFilterFromPattern(query, pattern, properties);
+
+        return query;
+    }
+
     private Query createQuery(String[] properties, Object[] values, InstanceSecurityRestriction restriction) {
         Query query = getPersistenceManager().newQuery(classType);
         QueryUtil.useFilter(query, properties, values, fieldTypeMap, restriction);
@@ -268,4 +557,25 @@ public abstract class MotechDataRepository<T> extends AbstractRepository {
 
         return query;
     }
+
+    private static final class BlobColumn {
+
+        private final String table;
+        private final String column;
+        private final String idColumn;
+
+        private BlobColumn(String table, String column, String idColumn) {
+            this.table = table;
+            this.column = column;
+            this.idColumn = idColumn;
+        }
+
+        private String selectSql() {
+            return "SELECT " + column + " FROM " + table + " WHERE " + idColumn + " = ?";
+        }
+
+        private String updateSql() {
+            return "UPDATE " + table + " SET " + column + " = ? WHERE " + idColumn + " = ?";
+        }
+    }
 }
@@ -4,6 +4,8 @@ import org.motechproject.mds.exception.rest.RestLookupExecutionForbiddenExceptio
 import org.motechproject.mds.query.QueryParams;
 
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -84,4 +86,30 @@ public interface MdsRestFacade<T> {
      * @return lookup result, that can be either a single instance or a collection of instances. Response contains also metadata.
      */
     Object executeLookup(String lookupName, Map<String, String> lookupMap, QueryParams queryParams, boolean includeBlob);
+
+    /**
+     * Works like {@link #get(org.motechproject.mds.query.QueryParams, boolean)}, but writes the response as JSON directly
+     * to the given output stream. Instances are serialized while they are read from the database, so large pages
+     * are never held in memory. The metadata is written after the data.
+     *
+     * @param queryParams query parameters to use retrieving instances
+     * @param includeBlob set to true, if you wish to retrieve value for binary object fields
+     * @param fields names of the fields to include, null for all fields visible for REST
+     * @param outputStream the stream to which the response will be written, it will not be closed
+     */
+    void stream(QueryParams queryParams, boolean includeBlob, List<String> fields, OutputStream outputStream);
+
+    /**
+     * Works like {@link #executeLookup(String, java.util.Map, org.motechproject.mds.query.QueryParams, boolean)}, but
+     * writes the response as JSON directly to the given output stream. The metadata is written after the data.
+     *
+     * @param lookupName name of the lookup
+     * @param lookupMap map containing field names and their respective values
+     * @param queryParams query parameters to use retrieving instances
+     * @param includeBlob set to true, if you wish to retrieve value for binary object fields
+     * @param fields names of the fields to include, null for all fields visible for REST
+     * @param outputStream the stream to which the response will be written, it will not be closed
+     */
+    void streamLookup(String lookupName, Map<String, String> lookupMap, QueryParams queryParams, boolean includeBlob,
+                      List<String> fields, OutputStream outputStream);
 }
@@ -8,6 +8,7 @@ import org.motechproject.mds.domain.RelationshipHolder;
 import org.motechproject.mds.dto.DtoHelper;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
+import org.motechproject.mds.entityinfo.FieldAccessor;
 import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.dto.LookupDto;
 import org.motechproject.mds.dto.LookupFieldDto;
@@ -20,6 +21,9 @@ import org.motechproject.mds.exception.rest.RestLookupNotFoundException;
 import org.motechproject.mds.exception.rest.RestNoLookupResultException;
 import org.motechproject.mds.exception.rest.RestOperationNotSupportedException;
 import org.motechproject.mds.lookup.LookupExecutor;
+import org.motechproject.mds.query.CountResult;
+import org.motechproject.mds.query.InstanceCallback;
+import org.motechproject.mds.query.KeysetCursor;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.util.BlobDeserializer;
@@ -30,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -60,10 +65,14 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
 
     private Map<String, LookupExecutor> lookupExecutors = new HashMap<>();
     private Set<String> forbiddenLookupMethodNames = new HashSet<>();
+    private Set<String> singleReturnLookupMethodNames = new HashSet<>();
 
     private List<String> restFields;
     private List<String> blobFields;
 
+    private List<FieldAccessor> restAccessors;
+    private List<FieldAccessor> blobAccessors;
+
     private RestOptionsDto restOptions;
 
     static {
@@ -88,10 +97,11 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
         readLookups(entity);
         readFieldsExposedByRest(fieldMap);
         readBlobFieldsExposedByRest(fieldMap);
+        readAccessors(entity);
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public RestResponse get(QueryParams queryParams, boolean includeBlob) {
         if (!restOptions.isRead()) {
             throw operationNotSupportedEx("READ");
@@ -103,12 +113,18 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
             }
         }
 
-        return new RestResponse(entityName, entityClass.getName(), moduleName, namespace, dataService.count(), queryParams,
-                RestProjection.createProjectionCollection(values, restFields, blobFields));
+        CountResult count = dataService.estimateCount();
+
+        RestResponse response = new RestResponse(entityName, entityClass.getName(), moduleName, namespace,
+                count.getCount(), queryParams, RestProjection.createProjectionCollection(values, restAccessors, blobFields),
+                continuationToken(values, queryParams));
+        response.getMetadata().setExactCount(count.isExact());
+
+        return response;
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public RestResponse get(Long id, boolean includeBlob) {
         if (!restOptions.isRead()) {
             throw operationNotSupportedEx("READ");
@@ -121,7 +137,7 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
 
         if (value != null) {
             return new RestResponse(entityName, entityClass.getName(), moduleName, namespace, 1l, new QueryParams(1, 1),
-                    RestProjection.createProjection(value, restFields, blobFields));
+                    RestProjection.createProjection(value, restAccessors, blobFields));
         } else {
             throw new RestEntityNotFoundException("id", id.toString());
         }
@@ -140,7 +156,7 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
             T filteredInstance = entityClass.newInstance();
             PropertyUtil.copyProperties(filteredInstance, instance, null, new HashSet<>(restFields));
 
-            return RestProjection.createProjection(dataService.create(filteredInstance), restFields, blobFields);
+            return RestProjection.createProjection(dataService.create(filteredInstance), restAccessors, blobFields);
         } catch (IOException e) {
             throw badBodyFormatException(e);
         } catch (InstantiationException | IllegalAccessException e) {
@@ -160,7 +176,7 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
 
             T result = dataService.updateFromTransient(instance, fieldsToUpdate());
 
-            return RestProjection.createProjection(result, restFields, blobFields);
+            return RestProjection.createProjection(result, restAccessors, blobFields);
         } catch (IOException e) {
             throw badBodyFormatException(e);
         }
@@ -177,7 +193,7 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public Object executeLookup(String lookupName, Map<String, String> lookupMap, QueryParams queryParams, boolean includeBlob) {
         if (lookupExecutors.containsKey(lookupName)) {
             LookupExecutor executor = lookupExecutors.get(lookupName);
@@ -189,7 +205,8 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
                     }
                 }
                 return new RestResponse(entityName, entityClass.getName(), moduleName, namespace, executor.executeCount(lookupMap),
-                        queryParams, RestProjection.createProjectionCollection((Collection) result, restFields, blobFields));
+                        queryParams, RestProjection.createProjectionCollection((Collection) result, restAccessors, blobFields),
+                        continuationToken((Collection) result, queryParams));
             } else {
                 if (result == null) {
                     throw new RestNoLookupResultException("No result for lookup:" + lookupName);
@@ -198,7 +215,7 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
                     getBlobs((T) result);
                 }
                 return new RestResponse(entityName, entityClass.getName(), moduleName, namespace, 1l, new QueryParams(1, 1),
-                        RestProjection.createProjection(result, restFields, blobFields));
+                        RestProjection.createProjection(result, restAccessors, blobFields));
             }
         } else if (forbiddenLookupMethodNames.contains(lookupName)) {
             throw new RestLookupExecutionForbiddenException(lookupName);
@@ -207,12 +224,138 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void stream(QueryParams queryParams, final boolean includeBlob, List<String> fields,
+                       OutputStream outputStream) {
+        if (!restOptions.isRead()) {
+            throw operationNotSupportedEx("READ");
+        }
+
+        final List<FieldAccessor> accessors = selectAccessors(restAccessors, fields);
+        final List<FieldAccessor> blobs = selectAccessors(blobAccessors, fields);
+        final RestResponseWriter writer = new RestResponseWriter(outputStream, accessors, blobFields);
+
+        dataService.iterateAll(queryParams, new InstanceCallback<T>() {
+            @Override
+            public void process(T instance) {
+                if (includeBlob) {
+                    getBlobs(instance, blobs);
+                }
+                writer.write(instance);
+            }
+        });
+
+        CountResult count = dataService.estimateCount();
+
+        RestMetadata metadata = new RestMetadata(entityName, entityClass.getName(), moduleName, namespace,
+                count.getCount(), queryParams);
+        metadata.setExactCount(count.isExact());
+        metadata.setContinuationToken(continuationToken(writer.getCount(), writer.getLastInstance(), queryParams));
+
+        writer.finish(metadata);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamLookup(String lookupName, Map<String, String> lookupMap, QueryParams queryParams,
+                             final boolean includeBlob, List<String> fields, OutputStream outputStream) {
+        if (!lookupExecutors.containsKey(lookupName) || singleReturnLookupMethodNames.contains(lookupName)) {
+            // single object lookups return one instance, there is nothing to stream
+            RestResponse response = (RestResponse) executeLookup(lookupName, lookupMap, queryParams, includeBlob);
+            writeResponse(response, fields, outputStream);
+            return;
+        }
+
+        final List<FieldAccessor> accessors = selectAccessors(restAccessors, fields);
+        final List<FieldAccessor> blobs = selectAccessors(blobAccessors, fields);
+        final RestResponseWriter writer = new RestResponseWriter(outputStream, accessors, blobFields);
+
+        LookupExecutor executor = lookupExecutors.get(lookupName);
+        executor.executeIterate(lookupMap, queryParams, new InstanceCallback<T>() {
+            @Override
+            public void process(T instance) {
+                if (includeBlob) {
+                    getBlobs(instance, blobs);
+                }
+                writer.write(instance);
+            }
+        });
+
+        RestMetadata metadata = new RestMetadata(entityName, entityClass.getName(), moduleName, namespace,
+                executor.executeCount(lookupMap), queryParams);
+        metadata.setContinuationToken(continuationToken(writer.getCount(), writer.getLastInstance(), queryParams));
+
+        writer.finish(metadata);
+    }
+
+    private void writeResponse(RestResponse response, List<String> fields, OutputStream outputStream) {
+        List<FieldAccessor> accessors = selectAccessors(restAccessors, fields);
+        RestResponseWriter writer = new RestResponseWriter(outputStream, accessors, blobFields);
+
+        for (RestProjection projection : response.getData()) {
+            // the projection is a map, so the values are read by name
+            RestProjection selected = new RestProjection();
+            for (FieldAccessor accessor : accessors) {
+                selected.put(accessor.getFieldName(), projection.get(accessor.getFieldName()));
+            }
+            writer.writeProjection(selected);
+        }
+
+        writer.finish(response.getMetadata());
+    }
+
     private void getBlobs(T value) {
-        for (String field : blobFields) {
-            PropertyUtil.safeSetProperty(value, field, dataService.getDetachedField(value, field));
+        getBlobs(value, blobAccessors);
+    }
+
+    private void getBlobs(T value, List<FieldAccessor> accessors) {
+        for (FieldAccessor accessor : accessors) {
+            accessor.setValue(value, dataService.getDetachedField(value, accessor.getFieldName()));
         }
     }
 
+    private List<FieldAccessor> selectAccessors(List<FieldAccessor> accessors, List<String> fields) {
+        if (fields == null) {
+            return accessors;
+        }
+
+        for (String field : fields) {
+            if (!restFields.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " is not available via REST for entity "
+                        + entityName);
+            }
+        }
+
+        List<FieldAccessor> selected = new ArrayList<>(fields.size());
+        for (FieldAccessor accessor : accessors) {
+            if (fields.contains(accessor.getFieldName())) {
+                selected.add(accessor);
+            }
+        }
+
+        return selected;
+    }
+
+    private String continuationToken(Collection values, QueryParams queryParams) {
+        Object last = null;
+        for (Object value : values) {
+            last = value;
+        }
+
+        return continuationToken(values.size(), last, queryParams);
+    }
+
+    private String continuationToken(long count, Object last, QueryParams queryParams) {
+        if (queryParams == null || !queryParams.isKeysetSet() || count == 0
+                || count < queryParams.getPageSize()) {
+            // no keyset paging or this is the last page
+            return null;
+        }
+
+        return KeysetCursor.toToken(KeysetCursor.after(last, queryParams));
+    }
+
     private RestOperationNotSupportedException operationNotSupportedEx(String operation) {
         return new RestOperationNotSupportedException(String.format("%s operation not supported for entity: %s",
                 operation, entityClass));
@@ -249,6 +392,9 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
                 // we create executors for exposed lookups
                 LookupExecutor executor = new LookupExecutor(dataService, lookup, fieldMap);
                 lookupExecutors.put(lookuMethodpName, executor);
+                if (lookup.isSingleObjectReturn()) {
+                    singleReturnLookupMethodNames.add(lookuMethodpName);
+                }
             } else {
                 // we keep a list of forbidden lookups in order to print the appropriate error
                 forbiddenLookupMethodNames.add(lookuMethodpName);
@@ -287,6 +433,18 @@ public class MdsRestFacadeImpl<T> implements MdsRestFacade<T> {
         }
     }
 
+    private void readAccessors(EntityInfo entity) {
+        restAccessors = new ArrayList<>(restFields.size());
+        for (String restField : restFields) {
+            restAccessors.add(entity.getAccessor(restField));
+        }
+
+        blobAccessors = new ArrayList<>(blobFields.size());
+        for (String blobField : blobFields) {
+            blobAccessors.add(entity.getAccessor(blobField));
+        }
+    }
+
     private Set<String> fieldsToUpdate() {
         // we don't want to be updating auto generated fields
         Set<String> fields = new HashSet<>(restFields);
@@ -22,10 +22,14 @@ public class RestMetadata {
 
     private long totalCount;
 
+    private boolean exactCount = true;
+
     private int page;
 
     private int pageSize;
 
+    private String continuationToken;
+
     /**
      * Default constructor.
      */
@@ -122,6 +126,20 @@ public class RestMetadata {
         this.totalCount = totalCount;
     }
 
+    /**
+     * @return true if the total count is exact, false if it was estimated from database statistics
+     */
+    public boolean isExactCount() {
+        return exactCount;
+    }
+
+    /**
+     * @param exactCount true if the total count is exact, false if it was estimated from database statistics
+     */
+    public void setExactCount(boolean exactCount) {
+        this.exactCount = exactCount;
+    }
+
     /**
      * @return the page number
      */
@@ -149,4 +167,19 @@ public class RestMetadata {
     public void setPageSize(int pageSize) {
         this.pageSize = pageSize;
     }
+
+    /**
+     * @return the token which should be passed as the "after" parameter in order to retrieve the next page
+     * using keyset pagination, null if keyset pagination was not used or there are no more results
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * @param continuationToken the token for retrieving the next page using keyset pagination
+     */
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
 }
@@ -2,7 +2,7 @@ package org.motechproject.mds.rest;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.ArrayUtils;
-import org.motechproject.mds.util.PropertyUtil;
+import org.motechproject.mds.entityinfo.FieldAccessor;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -21,17 +21,27 @@ public class RestProjection extends LinkedHashMap<String, Object> {
     private static final long serialVersionUID = 4867207873054128121L;
 
     public static <T> List<RestProjection> createProjectionCollection(Collection<T> collection, List<String> fields, List<String> blobFields) {
+        return createProjectionCollection(collection, toAccessors(fields), blobFields);
+    }
+
+    public static <T> List<RestProjection> createProjectionCollection(Collection<T> collection, Collection<FieldAccessor> accessors,
+                                                                      List<String> blobFields) {
         List<RestProjection> projectionCollection = new ArrayList<>(collection.size());
         for (T element : collection) {
-            projectionCollection.add(createProjection(element, fields, blobFields));
+            projectionCollection.add(createProjection(element, accessors, blobFields));
         }
         return projectionCollection;
     }
 
     public static <T> RestProjection createProjection(T element, List<String> fields, List<String> blobFields) {
+        return createProjection(element, toAccessors(fields), blobFields);
+    }
+
+    public static <T> RestProjection createProjection(T element, Collection<FieldAccessor> accessors, List<String> blobFields) {
         RestProjection projection = new RestProjection();
-        for (String field : fields) {
-            Object value = PropertyUtil.safeGetProperty(element, field);
+        for (FieldAccessor accessor : accessors) {
+            String field = accessor.getFieldName();
+            Object value = accessor.getValue(element);
             if (blobFields.contains(field)) {
                 value = Base64.encodeBase64(ArrayUtils.toPrimitive((Byte[]) value));
             }
@@ -39,4 +49,12 @@ public class RestProjection extends LinkedHashMap<String, Object> {
         }
         return projection;
     }
+
+    private static Collection<FieldAccessor> toAccessors(List<String> fields) {
+        List<FieldAccessor> accessors = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            accessors.add(new FieldAccessor(field));
+        }
+        return accessors;
+    }
 }
@@ -42,6 +42,24 @@ public class RestResponse {
         this.data = data;
     }
 
+    /**
+     * Constructor.
+     *
+     * @param entity the entity name
+     * @param className the name of the entity class
+     * @param moduleName the module name
+     * @param namespace the namespace in which the entity is defined
+     * @param totalSize the total number of data that match the search conditions
+     * @param queryParams the query params used to retrieve data
+     * @param data the list of the data
+     * @param continuationToken the token for retrieving the next page using keyset pagination
+     */
+    public RestResponse(String entity, String className, String moduleName, String namespace, Long totalSize,
+                        QueryParams queryParams, List<RestProjection> data, String continuationToken) {
+        this(entity, className, moduleName, namespace, totalSize, queryParams, data);
+        this.metadata.setContinuationToken(continuationToken);
+    }
+
     /**
      * Constructor.
      *
@@ -0,0 +1,99 @@
+package org.motechproject.mds.rest;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.motechproject.mds.entityinfo.FieldAccessor;
+import org.motechproject.mds.exception.rest.RestInternalException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The <code>RestResponseWriter</code> writes a {@link org.motechproject.mds.rest.RestResponse} directly
+ * to an output stream using the Jackson streaming generator. Instances are serialized one by one as they are
+ * read from the database, so the page is never held in memory as a whole. Since the continuation token is
+ * only known after the last instance was read, the metadata is written after the data.
+ */
+public class RestResponseWriter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JsonGenerator generator;
+    private final Collection<FieldAccessor> accessors;
+    private final List<String> blobFields;
+
+    private long count;
+    private Object lastInstance;
+
+    public RestResponseWriter(OutputStream outputStream, Collection<FieldAccessor> accessors, List<String> blobFields) {
+        this.accessors = accessors;
+        this.blobFields = blobFields;
+
+        try {
+            generator = OBJECT_MAPPER.getJsonFactory().createJsonGenerator(outputStream, JsonEncoding.UTF8);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("data");
+        } catch (IOException e) {
+            throw new RestInternalException("Unable to start writing the response", e);
+        }
+    }
+
+    /**
+     * Writes the projection of the given instance as the next element of the data array.
+     *
+     * @param instance the instance to write
+     */
+    public void write(Object instance) {
+        writeProjection(RestProjection.createProjection(instance, accessors, blobFields));
+        lastInstance = instance;
+    }
+
+    /**
+     * Writes an already created projection as the next element of the data array.
+     *
+     * @param projection the projection to write
+     */
+    public void writeProjection(RestProjection projection) {
+        try {
+            generator.writeObject(projection);
+        } catch (IOException e) {
+            throw new RestInternalException("Unable to write instance to the response", e);
+        }
+
+        ++count;
+    }
+
+    /**
+     * Closes the data array, writes the metadata and flushes the generator. The underlying stream is
+     * not closed.
+     *
+     * @param metadata the metadata of the response
+     */
+    public void finish(RestMetadata metadata) {
+        try {
+            generator.writeEndArray();
+            generator.writeObjectField("metadata", metadata);
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            throw new RestInternalException("Unable to finish writing the response", e);
+        }
+    }
+
+    /**
+     * @return the number of instances written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the last written instance, null if nothing was written
+     */
+    public Object getLastInstance() {
+        return lastInstance;
+    }
+}
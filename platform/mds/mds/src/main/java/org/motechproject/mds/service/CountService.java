@@ -0,0 +1,44 @@
+package org.motechproject.mds.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The <code>CountService</code> caches the exact numbers of instances counted by MDS data services, so that
+ * grids and REST responses don't have to count the whole table with every page load. Counts are cached per
+ * entity and query signature (the lookup or filter together with its values), for the time given in the MDS
+ * settings. Cached counts of an entity are invalidated once a transaction creating, updating or deleting its
+ * instances completes, on this and, through a broadcast event, on the other Motech instances.
+ */
+public interface CountService {
+
+    /**
+     * The subject of the event broadcast when counts of entities are invalidated.
+     */
+    String COUNTS_INVALIDATED = "org_motechproject_mds_counts_invalidated";
+
+    /**
+     * Returns the cached count for the given query, or counts the instances using the given counter and caches
+     * the result. The cache is only used in read-only transactions, since a transaction that writes could see
+     * its own uncommitted changes.
+     *
+     * @param className the name of the entity class
+     * @param signature the signature of the query, for example the filter and values used
+     * @param counter the counter executing the actual query
+     * @return the number of instances
+     */
+    long getCount(String className, String signature, LongSupplier counter);
+
+    /**
+     * Forgets the counts cached for the given entity, both now and once the current transaction completes.
+     *
+     * @param className the name of the entity class
+     */
+    void invalidate(String className);
+
+    /**
+     * Returns the number of instances above which unfiltered counts can be estimated from database statistics.
+     *
+     * @return the threshold, or a negative number if counts should never be estimated
+     */
+    long getApproximateCountThreshold();
+}
@@ -0,0 +1,24 @@
+package org.motechproject.mds.service;
+
+import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.event.CrudEventType;
+
+/**
+ * The <code>CrudEventService</code> collects the CRUD events of MDS data services and sends them once the
+ * transaction commits. All instances of an entity affected by the same action in a transaction are announced
+ * with a single batch event, carrying their ids. Events for every instance are sent as well, unless disabled in
+ * the MDS settings, but they are handed to the event system at once, instead of one by one.
+ */
+public interface CrudEventService {
+
+    /**
+     * Registers an event for the given instance. If there is an active transaction, the event is sent after it
+     * commits and dropped if it rolls back. Otherwise the event is sent immediately.
+     *
+     * @param entity the entity of the instance
+     * @param action the type of the event, either create, update or delete
+     * @param instance the affected instance, or its id - only the id of an instance is kept, the instance itself is
+     *                 kept only until the database assigns its id, at the latest until the transaction commits
+     */
+    void registerEvent(EntityInfo entity, CrudEventType action, Object instance);
+}
@@ -2,6 +2,7 @@ package org.motechproject.mds.service;
 
 import org.motechproject.mds.dto.FieldDto;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +24,27 @@ public interface CsvImportCustomizer {
      */
     Object findExistingInstance(Map<String, String> row, MotechDataService dataService);
 
+    /**
+     * Retrieves the existing instances for a chunk of imported rows at once. This allows
+     * fetching the instances using a single query, instead of a query per row. The returned list
+     * should contain an element for every row, at the same position as the row, with <code>null</code>
+     * for rows that do not match any instance. If this method throws an exception, the instances are
+     * looked up using {@link #findExistingInstance(Map, MotechDataService)} for every row, so that errors
+     * are reported for the rows that caused them. The default implementation does just that.
+     *
+     * @param rows the chunk of imported rows
+     * @param dataService the data service of an entity
+     *
+     * @return list of the existing instances for the rows, with nulls for rows that were not matched
+     */
+    default List<Object> findExistingInstances(List<Map<String, String>> rows, MotechDataService dataService) {
+        List<Object> existingInstances = new ArrayList<>(rows.size());
+        for (Map<String, String> row : rows) {
+            existingInstances.add(findExistingInstance(row, dataService));
+        }
+        return existingInstances;
+    }
+
     /**
      * Creates an instance using given dataService
      *
@@ -0,0 +1,33 @@
+package org.motechproject.mds.service;
+
+import org.motechproject.mds.util.AsyncStatistics;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The <code>DataServiceExecutor</code> executes the asynchronous operations of MDS data services on a bounded
+ * pool of threads. The security context and the context class loader of the calling thread are passed to
+ * the thread executing the operation. When all threads are busy and the queue is full, the operation is
+ * executed by the calling thread, which slows down callers submitting more operations than the pool can handle.
+ */
+public interface DataServiceExecutor {
+
+    /**
+     * Submits the given operation for execution.
+     *
+     * @param className the name of the entity class the operation is executed for, used for the statistics
+     * @param operation the operation to execute
+     * @param <R> the type of the result
+     * @return the future completed with the result of the operation, or with the exception it threw
+     */
+    <R> CompletableFuture<R> submit(String className, Callable<R> operation);
+
+    /**
+     * Returns the statistics of operations executed for each entity.
+     *
+     * @return the statistics, keyed by entity class name
+     */
+    Map<String, AsyncStatistics> getStatistics();
+}
@@ -5,7 +5,10 @@ import org.apache.commons.lang.StringUtils;
 import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.exception.csv.CsvImportException;
 import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.PropertyUtil;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +33,44 @@ public class DefaultCsvImportCustomizer implements CsvImportCustomizer {
         return null;
     }
 
+    @Override
+    public List<Object> findExistingInstances(List<Map<String, String>> rows, MotechDataService dataService) {
+        if (overridesFindExistingInstance()) {
+            // subclasses finding instances in their own way are asked about every row
+            return CsvImportCustomizer.super.findExistingInstances(rows, dataService);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, String> row : rows) {
+            Long id = getId(row);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        Map<Long, Object> instancesById = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object instance : (List<Object>) dataService.findByIds(ids)) {
+                instancesById.put((Long) PropertyUtil.safeGetProperty(instance, Constants.Util.ID_FIELD_NAME), instance);
+            }
+        }
+
+        List<Object> existingInstances = new ArrayList<>(rows.size());
+        for (Map<String, String> row : rows) {
+            String id = row.get(Constants.Util.ID_FIELD_DISPLAY_NAME);
+            if (StringUtils.isBlank(id)) {
+                existingInstances.add(null);
+            } else if (instancesById.containsKey(getId(row))) {
+                existingInstances.add(instancesById.get(getId(row)));
+            } else {
+                // the rows will be looked up one by one, so that the error is reported for the right row
+                throw new CsvImportException("Unable to update, no instance with id = " + id);
+            }
+        }
+
+        return existingInstances;
+    }
+
     @Override
     public Object doCreate(Object instance, MotechDataService dataService) {
         return dataService.create(instance);
@@ -56,4 +97,18 @@ public class DefaultCsvImportCustomizer implements CsvImportCustomizer {
 
         return matchingDisplayNameField != null ? matchingDisplayNameField : matchingNameField;
     }
+
+    private boolean overridesFindExistingInstance() {
+        try {
+            return getClass().getMethod("findExistingInstance", Map.class, MotechDataService.class)
+                    .getDeclaringClass() != DefaultCsvImportCustomizer.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private Long getId(Map<String, String> row) {
+        String id = row.get(Constants.Util.ID_FIELD_DISPLAY_NAME);
+        return StringUtils.isNotBlank(id) && StringUtils.isNumeric(id) ? Long.valueOf(id) : null;
+    }
 }
@@ -14,9 +14,12 @@ import org.motechproject.mds.exception.object.ObjectNotFoundException;
 import org.motechproject.mds.exception.object.ObjectUpdateException;
 import org.motechproject.mds.exception.object.SecurityException;
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.CountResult;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
+import org.motechproject.mds.query.QueryPlanCache;
 import org.motechproject.mds.query.SqlQueryExecution;
 import org.motechproject.mds.repository.MotechDataRepository;
 import org.motechproject.mds.util.Constants;
@@ -32,6 +35,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
 import org.springframework.orm.jdo.JdoTransactionManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionCallback;
@@ -43,12 +47,20 @@ import javax.annotation.PostConstruct;
 import javax.jdo.JDOHelper;
 import javax.jdo.ObjectState;
 import javax.jdo.Query;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
 import static org.apache.commons.lang.StringUtils.defaultIfBlank;
 import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
@@ -76,16 +88,22 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
 
     private static final Logger MDS_LOGGER = LoggerFactory.getLogger(DefaultMotechDataService.class);
 
+    private static final String ALL_INSTANCES_SIGNATURE = "all";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private MotechDataRepository<T> repository;
     private TrashService trashService;
     private HistoryService historyService;
+    private CountService countService;
+    private CrudEventService crudEventService;
+    private DataServiceExecutor dataServiceExecutor;
     private OsgiEventProxy osgiEventProxy;
     private JdoTransactionManager transactionManager;
     private ApplicationContext applicationContext;
     private EntityInfoReader entityInfoReader;
 
+    private EntityInfo entityInfo;
     private SecurityMode securityMode;
     private Long schemaVersion;
     private boolean recordHistory;
@@ -96,12 +114,13 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     private String entityName;
     private String namespace;
     private String versionFieldName;
+    private Set<String> blobFieldNames = new HashSet<>();
 
     @PostConstruct
     public void init() {
         debug("Initializing {}", getClass().getName());
 
-        EntityInfo entityInfo = entityInfoReader.getEntityInfo(repository.getClassType().getName());
+        entityInfo = entityInfoReader.getEntityInfo(repository.getClassType().getName());
 
         securityMode = entityInfo.getSecurityMode();
         schemaVersion = entityInfo.getSchemaVersion();
@@ -120,6 +139,9 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
             if (field.isVersionField()) {
                 versionFieldName = field.getName();
             }
+            if (Byte[].class.getName().equals(field.getType()) || byte[].class.getName().equals(field.getType())) {
+                blobFieldNames.add(field.getName());
+            }
         }
 
         repository.setFieldTypeMap(fieldTypeMap);
@@ -132,22 +154,17 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     public T create(final T object) {
         validateCredentials();
 
-        final T createdInstance = repository.create(object);
+        T createdInstance = repository.create(object);
 
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-            @Override
-            public void afterCommit() {
-                if (allowCreateEvent) {
-                    sendEvent((Long) getId(createdInstance), CREATE);
-                }
-            }
-        });
+        if (allowCreateEvent) {
+            registerCrudEvent(createdInstance, CREATE);
+        }
 
         return createdInstance;
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public T retrieve(String primaryKeyName, Object value) {
         T instance = repository.retrieve(primaryKeyName, value);
         validateCredentials(instance);
@@ -156,19 +173,26 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public List<T> retrieveAll() {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
         return repository.retrieveAll(QueryParams.ORDER_ID_ASC, securityRestriction);
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public List<T> retrieveAll(QueryParams queryParams) {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
         return repository.retrieveAll(queryParams, securityRestriction);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long iterateAll(QueryParams queryParams, InstanceCallback<T> callback) {
+        InstanceSecurityRestriction securityRestriction = validateCredentials();
+        return repository.iterateAll(queryParams, securityRestriction, callback);
+    }
+
     @Override
     @Transactional
     public T update(final T object) {
@@ -178,16 +202,11 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
             validateCredentials(object);
 
             updateModificationData(object);
-            final T updatedInstance = repository.update(object);
+            T updatedInstance = repository.update(object);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(updatedInstance), UPDATE);
-                    }
-                }
-            });
+            if (allowUpdateEvent) {
+                registerCrudEvent(updatedInstance, UPDATE);
+            }
 
             return updatedInstance;
         }
@@ -224,7 +243,8 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
             // create will send the CRUD event
             result = create(transientObject);
         } else {
-            PropertyUtil.copyProperties(fromDbInstance, transientObject, null, fieldsToUpdate);
+            PropertyUtil.copyProperties(fromDbInstance, transientObject, null, fieldsToUpdate,
+                    getUnloadedBlobFields(transientObject, fieldsToUpdate));
 
             if (versionFieldName != null) {
                 StateManagerUtil.setTransactionVersion(fromDbInstance, versionFieldName);
@@ -232,20 +252,31 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
 
             updateModificationData(fromDbInstance);
 
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    if (allowUpdateEvent) {
-                        sendEvent((Long) getId(fromDbInstance), UPDATE);
-                    }
-                }
-            });
+            if (allowUpdateEvent) {
+                registerCrudEvent(fromDbInstance, UPDATE);
+            }
             result = fromDbInstance;
         }
 
         return result;
     }
 
+    private Set<String> getUnloadedBlobFields(T transientObject, Set<String> fieldsToUpdate) {
+        Set<String> unloaded = new HashSet<>();
+
+        // blobs are not in the default fetch group, so a null blob usually means it was never loaded,
+        // it is only cleared if the field is passed explicitly
+        if (fieldsToUpdate == null) {
+            for (String blobField : blobFieldNames) {
+                if (null == PropertyUtil.safeGetProperty(transientObject, blobField)) {
+                    unloaded.add(blobField);
+                }
+            }
+        }
+
+        return unloaded;
+    }
+
     private void updateModificationData(Object obj) {
         safeSetProperty(obj, MODIFICATION_DATE_FIELD_NAME, DateUtil.now());
         safeSetProperty(obj, MODIFIED_BY_FIELD_NAME, defaultIfBlank(getUsername(), ""));
@@ -275,7 +306,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         });
 
         if (allowDeleteEvent) {
-            sendEvent(deletedInstanceId, DELETE);
+            registerCrudEvent(deletedInstanceId, DELETE);
         }
     }
 
@@ -297,7 +328,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public Object findTrashInstanceById(Long trashId) {
         return trashService.findTrashById(trashId, getClassType().getName());
     }
@@ -349,14 +380,36 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public long count() {
+        final InstanceSecurityRestriction securityRestriction = validateCredentials();
+        return cachedCount(ALL_INSTANCES_SIGNATURE, securityRestriction, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return repository.count(securityRestriction);
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CountResult estimateCount() {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
-        return repository.count(securityRestriction);
+        long threshold = null == countService ? -1 : countService.getApproximateCountThreshold();
+
+        if (threshold >= 0 && securityRestriction.isEmpty()) {
+            Long estimate = repository.estimateCount();
+
+            if (null != estimate && estimate > threshold) {
+                return new CountResult(estimate, false);
+            }
+        }
+
+        return new CountResult(count(), true);
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public T detachedCopy(T object) {
         if (JDOHelper.getObjectState(object) == ObjectState.TRANSIENT) {
             return repository.detachedCopy(findById((Long) getId(object)));
@@ -365,7 +418,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public List<T> detachedCopyAll(List<T> objects) {
         List<T> detachedCopies = new ArrayList<>();
 
@@ -377,7 +430,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public Object getDetachedField(T instance, String fieldName) {
         if (JDOHelper.getObjectState(instance) == ObjectState.TRANSIENT) {
             return repository.getDetachedField(findById((Long) getId(instance)), fieldName);
@@ -385,18 +438,67 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return repository.getDetachedField(instance, fieldName);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long streamBlob(Long id, String fieldName, OutputStream outputStream) throws IOException {
+        checkInstanceExists(id);
+
+        return repository.streamBlob(id, fieldName, outputStream);
+    }
+
     @Override
     @Transactional
+    public void writeBlob(Long id, String fieldName, InputStream inputStream) {
+        final T instance = findById(id);
+        if (instance == null) {
+            throw new ObjectNotFoundException(getClassType().getName(), id);
+        }
+
+        repository.writeBlob(id, fieldName, inputStream);
+
+        // the instance could hold the old value, if it was loaded before, evicting it drops that value
+        // without reading the new one back, the other fields are reloaded when the modification data is set
+        repository.getPersistenceManager().evict(instance);
+        updateModificationData(instance);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                repository.evictOne(instance);
+            }
+        });
+
+        if (allowUpdateEvent) {
+            registerCrudEvent(instance, UPDATE);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<T> filter(Filters filters, QueryParams queryParams) {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
         return repository.filter(filters, queryParams, securityRestriction);
     }
 
     @Override
-    @Transactional
-    public long countForFilters(Filters filters) {
+    @Transactional(readOnly = true)
+    public long iterateForFilters(Filters filters, QueryParams queryParams, InstanceCallback<T> callback) {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
-        return repository.countForFilters(filters, securityRestriction);
+        return repository.iterateForFilters(filters, queryParams, securityRestriction, callback);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countForFilters(final Filters filters) {
+        final InstanceSecurityRestriction securityRestriction = validateCredentials();
+        String signature = filters.filterForQuery() + ':' + Arrays.deepToString(filters.valuesForQuery());
+
+        return cachedCount(signature, securityRestriction, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return repository.countForFilters(filters, securityRestriction);
+            }
+        });
     }
 
     @Override
@@ -404,6 +506,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     public void deleteAll() {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
         repository.delete(new String[0], new Object[0], securityRestriction);
+        invalidateCounts();
     }
 
     @Override
@@ -440,7 +543,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public T findById(Long id) {
         if (id == null) {
             return null;
@@ -449,7 +552,7 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public List<T> findByIds(Collection<Long> ids) {
         if (ids == null) {
             return new ArrayList<>();
@@ -458,16 +561,195 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return repository.retrieveAll(ids);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object> retrieveRelated(Long id, String fieldName, QueryParams queryParams) {
+        if (findById(id) == null) {
+            throw new ObjectNotFoundException(getClassType().getName(), id);
+        }
+
+        return repository.retrieveRelated(id, fieldName, queryParams);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countRelated(Long id, String fieldName) {
+        if (findById(id) == null) {
+            throw new ObjectNotFoundException(getClassType().getName(), id);
+        }
+
+        return repository.countRelated(id, fieldName);
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(final Long id) {
+        return readAsync(new TransactionCallback<T>() {
+            @Override
+            public T doInTransaction(TransactionStatus status) {
+                return findById(id);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> retrieveAllAsync(final QueryParams queryParams) {
+        return readAsync(new TransactionCallback<List<T>>() {
+            @Override
+            public List<T> doInTransaction(TransactionStatus status) {
+                return retrieveAll(queryParams);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> countAsync() {
+        return readAsync(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return count();
+            }
+        });
+    }
+
+    @Override
+    public <R> CompletableFuture<R> lookupAsync(final Callable<R> lookup) {
+        return readAsync(new TransactionCallback<R>() {
+            @Override
+            public R doInTransaction(TransactionStatus status) {
+                try {
+                    return lookup.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException("The lookup on " + getClassType().getName() + " failed", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<T> createAsync(final T object) {
+        return writeAsync(new TransactionCallback<T>() {
+            @Override
+            public T doInTransaction(TransactionStatus status) {
+                return create(object);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(final T object) {
+        return writeAsync(new TransactionCallback<T>() {
+            @Override
+            public T doInTransaction(TransactionStatus status) {
+                return update(object);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(final T object) {
+        return writeAsync(new TransactionCallback<Void>() {
+            @Override
+            public Void doInTransaction(TransactionStatus status) {
+                delete(object);
+                return null;
+            }
+        });
+    }
+
     @Override
     public <R> R doInTransaction(TransactionCallback<R> transactionCallback) {
         TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
         return transactionTemplate.execute(transactionCallback);
     }
 
+    /**
+     * Executes the given callback in a read-only transaction, which can be served by a read replica
+     * of the database. The callback must not modify any instances.
+     *
+     * @param transactionCallback the callback to execute
+     * @param <R> the type of the result
+     * @return the result of the callback
+     */
+    protected <R> R doInReadOnlyTransaction(TransactionCallback<R> transactionCallback) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(transactionCallback);
+    }
+
+    /**
+     * Executes the given callback in a new transaction, suspending the transaction of the calling thread if there
+     * is one. Used for asynchronous operations, which can be executed by the calling thread when the executor is
+     * saturated or missing, and must not join or roll back the transaction of the caller.
+     *
+     * @param transactionCallback the callback to execute
+     * @param readOnly true if the transaction should be read-only
+     * @param <R> the type of the result
+     * @return the result of the callback
+     */
+    private <R> R doInNewTransaction(TransactionCallback<R> transactionCallback, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(transactionCallback);
+    }
+
+    /**
+     * Executes the given callback asynchronously, in its own read-only transaction. Without the executor
+     * the callback is executed right away by the calling thread.
+     *
+     * @param transactionCallback the callback to execute
+     * @param <R> the type of the result
+     * @return the future completed with the result of the callback
+     */
+    protected <R> CompletableFuture<R> readAsync(final TransactionCallback<R> transactionCallback) {
+        return submitAsync(new Callable<R>() {
+            @Override
+            public R call() {
+                return doInNewTransaction(transactionCallback, true);
+            }
+        });
+    }
+
+    /**
+     * Executes the given callback asynchronously, in its own transaction. Without the executor
+     * the callback is executed right away by the calling thread.
+     *
+     * @param transactionCallback the callback to execute
+     * @param <R> the type of the result
+     * @return the future completed with the result of the callback
+     */
+    protected <R> CompletableFuture<R> writeAsync(final TransactionCallback<R> transactionCallback) {
+        return submitAsync(new Callable<R>() {
+            @Override
+            public R call() {
+                return doInNewTransaction(transactionCallback, false);
+            }
+        });
+    }
+
+    private <R> CompletableFuture<R> submitAsync(Callable<R> operation) {
+        if (null != dataServiceExecutor) {
+            return dataServiceExecutor.submit(getClassType().getName(), operation);
+        }
+
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            future.complete(operation.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
     @Transactional
     public <R> R executeSQLQuery(SqlQueryExecution<R> queryExecution) {
         Query query = repository.getPersistenceManager().
                 newQuery(Constants.Util.SQL_QUERY, queryExecution.getSqlQuery());
+        // SQL can change the instances without notifying the lifecycle listeners
+        invalidateCounts();
         return queryExecution.execute(query);
     }
 
@@ -482,11 +764,20 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
     }
 
     protected void copyValuesFromRecord(T target, Object record) {
-        EntityInfo entityInfo = entityInfoReader.getEntityInfo(getClassType().getName());
         RevertConverter revertConverter = new RevertConverter(entityInfo, applicationContext);
 
-        PropertyUtil.copyProperties(target, record, revertConverter);
-        PropertyUtil.copyProperties(target, record, revertConverter, Constants.Util.RECORD_FIELDS_TO_COPY);
+        // the record classes differ from the entity class, so only the target is written through the accessors
+        for (FieldInfo field : entityInfo.getFieldsInfo()) {
+            String name = field.getName();
+
+            if (Constants.Util.ID_FIELD_NAME.equals(name) || Constants.Util.INSTANCE_VERSION_FIELD_NAME.equals(name)
+                    || !PropertyUtil.isReadable(record, name)) {
+                continue;
+            }
+
+            Object value = revertConverter.convert(PropertyUtil.safeGetProperty(record, name), name);
+            entityInfo.getAccessor(name).setValue(target, value);
+        }
     }
 
     protected List<T> retrieveAll(List<Property> properties) {
@@ -499,9 +790,79 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return repository.retrieveAll(properties, queryParams, securityRestriction);
     }
 
-    protected long count(List<Property> properties) {
+    protected long iterateAll(List<Property> properties, QueryParams queryParams, InstanceCallback<T> callback) {
         InstanceSecurityRestriction securityRestriction = validateCredentials();
-        return repository.count(properties, securityRestriction);
+        return repository.iterateAll(properties, queryParams, securityRestriction, callback);
+    }
+
+    protected long count(final List<Property> properties) {
+        final InstanceSecurityRestriction securityRestriction = validateCredentials();
+        return cachedCount(countSignature(properties), securityRestriction, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return repository.count(properties, securityRestriction);
+            }
+        });
+    }
+
+    /**
+     * Returns the count cached by the {@link org.motechproject.mds.service.CountService} for the given signature,
+     * or executes the given counter. Counts restricted to the instances of the current user are not cached.
+     *
+     * @param signature the signature of the query, null if the count should not be cached
+     * @param securityRestriction the security restriction applied to the query
+     * @param counter the counter executing the query
+     * @return the number of instances
+     */
+    protected long cachedCount(String signature, InstanceSecurityRestriction securityRestriction,
+                               LongSupplier counter) {
+        if (null == countService || null == signature || !securityRestriction.isEmpty()) {
+            return counter.getAsLong();
+        }
+
+        return countService.getCount(getClassType().getName(), signature, counter);
+    }
+
+    /**
+     * Builds the signature of a count query using the given properties.
+     *
+     * @param properties the properties used in the query
+     * @return the signature, or null if the query should not be cached
+     */
+    protected String countSignature(List<Property> properties) {
+        String shape = QueryPlanCache.key(properties);
+
+        if (null == shape) {
+            return null;
+        }
+
+        StringBuilder signature = new StringBuilder(shape).append(':');
+        for (Property property : properties) {
+            signature.append(property.unwrap()).append(';');
+        }
+
+        return signature.toString();
+    }
+
+    protected void invalidateCounts() {
+        if (null != countService) {
+            countService.invalidate(getClassType().getName());
+        }
+    }
+
+    private void checkInstanceExists(Long id) {
+        String[] properties = { Constants.Util.ID_FIELD_NAME };
+        Object[] values = { id };
+
+        // count queries, so that the instance itself is not loaded
+        if (id == null || repository.count(properties, values, null) == 0) {
+            throw new ObjectNotFoundException(getClassType().getName(), id);
+        }
+
+        InstanceSecurityRestriction restriction = validateCredentials();
+        if (!restriction.isEmpty() && repository.count(properties, values, restriction) == 0) {
+            throw new SecurityException();
+        }
     }
 
     protected InstanceSecurityRestriction validateCredentials() {
@@ -556,6 +917,22 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         return restriction;
     }
 
+    private void registerCrudEvent(final Object instance, final CrudEventType action) {
+        if (null != crudEventService) {
+            crudEventService.registerEvent(entityInfo, action, instance);
+        } else {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    Object id = instance instanceof Long
+                            ? instance
+                            : PropertyUtil.safeGetProperty(instance, Constants.Util.ID_FIELD_NAME);
+                    sendEvent((Long) id, action);
+                }
+            });
+        }
+    }
+
     private void sendEvent(Long id, CrudEventType action) {
         String subject = createSubject(module, namespace, entityName, action);
         Map<String, Object> params = buildEventParams(module, namespace, entityName, getClassType().getName(), id);
@@ -591,6 +968,11 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         this.trashService = trashService;
     }
 
+    @Autowired(required = false)
+    public void setCrudEventService(CrudEventService crudEventService) {
+        this.crudEventService = crudEventService;
+    }
+
     @Autowired
     public void setOsgiEventProxy(OsgiEventProxy osgiEventProxy) {
         this.osgiEventProxy = osgiEventProxy;
@@ -607,6 +989,16 @@ public abstract class DefaultMotechDataService<T> implements MotechDataService<T
         this.applicationContext = applicationContext;
     }
 
+    @Autowired(required = false)
+    public void setCountService(CountService countService) {
+        this.countService = countService;
+    }
+
+    @Autowired(required = false)
+    public void setDataServiceExecutor(DataServiceExecutor dataServiceExecutor) {
+        this.dataServiceExecutor = dataServiceExecutor;
+    }
+
     @Autowired
     public void setHistoryService(HistoryService historyService) {
         this.historyService = historyService;
@@ -52,6 +52,10 @@ public final class HistoryTrashClassHelper {
         return uncapitalize(historyClass.getSimpleName() + StringUtils.capitalize(Constants.Util.SCHEMA_VERSION_FIELD_NAME));
     }
 
+    public static String trashDeletionDate(Class<?> trashClass) {
+        return uncapitalize(trashClass.getSimpleName() + Constants.Util.DELETION_DATE);
+    }
+
     private HistoryTrashClassHelper() {
     }
 }
@@ -1,5 +1,6 @@
 package org.motechproject.mds.service;
 
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 
 import java.util.List;
@@ -106,6 +107,38 @@ public interface MDSLookupService {
     <T> List<T> findMany(String entityClassName, String lookupName, Map<String, ?> lookupParams,
                          QueryParams queryParams);
 
+    /**
+     * Executes the lookup for the given entity class, lookup name and parameters and passes
+     * the retrieved instances to the given callback. Instances are read using a database cursor
+     * instead of being collected into a list, which allows processing large results with constant memory.
+     *
+     * @param entityClass entity class
+     * @param lookupName name of the lookup from entity
+     * @param lookupParams parameters to use, when executing the lookup
+     * @param queryParams parameters to use, retrieving the instances
+     * @param callback the callback that will process the retrieved instances
+     * @param <T> entity class
+     * @return the number of processed instances
+     */
+    <T> long iterateMany(Class<T> entityClass, String lookupName, Map<String, ?> lookupParams,
+                         QueryParams queryParams, InstanceCallback<T> callback);
+
+    /**
+     * Executes the lookup for the given entity class name, lookup name and parameters and passes
+     * the retrieved instances to the given callback. Instances are read using a database cursor
+     * instead of being collected into a list, which allows processing large results with constant memory.
+     *
+     * @param entityClassName entity class name
+     * @param lookupName name of the lookup from entity
+     * @param lookupParams parameters to use, when executing the lookup
+     * @param queryParams parameters to use, retrieving the instances
+     * @param callback the callback that will process the retrieved instances
+     * @param <T> entity class
+     * @return the number of processed instances
+     */
+    <T> long iterateMany(String entityClassName, String lookupName, Map<String, ?> lookupParams,
+                         QueryParams queryParams, InstanceCallback<T> callback);
+
     /**
      * Retrieves all instances for the given entity class.
      *
@@ -3,14 +3,21 @@ package org.motechproject.mds.service;
 import org.motechproject.mds.exception.audit.HistoryInstanceNotFoundException;
 import org.motechproject.mds.exception.audit.TrashInstanceNotFoundException;
 import org.motechproject.mds.filter.Filters;
+import org.motechproject.mds.query.CountResult;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryExecution;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.query.SqlQueryExecution;
 import org.springframework.transaction.support.TransactionCallback;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This is a basic service interface with CRUD operations. Mainly it is used as super interface to
@@ -55,6 +62,18 @@ public interface MotechDataService<T> {
      */
     List<T> retrieveAll(QueryParams queryParams);
 
+    /**
+     * Passes all instances of the {@param <T>} type, that match the provided parameters, to the given
+     * callback. Unlike {@link #retrieveAll(QueryParams)}, the instances are read from the database using
+     * a cursor and are not collected into a list, which makes this method suitable for processing
+     * a large number of instances, for example during exports.
+     *
+     * @param queryParams query parameters to be used retrieving instances
+     * @param callback the callback that will process the retrieved instances
+     * @return the number of processed instances
+     */
+    long iterateAll(QueryParams queryParams, InstanceCallback<T> callback);
+
     /**
      * Updates the given instance in MDS.
      *
@@ -74,7 +93,8 @@ public interface MotechDataService<T> {
 
     /**
      * Returns the persistent instance, updated with the values from the transient instance. If there's
-     * no instance of the id from the transient instance, it will create one.
+     * no instance of the id from the transient instance, it will create one. Blob fields are not loaded
+     * with the instance, so blob fields which are null in the transient instance are left unchanged.
      *
      * @param transientObject transient object, from which an update will take place
      * @return persistent instance, updated with the values from the transient instance
@@ -84,7 +104,7 @@ public interface MotechDataService<T> {
     /**
      * Returns the persistent instance, updated with the values from the transient instance. If there's
      * no instance of the id from the transient instance, it will create one. Only fields with the names
-     * passed to the method will be updated.
+     * passed to the method will be updated, which allows clearing blob fields.
      *
      * @param transientObject transient object, from which an update will take place
      * @param fieldsToUpdate set of field names that should be updated
@@ -146,6 +166,15 @@ public interface MotechDataService<T> {
      */
     long count();
 
+    /**
+     * Gets the total number of instances. If the table of the entity is larger than the threshold given in the
+     * MDS settings, the number is estimated from the database statistics instead of counting the instances,
+     * which can take a long time on big tables.
+     *
+     * @return the number of instances, together with the information whether it is exact
+     */
+    CountResult estimateCount();
+
     /**
      * Returns detached copy of the given object
      *
@@ -171,6 +200,32 @@ public interface MotechDataService<T> {
      */
     Object getDetachedField(T instance, String fieldName);
 
+    /**
+     * Writes the value of a blob field to the given stream. The value is copied from a JDBC stream instead
+     * of being loaded as a Byte[], which should be preferred over {@link #getDetachedField} for large
+     * values, such as attachments or audio files. Whether the value is buffered is up to the JDBC driver.
+     *
+     * @param id the id of the instance
+     * @param fieldName the name of the blob field
+     * @param outputStream the stream to which the value will be written
+     * @return the number of bytes written
+     * @throws IOException if the value could not be written to the stream
+     * @throws org.motechproject.mds.exception.object.ObjectNotFoundException if the instance does not exist
+     */
+    long streamBlob(Long id, String fieldName, OutputStream outputStream) throws IOException;
+
+    /**
+     * Replaces the value of a blob field with the content of the given stream. The stream is passed
+     * to the JDBC driver instead of being read into a Byte[] first. The modification date of the instance
+     * is updated and the update event is sent, as with any other update.
+     *
+     * @param id the id of the instance
+     * @param fieldName the name of the blob field
+     * @param inputStream the new value of the field
+     * @throws org.motechproject.mds.exception.object.ObjectNotFoundException if the instance does not exist
+     */
+    void writeBlob(Long id, String fieldName, InputStream inputStream);
+
     /**
      * Retrieves all instances of type {@param <T>} from MDS, filtered using specified filters
      * and query params.
@@ -181,6 +236,18 @@ public interface MotechDataService<T> {
      */
     List<T> filter(Filters filters, QueryParams queryParams);
 
+    /**
+     * Passes all instances of type {@param <T>}, filtered using specified filters and query params,
+     * to the given callback. The instances are read from the database using a cursor and are not
+     * collected into a list.
+     *
+     * @param filters filters to use filtering instances
+     * @param queryParams query parameters to use filtering instances
+     * @param callback the callback that will process the retrieved instances
+     * @return the number of processed instances
+     */
+    long iterateForFilters(Filters filters, QueryParams queryParams, InstanceCallback<T> callback);
+
     /**
      * Gets a total number of instances, after being filtered by the given filter.
      *
@@ -241,6 +308,30 @@ public interface MotechDataService<T> {
      */
     List<T> findByIds(Collection<Long> ids);
 
+    /**
+     * Retrieves instances related with the instance of type {@param <T>} with the given id through
+     * the given relationship field. The related instances are paged and ordered in the database, so
+     * the whole related collection is never loaded. Keyset paging is not supported.
+     *
+     * @param id id of the instance owning the relationship
+     * @param fieldName name of the relationship field
+     * @param queryParams query parameters used for paging and ordering the related instances
+     * @return a list of related instances
+     * @throws org.motechproject.mds.exception.object.ObjectNotFoundException if the instance does not exist
+     */
+    List<Object> retrieveRelated(Long id, String fieldName, QueryParams queryParams);
+
+    /**
+     * Gets the number of instances related with the instance of type {@param <T>} with the given id
+     * through the given relationship field.
+     *
+     * @param id id of the instance owning the relationship
+     * @param fieldName name of the relationship field
+     * @return number of related instances
+     * @throws org.motechproject.mds.exception.object.ObjectNotFoundException if the instance does not exist
+     */
+    long countRelated(Long id, String fieldName);
+
     /**
      * Allows to wrap several instructions into a single transaction. Developers should implement
      * the {@link TransactionCallback} interface and override the
@@ -289,4 +380,68 @@ public interface MotechDataService<T> {
      * @return true if the entity has history recording enabled, false otherwise
      */
     boolean recordHistory();
+
+    /**
+     * Asynchronously retrieves the instance with the given id. Like all asynchronous operations, it is executed
+     * in its own read-only transaction, on a bounded pool of threads, with the security context of the caller.
+     *
+     * @param id the id of the instance
+     * @return the future completed with the instance, or null if it does not exist
+     * @see #findById(Long)
+     */
+    CompletableFuture<T> findByIdAsync(Long id);
+
+    /**
+     * Asynchronously retrieves the instances, using the given query parameters.
+     *
+     * @param queryParams the query parameters to use
+     * @return the future completed with the instances
+     * @see #retrieveAll(QueryParams)
+     */
+    CompletableFuture<List<T>> retrieveAllAsync(QueryParams queryParams);
+
+    /**
+     * Asynchronously counts all instances.
+     *
+     * @return the future completed with the number of instances
+     * @see #count()
+     */
+    CompletableFuture<Long> countAsync();
+
+    /**
+     * Asynchronously executes a lookup, or any other read operation. The lookup is executed in a read-only
+     * transaction, which it joins when calling the methods of this service.
+     *
+     * @param lookup the lookup to execute, for example calling a lookup method of this service
+     * @param <R> the type of the result
+     * @return the future completed with the result of the lookup
+     */
+    <R> CompletableFuture<R> lookupAsync(Callable<R> lookup);
+
+    /**
+     * Asynchronously creates the given instance, in its own transaction.
+     *
+     * @param object the instance to create
+     * @return the future completed with the created instance
+     * @see #create(Object)
+     */
+    CompletableFuture<T> createAsync(T object);
+
+    /**
+     * Asynchronously updates the given instance, in its own transaction.
+     *
+     * @param object the instance to update
+     * @return the future completed with the updated instance
+     * @see #update(Object)
+     */
+    CompletableFuture<T> updateAsync(T object);
+
+    /**
+     * Asynchronously deletes the given instance, in its own transaction.
+     *
+     * @param object the instance to delete
+     * @return the future completed once the instance was deleted
+     * @see #delete(Object)
+     */
+    CompletableFuture<Void> deleteAsync(T object);
 }
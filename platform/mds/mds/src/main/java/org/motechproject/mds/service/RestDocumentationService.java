@@ -1,5 +1,7 @@
 package org.motechproject.mds.service;
 
+import org.motechproject.mds.docs.RestDocumentation;
+
 import java.io.Writer;
 import java.util.Locale;
 
@@ -8,7 +10,8 @@ import java.util.Locale;
  * This is an OSGi service interface, it is used by the mds-web module to serve the documentation through HTTP.
  *
  * The documentation returned is a JSON representation of the API in Swagger json
- * format.
+ * format. The generated documentation is cached for every server prefix and locale, until the MDS entities
+ * bundle gets regenerated.
  */
 public interface RestDocumentationService {
 
@@ -21,4 +24,20 @@ public interface RestDocumentationService {
      * @param locale  the locale to be used while generating REST documentation
      */
     void retrieveDocumentation(Writer writer, String serverPrefix, Locale locale);
+
+    /**
+     * Returns the serialized REST API documentation, together with its gzipped form and ETag. The documentation
+     * is only generated if it isn't cached for the given server prefix and locale.
+     *
+     * @param serverPrefix  the prefix of the server, for example /motech-platform-server, will be used in the swagger
+     *                      spec
+     * @param locale  the locale to be used while generating REST documentation
+     * @return the documentation
+     */
+    RestDocumentation getDocumentation(String serverPrefix, Locale locale);
+
+    /**
+     * Forgets all cached documentation. Called when the MDS entities bundle gets regenerated.
+     */
+    void clearDocumentation();
 }
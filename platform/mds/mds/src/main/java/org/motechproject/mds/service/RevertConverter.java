@@ -26,12 +26,22 @@ public class RevertConverter implements PropertyUtil.ValueConverter {
 
     @Override
     public Object convert(Object value, PropertyDescriptor descriptor) {
-        FieldInfo field = entityInfo.getField(descriptor.getName());
-        FieldDto fieldDto = field.getField();
-        if (value == null || field == null || !fieldDto.getType().isRelationship()) {
+        return convert(value, descriptor.getName());
+    }
+
+    /**
+     * Converts the value of the given field read from a history or trash record.
+     *
+     * @param value the value from the record
+     * @param fieldName the name of the field
+     * @return the value for the instance
+     */
+    public Object convert(Object value, String fieldName) {
+        FieldInfo field = entityInfo.getField(fieldName);
+        if (value == null || field == null || !field.getField().getType().isRelationship()) {
             return value;
         } else {
-            RelationshipHolder relHolder = new RelationshipHolder(fieldDto);
+            RelationshipHolder relHolder = new RelationshipHolder(field.getField());
             String relatedClass = relHolder.getRelatedClass();
 
             MotechDataService relatedDataService = ServiceUtil.getServiceFromAppContext(applicationContext,
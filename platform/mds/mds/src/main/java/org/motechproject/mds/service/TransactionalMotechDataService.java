@@ -1,5 +1,6 @@
 package org.motechproject.mds.service;
 
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
@@ -18,18 +19,17 @@ public abstract class TransactionalMotechDataService<T> extends DefaultMotechDat
 
     @Override
     protected long count(final List<Property> properties) {
-        return doInTransaction(new TransactionCallback<Long>() {
+        return doInReadOnlyTransaction(new TransactionCallback<Long>() {
             @Override
             public Long doInTransaction(TransactionStatus status) {
-                InstanceSecurityRestriction securityRestriction = validateCredentials();
-                return getRepository().count(properties, securityRestriction);
+                return TransactionalMotechDataService.super.count(properties);
             }
         });
     }
 
     @Override
     protected List<T> retrieveAll(final List<Property> properties) {
-        return doInTransaction(new TransactionCallback<List<T>>() {
+        return doInReadOnlyTransaction(new TransactionCallback<List<T>>() {
             @Override
             public List<T> doInTransaction(TransactionStatus status) {
                 InstanceSecurityRestriction securityRestriction = validateCredentials();
@@ -40,7 +40,7 @@ public abstract class TransactionalMotechDataService<T> extends DefaultMotechDat
 
     @Override
     protected List<T> retrieveAll(final List<Property> properties, final QueryParams queryParams) {
-        return doInTransaction(new TransactionCallback<List<T>>() {
+        return doInReadOnlyTransaction(new TransactionCallback<List<T>>() {
             @Override
             public List<T> doInTransaction(TransactionStatus status) {
                 InstanceSecurityRestriction securityRestriction = validateCredentials();
@@ -49,12 +49,24 @@ public abstract class TransactionalMotechDataService<T> extends DefaultMotechDat
         });
     }
 
+    @Override
+    protected long iterateAll(final List<Property> properties, final QueryParams queryParams,
+                              final InstanceCallback<T> callback) {
+        return doInReadOnlyTransaction(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                InstanceSecurityRestriction securityRestriction = validateCredentials();
+                return getRepository().iterateAll(properties, queryParams, securityRestriction, callback);
+            }
+        });
+    }
+
     protected T retrieveUnique(final List<Property> properties, final QueryParams queryParams) {
         return retrieveUnique(properties);
     }
 
     protected T retrieveUnique(final List<Property> properties) {
-        return doInTransaction(new TransactionCallback<T>() {
+        return doInReadOnlyTransaction(new TransactionCallback<T>() {
             @Override
             public T doInTransaction(TransactionStatus status) {
                 InstanceSecurityRestriction securityRestriction = validateCredentials();
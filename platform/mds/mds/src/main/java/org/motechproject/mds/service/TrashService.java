@@ -55,8 +55,9 @@ public interface TrashService {
     void scheduleEmptyTrashJob();
 
     /**
-     * Cleans the module trash. All instances in trash should be removed permanently and if they
-     * contain any historical data they should also be removed permanently.
+     * Cleans the module trash. All instances that have been in trash for longer than the time configured
+     * in the MDS settings should be removed permanently and if they contain any historical data they
+     * should also be removed permanently. Instances are removed in chunks, each in a separate transaction.
      * <p/>
      * This method should only be executed by the job created in the
      * {@link #scheduleEmptyTrashJob()} method.
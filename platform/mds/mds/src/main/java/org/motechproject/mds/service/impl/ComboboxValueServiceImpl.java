@@ -47,6 +47,8 @@ public class ComboboxValueServiceImpl implements ComboboxValueService {
             throw new EntityNotFoundException(entityClassName);
         }
 
+        // only the field definition is needed here, the values are read by the repository using SQL,
+        // so no field accessors are involved
         FieldDto field = entityInfo.getField(fieldName).getField();
         if (field == null) {
             throw new FieldNotFoundException(entityClassName, fieldName);
@@ -0,0 +1,304 @@
+package org.motechproject.mds.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.service.CountService;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.motechproject.mds.util.Constants.Config.MDS_APPROXIMATE_COUNT_THRESHOLD;
+import static org.motechproject.mds.util.Constants.Config.MDS_COUNT_CACHE_TIME;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+/**
+ * Default implementation of the {@link org.motechproject.mds.service.CountService}. Every entity has
+ * a generation number, which is increased when its counts are invalidated. Counts computed during an older
+ * generation are never returned, so a count started before a write committed can't be cached after it.
+ * Invalidations are broadcast to the other Motech instances once the writing transaction commits, so that they
+ * don't return counts cached before the write. The invalidations are gathered and broadcast at most once per
+ * second, so that writes don't wait for the message broker.
+ */
+public class CountServiceImpl implements CountService, EventHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountServiceImpl.class);
+
+    private static final int MAX_SIGNATURES = 512;
+    private static final long DEFAULT_CACHE_TIME = 60;
+    private static final long DEFAULT_APPROXIMATE_COUNT_THRESHOLD = 100000;
+    private static final long BROADCAST_INTERVAL = 1000; // ms
+
+    private static final String CLASS_NAMES_EVENT_PARAM = "class_names";
+    private static final String INSTANCE_ID_EVENT_PARAM = "instance_id";
+
+    private final ConcurrentMap<String, EntityCounts> counts = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<String> pendingBroadcast = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private MdsConfig mdsConfig;
+    private OsgiEventProxy osgiEventProxy;
+    private ScheduledExecutorService broadcaster;
+
+    @PostConstruct
+    public void init() {
+        broadcaster = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mds-count-invalidations");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        broadcaster.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                broadcastPending();
+            }
+        }, BROADCAST_INTERVAL, BROADCAST_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (null != broadcaster) {
+            broadcaster.shutdownNow();
+            broadcaster = null;
+        }
+
+        broadcastPending();
+    }
+
+    @Override
+    public long getCount(String className, String signature, LongSupplier counter) {
+        long cacheTime = getLongSetting(MDS_COUNT_CACHE_TIME, DEFAULT_CACHE_TIME) * 1000;
+
+        if (cacheTime <= 0 || null == signature || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return counter.getAsLong();
+        }
+
+        EntityCounts entityCounts = getEntityCounts(className);
+        long generation = entityCounts.generation.get();
+        long now = System.currentTimeMillis();
+
+        CachedCount cached = entityCounts.counts.get(signature);
+        if (null != cached && cached.generation == generation && now - cached.time < cacheTime) {
+            LOGGER.trace("Using cached count of {} for {}", className, signature);
+            return cached.count;
+        }
+
+        long count = counter.getAsLong();
+
+        if (entityCounts.generation.get() == generation) {
+            if (entityCounts.counts.size() >= MAX_SIGNATURES) {
+                LOGGER.debug("The count cache of {} reached {} entries, clearing", className, MAX_SIGNATURES);
+                entityCounts.counts.clear();
+            }
+
+            entityCounts.counts.put(signature, new CachedCount(count, generation, now));
+        }
+
+        return count;
+    }
+
+    @Override
+    public void invalidate(String className) {
+        invalidateNow(className);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // other transactions could cache the old count before this one commits
+            getPendingInvalidations().add(className);
+        } else {
+            broadcast(Collections.singleton(className));
+        }
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        // the counts were already invalidated by the instance that broadcast the event
+        if (instanceId.equals(event.getProperty(INSTANCE_ID_EVENT_PARAM))) {
+            return;
+        }
+
+        Object classNames = event.getProperty(CLASS_NAMES_EVENT_PARAM);
+
+        if (classNames instanceof Collection) {
+            for (Object className : (Collection) classNames) {
+                invalidateNow(String.valueOf(className));
+            }
+        }
+    }
+
+    @Override
+    public long getApproximateCountThreshold() {
+        return getLongSetting(MDS_APPROXIMATE_COUNT_THRESHOLD, DEFAULT_APPROXIMATE_COUNT_THRESHOLD);
+    }
+
+    @Autowired
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
+
+    @Autowired(required = false)
+    public void setOsgiEventProxy(OsgiEventProxy osgiEventProxy) {
+        this.osgiEventProxy = osgiEventProxy;
+    }
+
+    private void invalidateNow(String className) {
+        EntityCounts entityCounts = counts.get(className);
+
+        if (null != entityCounts) {
+            entityCounts.generation.incrementAndGet();
+            entityCounts.counts.clear();
+        }
+    }
+
+    private Set<String> getPendingInvalidations() {
+        // only the synchronizations of the current transaction are returned, the ones of suspended transactions are not
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingInvalidations
+                    && ((PendingInvalidations) synchronization).isOwnedBy(this)) {
+                return ((PendingInvalidations) synchronization).classNames;
+            }
+        }
+
+        PendingInvalidations pending = new PendingInvalidations();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+
+        return pending.classNames;
+    }
+
+    private void broadcast(Collection<String> classNames) {
+        if (null == osgiEventProxy || classNames.isEmpty()) {
+            return;
+        }
+
+        if (null == broadcaster) {
+            sendInvalidation(classNames);
+        } else {
+            pendingBroadcast.addAll(classNames);
+        }
+    }
+
+    /**
+     * Broadcasts the invalidations gathered since the last broadcast, in a single message.
+     */
+    void broadcastPending() {
+        List<String> classNames = new ArrayList<>();
+
+        Iterator<String> it = pendingBroadcast.iterator();
+        while (it.hasNext()) {
+            classNames.add(it.next());
+            it.remove();
+        }
+
+        if (!classNames.isEmpty()) {
+            sendInvalidation(classNames);
+        }
+    }
+
+    private void sendInvalidation(Collection<String> classNames) {
+        if (null == osgiEventProxy) {
+            return;
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put(CLASS_NAMES_EVENT_PARAM, new ArrayList<>(classNames));
+        params.put(INSTANCE_ID_EVENT_PARAM, instanceId);
+
+        try {
+            osgiEventProxy.broadcastEvent(COUNTS_INVALIDATED, params, true);
+        } catch (RuntimeException e) {
+            // other instances will still drop their cached counts after the cache time
+            LOGGER.warn("Unable to broadcast the invalidation of counts of {}", classNames, e);
+        }
+    }
+
+    private EntityCounts getEntityCounts(String className) {
+        EntityCounts entityCounts = counts.get(className);
+
+        if (null == entityCounts) {
+            EntityCounts created = new EntityCounts();
+            entityCounts = counts.putIfAbsent(className, created);
+
+            if (null == entityCounts) {
+                entityCounts = created;
+            }
+        }
+
+        return entityCounts;
+    }
+
+    private long getLongSetting(String name, long defaultValue) {
+        Properties properties = null == mdsConfig ? new Properties() : mdsConfig.getProperties(MODULE_FILE);
+        String value = properties.getProperty(name);
+
+        return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static final class EntityCounts {
+
+        private final AtomicLong generation = new AtomicLong();
+        private final ConcurrentMap<String, CachedCount> counts = new ConcurrentHashMap<>();
+    }
+
+    private static final class CachedCount {
+
+        private final long count;
+        private final long generation;
+        private final long time;
+
+        private CachedCount(long count, long generation, long time) {
+            this.count = count;
+            this.generation = generation;
+            this.time = time;
+        }
+    }
+
+    private final class PendingInvalidations extends TransactionSynchronizationAdapter {
+
+        private final Set<String> classNames = new HashSet<>();
+
+        private boolean isOwnedBy(CountServiceImpl service) {
+            return CountServiceImpl.this == service;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            for (String className : classNames) {
+                invalidateNow(className);
+            }
+
+            if (status == STATUS_COMMITTED) {
+                broadcast(classNames);
+            }
+        }
+    }
+}
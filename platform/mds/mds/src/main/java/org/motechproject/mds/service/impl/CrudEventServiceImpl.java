@@ -0,0 +1,238 @@
+package org.motechproject.mds.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.event.CrudEventType;
+import org.motechproject.mds.service.CrudEventService;
+import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.PropertyUtil;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.motechproject.mds.event.CrudEventBuilder.buildBatchEventParams;
+import static org.motechproject.mds.event.CrudEventBuilder.buildEventParams;
+import static org.motechproject.mds.event.CrudEventBuilder.createBatchSubject;
+import static org.motechproject.mds.event.CrudEventBuilder.createSubject;
+import static org.motechproject.mds.util.Constants.Config.MDS_CRUD_EVENTS_BATCH_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MDS_CRUD_EVENTS_PER_INSTANCE;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+/**
+ * Default implementation of the {@link org.motechproject.mds.service.CrudEventService}. The events of
+ * a transaction are kept by a synchronization registered with its first event, which sends them after commit.
+ * Since synchronizations are suspended together with their transaction, the events of an inner transaction started
+ * with REQUIRES_NEW are sent when that transaction commits. Only the ids of the instances are kept and an instance
+ * affected many times by the same action is announced only once.
+ */
+public class CrudEventServiceImpl implements CrudEventService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrudEventServiceImpl.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private MdsConfig mdsConfig;
+    private OsgiEventProxy osgiEventProxy;
+
+    @Override
+    public void registerEvent(EntityInfo entity, CrudEventType action, Object instance) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getPendingEvents().add(entity, action, instance);
+        } else {
+            PendingEvents events = new PendingEvents();
+            events.add(entity, action, instance);
+            sendEvents(events);
+        }
+    }
+
+    @Autowired
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
+
+    @Autowired
+    public void setOsgiEventProxy(OsgiEventProxy osgiEventProxy) {
+        this.osgiEventProxy = osgiEventProxy;
+    }
+
+    private PendingEvents getPendingEvents() {
+        // only the synchronizations of the current transaction are returned, the ones of suspended transactions are not
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingEvents && ((PendingEvents) synchronization).isOwnedBy(this)) {
+                return (PendingEvents) synchronization;
+            }
+        }
+
+        PendingEvents events = new PendingEvents();
+        TransactionSynchronizationManager.registerSynchronization(events);
+
+        return events;
+    }
+
+    private void sendEvents(PendingEvents events) {
+        Properties properties = null == mdsConfig ? new Properties() : mdsConfig.getProperties(MODULE_FILE);
+        boolean perInstance = !"false".equalsIgnoreCase(StringUtils.trim(
+                properties.getProperty(MDS_CRUD_EVENTS_PER_INSTANCE)));
+        String batchSizeValue = properties.getProperty(MDS_CRUD_EVENTS_BATCH_SIZE);
+        int batchSize = StringUtils.isBlank(batchSizeValue) ? DEFAULT_BATCH_SIZE : Integer.parseInt(batchSizeValue.trim());
+
+        events.resolveIds();
+
+        for (EntityEvents entityEvents : events.entities.values()) {
+            for (Map.Entry<CrudEventType, InstanceIds> entry : entityEvents.instances.entrySet()) {
+                List<Long> ids = new ArrayList<>(entry.getValue().ids);
+
+                if (!ids.isEmpty()) {
+                    if (perInstance) {
+                        sendInstanceEvents(entityEvents.entity, entry.getKey(), ids);
+                    }
+
+                    sendBatchEvents(entityEvents.entity, entry.getKey(), ids, batchSize);
+                }
+            }
+        }
+    }
+    private void sendInstanceEvents(EntityInfo entity, CrudEventType action, List<Long> ids) {
+        String subject = createSubject(entity.getModule(), entity.getNamespace(), entity.getEntityName(), action);
+
+        if (ids.size() == 1) {
+            osgiEventProxy.sendEvent(subject, buildEventParams(entity.getModule(), entity.getNamespace(),
+                    entity.getEntityName(), entity.getClassName(), ids.get(0)));
+        } else {
+            List<Map<String, Object>> parametersList = new ArrayList<>(ids.size());
+
+            for (Long id : ids) {
+                parametersList.add(buildEventParams(entity.getModule(), entity.getNamespace(), entity.getEntityName(),
+                        entity.getClassName(), id));
+            }
+
+            osgiEventProxy.sendEvents(subject, parametersList);
+        }
+    }
+
+    private void sendBatchEvents(EntityInfo entity, CrudEventType action, List<Long> ids, int batchSize) {
+        String subject = createBatchSubject(entity.getModule(), entity.getNamespace(), entity.getEntityName(), action);
+        int size = batchSize > 0 ? batchSize : ids.size();
+
+        for (int from = 0; from < ids.size(); from += size) {
+            List<Long> batch = ids.subList(from, Math.min(from + size, ids.size()));
+
+            osgiEventProxy.sendEvent(subject, buildBatchEventParams(entity.getModule(), entity.getNamespace(),
+                    entity.getEntityName(), entity.getClassName(), batch, action));
+        }
+
+        LOGGER.debug("Sent {} event for {} instances of {}", subject, ids.size(), entity.getClassName());
+    }
+
+    private static Long getId(Object instance) {
+        Object id = instance instanceof Long
+                ? instance
+                : PropertyUtil.safeGetProperty(instance, Constants.Util.ID_FIELD_NAME);
+
+        return id instanceof Long ? (Long) id : null;
+    }
+
+    private final class PendingEvents extends TransactionSynchronizationAdapter {
+
+        private final Map<String, EntityEvents> entities = new LinkedHashMap<>();
+
+        private void add(EntityInfo entity, CrudEventType action, Object instance) {
+            EntityEvents entityEvents = entities.get(entity.getClassName());
+
+            if (null == entityEvents) {
+                entityEvents = new EntityEvents(entity);
+                entities.put(entity.getClassName(), entityEvents);
+            }
+
+            InstanceIds instanceIds = entityEvents.instances.get(action);
+
+            if (null == instanceIds) {
+                instanceIds = new InstanceIds();
+                entityEvents.instances.put(action, instanceIds);
+            }
+
+            instanceIds.add(instance);
+        }
+
+        private void resolveIds() {
+            for (EntityEvents entityEvents : entities.values()) {
+                for (InstanceIds instanceIds : entityEvents.instances.values()) {
+                    instanceIds.resolve();
+                }
+            }
+        }
+
+        private boolean isOwnedBy(CrudEventServiceImpl service) {
+            return CrudEventServiceImpl.this == service;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // the ids not assigned when the events were registered are available now, so the instances can be released
+            resolveIds();
+        }
+
+        @Override
+        public void afterCommit() {
+            sendEvents(this);
+        }
+    }
+
+    private static final class EntityEvents {
+
+        private final EntityInfo entity;
+        private final Map<CrudEventType, InstanceIds> instances = new EnumMap<>(CrudEventType.class);
+
+        private EntityEvents(EntityInfo entity) {
+            this.entity = entity;
+        }
+    }
+
+    /**
+     * The ids of the instances affected by an action. An instance is kept only until its id is known, which is
+     * usually right away, since ids are assigned by the database when the instance is persisted.
+     */
+    private static final class InstanceIds {
+
+        private final Set<Long> ids = new LinkedHashSet<>();
+        private final List<Object> unresolved = new ArrayList<>();
+
+        private void add(Object instance) {
+            Long id = getId(instance);
+
+            if (null == id) {
+                unresolved.add(instance);
+            } else {
+                ids.add(id);
+            }
+        }
+
+        private void resolve() {
+            Iterator<Object> iterator = unresolved.iterator();
+
+            while (iterator.hasNext()) {
+                Long id = getId(iterator.next());
+
+                if (null != id) {
+                    ids.add(id);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.motechproject.mds.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.service.DataServiceExecutor;
+import org.motechproject.mds.util.AsyncStatistics;
+import org.motechproject.mds.util.JmxUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.motechproject.mds.util.Constants.Config.MDS_ASYNC_POOL_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MDS_ASYNC_QUEUE_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+/**
+ * Default implementation of the {@link org.motechproject.mds.service.DataServiceExecutor}. The pool size and
+ * the queue size are taken from the MDS settings. This bean lives in the context of the generated MDS entities
+ * bundle, so the threads are stopped when the bundle gets regenerated. Operations still queued at that time are
+ * not executed, their futures are cancelled. The statistics are exposed over JMX.
+ */
+public class DataServiceExecutorImpl implements DataServiceExecutor, DataServiceExecutorMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataServiceExecutorImpl.class);
+
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 200;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final String MBEAN_TYPE = "DataServiceExecutor";
+    private static final String MBEAN_NAME = "entities";
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    private MdsConfig mdsConfig;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = getIntSetting(MDS_ASYNC_POOL_SIZE, DEFAULT_POOL_SIZE);
+        int queueSize = getIntSetting(MDS_ASYNC_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "mds-async-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        JmxUtil.register(this, MBEAN_TYPE, MBEAN_NAME);
+
+        LOGGER.debug("Started the data service executor with {} threads and a queue of {}", poolSize, queueSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        JmxUtil.unregister(MBEAN_TYPE, MBEAN_NAME);
+
+        if (null != executor) {
+            List<Runnable> queued = executor.shutdownNow();
+
+            for (Runnable task : queued) {
+                ((ContextAwareTask<?>) task).cancel();
+            }
+
+            if (!queued.isEmpty()) {
+                LOGGER.warn("Cancelled {} queued data service operations", queued.size());
+            }
+        }
+    }
+
+    @Override
+    public <R> CompletableFuture<R> submit(String className, Callable<R> operation) {
+        Counters entityCounters = getCounters(className);
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Runnable task = new ContextAwareTask<>(operation, future, entityCounters);
+
+        entityCounters.submitted.incrementAndGet();
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the pool is saturated, slow the caller down by letting it do the work; the data service
+            // starts a new transaction for the operation, so it doesn't join the transaction of the caller
+            LOGGER.debug("The data service executor is saturated, executing the operation on {} in the calling thread",
+                    className);
+            entityCounters.callerRuns.incrementAndGet();
+            task.run();
+        }
+
+        return future;
+    }
+
+    @Override
+    public Map<String, AsyncStatistics> getStatistics() {
+        Map<String, AsyncStatistics> statistics = new HashMap<>();
+
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            Counters entityCounters = entry.getValue();
+
+            statistics.put(entry.getKey(), new AsyncStatistics(entityCounters.submitted.get(),
+                    entityCounters.completed.get(), entityCounters.failed.get(), entityCounters.callerRuns.get(),
+                    entityCounters.waitTime.get(), entityCounters.executionTime.get()));
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public int getQueuedOperations() {
+        return null == executor ? 0 : executor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return null == executor ? 0 : executor.getActiveCount();
+    }
+
+    @Autowired
+    public void setMdsConfig(MdsConfig mdsConfig) {
+        this.mdsConfig = mdsConfig;
+    }
+
+    private Counters getCounters(String className) {
+        Counters entityCounters = counters.get(className);
+
+        if (null == entityCounters) {
+            Counters created = new Counters();
+            entityCounters = counters.putIfAbsent(className, created);
+
+            if (null == entityCounters) {
+                entityCounters = created;
+            }
+        }
+
+        return entityCounters;
+    }
+
+    private int getIntSetting(String name, int defaultValue) {
+        Properties properties = null == mdsConfig ? new Properties() : mdsConfig.getProperties(MODULE_FILE);
+        String value = properties.getProperty(name);
+
+        return StringUtils.isBlank(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static final class ContextAwareTask<R> implements Runnable {
+
+        private final Callable<R> operation;
+        private final CompletableFuture<R> future;
+        private final Counters counters;
+        private final SecurityContext securityContext;
+        private final ClassLoader classLoader;
+        private final long submitTime;
+
+        private ContextAwareTask(Callable<R> operation, CompletableFuture<R> future, Counters counters) {
+            this.operation = operation;
+            this.future = future;
+            this.counters = counters;
+            this.securityContext = SecurityContextHolder.getContext();
+            this.classLoader = Thread.currentThread().getContextClassLoader();
+            this.submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            counters.waitTime.addAndGet(startTime - submitTime);
+
+            Thread thread = Thread.currentThread();
+            ClassLoader previousClassLoader = thread.getContextClassLoader();
+            SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+
+            thread.setContextClassLoader(classLoader);
+            SecurityContextHolder.setContext(securityContext);
+
+            try {
+                R result = operation.call();
+                counters.completed.incrementAndGet();
+                future.complete(result);
+            } catch (Exception e) {
+                counters.failed.incrementAndGet();
+                future.completeExceptionally(e);
+            } catch (Error e) {
+                counters.failed.incrementAndGet();
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                counters.executionTime.addAndGet(System.nanoTime() - startTime);
+
+                SecurityContextHolder.setContext(previousSecurityContext);
+                thread.setContextClassLoader(previousClassLoader);
+            }
+        }
+
+        private void cancel() {
+            counters.failed.incrementAndGet();
+            future.completeExceptionally(new CancellationException("The data service executor was shut down"));
+        }
+    }
+
+    private static final class Counters {
+
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong callerRuns = new AtomicLong();
+        private final AtomicLong waitTime = new AtomicLong();
+        private final AtomicLong executionTime = new AtomicLong();
+    }
+}
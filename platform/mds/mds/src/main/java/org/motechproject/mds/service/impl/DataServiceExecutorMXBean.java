@@ -0,0 +1,28 @@
+package org.motechproject.mds.service.impl;
+
+import org.motechproject.mds.util.AsyncStatistics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link DataServiceExecutorImpl}, through which the statistics of asynchronous
+ * operations are exposed over JMX. The statistics are mapped to open types, so they can be browsed in any JMX
+ * console.
+ */
+public interface DataServiceExecutorMXBean {
+
+    /**
+     * @return the statistics of operations executed for each entity, keyed by entity class name
+     */
+    Map<String, AsyncStatistics> getStatistics();
+
+    /**
+     * @return the number of operations waiting in the queue
+     */
+    int getQueuedOperations();
+
+    /**
+     * @return the number of threads currently executing operations
+     */
+    int getActiveThreads();
+}
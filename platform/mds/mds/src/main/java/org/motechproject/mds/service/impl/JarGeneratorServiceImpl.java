@@ -26,10 +26,12 @@ import org.motechproject.mds.helper.ActionParameterTypeResolver;
 import org.motechproject.mds.helper.bundle.MdsBundleHelper;
 import org.motechproject.mds.javassist.MotechClassPool;
 import org.motechproject.mds.osgi.EntitiesBundleMonitor;
+import org.motechproject.mds.query.QueryPlanCache;
 import org.motechproject.mds.repository.internal.MetadataHolder;
 import org.motechproject.mds.service.JarGeneratorService;
 import org.motechproject.mds.service.JdoListenerRegistryService;
 import org.motechproject.mds.service.MdsOsgiBundleApplicationContextListener;
+import org.motechproject.mds.service.RestDocumentationService;
 import org.motechproject.mds.util.ClassName;
 import org.motechproject.mds.util.JavassistUtil;
 import org.motechproject.osgi.web.util.BundleHeaders;
@@ -104,6 +106,7 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
     private EntitiesBundleMonitor monitor;
     private BundleContext bundleContext;
     private MdsOsgiBundleApplicationContextListener mdsOsgiBundleApplicationContextListener;
+    private RestDocumentationService restDocumentationService;
 
     private final Object lock = new Object();
     private boolean moduleRefreshed;
@@ -132,6 +135,7 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
 
             clearModulesCache(moduleNames);
             cleanEntitiesBundleCachedClasses();
+            QueryPlanCache.clearAll();
 
             boolean constructed = mdsConstructor.constructEntities(schemaHolder);
 
@@ -194,6 +198,8 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
             // Give framework some time before returning to the caller
             ThreadSuspender.sleep(2000);
         } finally {
+            // the REST documentation reflects the entities schema
+            restDocumentationService.clearDocumentation();
             Thread.currentThread().setContextClassLoader(currentClassLoader);
         }
     }
@@ -688,4 +694,9 @@ public class JarGeneratorServiceImpl implements JarGeneratorService {
     public void setMdsOsgiBundleApplicationContextListener(MdsOsgiBundleApplicationContextListener mdsOsgiBundleApplicationContextListener) {
         this.mdsOsgiBundleApplicationContextListener = mdsOsgiBundleApplicationContextListener;
     }
+
+    @Autowired
+    public void setRestDocumentationService(RestDocumentationService restDocumentationService) {
+        this.restDocumentationService = restDocumentationService;
+    }
 }
@@ -5,6 +5,7 @@ import org.motechproject.mds.dto.LookupDto;
 import org.motechproject.mds.exception.lookup.SingleResultFromLookupExpectedException;
 import org.motechproject.mds.javassist.MotechClassPool;
 import org.motechproject.mds.lookup.LookupExecutor;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.EntityService;
 import org.motechproject.mds.service.MDSLookupService;
@@ -73,6 +74,20 @@ public class MdsLookupServiceImpl implements MDSLookupService {
         return returnListResult(result);
     }
 
+    @Override
+    public <T> long iterateMany(Class<T> entityClass, String lookupName, Map<String, ?> lookupParams,
+                                QueryParams queryParams, InstanceCallback<T> callback) {
+        return iterateMany(entityClass.getName(), lookupName, lookupParams, queryParams, callback);
+    }
+
+    @Override
+    public <T> long iterateMany(String entityClassName, String lookupName, Map<String, ?> lookupParams,
+                                QueryParams queryParams, InstanceCallback<T> callback) {
+        LookupExecutor lookupExecutor = buildLookupExecutor(entityClassName, lookupName);
+
+        return lookupExecutor.executeIterate(lookupParams, queryParams, callback);
+    }
+
     @Override
     public <T> List<T> retrieveAll(Class<T> entityClass) {
         return retrieveAll(entityClass.getName(), null);
@@ -1,26 +1,111 @@
 package org.motechproject.mds.service.impl;
 
+import org.motechproject.mds.docs.RestDocumentation;
 import org.motechproject.mds.docs.RestDocumentationGenerator;
+import org.motechproject.mds.exception.MdsException;
 import org.motechproject.mds.service.RestDocumentationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jdo.JdoTransactionManager;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implementation of {@link org.motechproject.mds.service.RestDocumentationService}
+ * Implementation of {@link org.motechproject.mds.service.RestDocumentationService}. The documentation is
+ * generated at most once for every server prefix and locale, clients polling the spec are served
+ * the cached copy. Since both the prefix and the locale come from the client, only the most recently
+ * used documents are kept.
  */
 @Service("restDocumentationServiceImpl")
 public class RestDocumentationServiceImpl implements RestDocumentationService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestDocumentationServiceImpl.class);
+
+    private static final int MAX_CACHED_DOCUMENTS = 20;
+
+    private final Map<String, RestDocumentation> documentation = Collections.synchronizedMap(
+            new LinkedHashMap<String, RestDocumentation>(16, 0.75f, true) {
+                private static final long serialVersionUID = 2735163204911826337L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RestDocumentation> eldest) {
+                    return size() > MAX_CACHED_DOCUMENTS;
+                }
+            });
+    private final AtomicLong generation = new AtomicLong();
+
     @Autowired
     private RestDocumentationGenerator docGenerator;
 
+    @Autowired
+    private JdoTransactionManager transactionManager;
+
     @Override
-    @Transactional
     public void retrieveDocumentation(Writer writer, String serverPrefix, Locale locale) {
-        docGenerator.generateDocumentation(writer, serverPrefix, locale);
+        try {
+            writer.write(getDocumentation(serverPrefix, locale).getContentAsString());
+        } catch (IOException e) {
+            throw new MdsException("Unable to write the REST documentation", e);
+        }
+    }
+
+    @Override
+    public RestDocumentation getDocumentation(String serverPrefix, Locale locale) {
+        String key = serverPrefix + '|' + locale;
+
+        RestDocumentation doc = documentation.get(key);
+
+        if (null == doc) {
+            // one generation at a time, clients polling an outdated spec would otherwise all generate it
+            synchronized (this) {
+                doc = documentation.get(key);
+
+                if (null == doc) {
+                    long currentGeneration = generation.get();
+
+                    doc = generate(serverPrefix, locale);
+
+                    if (generation.get() == currentGeneration) {
+                        documentation.put(key, doc);
+                    }
+                }
+            }
+        }
+
+        return doc;
+    }
+
+    @Override
+    public void clearDocumentation() {
+        LOGGER.debug("Clearing cached REST documentation");
+
+        generation.incrementAndGet();
+        documentation.clear();
+    }
+
+    private RestDocumentation generate(final String serverPrefix, final Locale locale) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+
+        return template.execute(new TransactionCallback<RestDocumentation>() {
+            @Override
+            public RestDocumentation doInTransaction(TransactionStatus status) {
+                StringWriter writer = new StringWriter();
+                docGenerator.generateDocumentation(writer, serverPrefix, locale);
+                return new RestDocumentation(writer.toString());
+            }
+        });
     }
 }
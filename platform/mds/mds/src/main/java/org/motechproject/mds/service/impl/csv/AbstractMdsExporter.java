@@ -5,16 +5,17 @@ import org.motechproject.mds.dto.BrowsingSettingsDto;
 import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
+import org.motechproject.mds.entityinfo.FieldAccessor;
 import org.motechproject.mds.exception.csv.DataExportException;
 import org.motechproject.mds.exception.entity.EntityNotFoundException;
 import org.motechproject.mds.helper.DataServiceHelper;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.CsvExportCustomizer;
 import org.motechproject.mds.service.DefaultCsvExportCustomizer;
 import org.motechproject.mds.service.MDSLookupService;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.service.TableWriter;
-import org.motechproject.mds.util.PropertyUtil;
 import org.osgi.framework.BundleContext;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -51,38 +52,45 @@ public abstract class AbstractMdsExporter {
         return exportData(entityInfo, writer, "", null, null, null, exportCustomizer);
     }
 
-    protected long exportData(EntityInfo entityInfo, TableWriter writer, String lookupName, QueryParams params, List<String> headers,
-                           Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
+    protected long exportData(EntityInfo entityInfo, final TableWriter writer, String lookupName, QueryParams params, List<String> headers,
+                           Map<String, Object> lookupFields, final CsvExportCustomizer exportCustomizer) {
         final MotechDataService dataService = DataServiceHelper.getDataService(bundleContext, entityInfo.getClassName());
 
         final Map<String, FieldDto> fieldMap = new HashMap<>();
+        final Map<String, FieldAccessor> accessorMap = new HashMap<>();
         for (FieldDto field : entityInfo.getFieldDtos()) {
-            fieldMap.put(exportCustomizer.exportDisplayName(field), field);
+            String displayName = exportCustomizer.exportDisplayName(field);
+            fieldMap.put(displayName, field);
+            accessorMap.put(displayName, entityInfo.getAccessor(field.getBasic().getName()));
         }
 
         // we must respect field ordering
-        String[] orderedHeaders = orderHeaders(entityInfo.getAdvancedSettings().getBrowsing(), headers == null ? fieldsToHeaders(entityInfo.getFieldDtos(), exportCustomizer) : headers.toArray(new String[headers.size()]),
+        final String[] orderedHeaders = orderHeaders(entityInfo.getAdvancedSettings().getBrowsing(), headers == null ? fieldsToHeaders(entityInfo.getFieldDtos(), exportCustomizer) : headers.toArray(new String[headers.size()]),
                 entityInfo.getFieldDtos(), exportCustomizer);
 
         try {
             writer.writeHeader(orderedHeaders);
-
-            long rowsExported = 0;
-            Map<String, String> row = new HashMap<>();
-
-            List<Object> instances = StringUtils.isBlank(lookupName) ? dataService.retrieveAll(params) :
-                    mdsLookupService.findMany(entityInfo.getClassName(), lookupName, lookupFields, params);
-
-            for (Object instance : instances) {
-                buildCsvRow(row, fieldMap, instance, orderedHeaders, exportCustomizer);
-                writer.writeRow(row, orderedHeaders);
-                rowsExported++;
-            }
-
-            return rowsExported;
         } catch (IOException e) {
             throw new DataExportException("IO Error when writing data", e);
         }
+
+        // rows are written as the instances are read from the database, so that we never hold the whole result
+        InstanceCallback<Object> rowWriter = new InstanceCallback<Object>() {
+            private final Map<String, String> row = new HashMap<>();
+
+            @Override
+            public void process(Object instance) {
+                buildCsvRow(row, fieldMap, accessorMap, instance, orderedHeaders, exportCustomizer);
+                try {
+                    writer.writeRow(row, orderedHeaders);
+                } catch (IOException e) {
+                    throw new DataExportException("IO Error when writing data", e);
+                }
+            }
+        };
+
+        return StringUtils.isBlank(lookupName) ? dataService.iterateAll(params, rowWriter) :
+                mdsLookupService.iterateMany(entityInfo.getClassName(), lookupName, lookupFields, params, rowWriter);
     }
 
     protected EntityInfo getEntity(long entityId) {
@@ -129,13 +137,13 @@ public abstract class AbstractMdsExporter {
         return fieldNames.toArray(new String[fieldNames.size()]);
     }
 
-    private void buildCsvRow(Map<String, String> row, Map<String, FieldDto> fieldMap, Object instance, String[] headers,
-                             CsvExportCustomizer exportCustomizer) {
+    private void buildCsvRow(Map<String, String> row, Map<String, FieldDto> fieldMap, Map<String, FieldAccessor> accessorMap,
+                             Object instance, String[] headers, CsvExportCustomizer exportCustomizer) {
         row.clear();
         for (String fieldName : headers) {
             FieldDto field = fieldMap.get(fieldName);
 
-            Object value = PropertyUtil.safeGetProperty(instance, field.getBasic().getName());
+            Object value = accessorMap.get(fieldName).getValue(instance);
             String csvValue = exportCustomizer.formatField(field, value);
 
             row.put(fieldName, csvValue);
@@ -27,15 +27,27 @@ import org.springframework.transaction.annotation.Transactional;
 import org.supercsv.io.CsvMapReader;
 import org.supercsv.prefs.CsvPreference;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_KEY_TYPE;
 import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
@@ -43,12 +55,33 @@ import static org.motechproject.mds.util.Constants.MetadataKeys.MAP_VALUE_TYPE;
 /**
  * Component used for importing CSV records to the database.
  * The reason for separating import logic is keeping the db transaction and sending the MOTECH event at completion separate.
+ * Rows are imported in chunks - values of a chunk are parsed in parallel, then existing and related instances
+ * are fetched for the whole chunk, after which the rows are saved one by one.
  * This bean lives in the context of the generated MDS entities bundle.
  */
 public class CsvImporterExporter extends AbstractMdsExporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvImporterExporter.class);
 
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final int PARSING_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final ExecutorService parsingExecutor = Executors.newFixedThreadPool(PARSING_THREADS, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "mds-csv-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        parsingExecutor.shutdownNow();
+    }
+
     /**
      * Imports instances of the given entity to the database.
      * @param entityId the ID of the entity for which instances will be imported
@@ -98,7 +131,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param writer the writer that will be used for output
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(final long entityId, final Writer writer) {
         EntityInfo entityInfo = getEntity(entityId);
         try (CsvTableWriter tableWriter = new CsvTableWriter(writer)) {
@@ -112,7 +145,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param writer the writer that will be used for output
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(final String entityClassName, final Writer writer) {
         EntityInfo entityInfo = getEntity(entityClassName);
         try (CsvTableWriter tableWriter = new CsvTableWriter(writer)) {
@@ -127,7 +160,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(final long entityId, final Writer writer, final CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityId);
         try (CsvTableWriter tableWriter = new CsvTableWriter(writer)) {
@@ -142,7 +175,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(final String entityClassName, final Writer writer, final CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityClassName);
         try (CsvTableWriter tableWriter = new CsvTableWriter(writer)) {
@@ -160,7 +193,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param lookupFields the lookupFields used in the lookup
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(long entityId, Writer writer, String lookupName, QueryParams params, List<String> headers,
                           Map<String, Object> lookupFields) {
         return exportCsv(entityId, writer, lookupName, params, headers, lookupFields,
@@ -177,7 +210,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param lookupFields the lookupFields used in the lookup
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(String entityClassName, Writer writer, String lookupName, QueryParams params, List<String> headers,
                           Map<String, Object> lookupFields) {
         return exportCsv(entityClassName, writer, lookupName, params, headers, lookupFields,
@@ -195,7 +228,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(long entityId, Writer writer, String lookupName, QueryParams params, List<String> headers,
                           Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityId);
@@ -216,7 +249,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportCsv(String entityClassName, Writer writer, String lookupName, QueryParams params, List<String> headers,
                           Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityClassName);
@@ -233,8 +266,7 @@ public class CsvImporterExporter extends AbstractMdsExporter {
     private CsvImportResults importCsv(final EntityInfo entityInfo, final Reader reader, CsvImportCustomizer importCustomizer,
                                        boolean continueOnError) {
         final MotechDataService dataService = DataServiceHelper.getDataService(getBundleContext(), entityInfo.getClassName());
-
-        Map<String, FieldDto> fieldCacheMap = new HashMap<>();
+        final Class entityClass = dataService.getClassType();
 
         try (CsvMapReader csvMapReader = new CsvMapReader(reader, CsvPreference.STANDARD_PREFERENCE)) {
 
@@ -243,79 +275,228 @@ public class CsvImporterExporter extends AbstractMdsExporter {
 
             Map <Integer, String> exceptions = new HashMap<>();
 
-            Map<String, String> row;
-            int rowNum = 0;
-
             final String headers[] = csvMapReader.getHeader(true);
+            final Map<String, FieldDto> fieldsByHeader = findFields(headers, entityInfo.getFieldDtos(), entityClass,
+                    importCustomizer);
 
-            while ((row = csvMapReader.read(headers)) != null) {
-                rowNum++;
-                try {
-                    // import a row
-                    RowImportResult rowImportResult = importInstanceFromRow(entityInfo.getEntity(), row, headers, fieldCacheMap, entityInfo.getFieldDtos(), dataService, importCustomizer);
-                    Long id = rowImportResult.getId();
-
-                    // put its ID in the correct list
-                    if (rowImportResult.isNewInstance()) {
-                        newInstanceIDs.add(id);
-                    } else {
-                        updatedInstanceIDs.add(id);
-                    }
-                } catch (RuntimeException e){
-                    if (continueOnError) {
-                        exceptions.put(rowNum, e.getMessage());
-                    } else {
-                        throw e;
+            int rowNum = 0;
+            List<Map<String, String>> chunk;
+
+            while (!(chunk = readChunk(csvMapReader, headers)).isEmpty()) {
+                // values are parsed in parallel, existing and related instances are fetched for the whole chunk
+                List<ParsedRow> parsedRows = parseRows(entityInfo.getEntity(), chunk, rowNum, fieldsByHeader,
+                        entityClass.getClassLoader());
+                List<Object> existingInstances = findExistingInstances(chunk, dataService, importCustomizer);
+                Map<String, Map<Long, Object>> relatedObjects = fetchRelatedObjects(parsedRows);
+
+                for (int i = 0; i < parsedRows.size(); i++) {
+                    ParsedRow parsedRow = parsedRows.get(i);
+                    try {
+                        // import a row
+                        RowImportResult rowImportResult = importInstanceFromRow(parsedRow, existingInstances, i,
+                                relatedObjects, dataService, importCustomizer);
+                        Long id = rowImportResult.getId();
+
+                        // put its ID in the correct list
+                        if (rowImportResult.isNewInstance()) {
+                            newInstanceIDs.add(id);
+                        } else {
+                            updatedInstanceIDs.add(id);
+                        }
+                    } catch (RuntimeException e) {
+                        if (continueOnError) {
+                            exceptions.put(parsedRow.getRowNum(), e.getMessage());
+                        } else {
+                            throw e;
+                        }
                     }
                 }
+
+                rowNum += chunk.size();
+                LOGGER.debug("Processed {} rows of the CSV import for {}", rowNum, entityInfo.getClassName());
             }
 
-            return new CsvImportResults(entityInfo.getEntity(), newInstanceIDs, updatedInstanceIDs, exceptions);
+            return new CsvImportResults(entityInfo.getEntity(), newInstanceIDs, updatedInstanceIDs, exceptions, rowNum);
         } catch (IOException e) {
             throw new CsvImportException("IO Error when importing CSV", e);
         }
     }
 
-    private RowImportResult importInstanceFromRow(EntityDto entityDto, Map<String, String> row, String[] headers, Map<String, FieldDto> fieldMap, List<FieldDto> fields,
+    private List<Map<String, String>> readChunk(CsvMapReader csvMapReader, String[] headers) throws IOException {
+        List<Map<String, String>> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+
+        Map<String, String> row;
+        while (chunk.size() < IMPORT_CHUNK_SIZE && (row = csvMapReader.read(headers)) != null) {
+            chunk.add(row);
+        }
+
+        return chunk;
+    }
+
+    private Map<String, FieldDto> findFields(String[] headers, List<FieldDto> fields, Class entityClass,
+                                             CsvImportCustomizer importCustomizer) {
+        // we keep the order of columns from the file
+        Map<String, FieldDto> fieldsByHeader = new LinkedHashMap<>();
+
+        for (String header : headers) {
+            FieldDto field = importCustomizer.findField(header, fields);
+
+            if (field == null) {
+                LOGGER.warn("No field with name {} in entity {}, however such row exists in CSV. Ignoring.",
+                        header, entityClass.getName());
+            } else {
+                fieldsByHeader.put(header, field);
+            }
+        }
+
+        return fieldsByHeader;
+    }
+
+    private List<ParsedRow> parseRows(final EntityDto entityDto, List<Map<String, String>> chunk, int rowsBefore,
+                                      final Map<String, FieldDto> fieldsByHeader, final ClassLoader entityCl) {
+        List<Callable<ParsedRow>> tasks = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            final int rowNum = rowsBefore + i + 1;
+            final Map<String, String> row = chunk.get(i);
+
+            tasks.add(new Callable<ParsedRow>() {
+                @Override
+                public ParsedRow call() {
+                    return parseRow(entityDto, rowNum, row, fieldsByHeader, entityCl);
+                }
+            });
+        }
+
+        try {
+            List<ParsedRow> parsedRows = new ArrayList<>(chunk.size());
+            for (Future<ParsedRow> future : parsingExecutor.invokeAll(tasks)) {
+                parsedRows.add(future.get());
+            }
+            return parsedRows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvImportException("Interrupted while parsing CSV rows", e);
+        } catch (ExecutionException e) {
+            throw new CsvImportException("Unable to parse CSV rows", e.getCause());
+        }
+    }
+
+    private ParsedRow parseRow(EntityDto entityDto, int rowNum, Map<String, String> row,
+                               Map<String, FieldDto> fieldsByHeader, ClassLoader entityCl) {
+        ParsedRow parsedRow = new ParsedRow(rowNum, row);
+
+        try {
+            for (Map.Entry<String, FieldDto> entry : fieldsByHeader.entrySet()) {
+                String header = entry.getKey();
+
+                if (row.containsKey(header)) {
+                    String csvValue = row.get(header);
+                    FieldDto field = entry.getValue();
+
+                    parsedRow.addValue(new ParsedValue(header, field, csvValue,
+                            parseValue(entityDto, csvValue, field, entityCl)));
+                }
+            }
+        } catch (RuntimeException e) {
+            // errors are reported when the row is imported, so that they are attributed to the right row
+            parsedRow.setError(e);
+        }
+
+        return parsedRow;
+    }
+
+    private Map<String, Map<Long, Object>> fetchRelatedObjects(List<ParsedRow> parsedRows) {
+        Map<String, Set<Long>> idsByClass = new HashMap<>();
+
+        for (ParsedRow parsedRow : parsedRows) {
+            for (ParsedValue parsedValue : parsedRow.getValues()) {
+                if (parsedValue.getValue() instanceof RelatedIds) {
+                    RelatedIds relatedIds = (RelatedIds) parsedValue.getValue();
+                    String relatedClass = relatedIds.getRelatedClass();
+
+                    if (!idsByClass.containsKey(relatedClass)) {
+                        idsByClass.put(relatedClass, new HashSet<Long>());
+                    }
+                    idsByClass.get(relatedClass).addAll(relatedIds.getIds());
+                }
+            }
+        }
+
+        // a single query for every related entity, instead of a query for every related id
+        Map<String, Map<Long, Object>> relatedObjects = new HashMap<>();
+
+        for (Map.Entry<String, Set<Long>> entry : idsByClass.entrySet()) {
+            Map<Long, Object> objectsById = new HashMap<>();
+
+            if (!entry.getValue().isEmpty()) {
+                MotechDataService relatedDataService = DataServiceHelper.getDataService(getBundleContext(), entry.getKey());
+                for (Object obj : (List<Object>) relatedDataService.findByIds(entry.getValue())) {
+                    objectsById.put((Long) PropertyUtil.safeGetProperty(obj, Constants.Util.ID_FIELD_NAME), obj);
+                }
+            }
+
+            relatedObjects.put(entry.getKey(), objectsById);
+        }
+
+        return relatedObjects;
+    }
+
+    private List<Object> findExistingInstances(List<Map<String, String>> chunk, MotechDataService dataService,
+                                               CsvImportCustomizer importCustomizer) {
+        try {
+            List<Object> existingInstances = importCustomizer.findExistingInstances(chunk, dataService);
+            return existingInstances != null && existingInstances.size() == chunk.size() ? existingInstances : null;
+        } catch (RuntimeException e) {
+            // the instances will be looked up row by row, errors will be reported for the rows that caused them
+            LOGGER.debug("Unable to find existing instances for a chunk of rows, looking them up one by one", e);
+            return null;
+        }
+    }
+
+    private RowImportResult importInstanceFromRow(ParsedRow parsedRow, List<Object> existingInstances, int index,
+                                                  Map<String, Map<Long, Object>> relatedObjects,
                                                   MotechDataService dataService, CsvImportCustomizer importCustomizer) {
+        if (parsedRow.getError() != null) {
+            throw parsedRow.getError();
+        }
+
         Class entityClass = dataService.getClassType();
 
         boolean isNewInstance = true;
         Object instance;
         try {
-            instance = importCustomizer.findExistingInstance(row, dataService);
+            if (existingInstances == null) {
+                instance = importCustomizer.findExistingInstance(parsedRow.getRow(), dataService);
+            } else {
+                instance = existingInstances.get(index);
+            }
+
             if (instance == null) {
                 LOGGER.debug("Creating new {}", entityClass.getName());
                 instance = entityClass.newInstance();
             } else {
                 isNewInstance = false;
-                LOGGER.debug("Updating {} with id {}", entityClass.getName(), row.get(Constants.Util.ID_FIELD_NAME));
+                LOGGER.debug("Updating {} with id {}", entityClass.getName(), parsedRow.getRow().get(Constants.Util.ID_FIELD_NAME));
             }
         } catch (InstantiationException | IllegalAccessException e) {
             throw new CsvImportException("Unable to create instance of " + entityClass.getName(), e);
         }
 
-        for (String fieldName : headers) {
-            FieldDto field = findField(fieldName, fields, fieldMap, importCustomizer);
+        for (ParsedValue parsedValue : parsedRow.getValues()) {
+            FieldDto field = parsedValue.getField();
 
-            if (field == null) {
-                LOGGER.warn("No field with name {} in entity {}, however such row exists in CSV. Ignoring.",
-                        fieldName, entityClass.getName());
-                continue;
+            Object value = parsedValue.getValue();
+            if (value instanceof RelatedIds) {
+                value = resolveRelatedObjects((RelatedIds) value, relatedObjects);
             }
 
-            if (row.containsKey(fieldName)) {
-                String csvValue = row.get(fieldName);
-
-                Object parsedValue = parseValue(entityDto, csvValue, field, entityClass.getClassLoader());
-
-                try {
-                    PropertyUtil.setProperty(instance, StringUtils.uncapitalize(field.getBasic().getName()), parsedValue);
-                } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                    String msg = String.format("Error when processing field: %s, value in CSV file is %s",
-                            fieldName, csvValue);
-                    throw new CsvImportException(msg, e);
-                }
+            try {
+                PropertyUtil.setProperty(instance, StringUtils.uncapitalize(field.getBasic().getName()), value);
+            } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+                String msg = String.format("Error when processing field: %s, value in CSV file is %s",
+                        parsedValue.getHeader(), parsedValue.getCsvValue());
+                throw new CsvImportException(msg, e);
             }
         }
 
@@ -331,14 +512,6 @@ public class CsvImporterExporter extends AbstractMdsExporter {
         return new RowImportResult(importedId, isNewInstance);
     }
 
-    private FieldDto findField(String fieldName, List<FieldDto> fields, Map<String, FieldDto> fieldMap, CsvImportCustomizer importCustomizer) {
-        if (!fieldMap.containsKey(fieldName)) {
-            FieldDto field = importCustomizer.findField(fieldName, fields);
-            fieldMap.put(fieldName, field);
-        }
-        return fieldMap.get(fieldName);
-    }
-
     private Object parseValue(EntityDto entityDto, String csvValue, FieldDto field, ClassLoader entityCl) {
         final TypeDto type = field.getType();
 
@@ -376,24 +549,34 @@ public class CsvImporterExporter extends AbstractMdsExporter {
         }
     }
 
-    private Object parseRelationshipValue(String csvValue, FieldDto field) {
+    private RelatedIds parseRelationshipValue(String csvValue, FieldDto field) {
+        // only ids are parsed here, related instances are fetched for the whole chunk of rows
         RelationshipHolder relationshipHolder = new RelationshipHolder(field);
         if (relationshipHolder.isManyToMany() || relationshipHolder.isOneToMany()) {
             List<Long> ids = (List<Long>) TypeHelper.parse(csvValue, List.class.getName(), Long.class.getName());
+            return new RelatedIds(relationshipHolder, ids == null ? new ArrayList<Long>() : ids, true);
+        } else {
+            Long id = (Long) TypeHelper.parse(csvValue, Long.class);
+            return new RelatedIds(relationshipHolder,
+                    id == null ? Collections.<Long>emptyList() : Collections.singletonList(id), false);
+        }
+    }
 
-            Collection<Object> relatedObjects = buildRelationshipCollection(relationshipHolder);
-            if (ids != null) {
-                for (Long id : ids) {
-                    Object relatedObj = getRelatedObject(id, relationshipHolder.getRelatedClass());
-                    if (relatedObj != null) {
-                        relatedObjects.add(relatedObj);
-                    }
+    private Object resolveRelatedObjects(RelatedIds relatedIds, Map<String, Map<Long, Object>> relatedObjects) {
+        Map<Long, Object> objectsById = relatedObjects.get(relatedIds.getRelatedClass());
+
+        if (relatedIds.isCollection()) {
+            Collection<Object> collection = buildRelationshipCollection(relatedIds.getRelationshipHolder());
+            for (Long id : relatedIds.getIds()) {
+                Object relatedObj = getRelatedObject(id, relatedIds.getRelatedClass(), objectsById);
+                if (relatedObj != null) {
+                    collection.add(relatedObj);
                 }
             }
-            return relatedObjects;
+            return collection;
         } else {
-            Long id = (Long) TypeHelper.parse(csvValue, Long.class);
-            return getRelatedObject(id, relationshipHolder.getRelatedClass());
+            return relatedIds.getIds().isEmpty() ? null :
+                    getRelatedObject(relatedIds.getIds().get(0), relatedIds.getRelatedClass(), objectsById);
         }
     }
 
@@ -411,9 +594,8 @@ public class CsvImporterExporter extends AbstractMdsExporter {
         }
     }
 
-    private Object getRelatedObject(Long id, String entityClass) {
-        MotechDataService dataService = DataServiceHelper.getDataService(getBundleContext(), entityClass);
-        Object obj = dataService.findById(id);
+    private Object getRelatedObject(Long id, String entityClass, Map<Long, Object> objectsById) {
+        Object obj = objectsById == null ? null : objectsById.get(id);
 
         if (obj == null) {
             LOGGER.warn("Unable to find {} instance with id {}. Ignoring, you will have to create this relationship manually",
@@ -445,4 +627,109 @@ public class CsvImporterExporter extends AbstractMdsExporter {
             return newInstance;
         }
     }
+
+    /**
+     * A single row from the CSV file, with its values already parsed. If parsing failed, the row
+     * holds the error, which gets reported when the row is imported.
+     */
+    private static class ParsedRow {
+        private final int rowNum;
+        private final Map<String, String> row;
+        private final List<ParsedValue> values = new ArrayList<>();
+        private RuntimeException error;
+
+        public ParsedRow(int rowNum, Map<String, String> row) {
+            this.rowNum = rowNum;
+            this.row = row;
+        }
+
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        public Map<String, String> getRow() {
+            return row;
+        }
+
+        public List<ParsedValue> getValues() {
+            return values;
+        }
+
+        public void addValue(ParsedValue value) {
+            values.add(value);
+        }
+
+        public RuntimeException getError() {
+            return error;
+        }
+
+        public void setError(RuntimeException error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * A value of a single column, parsed to the type of the field it will be set on.
+     */
+    private static class ParsedValue {
+        private final String header;
+        private final FieldDto field;
+        private final String csvValue;
+        private final Object value;
+
+        public ParsedValue(String header, FieldDto field, String csvValue, Object value) {
+            this.header = header;
+            this.field = field;
+            this.csvValue = csvValue;
+            this.value = value;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        public FieldDto getField() {
+            return field;
+        }
+
+        public String getCsvValue() {
+            return csvValue;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Ids of related instances parsed from a relationship column. The instances are resolved
+     * after they are fetched for the whole chunk of rows.
+     */
+    private static class RelatedIds {
+        private final RelationshipHolder relationshipHolder;
+        private final List<Long> ids;
+        private final boolean collection;
+
+        public RelatedIds(RelationshipHolder relationshipHolder, List<Long> ids, boolean collection) {
+            this.relationshipHolder = relationshipHolder;
+            this.ids = ids;
+            this.collection = collection;
+        }
+
+        public RelationshipHolder getRelationshipHolder() {
+            return relationshipHolder;
+        }
+
+        public String getRelatedClass() {
+            return relationshipHolder.getRelatedClass();
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public boolean isCollection() {
+            return collection;
+        }
+    }
 }
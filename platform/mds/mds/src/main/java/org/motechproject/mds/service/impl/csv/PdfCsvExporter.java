@@ -22,7 +22,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param outputStream the output stream that will be used for writing the file
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(final long entityId, final OutputStream outputStream) {
         return exportPdf(entityId, outputStream, new DefaultCsvExportCustomizer());
     }
@@ -33,7 +33,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param outputStream the output stream that will be used for writing the file
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(final String entityClassName, final OutputStream outputStream) {
         return exportPdf(entityClassName, outputStream, new DefaultCsvExportCustomizer());
     }
@@ -45,7 +45,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(final long entityId, OutputStream outputStream, final CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityId);
         try (PdfTableWriter tableWriter = new PdfTableWriter(outputStream)) {
@@ -60,7 +60,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(final String entityClassName, OutputStream outputStream, final CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityClassName);
         try (PdfTableWriter tableWriter = new PdfTableWriter(outputStream)) {
@@ -78,7 +78,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param lookupFields the lookupFields used in the lookup
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(long entityId, OutputStream outputStream, String lookupName, QueryParams params,
                           List<String> headers, Map<String, Object> lookupFields) {
         return exportPdf(entityId, outputStream, lookupName, params, headers, lookupFields,
@@ -95,7 +95,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param lookupFields the lookupFields used in the lookup
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(String entityClassName, OutputStream outputStream, String lookupName, QueryParams params,
                           List<String> headers, Map<String, Object> lookupFields) {
         return exportPdf(entityClassName, outputStream, lookupName, params, headers, lookupFields,
@@ -113,7 +113,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(long entityId, OutputStream outputStream, String lookupName, QueryParams params,
                           List<String> headers, Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityId);
@@ -134,7 +134,7 @@ public class PdfCsvExporter extends AbstractMdsExporter {
      * @param exportCustomizer the customizer that will be used during export
      * @return number of exported instances
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public long exportPdf(String entityClassName, OutputStream outputStream, String lookupName, QueryParams params,
                           List<String> headers, Map<String, Object> lookupFields, CsvExportCustomizer exportCustomizer) {
         EntityInfo entityInfo = getEntity(entityClassName);
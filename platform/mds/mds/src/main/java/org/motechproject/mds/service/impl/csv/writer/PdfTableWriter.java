@@ -26,7 +26,8 @@ import java.util.Map;
 
 /**
  * An implementation of the table writer that writes the table data in PDF format.
- * Uses the iText PDF library underneath.
+ * Uses the iText PDF library underneath. Rows are buffered and written to the document in chunks, so that
+ * large tables can be written with constant memory. Column widths are calculated using the first chunk of rows.
  */
 public class PdfTableWriter implements TableWriter {
 
@@ -34,13 +35,18 @@ public class PdfTableWriter implements TableWriter {
     private static final float MARGIN = 36f;
     private static final float PAGE_HEIGHT = PageSize.A4.getWidth() - 2 * MARGIN;
     private static final float PAGE_WIDTH = PageSize.A4.getHeight() - 2 * MARGIN;
+    private static final int ROWS_PER_CHUNK = 1000;
 
     private final PdfWriter pdfWriter;
     private final Document pdfDocument;
     private final PdfContentByte pdfCanvas;
     private PdfPTable dataTable;
+    private String[] headers;
     private Map<String, Float> columnsWidths;
+    private float[] relativeWidths;
+    private List<Integer> lastColumnsForPages;
     private int rows = 0;
+    private int bufferedRows = 0;
     private float tableContentOffset;
 
     public PdfTableWriter(OutputStream outputStream) {
@@ -66,13 +72,37 @@ public class PdfTableWriter implements TableWriter {
         for (String header : headers) {
             writeCell(header, row.get(header));
         }
+
+        if (++bufferedRows >= ROWS_PER_CHUNK) {
+            flushTable();
+        }
     }
 
     @Override
     public void writeHeader(String[] headers) throws IOException {
+        this.headers = headers;
+        columnsWidths = new LinkedHashMap<>();
 
+        startTable();
+    }
+
+    @Override
+    public void close() {
+        try {
+            // the header is always written, even if there are no rows
+            if (bufferedRows > 0 || relativeWidths == null) {
+                flushTable();
+            }
+
+            pdfDocument.close();
+        } finally {
+            pdfWriter.close();
+        }
+    }
+
+    private void startTable() {
         dataTable = new PdfPTable(headers.length + 1);
-        columnsWidths = new LinkedHashMap<>();
+        bufferedRows = 0;
 
         writeHeaderCell(ROW_NUMBER_HEADER);
 
@@ -81,27 +111,28 @@ public class PdfTableWriter implements TableWriter {
         }
     }
 
-    @Override
-    public void close() {
+    private void flushTable() {
         try {
-            float[] relativeWidths = getRelativeWidths();
+            // widths are calculated once, so that all chunks of the table look the same
+            if (relativeWidths == null) {
+                relativeWidths = getRelativeWidths();
 
-            List<Integer> lastColumnsForPages = calculateLastColumnsForPages(relativeWidths);
-            resizeColumns(relativeWidths, lastColumnsForPages);
-            setTableContentOffset(relativeWidths[0]);
+                lastColumnsForPages = calculateLastColumnsForPages(relativeWidths);
+                resizeColumns(relativeWidths, lastColumnsForPages);
+                setTableContentOffset(relativeWidths[0]);
+            }
 
             dataTable.setWidths(relativeWidths);
             dataTable.setLockedWidth(true);
             dataTable.setTotalWidth(calculateTotalTableWidth(relativeWidths));
 
             writeTable(lastColumnsForPages);
-
-            pdfDocument.close();
         } catch (DocumentException e) {
             throw new DataExportException("Unable to add a table to the PDF file", e);
-        } finally {
-            pdfWriter.close();
         }
+
+        // the written rows are no longer needed, we start a new table for the next chunk
+        startTable();
     }
 
     private void writeTable(List<Integer> lastColumnsForPages) {
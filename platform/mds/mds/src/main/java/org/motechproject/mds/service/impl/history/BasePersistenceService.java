@@ -1,6 +1,8 @@
 package org.motechproject.mds.service.impl.history;
 
 import org.datanucleus.enhancer.Persistable;
+import org.motechproject.mds.domain.EntityType;
+import org.motechproject.mds.service.HistoryTrashClassHelper;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.mds.service.ServiceUtil;
 import org.motechproject.mds.util.Constants;
@@ -28,6 +30,7 @@ public abstract class BasePersistenceService {
     private ApplicationContext appContext;
 
     private final RelationshipConverter relConverter = new RelationshipConverter();
+    private final RecordClassRegistry classRegistry = new RecordClassRegistry();
 
     protected Long getInstanceId(Object instance) {
         Object value = PropertyUtil.safeGetProperty(instance, Constants.Util.ID_FIELD_NAME);
@@ -52,13 +55,20 @@ public abstract class BasePersistenceService {
             }
         }
 
-        PropertyUtil.copyProperties(recordInstance, instance, relConverter);
-        // the regular copy ignores auto generated fields, we want to copy a subset of them
-        PropertyUtil.copyProperties(recordInstance, instance, relConverter, Constants.Util.RECORD_FIELDS_TO_COPY);
+        classRegistry.getCopyPlan(instance.getClass(), recordInstance.getClass())
+                .copy(recordInstance, instance, relConverter);
 
         return recordInstance;
     }
 
+    protected Class<?> getRecordClass(Object instance, EntityType type) {
+        return getRecordClass(HistoryTrashClassHelper.getInstanceClassName(instance), type);
+    }
+
+    protected Class<?> getRecordClass(String className, EntityType type) {
+        return classRegistry.getClass(className, type, bundleContext);
+    }
+
     protected Collection<Long> convertToIdsCollection(Collection collection) {
         Collection<Long> idColl = TypeHelper.suggestAndCreateCollectionImplementation(collection.getClass());
 
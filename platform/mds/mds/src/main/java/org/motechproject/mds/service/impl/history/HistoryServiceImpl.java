@@ -6,11 +6,13 @@ import org.motechproject.mds.query.Property;
 import org.motechproject.mds.query.PropertyBuilder;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.query.QueryUtil;
+import org.motechproject.mds.service.CountService;
 import org.motechproject.mds.service.HistoryService;
 import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.PropertyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -20,6 +22,8 @@ import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
 
 import static org.motechproject.mds.util.Constants.Util.ID_FIELD_NAME;
 
@@ -32,28 +36,25 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
     private ThreadLocal<RecordRepository> recordRepositoryTL = new ThreadLocal<>();
     private ThreadLocal<Boolean> txSyncRegisteredTL = new ThreadLocal<>();
 
+    private CountService countService;
+
     @Override
     @Transactional
     public void record(Object instance) {
-        // the history service will want to be notified once the TX completes
-        // it will then clear its record repository cache
+        // the history service will want to be notified once the TX is about to commit
+        // it will then create the historical records and clear its record repository cache
         registerPreCommitTxSync();
 
-        Class<?> historyClass = HistoryTrashClassHelper.getClass(instance, EntityType.HISTORY, getBundleContext());
+        Class<?> historyClass = getRecordClass(instance, EntityType.HISTORY);
 
         if (null != historyClass) {
             LOGGER.debug("Recording history for: {}", instance);
 
             if (shouldRecordHistory(historyClass, instance)) {
-                Long instanceId = getInstanceId(instance);
-                // we can use an existing record if it was stored in this TX
-                Object existingRecord = getRecordRepository().get(historyClass.getName(), instanceId);
-
-                Object historyRecord = createRecord(historyClass, instance, existingRecord);
+                // the record will be created before commit, using the state of the instance at that time
+                getRecordRepository().add(historyClass, getInstanceId(instance), instance);
 
-                getRecordRepository().store(instanceId, historyRecord);
-
-                LOGGER.debug("Recorded history for: {}", instance);
+                LOGGER.debug("History for: {} will be recorded before commit", instance);
             } else {
                 LOGGER.debug("No changes for: {}, skipping", instance);
             }
@@ -63,7 +64,7 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
     @Override
     @Transactional
     public List getHistoryForInstance(Object instance, QueryParams queryParams) {
-        Class<?> historyClass = HistoryTrashClassHelper.getClass(instance, EntityType.HISTORY, getBundleContext());
+        Class<?> historyClass = getRecordClass(instance, EntityType.HISTORY);
         List list = new ArrayList();
 
         if (null != historyClass) {
@@ -81,21 +82,30 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public long countHistoryRecords(Object instance) {
-        Class<?> historyClass = HistoryTrashClassHelper.getClass(instance, EntityType.HISTORY, getBundleContext());
-        Long objId = getInstanceId(instance);
+        final Class<?> historyClass = getRecordClass(instance, EntityType.HISTORY);
+        final Long objId = getInstanceId(instance);
 
-        Query query = initQuery(historyClass);
-        QueryUtil.setCountResult(query);
+        LongSupplier counter = new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                Query query = initQuery(historyClass);
+                QueryUtil.setCountResult(query);
+
+                return (long) query.execute(objId) - 1;
+            }
+        };
 
-        return (long) query.execute(objId) - 1;
+        return null == countService
+                ? counter.getAsLong()
+                : countService.getCount(historyClass.getName(), String.valueOf(objId), counter);
     }
 
     @Override
     @Transactional
     public Object getSingleHistoryInstance(Object instance, Long historyId) {
-        Class<?> historyClass = HistoryTrashClassHelper.getClass(instance, EntityType.HISTORY, getBundleContext());
+        Class<?> historyClass = getRecordClass(instance, EntityType.HISTORY);
         Object obj = null;
 
         if (null != historyClass) {
@@ -120,9 +130,13 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
         if (JDOHelper.isNew(instance)) {
             // always record for new instances, no need for db query
             return true;
-        } else if (getRecordRepository().contains(historyClass.getName(), instanceId)) {
-            // if it was already recorded in this tx, then we want to update it
+        } else if (getRecordRepository().contains(historyClass, instanceId)) {
+            // if it was already marked in this tx, then the record will be created anyway
             return true;
+        } else if (JDOHelper.isPersistent(instance)) {
+            // the state manager knows whether the instance was changed in this tx,
+            // instances stored only because of cascading are not dirty
+            return JDOHelper.isDirty(instance);
         } else {
             // check if there are any changes, this will prevent double history in case of cascading etc.
             Object latestHistoryRev = getLatestRevision(historyClass, instanceId);
@@ -137,27 +151,60 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
         }
     }
 
-    private <T> Object createRecord(Class<T> historyClass, Object instance, Object existingRecord) {
-        Object currentHistoryInstance = create(historyClass, instance, existingRecord);
+    private void persistRecords() {
+        RecordRepository repository = getRecordRepository();
+        if (repository.isEmpty()) {
+            return;
+        }
+
+        List<Object> records = new ArrayList<>();
+        for (Map.Entry<Class<?>, Map<Long, Object>> entry : repository.getInstances().entrySet()) {
+            Long schemaVersion = null;
+
+            for (Object instance : entry.getValue().values()) {
+                if (JDOHelper.isDeleted(instance)) {
+                    // the instance was deleted later in this tx
+                    continue;
+                }
+                if (schemaVersion == null) {
+                    schemaVersion = getCurrentSchemaVersion(instance.getClass().getName());
+                }
+
+                records.add(createRecord(entry.getKey(), instance, schemaVersion));
+            }
+        }
 
-        setHistoryProperties(currentHistoryInstance, instance);
+        LOGGER.debug("Persisting {} history records", records.size());
 
         PersistenceManager manager = getPersistenceManagerFactory().getPersistenceManager();
+        manager.makePersistentAll(records);
+
+        if (null != countService) {
+            for (Class<?> historyClass : repository.getInstances().keySet()) {
+                countService.invalidate(historyClass.getName());
+            }
+        }
+
+        repository.clear();
+    }
+
+    private <T> Object createRecord(Class<T> historyClass, Object instance, Long schemaVersion) {
+        Object currentHistoryInstance = create(historyClass, instance, null);
+
+        setHistoryProperties(currentHistoryInstance, instance, schemaVersion);
 
         LOGGER.debug("Create a new history entry for {}", instance.getClass().getName());
-        manager.makePersistent(currentHistoryInstance);
 
         return currentHistoryInstance;
     }
 
-    private void setHistoryProperties(Object newHistoryObj, Object realCurrentObj) {
+    private void setHistoryProperties(Object newHistoryObj, Object realCurrentObj, Long schemaVersion) {
         // creates connection between instance object and history object
         Long id = getInstanceId(realCurrentObj);
         PropertyUtil.safeSetProperty(newHistoryObj,
                 HistoryTrashClassHelper.currentVersion(newHistoryObj.getClass()), id);
 
         // add current entity schema version
-        Long schemaVersion = getCurrentSchemaVersion(realCurrentObj.getClass().getName());
         PropertyUtil.safeSetProperty(newHistoryObj,
                 HistoryTrashClassHelper.historySchemaVersion(newHistoryObj.getClass()), schemaVersion);
     }
@@ -171,6 +218,11 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
     }
 
 
+    @Autowired(required = false)
+    public void setCountService(CountService countService) {
+        this.countService = countService;
+    }
+
     private Query initQuery(Class<?> historyClass) {
         List<Property> properties = new ArrayList<>(3);
 
@@ -203,10 +255,15 @@ public class HistoryServiceImpl extends BasePersistenceService implements Histor
     }
 
     /**
-     * This TX sync does history related cleanup once a TX completes.
-     * It clears the repository of the records we have stored in this TX.
+     * This TX sync persists the historical records for instances stored in this TX, right before it commits.
+     * Once the TX completes, it clears the repository of the instances we have stored in this TX.
      */
     private class HistoryPersistSynchronization extends TransactionSynchronizationAdapter {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            persistRecords();
+        }
+
         @Override
         public void afterCompletion(int status) {
             getRecordRepository().clear();
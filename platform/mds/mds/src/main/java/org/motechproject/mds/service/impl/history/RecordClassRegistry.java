@@ -0,0 +1,54 @@
+package org.motechproject.mds.service.impl.history;
+
+import org.motechproject.mds.domain.EntityType;
+import org.motechproject.mds.service.HistoryTrashClassHelper;
+import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.PropertyUtil;
+import org.osgi.framework.BundleContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class keeps the history and trash classes of entities, so that they are loaded from the entities bundle only
+ * once, together with the plans for copying entity instances to their history and trash records. The registry
+ * belongs to a service living in the context of the entities bundle, so regenerating the bundle replaces the whole
+ * registry at once and classes from the previous bundle are never returned.
+ */
+class RecordClassRegistry {
+
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<Class<?>>, PropertyUtil.CopyPlan> copyPlans = new ConcurrentHashMap<>();
+
+    Class<?> getClass(String srcClassName, EntityType type, BundleContext bundleContext) {
+        String key = type + ":" + srcClassName;
+        Class<?> clazz = classes.get(key);
+
+        if (null == clazz) {
+            clazz = HistoryTrashClassHelper.getClass(srcClassName, type, bundleContext);
+
+            // classes that could not be found are looked up again next time
+            if (null != clazz) {
+                classes.put(key, clazz);
+            }
+        }
+
+        return clazz;
+    }
+
+    PropertyUtil.CopyPlan getCopyPlan(Class<?> objectClass, Class<?> recordClass) {
+        List<Class<?>> key = Arrays.asList(objectClass, recordClass);
+        PropertyUtil.CopyPlan plan = copyPlans.get(key);
+
+        if (null == plan) {
+            // the regular copy ignores auto generated fields, we want to copy a subset of them
+            plan = PropertyUtil.getCopyPlan(objectClass, recordClass, null)
+                    .then(PropertyUtil.getCopyPlan(objectClass, recordClass, Constants.Util.RECORD_FIELDS_TO_COPY));
+            copyPlans.put(key, plan);
+        }
+
+        return plan;
+    }
+}
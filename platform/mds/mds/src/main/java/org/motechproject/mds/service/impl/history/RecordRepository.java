@@ -1,43 +1,48 @@
 package org.motechproject.mds.service.impl.history;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * This class is responsible for storing records persisted in history during a single TX.
- * The purpose is updating records in case one record gets multiple store events, which may
- * happen in case of relationship trees.
+ * This class is responsible for storing instances for which history should be recorded during a single TX.
+ * The historical records are created from these instances right before the TX commits. This way an instance
+ * which gets multiple store events, which may happen in case of relationship trees, gets only one historical
+ * record for the TX.
  */
 class RecordRepository {
 
     // key in the first map is the history class
     // key in the second map is the id of the actual object
-    // the value is the historical record
-    private Map<String, Map<Long, Object>> recordMap = new HashMap<>();
+    // the value is the actual object
+    private Map<Class<?>, Map<Long, Object>> instanceMap = new LinkedHashMap<>();
 
-    void store(Long id, Object object) {
-        String className = object.getClass().getName();
-        getMapForEntityClass(className).put(id, object);
+    void add(Class<?> historyClass, Long id, Object instance) {
+        getMapForHistoryClass(historyClass).put(id, instance);
     }
 
-    Object get(String className, Long id) {
-        return getMapForEntityClass(className).get(id);
+    boolean contains(Class<?> historyClass, Long id) {
+        Map<Long, Object> mapForHistoryClass = instanceMap.get(historyClass);
+        return mapForHistoryClass != null && mapForHistoryClass.containsKey(id);
     }
 
-    boolean contains(String className, Long id) {
-        return getMapForEntityClass(className).containsKey(id);
+    Map<Class<?>, Map<Long, Object>> getInstances() {
+        return instanceMap;
+    }
+
+    boolean isEmpty() {
+        return instanceMap.isEmpty();
     }
 
     void clear() {
-        recordMap.clear();
+        instanceMap.clear();
     }
 
-    private Map<Long, Object> getMapForEntityClass(String className) {
-        Map<Long, Object> mapForEntity = recordMap.get(className);
-        if (mapForEntity == null) {
-            mapForEntity = new HashMap<>();
-            recordMap.put(className, mapForEntity);
+    private Map<Long, Object> getMapForHistoryClass(Class<?> historyClass) {
+        Map<Long, Object> mapForHistoryClass = instanceMap.get(historyClass);
+        if (mapForHistoryClass == null) {
+            mapForHistoryClass = new LinkedHashMap<>();
+            instanceMap.put(historyClass, mapForHistoryClass);
         }
-        return mapForEntity;
+        return mapForHistoryClass;
     }
 }
@@ -1,6 +1,8 @@
 package org.motechproject.mds.service.impl.history;
 
 import org.apache.commons.beanutils.MethodUtils;
+import org.joda.time.DateTime;
+import org.motechproject.commons.date.util.DateUtil;
 import org.motechproject.mds.config.DeleteMode;
 import org.motechproject.mds.config.SettingsService;
 import org.motechproject.mds.domain.EntityType;
@@ -12,16 +14,22 @@ import org.motechproject.mds.service.HistoryTrashClassHelper;
 import org.motechproject.mds.service.MdsSchedulerService;
 import org.motechproject.mds.service.TrashService;
 import org.motechproject.mds.util.Constants;
+import org.motechproject.mds.util.PropertyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jdo.JdoTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -30,8 +38,11 @@ import java.util.List;
 public class TrashServiceImpl extends BasePersistenceService implements TrashService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TrashServiceImpl.class);
 
+    private static final int EMPTY_TRASH_CHUNK_SIZE = 500;
+
     private MdsSchedulerService mdsSchedulerService;
     private SettingsService settingsService;
+    private JdoTransactionManager transactionManager;
 
     @Override
     public boolean isTrashMode() {
@@ -41,8 +52,7 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
     @Override
     @Transactional
     public void moveToTrash(Object instance, Long entityVersion) {
-        Class<?> trashClass = HistoryTrashClassHelper.getClass(instance, EntityType.TRASH,
-                getBundleContext());
+        Class<?> trashClass = getRecordClass(instance, EntityType.TRASH);
 
         if (null != trashClass) {
             LOGGER.debug("Moving {} to trash", instance);
@@ -60,6 +70,10 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
                 LOGGER.error("Failed to set schema version of the trash instance.");
             }
 
+            // the modification date is kept, the deletion date is used for emptying the trash
+            PropertyUtil.safeSetProperty(trash, HistoryTrashClassHelper.trashDeletionDate(trashClass),
+                    DateUtil.now().toDate());
+
             PersistenceManager manager = getPersistenceManagerFactory().getPersistenceManager();
 
             manager.makePersistent(trash);
@@ -73,8 +87,7 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
     @Override
     @Transactional
     public Object findTrashById(Long trashId, String entityClassName) {
-        Class<?> trashClass =  HistoryTrashClassHelper.getClass(entityClassName, EntityType.TRASH,
-                getBundleContext());
+        Class<?> trashClass = getRecordClass(entityClassName, EntityType.TRASH);
 
         List<Property> properties = new ArrayList<>();
         properties.add(PropertyBuilder.create("id", trashId, Long.class));
@@ -97,8 +110,7 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
     @Override
     @Transactional
     public Collection getInstancesFromTrash(String className, QueryParams queryParams) {
-        Class<?> trashClass =  HistoryTrashClassHelper.getClass(className, EntityType.TRASH,
-                getBundleContext());
+        Class<?> trashClass = getRecordClass(className, EntityType.TRASH);
 
         Long schemaVersion = getCurrentSchemaVersion(className);
 
@@ -117,8 +129,7 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
     @Override
     @Transactional
     public long countTrashRecords(String className) {
-        Class<?> trashClass =  HistoryTrashClassHelper.getClass(className, EntityType.TRASH,
-                getBundleContext());
+        Class<?> trashClass = getRecordClass(className, EntityType.TRASH);
 
         Long schemaVersion = getCurrentSchemaVersion(className);
 
@@ -150,19 +161,87 @@ public class TrashServiceImpl extends BasePersistenceService implements TrashSer
     }
 
     @Override
-    @Transactional
     public void emptyTrash(Collection<String> entitiesClassNames) {
-        PersistenceManager manager = getPersistenceManagerFactory().getPersistenceManager();
+        // only instances that have been in the trash for longer than the configured time are removed
+        long retention = settingsService.getTimeValue() * settingsService.getTimeUnit().inMillis();
+        DateTime now = DateUtil.now();
+        Date deletedBefore = now.minus(retention).toDate();
 
         for (String className : entitiesClassNames) {
-            Class<?> trashClass = HistoryTrashClassHelper.getClass(className, EntityType.TRASH,
-                    getBundleContext());
+            Class<?> trashClass = getRecordClass(className, EntityType.TRASH);
+
+            if (null != trashClass) {
+                // instances trashed before the deletion date was recorded are kept for the whole retention time
+                int markedInChunk;
+                do {
+                    markedInChunk = markDeletionDateChunk(trashClass, now.toDate());
+                } while (markedInChunk == EMPTY_TRASH_CHUNK_SIZE);
+
+                long removed = 0;
+                int removedInChunk;
+
+                // each chunk is removed in its own transaction, so that we never hold the whole trash
+                // in memory or keep a single transaction open for too long
+                do {
+                    removedInChunk = emptyTrashChunk(trashClass, deletedBefore);
+                    removed += removedInChunk;
+                } while (removedInChunk == EMPTY_TRASH_CHUNK_SIZE);
+
+                LOGGER.debug("Removed {} instances of {} from trash", removed, className);
+            }
+        }
+    }
 
-            Query query = manager.newQuery(trashClass);
-            Collection instances = (Collection) query.execute();
+    private int markDeletionDateChunk(final Class<?> trashClass, final Date deletionDate) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
 
-            manager.deletePersistentAll(instances);
-        }
+        return template.execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                PersistenceManager manager = getPersistenceManagerFactory().getPersistenceManager();
+                String deletionDateField = HistoryTrashClassHelper.trashDeletionDate(trashClass);
+
+                Query query = manager.newQuery(trashClass);
+                query.setFilter(deletionDateField + " == null");
+                query.setRange(0, EMPTY_TRASH_CHUNK_SIZE);
+
+                Collection instances = (Collection) query.execute();
+                for (Object instance : instances) {
+                    PropertyUtil.safeSetProperty(instance, deletionDateField, deletionDate);
+                }
+
+                return instances.size();
+            }
+        });
+    }
+
+    private int emptyTrashChunk(final Class<?> trashClass, final Date deletedBefore) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+
+        return template.execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                PersistenceManager manager = getPersistenceManagerFactory().getPersistenceManager();
+
+                Query query = manager.newQuery(trashClass);
+                query.setFilter(HistoryTrashClassHelper.trashDeletionDate(trashClass) + " < deletedBefore");
+                query.declareParameters(Date.class.getName() + " deletedBefore");
+                query.setRange(0, EMPTY_TRASH_CHUNK_SIZE);
+
+                Collection instances = (Collection) query.execute(deletedBefore);
+                int count = instances.size();
+
+                // dependent collections of the trash instances are removed together with them
+                manager.deletePersistentAll(instances);
+
+                return count;
+            }
+        });
+    }
+
+    @Autowired
+    public void setTransactionManager(JdoTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
     }
 
     @Autowired
@@ -0,0 +1,78 @@
+package org.motechproject.mds.util;
+
+/**
+ * A snapshot of the statistics of asynchronous data service operations executed for a single entity.
+ */
+public class AsyncStatistics {
+
+    private final long submitted;
+    private final long completed;
+    private final long failed;
+    private final long callerRuns;
+    private final long totalWaitTime;
+    private final long totalExecutionTime;
+
+    public AsyncStatistics(long submitted, long completed, long failed, long callerRuns, long totalWaitTime,
+                           long totalExecutionTime) {
+        this.submitted = submitted;
+        this.completed = completed;
+        this.failed = failed;
+        this.callerRuns = callerRuns;
+        this.totalWaitTime = totalWaitTime;
+        this.totalExecutionTime = totalExecutionTime;
+    }
+
+    /**
+     * @return the number of submitted operations
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return the number of operations that completed successfully
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the number of operations that completed with an exception
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of operations executed by the calling thread, because the queue was full
+     */
+    public long getCallerRuns() {
+        return callerRuns;
+    }
+
+    /**
+     * @return the average time in milliseconds the operations waited in the queue
+     */
+    public double getAverageWaitTime() {
+        return average(totalWaitTime);
+    }
+
+    /**
+     * @return the average execution time of the operations in milliseconds
+     */
+    public double getAverageExecutionTime() {
+        return average(totalExecutionTime);
+    }
+
+    private double average(long totalNanos) {
+        long finished = completed + failed;
+        return finished == 0 ? 0 : totalNanos / 1000000.0 / finished;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AsyncStatistics{submitted=%d, completed=%d, failed=%d, callerRuns=%d, " +
+                "averageWaitTime=%.2f, averageExecutionTime=%.2f}", submitted, completed, failed, callerRuns,
+                getAverageWaitTime(), getAverageExecutionTime());
+    }
+}
@@ -174,6 +174,12 @@ public final class Constants {
          */
         public static final String MODULE_FILE = "motech-mds.properties";
 
+        /**
+         * Constant <code>BUNDLE_SCAN_CACHE_FILE</code> presents the name of the file, placed in the MOTECH
+         * directory, in which results of the bundle annotation scans are remembered between restarts.
+         */
+        public static final String BUNDLE_SCAN_CACHE_FILE = "mds-bundle-scan.properties";
+
         /**
          * Constant <code>MDS_DELETE_MODE</code> presents what should happen with objects when
          * there are deleted. They can be deleted permanently or moved to the trash.The following
@@ -231,6 +237,73 @@ public final class Constants {
          */
         public static final String MDS_RESTART_BUNDLE_AFTER_TIMEOUT = "mds.restartBundle.afterTimeout";
 
+        /**
+         * The property that specifies for how many seconds the exact instance counts are cached. Cached counts
+         * are also invalidated when instances of the entity are created, updated or deleted. Zero disables the cache.
+         */
+        public static final String MDS_COUNT_CACHE_TIME = "mds.count.cacheTime";
+
+        /**
+         * The property that specifies the number of instances above which unfiltered counts shown in the grid and
+         * returned over REST are estimated from database statistics. A negative value disables estimating.
+         */
+        public static final String MDS_APPROXIMATE_COUNT_THRESHOLD = "mds.count.approximateThreshold";
+
+        /**
+         * The property that specifies the number of threads executing the asynchronous data service operations.
+         */
+        public static final String MDS_ASYNC_POOL_SIZE = "mds.async.poolSize";
+
+        /**
+         * The property that specifies how many asynchronous data service operations can wait for a thread. Once
+         * the queue is full, operations are executed by the calling thread.
+         */
+        public static final String MDS_ASYNC_QUEUE_SIZE = "mds.async.queueSize";
+
+        /**
+         * The property that specifies whether a CRUD event is sent for every created, updated or deleted instance.
+         * Batch events, listing the ids of all instances affected by a transaction, are sent regardless.
+         */
+        public static final String MDS_CRUD_EVENTS_PER_INSTANCE = "mds.crudEvents.perInstance";
+
+        /**
+         * The property that specifies the maximum number of instance ids carried by a single batch CRUD event.
+         */
+        public static final String MDS_CRUD_EVENTS_BATCH_SIZE = "mds.crudEvents.batchSize";
+
+        /**
+         * The property of the DataNucleus data configuration that contains a comma separated list of JDBC
+         * URLs of the read replicas of the data database. Read-only transactions are sent to the replicas.
+         *
+         * @see #MDS_REPLICA_STALENESS_WINDOW
+         * @see #MDS_REPLICA_RETRY_INTERVAL
+         * @see #MDS_REPLICA_MAX_LAG
+         */
+        public static final String MDS_REPLICA_URLS = "mds.replica.urls";
+
+        /**
+         * The property that specifies the time in milliseconds after a write, during which reads of the same
+         * user are sent to the primary database instead of the replicas, so that users see their own changes.
+         */
+        public static final String MDS_REPLICA_STALENESS_WINDOW = "mds.replica.stalenessWindow";
+
+        /**
+         * The property that specifies the time in milliseconds after which a replica that failed is tried again.
+         */
+        public static final String MDS_REPLICA_RETRY_INTERVAL = "mds.replica.retryInterval";
+
+        /**
+         * The property that specifies the replication lag in milliseconds above which a replica is not used.
+         * Defaults to the staleness window, so that users still see their own changes once it passes.
+         */
+        public static final String MDS_REPLICA_MAX_LAG = "mds.replica.maxLag";
+
+        /**
+         * The property that specifies the time in milliseconds between two checks of the replication lag
+         * of the same replica.
+         */
+        public static final String MDS_REPLICA_LAG_CHECK_INTERVAL = "mds.replica.lagCheckInterval";
+
         /**
          * Constant <code>EMPTY_TRASH_JOB</code> presents a name of job scheduled by scheduler
          * module.
@@ -444,6 +517,7 @@ public final class Constants {
         public static final String MODIFICATION_DATE_DISPLAY_FIELD_NAME = "Modification Date";
         public static final String SCHEMA_VERSION_FIELD_NAME = "schemaVersion";
         public static final String CURRENT_VERSION = "CurrentVersion";
+        public static final String DELETION_DATE = "DeletionDate";
         public static final String DATANUCLEUS = "datanucleus";
         public static final String VALUE_GENERATOR = "object-value-generator";
         public static final String AUTO_GENERATED = "autoGenerated";
@@ -509,6 +583,8 @@ public final class Constants {
 
         public static final String VERSION_FIELD = "version.field";
 
+        public static final String FETCH_GROUPS = "fetchGroups";
+
         private MetadataKeys() {
         }
     }
@@ -568,6 +644,8 @@ public final class Constants {
         public static final String NAMESPACE = "namespace";
         public static final String ENTITY_CLASS = "entity_class";
         public static final String OBJECT_ID = "object_id";
+        public static final String OBJECT_IDS = "object_ids";
+        public static final String ACTION = "action";
 
         private static final String CSV_IMPORT_PREFIX = "csv-import.";
         public static final String CSV_IMPORT_CREATED_IDS = CSV_IMPORT_PREFIX + "created_ids";
@@ -581,6 +659,7 @@ public final class Constants {
 
         // subject
         public static final String BASE_SUBJECT = "mds.crud.";
+        public static final String BATCH_PREFIX = "batch.";
         public static final String CSV_IMPORT_SUCCESS = "csv-import.success";
         public static final String CSV_IMPORT_FAILURE = "csv-import.failure";
     }
@@ -609,6 +688,26 @@ public final class Constants {
         public static final int INFINITE = -1;
     }
 
+    /**
+     * Constants corresponding to the fetch groups defined for entities.
+     */
+    public static final class FetchGroups {
+
+        /**
+         * The default fetch group of an entity.
+         */
+        public static final String DEFAULT = "default";
+
+        /**
+         * The fetch group containing all relationship fields of an entity. Adding it to the fetch plan of
+         * a query loads the related instances together with the query results, instead of one by one.
+         */
+        public static final String RELATIONSHIPS = "mds.relationships";
+
+        private FetchGroups() {
+        }
+    }
+
     /**
      *  Constants corresponding to the entities migrations.
      */
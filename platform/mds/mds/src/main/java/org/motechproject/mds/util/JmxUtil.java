@@ -0,0 +1,68 @@
+package org.motechproject.mds.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This is a helper class, used to expose MDS statistics through the platform MBean server.
+ */
+public final class JmxUtil {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxUtil.class);
+
+    private static final String DOMAIN = "org.motechproject.mds";
+
+    /**
+     * Registers the given MBean under the MDS domain. An MBean registered earlier under the same name, for example
+     * before the bundle was restarted, is replaced. Failures are only logged, since the statistics are optional.
+     *
+     * @param mbean the MBean to register
+     * @param type the type of the MBean, used in its object name
+     * @param name the name of the MBean, used in its object name
+     */
+    public static void register(Object mbean, String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+
+            server.registerMBean(mbean, objectName);
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Unable to register the {} MBean {}", type, name, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean with the given type and name, if it is registered.
+     *
+     * @param type the type of the MBean
+     * @param name the name of the MBean
+     */
+    public static void unregister(String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Unable to unregister the {} MBean {}", type, name, e);
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    private JmxUtil() {
+    }
+}
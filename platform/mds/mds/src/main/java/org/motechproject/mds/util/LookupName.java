@@ -41,6 +41,16 @@ public final class LookupName {
         return "count" + StringUtils.capitalize(lookupMethod(lookupNameOrMethodName));
     }
 
+    /**
+     * Builds iterate lookup name. The resulting method name will be in form: <code>iterateXxxYyyZzz</code>.
+     *
+     * @param lookupNameOrMethodName name of the lookup or lookup method name
+     * @return iterate lookup method name
+     */
+    public static String lookupIterateMethod(String lookupNameOrMethodName) {
+        return "iterate" + StringUtils.capitalize(lookupMethod(lookupNameOrMethodName));
+    }
+
     /**
      * Builds lookup field name which may contain information about the searching by relationship.
      *
@@ -15,8 +15,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -118,13 +120,28 @@ public final class PropertyUtil extends PropertyUtils {
 
     public static void copyProperties(Object target, Object object, ValueConverter converter,
                                       Set<String> fieldsToUpdate) {
+        copyProperties(target, object, converter, fieldsToUpdate, null);
+    }
+
+    /**
+     * Copies the values of properties from one object to another.
+     *
+     * @param target the object values are copied to
+     * @param object the object values are copied from
+     * @param converter the converter applied to the copied values, or null to copy them as they are
+     * @param fieldsToUpdate the names of fields to copy, or null to copy all fields except the generated ones
+     * @param fieldsToSkip the names of fields which are never copied, or null
+     */
+    public static void copyProperties(Object target, Object object, ValueConverter converter,
+                                      Set<String> fieldsToUpdate, Set<String> fieldsToSkip) {
         ValueConverter converterToUse = converter == null ? NO_OP_CONVERTER : converter;
 
         Class objectClass = object.getClass();
 
         for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(objectClass)) {
 
-            if (shouldSkipField(descriptor, objectClass, fieldsToUpdate)) {
+            if (shouldSkipField(descriptor, objectClass, fieldsToUpdate)
+                    || (fieldsToSkip != null && fieldsToSkip.contains(descriptor.getName()))) {
                 continue;
             }
 
@@ -144,6 +161,38 @@ public final class PropertyUtil extends PropertyUtils {
         }
     }
 
+    /**
+     * Resolves the properties that {@link #copyProperties(Object, Object, ValueConverter, Set)} would copy from
+     * instances of the given class to instances of the target class. The returned plan can copy values many times
+     * without looking up the property descriptors of both classes again.
+     *
+     * @param objectClass the class of the instances values are copied from
+     * @param targetClass the class of the instances values are copied to
+     * @param fieldsToUpdate the names of fields to copy, or null to copy all fields except the generated ones
+     * @return the plan for copying values between the given classes
+     */
+    public static CopyPlan getCopyPlan(Class<?> objectClass, Class<?> targetClass, Set<String> fieldsToUpdate) {
+        Map<String, PropertyDescriptor> targetDescriptors = new HashMap<>();
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(targetClass)) {
+            targetDescriptors.put(descriptor.getName(), descriptor);
+        }
+
+        List<PropertyDescriptor> sources = new ArrayList<>();
+        List<PropertyDescriptor> targets = new ArrayList<>();
+
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(objectClass)) {
+            PropertyDescriptor targetDescriptor = targetDescriptors.get(descriptor.getName());
+
+            // skip if this field is not present in the target
+            if (targetDescriptor != null && !shouldSkipField(descriptor, objectClass, fieldsToUpdate)) {
+                sources.add(descriptor);
+                targets.add(targetDescriptor);
+            }
+        }
+
+        return new CopyPlan(objectClass, sources, targets);
+    }
+
     public static List<String> findChangedFields(Object newInstance, Object oldInstance) {
         return findChangedFields(newInstance, oldInstance, null);
     }
@@ -266,6 +315,59 @@ public final class PropertyUtil extends PropertyUtils {
         return field == null || !field.isAccessible();
     }
 
+    /**
+     * The properties to copy between instances of two classes, resolved once using
+     * {@link #getCopyPlan(Class, Class, Set)}.
+     */
+    public static final class CopyPlan {
+
+        private final Class<?> objectClass;
+        private final List<PropertyDescriptor> sources;
+        private final List<PropertyDescriptor> targets;
+
+        private CopyPlan(Class<?> objectClass, List<PropertyDescriptor> sources, List<PropertyDescriptor> targets) {
+            this.objectClass = objectClass;
+            this.sources = sources;
+            this.targets = targets;
+        }
+
+        /**
+         * Returns a plan copying the properties of this plan first, followed by the properties of the given plan.
+         *
+         * @param other the plan to append
+         * @return the combined plan
+         */
+        public CopyPlan then(CopyPlan other) {
+            List<PropertyDescriptor> combinedSources = new ArrayList<>(sources);
+            combinedSources.addAll(other.sources);
+
+            List<PropertyDescriptor> combinedTargets = new ArrayList<>(targets);
+            combinedTargets.addAll(other.targets);
+
+            return new CopyPlan(objectClass, combinedSources, combinedTargets);
+        }
+
+        /**
+         * Copies the values of the planned properties from the given object to the target.
+         *
+         * @param target the instance values are copied to
+         * @param object the instance values are copied from
+         * @param converter the converter applied to the values, can be null
+         */
+        public void copy(Object target, Object object, ValueConverter converter) {
+            ValueConverter converterToUse = converter == null ? NO_OP_CONVERTER : converter;
+
+            for (int i = 0; i < sources.size(); ++i) {
+                try {
+                    Object val = readValue(object, sources.get(i), converterToUse);
+                    writeValue(target, val, targets.get(i));
+                } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+                    throw new PropertyCopyException("Unable to copy properties for " + objectClass.getName(), e);
+                }
+            }
+        }
+    }
+
     public interface ValueConverter {
         Object convert(Object value, PropertyDescriptor descriptor);
     }
@@ -0,0 +1,120 @@
+package org.motechproject.mds.util;
+
+import org.datanucleus.api.jdo.JDOPersistenceManager;
+import org.datanucleus.management.ManagerStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jdo.PersistenceManagerFactoryUtils;
+import org.springframework.orm.jdo.TransactionAwarePersistenceManagerFactoryProxy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+
+/**
+ * The <code>StatementCounter</code> is a diagnostics helper, which counts the statements executed against the
+ * database during every transaction of an MDS data service. Since every data service call runs in its own
+ * transaction (unless it joins an existing one), this is the number of statements executed by the call, which
+ * makes it easy to catch N+1 loads of related instances in tests. The counter is enabled by setting
+ * the {@value #ENABLED_PROPERTY} system property to true before MDS starts, which also turns on the DataNucleus
+ * statistics the counts are taken from.
+ */
+public final class StatementCounter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCounter.class);
+
+    public static final String ENABLED_PROPERTY = "mds.diagnostics.countStatements";
+
+    private static final ThreadLocal<Long> LAST_COUNT = new ThreadLocal<>();
+
+    /**
+     * @return true if the statements should be counted, false otherwise
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Starts counting the statements executed in the current transaction, if the counter is enabled and it
+     * was not started for this transaction yet. The count is logged and remembered once the transaction completes.
+     *
+     * @param persistenceManagerFactory the factory of the persistence manager bound to the transaction
+     * @param name the name that will be used in the log message, usually the name of the entity class
+     */
+    public static void track(PersistenceManagerFactory persistenceManagerFactory, final String name) {
+        if (!isEnabled() || null == persistenceManagerFactory
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(StatementCounter.class)) {
+            return;
+        }
+
+        final ManagerStatistics statistics = getStatistics(persistenceManagerFactory);
+
+        if (null == statistics) {
+            return;
+        }
+
+        final long start = count(statistics);
+
+        TransactionSynchronizationManager.bindResource(StatementCounter.class, statistics);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(StatementCounter.class);
+
+                long executed = count(statistics) - start;
+                LAST_COUNT.set(executed);
+
+                LOGGER.info("MDS call on {} executed {} statements", name, executed);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of statements executed by the last transaction completed in the current thread.
+     *
+     * @return the number of statements, or null if nothing was counted
+     */
+    public static Long getLastCount() {
+        return LAST_COUNT.get();
+    }
+
+    /**
+     * Forgets the count remembered for the current thread.
+     */
+    public static void reset() {
+        LAST_COUNT.remove();
+    }
+
+    private static ManagerStatistics getStatistics(PersistenceManagerFactory persistenceManagerFactory) {
+        PersistenceManagerFactory target = persistenceManagerFactory;
+
+        if (target instanceof TransactionAwarePersistenceManagerFactoryProxy) {
+            target = ((TransactionAwarePersistenceManagerFactoryProxy) target).getTargetPersistenceManagerFactory();
+        }
+
+        PersistenceManager pm;
+        try {
+            pm = PersistenceManagerFactoryUtils.getPersistenceManager(target, false);
+        } catch (IllegalStateException e) {
+            LOGGER.debug("No persistence manager bound to the transaction, statements will not be counted", e);
+            return null;
+        }
+
+        if (pm instanceof JDOPersistenceManager) {
+            return ((JDOPersistenceManager) pm).getExecutionContext().getStatistics();
+        } else {
+            LOGGER.debug("Unable to retrieve statistics from {}, statements will not be counted", pm);
+            return null;
+        }
+    }
+
+    private static long count(ManagerStatistics statistics) {
+        return statistics.getNumberOfDatastoreReads() + statistics.getNumberOfDatastoreWrites()
+                + statistics.getQueryExecutionTotalCount();
+    }
+
+    private StatementCounter() {
+    }
+}
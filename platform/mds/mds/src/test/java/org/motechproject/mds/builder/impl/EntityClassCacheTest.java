@@ -0,0 +1,117 @@
+package org.motechproject.mds.builder.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.domain.ClassData;
+import org.motechproject.mds.dto.EntityDto;
+import org.motechproject.mds.dto.FieldDto;
+import org.motechproject.mds.dto.SchemaHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntityClassCacheTest {
+
+    private static final String PARENT = "org.motechproject.test.Parent";
+    private static final String CHILD = "org.motechproject.test.Child";
+    private static final String OTHER = "org.motechproject.test.Other";
+
+    @Mock
+    private SchemaHolder schemaHolder;
+
+    private EntityClassCache cache = new EntityClassCache();
+
+    private EntityDto parent;
+    private EntityDto child;
+    private EntityDto other;
+    private List<EntityDto> entities;
+
+    @Before
+    public void setUp() {
+        parent = new EntityDto(1L, PARENT);
+        child = new EntityDto(2L, CHILD);
+        child.setSuperClass(PARENT);
+        other = new EntityDto(3L, OTHER);
+
+        entities = Arrays.asList(parent, child, other);
+
+        when(schemaHolder.getFields(any(EntityDto.class))).thenReturn(new ArrayList<FieldDto>());
+    }
+
+    @Test
+    public void shouldBuildAllEntitiesWhenNothingIsCached() {
+        Set<String> toBuild = cache.findEntitiesToBuild(entities, schemaHolder);
+
+        assertEquals(3, toBuild.size());
+    }
+
+    @Test
+    public void shouldReuseUnchangedEntities() {
+        putAll();
+
+        assertTrue(cache.findEntitiesToBuild(entities, schemaHolder).isEmpty());
+        assertArrayEquals(new byte[]{1}, cache.getEnhancedBytes(OTHER, OTHER));
+        assertEquals(OTHER, cache.getClassData(OTHER, OTHER).getClassName());
+    }
+
+    @Test
+    public void shouldRebuildChangedEntitiesTogetherWithConnectedOnes() {
+        putAll();
+
+        parent.setRecordHistory(!parent.isRecordHistory());
+
+        Set<String> toBuild = cache.findEntitiesToBuild(entities, schemaHolder);
+
+        assertEquals(2, toBuild.size());
+        assertTrue(toBuild.contains(PARENT));
+        assertTrue(toBuild.contains(CHILD));
+    }
+
+    @Test
+    public void shouldAlwaysRebuildDDEEntities() {
+        other.setModule("test-module");
+        putAll();
+
+        Set<String> toBuild = cache.findEntitiesToBuild(entities, schemaHolder);
+
+        assertEquals(1, toBuild.size());
+        assertTrue(toBuild.contains(OTHER));
+    }
+
+    @Test
+    public void shouldRemoveEntitiesThatNoLongerExist() {
+        putAll();
+
+        cache.retain(Arrays.asList(parent, child));
+
+        assertNull(cache.getEnhancedBytes(OTHER, OTHER));
+        assertArrayEquals(new byte[]{1}, cache.getEnhancedBytes(PARENT, PARENT));
+    }
+
+    private void putAll() {
+        for (EntityDto entity : entities) {
+            Map<String, ClassData> classData = new HashMap<>();
+            classData.put(entity.getClassName(), new ClassData(entity.getClassName(), new byte[]{0}));
+
+            Map<String, byte[]> enhancedBytes = new HashMap<>();
+            enhancedBytes.put(entity.getClassName(), new byte[]{1});
+
+            cache.put(entity, schemaHolder.getFields(entity), classData, enhancedBytes);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.motechproject.mds.dto.MetadataDto;
 import org.motechproject.mds.dto.SchemaHolder;
 import org.motechproject.mds.dto.TypeDto;
 import org.motechproject.mds.javassist.MotechClassPool;
+import org.motechproject.mds.util.Constants;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -41,6 +42,7 @@ import javax.jdo.annotations.PersistenceModifier;
 import javax.jdo.metadata.ClassMetadata;
 import javax.jdo.metadata.ClassPersistenceModifier;
 import javax.jdo.metadata.CollectionMetadata;
+import javax.jdo.metadata.FetchGroupMetadata;
 import javax.jdo.metadata.FieldMetadata;
 import javax.jdo.metadata.ForeignKeyMetadata;
 import javax.jdo.metadata.IndexMetadata;
@@ -66,6 +68,7 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.motechproject.mds.testutil.FieldTestHelper.fieldDto;
+import static org.motechproject.mds.util.Constants.MetadataKeys.FETCH_GROUPS;
 import static org.motechproject.mds.util.Constants.MetadataKeys.RELATED_CLASS;
 import static org.motechproject.mds.util.Constants.MetadataKeys.RELATED_FIELD;
 import static org.motechproject.mds.util.Constants.Util.CREATION_DATE_DISPLAY_FIELD_NAME;
@@ -125,6 +128,9 @@ public class EntityMetadataBuilderTest {
     @Mock
     private SchemaHolder schemaHolder;
 
+    @Mock
+    private FetchGroupMetadata fetchGroupMetadata;
+
     @Before
     public void setUp() {
         initMocks(this);
@@ -135,6 +141,7 @@ public class EntityMetadataBuilderTest {
         when(classMetadata.newInheritanceMetadata()).thenReturn(inheritanceMetadata);
         when(schemaHolder.getFieldByName(entity, "id")).thenReturn(idField);
         when(entity.isBaseEntity()).thenReturn(true);
+        when(classMetadata.newFetchGroupMetadata(anyString())).thenReturn(fetchGroupMetadata);
     }
 
     @Test
@@ -245,6 +252,34 @@ public class EntityMetadataBuilderTest {
         verify(collMd).setEmbeddedElement(false);
         verify(collMd).setSerializedElement(false);
         verify(collMd).setElementType("org.motechproject.test.MyClass");
+        verify(classMetadata).newFetchGroupMetadata(Constants.FetchGroups.RELATIONSHIPS);
+        verify(fetchGroupMetadata).newFieldMetadata("oneToManyName");
+    }
+
+    @Test
+    public void shouldAddFetchGroupsFromFieldMetadata() {
+        FieldDto field = fieldDto("name", String.class);
+        field.addMetadata(new MetadataDto(FETCH_GROUPS, "summary, details"));
+
+        FieldMetadata fmd = mock(FieldMetadata.class);
+        FetchGroupMetadata summary = mock(FetchGroupMetadata.class);
+        FetchGroupMetadata details = mock(FetchGroupMetadata.class);
+
+        when(entity.getName()).thenReturn(ENTITY_NAME);
+        when(schemaHolder.getFields(entity)).thenReturn(singletonList(field));
+        when(entity.getTableName()).thenReturn(TABLE_NAME);
+        when(jdoMetadata.newPackageMetadata(PACKAGE)).thenReturn(packageMetadata);
+        when(packageMetadata.newClassMetadata(ENTITY_NAME)).thenReturn(classMetadata);
+        when(classMetadata.newFieldMetadata("name")).thenReturn(fmd);
+        when(fmd.getName()).thenReturn("name");
+        when(classMetadata.newFetchGroupMetadata("summary")).thenReturn(summary);
+        when(classMetadata.newFetchGroupMetadata("details")).thenReturn(details);
+
+        entityMetadataBuilder.addEntityMetadata(jdoMetadata, entity, Sample.class, schemaHolder);
+
+        verify(summary).newFieldMetadata("name");
+        verify(details).newFieldMetadata("name");
+        verify(classMetadata, never()).newFetchGroupMetadata(Constants.FetchGroups.RELATIONSHIPS);
     }
 
     @Test
@@ -409,6 +444,26 @@ public class EntityMetadataBuilderTest {
         verify(fmd, never()).setDefaultFetchGroup(anyBoolean());
     }
 
+    @Test
+    public void shouldKeepBlobFieldsOutOfDefaultFetchGroup() {
+        when(entity.getName()).thenReturn(ENTITY_NAME);
+        when(entity.getTableName()).thenReturn(TABLE_NAME);
+        when(jdoMetadata.newPackageMetadata(anyString())).thenReturn(packageMetadata);
+        when(packageMetadata.newClassMetadata(anyString())).thenReturn(classMetadata);
+
+        FieldDto field = fieldDto("attachment", Byte[].class);
+        field.setType(TypeDto.BLOB);
+        when(schemaHolder.getFields(CLASS_NAME)).thenReturn(singletonList(field));
+
+        FieldMetadata fmd = mock(FieldMetadata.class);
+        when(fmd.getName()).thenReturn("attachment");
+        when(classMetadata.newFieldMetadata("attachment")).thenReturn(fmd);
+
+        entityMetadataBuilder.addEntityMetadata(jdoMetadata, entity, Sample.class, schemaHolder);
+
+        verify(fmd).setDefaultFetchGroup(false);
+    }
+
     @Test
     public void shouldMarkEudeFieldsAsUnique() {
         when(entity.getName()).thenReturn(ENTITY_NAME);
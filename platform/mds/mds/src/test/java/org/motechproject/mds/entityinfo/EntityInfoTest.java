@@ -0,0 +1,63 @@
+package org.motechproject.mds.entityinfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.mds.dto.EntityDto;
+import org.motechproject.mds.exception.field.FieldNotFoundException;
+import org.motechproject.mds.testutil.FieldTestHelper;
+import org.motechproject.mds.testutil.records.Record;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class EntityInfoTest {
+
+    private EntityInfo entityInfo;
+
+    @Before
+    public void setUp() {
+        entityInfo = new EntityInfo();
+        entityInfo.setEntity(new EntityDto(Record.class.getName()));
+        entityInfo.setFieldsInfo(Arrays.asList(
+                FieldTestHelper.fieldInfo("value", String.class, false, true),
+                FieldTestHelper.fieldInfo("notInClass", String.class, false, true)));
+    }
+
+    @Test
+    public void shouldUseResolvedAccessors() {
+        entityInfo.initAccessors(Record.class);
+
+        Record record = new Record();
+        FieldAccessor accessor = entityInfo.getAccessor("value");
+
+        assertEquals("value", accessor.getFieldName());
+        assertEquals("value", accessor.getValue(record));
+
+        accessor.setValue(record, "newValue");
+        assertEquals("newValue", record.getValue());
+
+        assertEquals("value", entityInfo.getField("value").getName());
+    }
+
+    @Test
+    public void shouldFallBackToReflectionWhenAccessorsAreNotResolved() {
+        Record record = new Record();
+        FieldAccessor accessor = entityInfo.getAccessor("value");
+
+        assertEquals("value", accessor.getValue(record));
+
+        accessor.setValue(record, "newValue");
+        assertEquals("newValue", record.getValue());
+
+        entityInfo.initAccessors(Record.class);
+        assertNull(entityInfo.getAccessor("notInClass").getValue(record));
+    }
+
+    @Test(expected = FieldNotFoundException.class)
+    public void shouldThrowExceptionForUnknownField() {
+        entityInfo.initAccessors(null);
+        entityInfo.getField("unknown");
+    }
+}
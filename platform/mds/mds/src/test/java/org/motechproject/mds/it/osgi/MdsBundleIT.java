@@ -237,6 +237,7 @@ public class MdsBundleIT extends BasePaxIT {
         verifyLookups(true); // using the lookup service
         verifyComboboxValueUpdate();
         verifyInstanceUpdating();
+        verifyBlobKeptWhenUpdatingOtherFields();
         verifyCustomQuery();
         verifyCsvImport();
         verifyCsvImportIsOneTransaction();
@@ -671,6 +672,25 @@ public class MdsBundleIT extends BasePaxIT {
         assertInstanceOneDotOne(updated, objClass);
     }
 
+    private void verifyBlobKeptWhenUpdatingOtherFields() throws Exception {
+        getLogger().info("Verifying that updating an instance keeps its blob");
+
+        // the instance is loaded outside of a transaction and its blob is never accessed before the update
+        Object retrieved = service.retrieveAll(QueryParams.descOrder("someDateTime")).get(0);
+        Object id = PropertyUtils.getProperty(retrieved, "id");
+
+        PropertyUtils.setProperty(retrieved, "someString", "stringWithBlobKept");
+        service.update(retrieved);
+
+        Object updated = service.findById((Long) id);
+        assertEquals("stringWithBlobKept", PropertyUtils.getProperty(updated, "someString"));
+        assertEquals(Arrays.toString(BYTE_ARRAY_VALUE),
+                Arrays.toString((Byte[]) service.getDetachedField(updated, "someBlob")));
+
+        PropertyUtils.setProperty(updated, "someString", "anotherString");
+        service.update(updated);
+    }
+
     private void verifyInstanceCreatingOrUpdating(Class<?> loadedClass) throws Exception {
         getLogger().info("Verifying instance creating or updating using createOrUpdate() method");
 
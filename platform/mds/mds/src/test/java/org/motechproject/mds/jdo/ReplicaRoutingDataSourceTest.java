@@ -0,0 +1,167 @@
+package org.motechproject.mds.jdo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.util.JmxUtil;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private ReplicationLagCheck lagCheck;
+
+    @Mock
+    private Connection firstReplicaConnection;
+
+    @Mock
+    private Connection secondReplicaConnection;
+
+    private Object routingState;
+
+    @Before
+    public void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+    }
+
+    @After
+    public void tearDown() {
+        if (null != routingState) {
+            ReplicaRouting.end(routingState);
+        }
+    }
+
+    @Test
+    public void shouldUsePrimaryForWriteTransactions() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource(0);
+
+        routingState = ReplicaRouting.begin(false);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(firstReplica, never()).getConnection();
+        verify(secondReplica, never()).getConnection();
+        assertEquals(1, dataSource.getPrimaryConnections());
+    }
+
+    @Test
+    public void shouldSpreadReadOnlyTransactionsBetweenReplicas() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource(0);
+
+        routingState = ReplicaRouting.begin(true);
+
+        assertSame(firstReplicaConnection, dataSource.getConnection());
+        assertSame(secondReplicaConnection, dataSource.getConnection());
+        assertSame(firstReplicaConnection, dataSource.getConnection());
+
+        verify(primary, never()).getConnection();
+        assertEquals(3, dataSource.getReplicaConnections());
+    }
+
+    @Test
+    public void shouldReadOwnWritesFromPrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource(60000);
+
+        ReplicaRouting.end(ReplicaRouting.begin(false));
+        routingState = ReplicaRouting.begin(true);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(firstReplica, never()).getConnection();
+        assertEquals(1, dataSource.getStaleReads());
+    }
+
+    @Test
+    public void shouldSkipFailedReplicas() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Replica is down"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("Replica is down"));
+
+        ReplicaRoutingDataSource dataSource = createDataSource(0);
+
+        routingState = ReplicaRouting.begin(true);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, dataSource.getConnection());
+
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+        assertEquals(2, dataSource.getFallbacks());
+        assertEquals(0, dataSource.getAvailableReplicas());
+    }
+
+    @Test
+    public void shouldSkipLaggingReplicasUntilTheyCatchUp() throws SQLException {
+        when(lagCheck.getCheckInterval()).thenReturn(60000L);
+        when(lagCheck.isLagging(firstReplicaConnection)).thenReturn(true);
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary,
+                Arrays.asList(firstReplica, secondReplica), 0, 60000, lagCheck);
+
+        routingState = ReplicaRouting.begin(true);
+
+        assertSame(secondReplicaConnection, dataSource.getConnection());
+        assertSame(secondReplicaConnection, dataSource.getConnection());
+
+        // the lagging replica is not asked for connections until its next lag check
+        verify(firstReplica, times(1)).getConnection();
+        verify(firstReplicaConnection).close();
+        verify(lagCheck, times(2)).isLagging(any(Connection.class));
+        verify(primary, never()).getConnection();
+        assertEquals(1, dataSource.getLaggingReplicas());
+        assertEquals(1, dataSource.getAvailableReplicas());
+        assertEquals(2, dataSource.getLagChecks());
+    }
+
+    @Test
+    public void shouldExposeStatisticsOverJmx() throws Exception {
+        ReplicaRoutingDataSource dataSource = createDataSource(0);
+        dataSource.getConnection();
+
+        JmxUtil.register(dataSource, "ReplicaRouting", "test");
+        try {
+            ObjectName name = new ObjectName("org.motechproject.mds:type=ReplicaRouting,name=\"test\"");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            assertEquals(1L, server.getAttribute(name, "PrimaryConnections"));
+            assertEquals(2, server.getAttribute(name, "AvailableReplicas"));
+        } finally {
+            JmxUtil.unregister("ReplicaRouting", "test");
+        }
+    }
+
+    private ReplicaRoutingDataSource createDataSource(long stalenessWindow) {
+        return new ReplicaRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica), stalenessWindow,
+                60000);
+    }
+}
@@ -0,0 +1,71 @@
+package org.motechproject.mds.jdo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.util.Constants;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicationLagCheckTest {
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private ReplicationLagCheck lagCheck;
+
+    @Before
+    public void setUp() throws SQLException {
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+
+        lagCheck = ReplicationLagCheck.forDriver(Constants.Config.MYSQL_DRIVER_CLASSNAME, 5000, 5000);
+    }
+
+    @Test
+    public void shouldReportReplicasLaggingMoreThanAllowed() throws SQLException {
+        when(resultSet.getObject("Seconds_Behind_Master")).thenReturn(10L);
+        assertTrue(lagCheck.isLagging(connection));
+
+        when(resultSet.getObject("Seconds_Behind_Master")).thenReturn(2L);
+        assertFalse(lagCheck.isLagging(connection));
+    }
+
+    @Test
+    public void shouldReportReplicasWithStoppedReplicationAsLagging() throws SQLException {
+        when(resultSet.getObject("Seconds_Behind_Master")).thenReturn(null);
+
+        assertTrue(lagCheck.isLagging(connection));
+    }
+
+    @Test
+    public void shouldNotReportDatabasesWithoutReplicationStatus() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
+        assertFalse(lagCheck.isLagging(connection));
+    }
+
+    @Test
+    public void shouldNotCheckUnknownDatabases() {
+        assertNull(ReplicationLagCheck.forDriver("org.h2.Driver", 5000, 5000));
+    }
+}
@@ -0,0 +1,103 @@
+package org.motechproject.mds.osgi;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.annotations.internal.EntityProcessorOutput;
+import org.motechproject.mds.annotations.internal.MDSProcessorOutput;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.dto.EntityDto;
+import org.motechproject.mds.dto.LookupDto;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Version;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BundleScanCacheTest {
+
+    private static final String SCHEMA = "schema-fingerprint";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private MdsConfig mdsConfig;
+
+    @Mock
+    private Bundle bundle;
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() {
+        cacheFile = new File(folder.getRoot(), "mds-bundle-scan.properties");
+
+        when(mdsConfig.getBundleScanCacheFile()).thenReturn(cacheFile);
+        when(bundle.getSymbolicName()).thenReturn("org.motechproject.test");
+        when(bundle.getVersion()).thenReturn(new Version(1, 0, 0));
+    }
+
+    @Test
+    public void shouldRememberProcessedOutputsBetweenRestarts() {
+        BundleScanCache cache = createCache();
+        MDSProcessorOutput output = output("org.motechproject.test.Patient");
+
+        assertFalse(cache.isProcessed(output, SCHEMA));
+
+        cache.processed(output);
+        cache.save(SCHEMA);
+
+        assertTrue(cacheFile.exists());
+
+        BundleScanCache restarted = createCache();
+
+        assertTrue(restarted.isCurrentSchema(SCHEMA));
+        assertTrue(restarted.isProcessed(output("org.motechproject.test.Patient"), SCHEMA));
+    }
+
+    @Test
+    public void shouldNotSkipChangedOutputsOrSchemas() {
+        BundleScanCache cache = createCache();
+
+        cache.processed(output("org.motechproject.test.Patient"));
+        cache.save(SCHEMA);
+
+        assertFalse(cache.isProcessed(output("org.motechproject.test.Doctor"), SCHEMA));
+        assertFalse(cache.isProcessed(output("org.motechproject.test.Patient"), "other-schema"));
+
+        when(bundle.getVersion()).thenReturn(new Version(1, 1, 0));
+
+        assertFalse(cache.isProcessed(output("org.motechproject.test.Patient"), SCHEMA));
+    }
+
+    private BundleScanCache createCache() {
+        BundleScanCache cache = new BundleScanCache();
+        cache.setMdsConfig(mdsConfig);
+        return cache;
+    }
+
+    private MDSProcessorOutput output(String className) {
+        EntityProcessorOutput entityOutput = new EntityProcessorOutput();
+        entityOutput.setEntityProcessingResult(new EntityDto(className));
+
+        List<EntityProcessorOutput> entityOutputs = new ArrayList<>();
+        entityOutputs.add(entityOutput);
+
+        Map<String, List<LookupDto>> lookupOutputs = new HashMap<>();
+
+        return new MDSProcessorOutput(entityOutputs, lookupOutputs, bundle);
+    }
+}
@@ -0,0 +1,80 @@
+package org.motechproject.mds.query;
+
+import org.junit.Test;
+import org.motechproject.mds.util.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KeysetPropertyTest extends PropertyTest {
+
+    @Override
+    protected Property getProperty() {
+        List<Order> orderList = Arrays.asList(new Order("value", Order.Direction.DESC));
+        QueryParams queryParams = QueryParams.keyset(10, orderList, Arrays.<Object>asList("abc", "5"));
+
+        return new KeysetProperty(queryParams, fieldTypeMap());
+    }
+
+    @Override
+    protected boolean isRelationSupported() {
+        return false;
+    }
+
+    @Override
+    protected int getIdx() {
+        return 3;
+    }
+
+    @Override
+    protected String expectedFilter() {
+        return "(value < param3k0 || value == param3k0 && id > param3k1)";
+    }
+
+    @Override
+    protected String expectedDeclareParameter() {
+        return "java.lang.String param3k0, java.lang.Long param3k1";
+    }
+
+    @Override
+    protected Collection expectedUnwrap() {
+        return Arrays.<Object>asList("abc", 5L);
+    }
+
+    @Test
+    public void shouldBeIgnoredOnFirstPage() {
+        QueryParams queryParams = QueryParams.keyset(10, new ArrayList<Order>(), null);
+        KeysetProperty property = new KeysetProperty(queryParams, fieldTypeMap());
+
+        assertNull(property.asFilter(0));
+        assertNull(property.asDeclareParameter(0));
+        assertNull(property.unwrap());
+    }
+
+    @Test
+    public void shouldCreateTokensFromCursor() {
+        String token = KeysetCursor.toToken(Arrays.<Object>asList("abc", 5L));
+
+        assertEquals(Arrays.<Object>asList("abc", "5"), KeysetCursor.fromToken(token));
+        assertEquals(0, KeysetCursor.fromToken("").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCursorWithWrongNumberOfValues() {
+        List<Order> orderList = Arrays.asList(new Order("value", Order.Direction.DESC));
+        new KeysetProperty(QueryParams.keyset(10, orderList, Arrays.<Object>asList("abc")), fieldTypeMap());
+    }
+
+    private Map<String, String> fieldTypeMap() {
+        Map<String, String> fieldTypeMap = new HashMap<>();
+        fieldTypeMap.put("value", String.class.getName());
+        return fieldTypeMap;
+    }
+}
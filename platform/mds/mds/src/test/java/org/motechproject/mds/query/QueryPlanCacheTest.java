@@ -0,0 +1,70 @@
+package org.motechproject.mds.query;
+
+import org.junit.Test;
+
+import javax.jdo.PersistenceManagerFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class QueryPlanCacheTest {
+
+    @Test
+    public void shouldKeepSeparateCachesForFactories() {
+        PersistenceManagerFactory first = mock(PersistenceManagerFactory.class);
+        PersistenceManagerFactory second = mock(PersistenceManagerFactory.class);
+
+        assertSame(QueryPlanCache.forFactory(first), QueryPlanCache.forFactory(first));
+        assertNotSame(QueryPlanCache.forFactory(first), QueryPlanCache.forFactory(second));
+
+        QueryPlanCache.forFactory(first).put("key;", "filter", "params");
+
+        assertNotNull(QueryPlanCache.forFactory(first).get("key;"));
+        assertNull(QueryPlanCache.forFactory(second).get("key;"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPlans() {
+        QueryPlanCache cache = QueryPlanCache.forFactory(mock(PersistenceManagerFactory.class));
+
+        cache.put("first;", "filter", "params");
+        for (int i = 0; i < 2047; i++) {
+            cache.put("key" + i + ';', "filter", "params");
+        }
+
+        // using the first plan keeps it, the oldest of the others is removed instead
+        assertNotNull(cache.get("first;"));
+        cache.put("last;", "filter", "params");
+
+        assertNotNull(cache.get("first;"));
+        assertNull(cache.get("key0;"));
+        assertNotNull(cache.get("key1;"));
+    }
+
+    @Test
+    public void shouldExposeStatisticsOverJmx() throws Exception {
+        QueryPlanCache cache = QueryPlanCache.forFactory(mock(PersistenceManagerFactory.class));
+
+        ObjectName name = new ObjectName("org.motechproject.mds:type=QueryPlanCache,name=\"all\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        long hits = (long) server.getAttribute(name, "Hits");
+        long compilations = (long) server.getAttribute(name, "Compilations");
+
+        cache.put("key;", "filter", "params");
+        cache.get("key;");
+        cache.get("key;");
+
+        assertEquals(1, cache.getCompilations());
+        assertEquals(2, cache.getHits());
+        assertEquals(hits + 2, server.getAttribute(name, "Hits"));
+        assertEquals(compilations + 1, server.getAttribute(name, "Compilations"));
+    }
+}
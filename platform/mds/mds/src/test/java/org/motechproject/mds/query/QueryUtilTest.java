@@ -5,12 +5,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.motechproject.commons.api.Range;
+import org.motechproject.mds.util.Constants;
 import org.motechproject.mds.util.InstanceSecurityRestriction;
 import org.motechproject.mds.util.Order;
 import org.motechproject.mds.util.SecurityUtil;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import javax.jdo.FetchPlan;
 import javax.jdo.Query;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,6 +23,8 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +83,33 @@ public class QueryUtilTest {
         verify(query).declareParameters("java.lang.String param0_0, java.lang.String param0_1, java.lang.String param0_2, java.lang.Boolean param1");
     }
 
+    @Test
+    public void shouldReuseQueryPlansForPropertiesWithTheSameShape() {
+        QueryPlanCache cache = QueryPlanCache.forFactory(null);
+        cache.clear();
+        long compilations = cache.getCompilations();
+        long hits = cache.getHits();
+
+        String[] properties = new String[]{"prop1", "prop2"};
+
+        QueryUtil.useFilter(query, properties, new Object[]{new HashSet<>(asList("one", "two")), true},
+                typeMap(String.class, Boolean.class));
+        QueryUtil.useFilter(query, properties, new Object[]{new HashSet<>(asList("three", "four")), false},
+                typeMap(String.class, Boolean.class));
+
+        verify(query, times(2)).setFilter("(prop1 == param0_0 || prop1 == param0_1) && prop2 == param1");
+        assertEquals(compilations + 1, cache.getCompilations());
+        assertEquals(hits + 1, cache.getHits());
+
+        // a different number of set elements changes the shape
+        QueryUtil.useFilter(query, properties, new Object[]{new HashSet<>(asList("one")), false},
+                typeMap(String.class, Boolean.class));
+
+        verify(query).setFilter("(prop1 == param0_0) && prop2 == param1");
+        assertEquals(compilations + 2, cache.getCompilations());
+        assertEquals(2, cache.getSize());
+    }
+
     @Test
     public void shouldCreateQueriesForGivenFormats() {
         EqualProperty eqProperty = new EqualProperty<>("strProp", "text", String.class.getName());
@@ -119,6 +150,20 @@ public class QueryUtilTest {
         verify(query).setOrdering("field1 descending, field2 ascending, field3 ascending");
     }
 
+    @Test
+    public void shouldSetFetchGroups() {
+        FetchPlan fetchPlan = mock(FetchPlan.class);
+        when(query.getFetchPlan()).thenReturn(fetchPlan);
+
+        QueryParams queryParams = new QueryParams(1, 10)
+                .withFetchGroups(asList(Constants.FetchGroups.DEFAULT, Constants.FetchGroups.RELATIONSHIPS));
+
+        QueryUtil.setQueryParams(query, queryParams);
+
+        verify(query).setRange(0, 10);
+        verify(fetchPlan).setGroups(new String[]{Constants.FetchGroups.DEFAULT, Constants.FetchGroups.RELATIONSHIPS});
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldThrowIllegalArgumentExceptionForNullQueriesWhenSettingCountResult() {
         QueryUtil.setCountResult(null);
@@ -25,8 +25,12 @@ import org.motechproject.mds.exception.rest.RestLookupExecutionForbiddenExceptio
 import org.motechproject.mds.exception.rest.RestLookupNotFoundException;
 import org.motechproject.mds.exception.rest.RestNoLookupResultException;
 import org.motechproject.mds.exception.rest.RestOperationNotSupportedException;
+import org.motechproject.mds.query.CountResult;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.MotechDataService;
+import org.motechproject.mds.service.impl.csv.CsvTestHelper;
+import org.motechproject.mds.testutil.EntityInfoTestHelper;
 import org.motechproject.mds.testutil.FieldTestHelper;
 import org.motechproject.mds.testutil.records.Record;
 import org.motechproject.mds.util.Order;
@@ -102,6 +106,7 @@ public class MdsRestFacadeTest {
     @Before
     public void setUp() {
         when(dataService.getClassType()).thenReturn(Record.class);
+        when(dataService.estimateCount()).thenReturn(new CountResult(0, true));
         when(entityInfoReader.getEntityInfo(Record.class.getName())).thenReturn(entity);
         when(entity.getName()).thenReturn(ENTITY_NAME);
         when(entity.getModule()).thenReturn(TEST_MODULE);
@@ -109,6 +114,7 @@ public class MdsRestFacadeTest {
         when(entity.getNamespace()).thenReturn(NAMESPACE);
         when(entity.getAdvancedSettings()).thenReturn(advancedSettingsDto);
         when(advancedSettingsDto.getRestOptions()).thenReturn(restOptions);
+        EntityInfoTestHelper.mockAccessors(entity);
 
         // set up rest fields
         FieldDto valueField = FieldTestHelper.fieldDto(3L, VALUE_FIELD, String.class.getName(), VALUE_FIELD, null);
@@ -165,6 +171,36 @@ public class MdsRestFacadeTest {
         assertNull(result.getData().get(0).get(BLOB_FIELD));
     }
 
+    @Test
+    public void shouldStreamSelectedFields() throws IOException {
+        setUpCrudAccess(false, true, false, false);
+        when(dataService.estimateCount()).thenReturn(new CountResult(81l, true));
+        when(dataService.iterateAll(any(QueryParams.class), any(InstanceCallback.class)))
+                .thenAnswer(CsvTestHelper.iterateAnswer(asList(recordOne)));
+
+        QueryParams queryParams = new QueryParams(5, 20, new Order("value", Order.Direction.DESC));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        mdsRestFacade.stream(queryParams, false, asList(VALUE_FIELD), out);
+
+        Map<String, Object> result = objectMapper.readValue(out.toByteArray(), Map.class);
+        List<Map<String, Object>> data = (List<Map<String, Object>>) result.get("data");
+        Map<String, Object> metadata = (Map<String, Object>) result.get("metadata");
+
+        assertEquals(1, data.size());
+        assertEquals(1, data.get(0).size());
+        assertEquals(recordOne.getValue(), data.get(0).get(VALUE_FIELD));
+        assertEquals(81, metadata.get("totalCount"));
+        assertEquals(ENTITY_NAME, metadata.get("entity"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotStreamFieldsHiddenFromRest() {
+        setUpCrudAccess(false, true, false, false);
+
+        mdsRestFacade.stream(new QueryParams(1, 20), false, asList(STR_FIELD), new ByteArrayOutputStream());
+    }
+
     @Test
     public void shouldGetByIdWithoutBlobField() {
         setUpCrudAccess(false, true, false, false);
@@ -185,7 +221,7 @@ public class MdsRestFacadeTest {
     @Test
     public void shouldAppendMetadata() {
         setUpCrudAccess(false, true, false, false);
-        when(dataService.count()).thenReturn(81l);
+        when(dataService.estimateCount()).thenReturn(new CountResult(81l, true));
 
         QueryParams queryParams = new QueryParams(5, 20, new Order("value", Order.Direction.DESC));
 
@@ -199,6 +235,18 @@ public class MdsRestFacadeTest {
         assertEquals(5, result.getMetadata().getPage());
         assertEquals(20, result.getMetadata().getPageSize());
         assertEquals(81l, result.getMetadata().getTotalCount());
+        assertTrue(result.getMetadata().isExactCount());
+    }
+
+    @Test
+    public void shouldMarkEstimatedCountsInMetadata() {
+        setUpCrudAccess(false, true, false, false);
+        when(dataService.estimateCount()).thenReturn(new CountResult(2500000l, false));
+
+        RestResponse result = mdsRestFacade.get(new QueryParams(1, 20), false);
+
+        assertEquals(2500000l, result.getMetadata().getTotalCount());
+        assertFalse(result.getMetadata().isExactCount());
     }
 
     @Test
@@ -5,9 +5,20 @@ import org.junit.Before;
 import org.junit.Test;
 import org.motechproject.mds.dto.FieldDto;
 import org.motechproject.mds.dto.TypeDto;
+import org.motechproject.mds.exception.csv.CsvImportException;
+import org.motechproject.mds.testutil.records.Record2;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultCsvImportCustomizerTest {
 
@@ -51,4 +62,57 @@ public class DefaultCsvImportCustomizerTest {
     public void shouldReturnNullWhenFieldDoesnyExist() {
         Assert.assertNull(importCustomizer.findField("name5", fields));
     }
+
+    @Test
+    public void shouldFindExistingInstancesForAllRowsAtOnce() {
+        MotechDataService dataService = mock(MotechDataService.class);
+
+        Record2 first = new Record2();
+        first.setId(1L);
+        Record2 third = new Record2();
+        third.setId(3L);
+
+        when(dataService.findByIds(Arrays.asList(1L, 3L))).thenReturn(Arrays.asList(first, third));
+
+        List<Object> existing = importCustomizer.findExistingInstances(
+                Arrays.asList(row("1"), row(""), row("3")), dataService);
+
+        Assert.assertEquals(Arrays.<Object>asList(first, null, third), existing);
+    }
+
+    @Test(expected = CsvImportException.class)
+    public void shouldFailFindingExistingInstancesWhenAnyIsMissing() {
+        MotechDataService dataService = mock(MotechDataService.class);
+
+        Record2 first = new Record2();
+        first.setId(1L);
+
+        when(dataService.findByIds(Arrays.asList(1L, 5L))).thenReturn(Arrays.asList(first));
+
+        importCustomizer.findExistingInstances(Arrays.asList(row("1"), row("5")), dataService);
+    }
+
+    @Test
+    public void shouldFindExistingInstancesRowByRowWhenSubclassFindsThemDifferently() {
+        MotechDataService dataService = mock(MotechDataService.class);
+        final Record2 found = new Record2();
+
+        DefaultCsvImportCustomizer customizer = new DefaultCsvImportCustomizer() {
+            @Override
+            public Object findExistingInstance(Map<String, String> row, MotechDataService dataService) {
+                return "1".equals(row.get("ID")) ? found : null;
+            }
+        };
+
+        List<Object> existing = customizer.findExistingInstances(Arrays.asList(row("1"), row("2")), dataService);
+
+        Assert.assertEquals(Arrays.<Object>asList(found, null), existing);
+        verify(dataService, never()).findByIds(anyCollection());
+    }
+
+    private Map<String, String> row(String id) {
+        Map<String, String> row = new HashMap<>();
+        row.put("ID", id);
+        return row;
+    }
 }
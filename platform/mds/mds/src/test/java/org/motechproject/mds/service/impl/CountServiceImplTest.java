@@ -0,0 +1,213 @@
+package org.motechproject.mds.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.service.CountService;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.osgi.service.event.Event;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.LongSupplier;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.motechproject.mds.util.Constants.Config.MDS_COUNT_CACHE_TIME;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CountServiceImplTest {
+
+    private static final String CLASS_NAME = "org.motechproject.mds.Sample";
+    private static final String OTHER_CLASS_NAME = "org.motechproject.mds.Other";
+
+    @Mock
+    private MdsConfig mdsConfig;
+
+    @Mock
+    private OsgiEventProxy osgiEventProxy;
+
+    private CountServiceImpl countService;
+
+    private Properties properties = new Properties();
+
+    @Before
+    public void setUp() {
+        when(mdsConfig.getProperties(MODULE_FILE)).thenReturn(properties);
+
+        countService = new CountServiceImpl();
+        countService.setMdsConfig(mdsConfig);
+        countService.setOsgiEventProxy(osgiEventProxy);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        countService.shutdown();
+    }
+
+    @Test
+    public void shouldCacheCountsInReadOnlyTransactions() {
+        Counter counter = new Counter(5);
+
+        assertEquals(5, countService.getCount(CLASS_NAME, "all", counter));
+        assertEquals(5, countService.getCount(CLASS_NAME, "all", counter));
+        assertEquals(1, counter.calls);
+
+        assertEquals(5, countService.getCount(CLASS_NAME, "name:x", counter));
+        assertEquals(2, counter.calls);
+    }
+
+    @Test
+    public void shouldCountAgainAfterInvalidation() {
+        Counter counter = new Counter(5);
+
+        countService.getCount(CLASS_NAME, "all", counter);
+        countService.invalidate(CLASS_NAME);
+        countService.getCount(CLASS_NAME, "all", counter);
+
+        assertEquals(2, counter.calls);
+    }
+
+    @Test
+    public void shouldNotCacheOutsideReadOnlyTransactions() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        Counter counter = new Counter(5);
+
+        countService.getCount(CLASS_NAME, "all", counter);
+        countService.getCount(CLASS_NAME, "all", counter);
+
+        assertEquals(2, counter.calls);
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        properties.setProperty(MDS_COUNT_CACHE_TIME, "0");
+        Counter counter = new Counter(5);
+
+        countService.getCount(CLASS_NAME, "all", counter);
+        countService.getCount(CLASS_NAME, "all", counter);
+
+        assertEquals(2, counter.calls);
+    }
+
+    @Test
+    public void shouldBroadcastInvalidation() {
+        countService.invalidate(CLASS_NAME);
+
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).broadcastEvent(eq(CountService.COUNTS_INVALIDATED), captor.capture(), eq(true));
+        assertEquals(asList(CLASS_NAME), captor.getValue().get("class_names"));
+    }
+
+    @Test
+    public void shouldBroadcastInvalidationsOfInnerTransactionSeparately() {
+        TransactionSynchronizationManager.initSynchronization();
+        countService.invalidate(CLASS_NAME);
+
+        // a new transaction suspends the synchronizations of the outer one
+        List<TransactionSynchronization> suspended = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+
+        countService.invalidate(OTHER_CLASS_NAME);
+        commit();
+
+        ArgumentCaptor<Map> innerCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).broadcastEvent(eq(CountService.COUNTS_INVALIDATED), innerCaptor.capture(), eq(true));
+        assertEquals(asList(OTHER_CLASS_NAME), innerCaptor.getValue().get("class_names"));
+
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization synchronization : suspended) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        commit();
+
+        ArgumentCaptor<Map> outerCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy, times(2)).broadcastEvent(eq(CountService.COUNTS_INVALIDATED), outerCaptor.capture(),
+                eq(true));
+        assertEquals(asList(CLASS_NAME), outerCaptor.getValue().get("class_names"));
+    }
+
+    @Test
+    public void shouldCoalesceBroadcastedInvalidations() {
+        countService.init();
+
+        countService.invalidate(CLASS_NAME);
+        countService.invalidate(OTHER_CLASS_NAME);
+        countService.invalidate(CLASS_NAME);
+
+        verify(osgiEventProxy, never()).broadcastEvent(anyString(), anyMap(), anyBoolean());
+
+        countService.broadcastPending();
+        countService.broadcastPending();
+
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).broadcastEvent(eq(CountService.COUNTS_INVALIDATED), captor.capture(), eq(true));
+        assertEquals(new HashSet<>(asList(CLASS_NAME, OTHER_CLASS_NAME)),
+                new HashSet<>((List) captor.getValue().get("class_names")));
+    }
+
+    @Test
+    public void shouldCountAgainAfterInvalidationOnOtherInstance() {
+        Counter counter = new Counter(5);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("class_names", asList(CLASS_NAME));
+        params.put("instance_id", "other");
+
+        countService.getCount(CLASS_NAME, "all", counter);
+        countService.handleEvent(new Event(CountService.COUNTS_INVALIDATED, params));
+        countService.getCount(CLASS_NAME, "all", counter);
+
+        assertEquals(2, counter.calls);
+    }
+
+    private void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    private static class Counter implements LongSupplier {
+
+        private final long count;
+        private int calls;
+
+        Counter(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public long getAsLong() {
+            calls++;
+            return count;
+        }
+    }
+}
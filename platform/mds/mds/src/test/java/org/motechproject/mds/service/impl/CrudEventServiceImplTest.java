@@ -0,0 +1,201 @@
+package org.motechproject.mds.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.event.CrudEventType;
+import org.motechproject.server.osgi.event.OsgiEventProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.motechproject.mds.util.Constants.Config.MDS_CRUD_EVENTS_BATCH_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MDS_CRUD_EVENTS_PER_INSTANCE;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+import static org.motechproject.mds.util.Constants.MDSEvents.ACTION;
+import static org.motechproject.mds.util.Constants.MDSEvents.OBJECT_ID;
+import static org.motechproject.mds.util.Constants.MDSEvents.OBJECT_IDS;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrudEventServiceImplTest {
+
+    private static final String SUBJECT = "mds.crud.Sample.CREATE";
+    private static final String BATCH_SUBJECT = "mds.crud.Sample.batch.CREATE";
+
+    @Mock
+    private MdsConfig mdsConfig;
+
+    @Mock
+    private OsgiEventProxy osgiEventProxy;
+
+    @Mock
+    private EntityInfo entity;
+
+    private CrudEventServiceImpl crudEventService;
+
+    private Properties properties = new Properties();
+
+    @Before
+    public void setUp() {
+        when(mdsConfig.getProperties(MODULE_FILE)).thenReturn(properties);
+        when(entity.getEntityName()).thenReturn("Sample");
+        when(entity.getClassName()).thenReturn("org.motechproject.mds.Sample");
+
+        crudEventService = new CrudEventServiceImpl();
+        crudEventService.setMdsConfig(mdsConfig);
+        crudEventService.setOsgiEventProxy(osgiEventProxy);
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void shouldSendCoalescedEventsAfterCommit() {
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 1L);
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 2L);
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 1L);
+
+        verifyZeroInteractions(osgiEventProxy);
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        commit();
+
+        ArgumentCaptor<List> instanceCaptor = ArgumentCaptor.forClass(List.class);
+        verify(osgiEventProxy).sendEvents(eq(SUBJECT), instanceCaptor.capture());
+        List<Map<String, Object>> parametersList = instanceCaptor.getValue();
+        assertEquals(2, parametersList.size());
+        assertEquals(1L, parametersList.get(0).get(OBJECT_ID));
+        assertEquals(2L, parametersList.get(1).get(OBJECT_ID));
+
+        ArgumentCaptor<Map> batchCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).sendEvent(eq(BATCH_SUBJECT), batchCaptor.capture());
+        assertEquals(Arrays.asList(1L, 2L), batchCaptor.getValue().get(OBJECT_IDS));
+        assertEquals("CREATE", batchCaptor.getValue().get(ACTION));
+    }
+
+    @Test
+    public void shouldSplitBatchEventsAndSkipInstanceEventsIfDisabled() {
+        properties.setProperty(MDS_CRUD_EVENTS_PER_INSTANCE, "false");
+        properties.setProperty(MDS_CRUD_EVENTS_BATCH_SIZE, "2");
+
+        for (long id = 1; id <= 5; id++) {
+            crudEventService.registerEvent(entity, CrudEventType.CREATE, id);
+        }
+
+        commit();
+
+        verify(osgiEventProxy, never()).sendEvents(anyString(), anyList());
+        verify(osgiEventProxy, times(3)).sendEvent(eq(BATCH_SUBJECT), anyMap());
+    }
+
+    @Test
+    public void shouldNotSendEventsAfterRollback() {
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 1L);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        verifyZeroInteractions(osgiEventProxy);
+    }
+
+    @Test
+    public void shouldSendEventsImmediatelyWithoutTransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 1L);
+
+        verify(osgiEventProxy).sendEvent(eq(SUBJECT), anyMap());
+        verify(osgiEventProxy).sendEvent(eq(BATCH_SUBJECT), anyMap());
+    }
+
+    @Test
+    public void shouldSendEventsOfInnerTransactionSeparately() {
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 1L);
+
+        // a new transaction suspends the synchronizations of the outer one
+        List<TransactionSynchronization> suspended = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, 2L);
+        commit();
+
+        ArgumentCaptor<Map> innerCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).sendEvent(eq(BATCH_SUBJECT), innerCaptor.capture());
+        assertEquals(Arrays.asList(2L), innerCaptor.getValue().get(OBJECT_IDS));
+
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization synchronization : suspended) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        commit();
+
+        ArgumentCaptor<Map> outerCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy, times(2)).sendEvent(eq(BATCH_SUBJECT), outerCaptor.capture());
+        assertEquals(Arrays.asList(1L), outerCaptor.getValue().get(OBJECT_IDS));
+    }
+
+    @Test
+    public void shouldResolveIdsAssignedBeforeCommit() {
+        Record record = new Record();
+        crudEventService.registerEvent(entity, CrudEventType.CREATE, record);
+        record.setId(7L);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        commit();
+
+        ArgumentCaptor<Map> batchCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(osgiEventProxy).sendEvent(eq(BATCH_SUBJECT), batchCaptor.capture());
+        assertEquals(Arrays.asList(7L), batchCaptor.getValue().get(OBJECT_IDS));
+    }
+
+    private void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    public static class Record {
+
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.motechproject.mds.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.config.MdsConfig;
+import org.motechproject.mds.util.AsyncStatistics;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+import static org.motechproject.mds.util.Constants.Config.MDS_ASYNC_POOL_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MDS_ASYNC_QUEUE_SIZE;
+import static org.motechproject.mds.util.Constants.Config.MODULE_FILE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DataServiceExecutorImplTest {
+
+    private static final String CLASS_NAME = "org.motechproject.mds.Sample";
+
+    @Mock
+    private MdsConfig mdsConfig;
+
+    private DataServiceExecutorImpl executor;
+
+    @Before
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty(MDS_ASYNC_POOL_SIZE, "1");
+        properties.setProperty(MDS_ASYNC_QUEUE_SIZE, "1");
+        when(mdsConfig.getProperties(MODULE_FILE)).thenReturn(properties);
+
+        executor = new DataServiceExecutorImpl();
+        executor.setMdsConfig(mdsConfig);
+        executor.init();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldPassSecurityContextToTheOperation() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("motech", "motech"));
+
+        Future<String> future = executor.submit(CLASS_NAME, new Callable<String>() {
+            @Override
+            public String call() {
+                return SecurityContextHolder.getContext().getAuthentication().getName();
+            }
+        });
+
+        assertEquals("motech", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyWhenOperationFails() throws Exception {
+        Future<String> future = executor.submit(CLASS_NAME, new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalArgumentException("Failed");
+            }
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        assertEquals(1, executor.getStatistics().get(CLASS_NAME).getFailed());
+    }
+
+    @Test
+    public void shouldRunInCallingThreadWhenSaturated() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Callable<String> blocking = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+                latch.await(5, TimeUnit.SECONDS);
+                return "blocked";
+            }
+        };
+
+        // one operation is executed, one is queued
+        Future<String> first = executor.submit(CLASS_NAME, blocking);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(CLASS_NAME, blocking);
+
+        final Thread caller = Thread.currentThread();
+        Future<Boolean> third = executor.submit(CLASS_NAME, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return Thread.currentThread() == caller;
+            }
+        });
+
+        assertTrue(third.isDone());
+        assertTrue(third.get());
+
+        latch.countDown();
+        assertEquals("blocked", first.get(5, TimeUnit.SECONDS));
+        assertEquals("blocked", second.get(5, TimeUnit.SECONDS));
+
+        AsyncStatistics statistics = executor.getStatistics().get(CLASS_NAME);
+        assertEquals(3, statistics.getSubmitted());
+        assertEquals(3, statistics.getCompleted());
+        assertEquals(1, statistics.getCallerRuns());
+    }
+
+    @Test
+    public void shouldCancelQueuedOperationsOnShutdown() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Callable<String> blocking = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+                latch.await(5, TimeUnit.SECONDS);
+                return "blocked";
+            }
+        };
+
+        executor.submit(CLASS_NAME, blocking);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(CLASS_NAME, blocking);
+
+        executor.shutdown();
+
+        assertTrue(queued.isDone());
+        try {
+            queued.get();
+            fail("The queued operation should have been cancelled");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+    }
+
+    @Test
+    public void shouldExposeStatisticsOverJmx() throws Exception {
+        executor.submit(CLASS_NAME, new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        ObjectName name = new ObjectName("org.motechproject.mds:type=DataServiceExecutor,name=\"entities\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        TabularData statistics = (TabularData) server.getAttribute(name, "Statistics");
+        CompositeData row = statistics.get(new Object[]{CLASS_NAME});
+        assertEquals(1L, ((CompositeData) row.get("value")).get("submitted"));
+
+        executor.shutdown();
+        assertFalse(server.isRegistered(name));
+    }
+}
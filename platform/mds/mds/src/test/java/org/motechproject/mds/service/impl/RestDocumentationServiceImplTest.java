@@ -0,0 +1,52 @@
+package org.motechproject.mds.service.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.mds.docs.RestDocumentationGenerator;
+import org.springframework.orm.jdo.JdoTransactionManager;
+
+import java.io.Writer;
+import java.util.Locale;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RestDocumentationServiceImplTest {
+
+    @Mock
+    private RestDocumentationGenerator docGenerator;
+
+    @Mock
+    private JdoTransactionManager transactionManager;
+
+    @InjectMocks
+    private RestDocumentationServiceImpl restDocumentationService = new RestDocumentationServiceImpl();
+
+    @Test
+    public void shouldCacheDocumentation() {
+        assertSame(restDocumentationService.getDocumentation("/motech", Locale.ENGLISH),
+                restDocumentationService.getDocumentation("/motech", Locale.ENGLISH));
+
+        verify(docGenerator).generateDocumentation(any(Writer.class), eq("/motech"), eq(Locale.ENGLISH));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedDocumentation() {
+        for (int i = 0; i <= 20; i++) {
+            restDocumentationService.getDocumentation("/prefix" + i, Locale.ENGLISH);
+        }
+
+        restDocumentationService.getDocumentation("/prefix0", Locale.ENGLISH);
+        restDocumentationService.getDocumentation("/prefix20", Locale.ENGLISH);
+
+        verify(docGenerator, times(2)).generateDocumentation(any(Writer.class), eq("/prefix0"), eq(Locale.ENGLISH));
+        verify(docGenerator).generateDocumentation(any(Writer.class), eq("/prefix20"), eq(Locale.ENGLISH));
+    }
+}
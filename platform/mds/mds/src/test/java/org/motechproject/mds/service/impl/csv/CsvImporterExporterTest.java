@@ -19,6 +19,7 @@ import org.motechproject.mds.dto.UIDisplayFieldComparator;
 import org.motechproject.mds.entityinfo.EntityInfo;
 import org.motechproject.mds.entityinfo.EntityInfoReader;
 import org.motechproject.mds.javassist.MotechClassPool;
+import org.motechproject.mds.query.InstanceCallback;
 import org.motechproject.mds.query.QueryParams;
 import org.motechproject.mds.service.CsvImportCustomizer;
 import org.motechproject.mds.service.DefaultCsvExportCustomizer;
@@ -34,6 +35,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -41,7 +43,9 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
@@ -121,8 +125,16 @@ public class CsvImporterExporterTest {
         when(bundleContext.getService(relatedServiceRef)).thenReturn(relatedDataService);
         when(relatedDataService.getClassType()).thenReturn(RelatedClass.class);
 
-        when(relatedDataService.findById(0L)).thenReturn(new RelatedClass(0L));
-        when(relatedDataService.findById(1L)).thenReturn(new RelatedClass(1L));
+        when(relatedDataService.findByIds(anyCollection())).thenAnswer(new Answer<List<RelatedClass>>() {
+            @Override
+            public List<RelatedClass> answer(InvocationOnMock invocation) throws Throwable {
+                List<RelatedClass> related = new ArrayList<>();
+                for (Object id : (Collection) invocation.getArguments()[0]) {
+                    related.add(new RelatedClass((Long) id));
+                }
+                return related;
+            }
+        });
 
         when(entityInfoReader.getEntityInfo(ENTITY_CLASSNAME)).thenReturn(entityInfo);
         when(entityInfoReader.getEntityInfo(ENTITY_ID)).thenReturn(entityInfo);
@@ -141,7 +153,8 @@ public class CsvImporterExporterTest {
 
     @Test
     public void shouldExportAllInstancesAsCsv() {
-        when(motechDataService.retrieveAll(any(QueryParams.class))).thenReturn(testInstances(IdMode.INCLUDE_ID));
+        when(motechDataService.iterateAll(any(QueryParams.class), any(InstanceCallback.class)))
+                .thenAnswer(CsvTestHelper.iterateAnswer(testInstances(IdMode.INCLUDE_ID)));
         StringWriter writer = new StringWriter();
 
         long result = csvImporterExporter.exportCsv(ENTITY_ID, writer);
@@ -152,7 +165,8 @@ public class CsvImporterExporterTest {
 
     @Test
     public void shouldUseExportCustomizer() {
-        when(motechDataService.retrieveAll(any(QueryParams.class))).thenReturn(testInstances(IdMode.INCLUDE_ID));
+        when(motechDataService.iterateAll(any(QueryParams.class), any(InstanceCallback.class)))
+                .thenAnswer(CsvTestHelper.iterateAnswer(testInstances(IdMode.INCLUDE_ID)));
         StringWriter writer = new StringWriter();
 
         long result = csvImporterExporter.exportCsv(ENTITY_ID, writer, csvExportCustomizer);
@@ -164,7 +178,8 @@ public class CsvImporterExporterTest {
 
     @Test
     public void shouldExportInstancesFromTableAsCsv() {
-        when(mdsLookupService.<Record2>findMany((any(String.class)), eq("lookup"), any(Map.class), any(QueryParams.class))).thenReturn(testInstances(IdMode.INCLUDE_ID));
+        when(mdsLookupService.iterateMany(any(String.class), eq("lookup"), any(Map.class), any(QueryParams.class),
+                any(InstanceCallback.class))).thenAnswer(CsvTestHelper.iterateAnswer(testInstances(IdMode.INCLUDE_ID)));
         StringWriter writer = new StringWriter();
 
         List<String> headers = Arrays.asList("ID", "Creator", "Owner", "Modified By", "Creation date", "Modification date",
@@ -239,6 +254,40 @@ public class CsvImporterExporterTest {
         assertTrue(thrown);
     }
 
+    @Test
+    public void shouldReportMissingInstancesForTheirRowsWhenContinuingOnError() {
+        StringReader reader = new StringReader(getTestEntityRecordsAsCsv(IdMode.INCLUDE_ID));
+
+        // the last instance was removed, so the bulk lookup fails and rows are looked up one by one
+        final List<Record2> existing = new ArrayList<>();
+        for (long i = 0; i < INSTANCE_COUNT - 1; i++) {
+            Record2 record = new Record2();
+            record.setId(i);
+            existing.add(record);
+        }
+        when(motechDataService.findByIds(anyCollection())).thenReturn(existing);
+        when(motechDataService.findById(anyLong())).thenAnswer(new Answer<Record2>() {
+            @Override
+            public Record2 answer(InvocationOnMock invocation) throws Throwable {
+                long id = (Long) invocation.getArguments()[0];
+                return id < existing.size() ? existing.get((int) id) : null;
+            }
+        });
+        when(motechDataService.update(any(Record2.class))).thenAnswer(new Answer<Record2>() {
+            @Override
+            public Record2 answer(InvocationOnMock invocation) throws Throwable {
+                return (Record2) invocation.getArguments()[0];
+            }
+        });
+
+        CsvImportResults results = csvImporterExporter.importCsv(ENTITY_ID, reader, true);
+
+        verify(motechDataService, times(INSTANCE_COUNT - 1)).update(any(Record2.class));
+        assertEquals(INSTANCE_COUNT - 1, results.updatedInstanceCount());
+        assertEquals(1, results.getRowErrors().size());
+        assertTrue(results.getRowErrors().containsKey(INSTANCE_COUNT));
+    }
+
     private void testImport(IdMode idMode) {
         StringReader reader = new StringReader(getTestEntityRecordsAsCsv(idMode));
         // if id provided, prepare entities that will be updated
@@ -249,9 +298,13 @@ public class CsvImporterExporterTest {
                     return (Record2) invocation.getArguments()[0];
                 }
             });
+            List<Record2> existing = new ArrayList<>();
             for (long i = 0; i < INSTANCE_COUNT; i++) {
-                when(motechDataService.findById(i)).thenReturn(new Record2());
+                Record2 record = new Record2();
+                record.setId(i);
+                existing.add(record);
             }
+            when(motechDataService.findByIds(anyCollection())).thenReturn(existing);
         } else {
             when(motechDataService.create(any(Record2.class))).thenAnswer(new CreateAnswer());
         }
@@ -274,6 +327,12 @@ public class CsvImporterExporterTest {
         assertEquals(ENTITY_MODULE, results.getEntityModule());
         assertEquals(ENTITY_NAMESPACE, results.getEntityNamespace());
         assertEquals(0, results.getRowErrors().size());
+        assertEquals(INSTANCE_COUNT, results.getRowCount());
+
+        // existing and related instances are fetched in bulk, not one by one
+        verify(motechDataService, never()).findById(anyLong());
+        verify(relatedDataService, times(1)).findByIds(anyCollection());
+        verify(relatedDataService, never()).findById(anyLong());
 
         if (idMode == IdMode.INCLUDE_ID) {
             assertEquals(INSTANCE_COUNT, results.updatedInstanceCount());
@@ -1,5 +1,7 @@
 package org.motechproject.mds.service.impl.csv;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.motechproject.mds.dto.AdvancedSettingsDto;
 import org.motechproject.mds.dto.BrowsingSettingsDto;
 import org.motechproject.mds.dto.FieldDto;
@@ -7,6 +9,8 @@ import org.motechproject.mds.dto.MetadataDto;
 import org.motechproject.mds.dto.SettingDto;
 import org.motechproject.mds.dto.TypeDto;
 import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.query.InstanceCallback;
+import org.motechproject.mds.testutil.EntityInfoTestHelper;
 import org.motechproject.mds.testutil.records.Record2;
 import org.motechproject.mds.testutil.records.RecordEnum;
 import org.motechproject.mds.testutil.records.RelatedClass;
@@ -42,6 +46,27 @@ public class CsvTestHelper {
         when(entityInfoMock.getAdvancedSettings()).thenReturn(advancedSettingsDtoMock);
         when(advancedSettingsDtoMock.getBrowsing()).thenReturn(browsingSettingsDtoMock);
         when(browsingSettingsDtoMock.getDisplayedFields()).thenReturn(asList(129l, 130l));
+        EntityInfoTestHelper.mockAccessors(entityInfoMock);
+    }
+
+    /**
+     * Builds an answer for the iterate methods of data services and the lookup service. The answer
+     * passes the given instances to the callback, which is always the last argument of those methods.
+     */
+    public static <T> Answer<Long> iterateAnswer(final List<T> instances) {
+        return new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                InstanceCallback<T> callback = (InstanceCallback<T>) args[args.length - 1];
+
+                for (T instance : instances) {
+                    callback.process(instance);
+                }
+
+                return (long) instances.size();
+            }
+        };
     }
 
     private static FieldDto comboboxField(Long id, String name, boolean isList) {
@@ -26,19 +26,23 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.PersistenceManagerFactory;
 import javax.jdo.Query;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -80,7 +84,10 @@ public class HistoryServiceTest {
     private MotechDataService dataService;
 
     @Captor
-    private ArgumentCaptor<Record__History> recordHistoryCaptor;
+    private ArgumentCaptor<Collection> recordsCaptor;
+
+    @Captor
+    private ArgumentCaptor<TransactionSynchronization> synchronizationCaptor;
 
     @Captor
     private ArgumentCaptor<String> stringCaptor;
@@ -156,10 +163,20 @@ public class HistoryServiceTest {
 
         Record instance = new Record();
         historyService.record(instance);
+        // the same instance stored twice in one transaction gets a single record
+        historyService.record(instance);
+
+        // records are persisted right before commit
+        verify(manager, never()).makePersistentAll(anyCollection());
+
+        PowerMockito.verifyStatic();
+        TransactionSynchronizationManager.registerSynchronization(synchronizationCaptor.capture());
+        synchronizationCaptor.getValue().beforeCommit(false);
 
-        verify(manager).makePersistent(recordHistoryCaptor.capture());
+        verify(manager).makePersistentAll(recordsCaptor.capture());
 
-        Record__History history = recordHistoryCaptor.getValue();
+        assertEquals(1, recordsCaptor.getValue().size());
+        Record__History history = (Record__History) recordsCaptor.getValue().iterator().next();
 
         assertEquals(instance.getId(), history.getRecord__HistoryCurrentVersion());
         assertEquals(Long.valueOf(4), history.getRecord__HistorySchemaVersion());
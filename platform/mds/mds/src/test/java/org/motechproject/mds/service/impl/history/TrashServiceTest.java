@@ -26,21 +26,29 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.wiring.BundleWiring;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.orm.jdo.JdoTransactionManager;
 
 import javax.jdo.PersistenceManager;
 import javax.jdo.PersistenceManagerFactory;
 import javax.jdo.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.motechproject.testing.utils.TimeFaker.fakeNow;
 import static org.motechproject.testing.utils.TimeFaker.stopFakingTime;
 
@@ -78,12 +86,18 @@ public class TrashServiceTest {
     @Mock
     private BundleWiring bundleWiring;
 
+    @Mock
+    private JdoTransactionManager transactionManager;
+
     @Mock
     Entity entity;
 
     @Captor
     private ArgumentCaptor<Record__Trash> trashCaptor;
 
+    @Captor
+    private ArgumentCaptor<Date> dateCaptor;
+
     private TrashService trashService;
 
     @Before
@@ -95,6 +109,7 @@ public class TrashServiceTest {
         ((TrashServiceImpl) trashService).setMdsSchedulerService(schedulerService);
         ((TrashServiceImpl) trashService).setPersistenceManagerFactory(factory);
         ((TrashServiceImpl) trashService).setBundleContext(bundleContext);
+        ((TrashServiceImpl) trashService).setTransactionManager(transactionManager);
 
         doReturn(manager).when(factory).getPersistenceManager();
         doReturn(query).when(manager).newQuery(Record.class);
@@ -136,6 +151,7 @@ public class TrashServiceTest {
 
         Record__Trash trash = trashCaptor.getValue();
         assertEquals(instance.getValue(), trash.getValue());
+        assertNotNull(trash.getRecord__TrashDeletionDate());
     }
 
     @Test
@@ -219,4 +235,43 @@ public class TrashServiceTest {
             stopFakingTime();
         }
     }
+
+    @Test
+    public void shouldEmptyTrashInChunks() throws Exception {
+        DateTime now = DateTime.now();
+
+        fakeNow(now);
+
+        try {
+            doReturn(Record__Trash.class).when(classLoader).loadClass("org.test.history.TestEntity__Trash");
+            doReturn(query).when(manager).newQuery(Record__Trash.class);
+            doReturn(3).when(settingsService).getTimeValue();
+            doReturn(TimeUnit.HOURS).when(settingsService).getTimeUnit();
+
+            List<Record__Trash> fullChunk = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                fullChunk.add(new Record__Trash());
+            }
+            List<Record__Trash> lastChunk = Arrays.asList(new Record__Trash());
+
+            Record__Trash legacyTrash = new Record__Trash();
+            when(query.execute()).thenReturn(Arrays.asList(legacyTrash));
+            when(query.execute(any(Date.class))).thenReturn(fullChunk, lastChunk);
+
+            trashService.emptyTrash(Arrays.asList("org.test.TestEntity"));
+
+            // trash without a deletion date gets the current date, so it is not removed right away
+            assertEquals(now.getMillis(), legacyTrash.getRecord__TrashDeletionDate().getTime());
+
+            verify(query, times(3)).setRange(0, 500);
+            verify(query).setFilter("record__TrashDeletionDate == null");
+            verify(query, times(2)).setFilter("record__TrashDeletionDate < deletedBefore");
+            verify(query, times(2)).execute(dateCaptor.capture());
+            assertEquals(now.minusHours(3).getMillis(), dateCaptor.getValue().getTime());
+            verify(manager).deletePersistentAll(fullChunk);
+            verify(manager).deletePersistentAll(lastChunk);
+        } finally {
+            stopFakingTime();
+        }
+    }
 }
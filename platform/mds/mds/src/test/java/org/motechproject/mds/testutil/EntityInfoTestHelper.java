@@ -0,0 +1,32 @@
+package org.motechproject.mds.testutil;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.mds.entityinfo.EntityInfo;
+import org.motechproject.mds.entityinfo.FieldAccessor;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Utility class for stubbing {@link EntityInfo} mocks.
+ */
+public final class EntityInfoTestHelper {
+
+    /**
+     * Makes the entity info mock return accessors that read the fields through reflection.
+     *
+     * @param entityInfoMock the mocked entity info
+     */
+    public static void mockAccessors(EntityInfo entityInfoMock) {
+        when(entityInfoMock.getAccessor(anyString())).thenAnswer(new Answer<FieldAccessor>() {
+            @Override
+            public FieldAccessor answer(InvocationOnMock invocation) {
+                return new FieldAccessor((String) invocation.getArguments()[0]);
+            }
+        });
+    }
+
+    private EntityInfoTestHelper() {
+    }
+}
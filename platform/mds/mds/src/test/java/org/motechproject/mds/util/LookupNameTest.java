@@ -24,6 +24,13 @@ public class LookupNameTest {
         assertEquals("countSample", LookupName.lookupCountMethod("sample"));
     }
 
+    @Test
+    public void shouldCreateIterateLookupMethodNames() {
+        assertEquals("iterateSampleLookupMethod", LookupName.lookupIterateMethod("Sample lookup Method"));
+        assertEquals("iterateSampleLookupMethod", LookupName.lookupIterateMethod("sample lookup method"));
+        assertEquals("iterateSample", LookupName.lookupIterateMethod("sample"));
+    }
+
     @Test
     public void shouldReturnRelatedName() {
         assertEquals("id", LookupName.getRelatedFieldName("fieldName.id"));
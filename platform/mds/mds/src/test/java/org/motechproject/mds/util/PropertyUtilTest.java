@@ -47,6 +47,39 @@ public class PropertyUtilTest {
         assertEquals(Long.valueOf(5), fromDb.id);
     }
 
+    @Test
+    public void shouldNotCopySkippedFields() {
+        TestClass fromDb = new TestClass(7, "fromDb", "accessible", 5L);
+        TestClass transientObj = new TestClass(8, "transient", "changed", 6L);
+
+        PropertyUtil.copyProperties(fromDb, transientObj, null, null, new HashSet<>(asList("accessibleString")));
+
+        assertEquals(8, fromDb.publicInt);
+        // no change since it is skipped
+        assertEquals("accessible", fromDb.accessibleString);
+    }
+
+    @Test
+    public void shouldCopyObjectValuesUsingCopyPlan() {
+        TestClass fromDb = new TestClass(7, "fromDb", "accessible", 5L);
+        TestClass transientObj = new TestClass(8, "transient", "changed", 6L);
+
+        PropertyUtil.CopyPlan plan = PropertyUtil.getCopyPlan(TestClass.class, TestClass.class, null);
+        plan.copy(fromDb, transientObj, null);
+
+        assertEquals(8, fromDb.publicInt);
+        assertEquals("changed", fromDb.accessibleString);
+        // no change
+        assertEquals("fromDb", fromDb.privateStr);
+        // no change since we ignore generated fields
+        assertEquals(Long.valueOf(5), fromDb.id);
+
+        plan.then(PropertyUtil.getCopyPlan(TestClass.class, TestClass.class, new HashSet<>(asList("id"))))
+                .copy(fromDb, transientObj, null);
+
+        assertEquals(Long.valueOf(6), fromDb.id);
+    }
+
     @Test
     public void shouldSetNullSetPropertyFromList() {
         TestClassWithCollections instance = new TestClassWithCollections();
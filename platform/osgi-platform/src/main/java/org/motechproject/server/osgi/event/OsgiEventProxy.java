@@ -1,6 +1,7 @@
 package org.motechproject.server.osgi.event;
 
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,6 +15,7 @@ public interface OsgiEventProxy {
     String PROXY_EVENT_TOPIC = "org/motechproject/osgi/event/PROXY";
     String SUBJECT_PARAM = "subject";
     String PARAMETERS_PARAM = "parameters";
+    String PARAMETERS_LIST_PARAM = "parametersList";
     String BROADCAST_PARAM = "broadcast";
     String PROXY_ON_RECEIVING_END_PARAM = "proxyOnReceivingEnd";
 
@@ -32,6 +34,15 @@ public interface OsgiEventProxy {
      */
     void sendEvent(String subject, Map<String, Object> parameters);
 
+    /**
+     * Sends many Motech events with the same subject using a single OSGi event. The event module looks up the listeners
+     * for the subject only once and packs the events into a few messages for each listener, instead of sending a
+     * message for every event. This should be preferred over calling {@link #sendEvent(String, Map)} in a loop.
+     * @param subject the subject of the events
+     * @param parametersList the payloads of the events, one map for each event
+     */
+    void sendEvents(String subject, List<Map<String, Object>> parametersList);
+
     /**
      * Calling this method will result in sending an OSGi event that will be then relayed by the event module
      * as a Motech Event through the event topic - all Motech instances will receive the event.
@@ -4,7 +4,9 @@ import org.motechproject.server.osgi.event.OsgiEventProxy;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,6 +32,18 @@ public class OsgiEventProxyImpl implements OsgiEventProxy {
         eventAdmin.postEvent(event);
     }
 
+    @Override
+    public void sendEvents(String subject, List<Map<String, Object>> parametersList) {
+        Map<String, Object> properties = new HashMap<>();
+
+        properties.put(SUBJECT_PARAM, subject);
+        properties.put(PARAMETERS_LIST_PARAM, new ArrayList<>(parametersList));
+        properties.put(BROADCAST_PARAM, false);
+        properties.put(PROXY_ON_RECEIVING_END_PARAM, false);
+
+        eventAdmin.postEvent(new Event(PROXY_EVENT_TOPIC, properties));
+    }
+
     @Override
     public void broadcastEvent(String subject, boolean proxyHandledEventInOSGi) {
         broadcastEvent(subject, new HashMap<String, Object>(), proxyHandledEventInOSGi);
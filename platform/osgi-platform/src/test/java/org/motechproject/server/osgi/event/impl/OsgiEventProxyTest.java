@@ -11,10 +11,13 @@ import org.motechproject.server.osgi.event.impl.OsgiEventProxyImpl;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -58,6 +61,22 @@ public class OsgiEventProxyTest {
         verifyEvent(true, true, params);
     }
 
+    @Test
+    public void shouldProxyManyEventsForQueueAtOnce() {
+        List<Map<String, Object>> paramsList = Arrays.asList(buildParams(), buildParams());
+        osgiEventProxy.sendEvents(SUBJECT, paramsList);
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventAdmin).postEvent(captor.capture());
+        Event event = captor.getValue();
+
+        assertEquals(OsgiEventProxy.PROXY_EVENT_TOPIC, event.getTopic());
+        assertEquals(SUBJECT, event.getProperty(OsgiEventProxy.SUBJECT_PARAM));
+        assertEquals(false, event.getProperty(OsgiEventProxy.BROADCAST_PARAM));
+        assertEquals(paramsList, event.getProperty(OsgiEventProxy.PARAMETERS_LIST_PARAM));
+        assertNull(event.getProperty(OsgiEventProxy.PARAMETERS_PARAM));
+    }
+
 
     private Map<String, Object> buildParams() {
         Map<String, Object> params = new HashMap<>();
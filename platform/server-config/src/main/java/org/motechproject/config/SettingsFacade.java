@@ -21,14 +21,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * SettingsFacade provides an interface to access application configuration present in files or database.
+ * SettingsFacade provides an interface to access application configuration present in files or database. Registered
+ * properties are kept in memory and read again from the configuration service only after their version changes, or
+ * after a few seconds, so that changes made on other nodes are picked up as well.
  */
 public class SettingsFacade {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SettingsFacade.class);
     private static final int CONFIG_SERVICE_WAIT_TIME = 10000; // 10s
+    private static final long PROPERTIES_CHECK_INTERVAL = 10000; // 10s
 
     private ConfigurationService configurationService;
 
@@ -38,6 +43,7 @@ public class SettingsFacade {
     private Map<String, Properties> config = new HashMap<>();
     private Map<String, Resource> rawConfig = new HashMap<>();
     private Map<String, Properties> defaultConfig = new HashMap<>();
+    private ConcurrentMap<String, PropertiesSnapshot> snapshots = new ConcurrentHashMap<>();
 
     private Bundle bundle;
     private BundleContext bundleContext;
@@ -114,12 +120,7 @@ public class SettingsFacade {
      * @return property value as {@code String}
      */
     public String getProperty(String key, String filename) {
-        String result = null;
-        Properties props = getProperties(filename);
-        if (props != null) {
-            result = props.getProperty(key);
-        }
-        return result;
+        return getCurrentProperties(filename).getProperty(key);
     }
 
     /**
@@ -129,20 +130,16 @@ public class SettingsFacade {
      * @return properties stored in the file
      */
     public Properties getProperties(String filename) {
+        Properties result = getCurrentProperties(filename);
+
         if (propsRegistered) {
-            try {
-                Properties p = configurationService.getBundleProperties(getBundleSymbolicName(), filename, defaultConfig.get(filename));
-                config.put(filename, p);
-            } catch (IOException e) {
-                throw new MotechException("Can't read settings", e);
-            }
+            // the snapshot is shared between threads, so callers get their own copy
+            Properties copy = new Properties();
+            copy.putAll(result);
+            result = copy;
         }
 
-        Properties result = config.get(filename);
-        if (result == null) {
-            result = defaultConfig.get(filename);
-        }
-        return (result == null ? new Properties() : result);
+        return result;
     }
 
 
@@ -167,6 +164,7 @@ public class SettingsFacade {
      */
     public void saveConfigProperties(String filename, Properties properties) {
         config.put(filename, properties);
+        snapshots.remove(filename);
         if (propsRegistered) {
             try {
                 configurationService.addOrUpdateProperties(getBundleSymbolicName(), getBundleVersion(), filename,
@@ -286,9 +284,7 @@ public class SettingsFacade {
                             filename, defaultConfig.get(filename), properties);
                 }
 
-                Properties registeredProps = configurationService.getBundleProperties(
-                        getBundleSymbolicName(), filename, defaultConfig.get(filename));
-                config.put(filename, registeredProps);
+                loadSnapshot(filename);
             } catch (IOException e) {
                 throw new MotechException("Cant register settings", e);
             }
@@ -385,6 +381,52 @@ public class SettingsFacade {
     }
 
 
+    private Properties getCurrentProperties(String filename) {
+        Properties result = null;
+
+        if (propsRegistered) {
+            PropertiesSnapshot snapshot = snapshots.get(filename);
+            long version = configurationService.getBundlePropertiesVersion(getBundleSymbolicName());
+
+            if (snapshot == null || !snapshot.isCurrent(version)) {
+                try {
+                    snapshot = loadSnapshot(filename);
+                } catch (IOException e) {
+                    throw new MotechException("Can't read settings", e);
+                }
+            }
+
+            result = snapshot.properties;
+        }
+
+        if (result == null) {
+            result = config.get(filename);
+        }
+        if (result == null) {
+            result = defaultConfig.get(filename);
+        }
+        return (result == null ? new Properties() : result);
+    }
+
+    private PropertiesSnapshot loadSnapshot(String filename) throws IOException {
+        // the version is read first, so that changes made while loading are picked up by the next read
+        long version = configurationService.getBundlePropertiesVersion(getBundleSymbolicName());
+        Properties properties = configurationService.getBundleProperties(getBundleSymbolicName(), filename,
+                defaultConfig.get(filename));
+
+        PropertiesSnapshot snapshot = new PropertiesSnapshot(properties, version);
+        snapshots.put(filename, snapshot);
+
+        Properties editable = null;
+        if (properties != null) {
+            editable = new Properties();
+            editable.putAll(properties);
+        }
+        config.put(filename, editable);
+
+        return snapshot;
+    }
+
     private void setProperty(String filename, String key, String value) {
         if (!config.containsKey(filename)) {
             config.put(filename, new Properties());
@@ -416,4 +458,24 @@ public class SettingsFacade {
     public boolean areConfigurationSettingsRegistered() {
         return propsRegistered && rawConfigRegistered;
     }
+
+    /**
+     * Properties of a file, as read from the configuration service in the given version.
+     */
+    private static final class PropertiesSnapshot {
+
+        private final Properties properties;
+        private final long version;
+        private final long loadTime;
+
+        private PropertiesSnapshot(Properties properties, long version) {
+            this.properties = properties;
+            this.version = version;
+            this.loadTime = System.currentTimeMillis();
+        }
+
+        private boolean isCurrent(long currentVersion) {
+            return version == currentVersion && System.currentTimeMillis() - loadTime < PROPERTIES_CHECK_INTERVAL;
+        }
+    }
 }
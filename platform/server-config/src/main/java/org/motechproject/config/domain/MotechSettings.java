@@ -209,4 +209,19 @@ public interface MotechSettings {
      */
     void setNumberOfDaysForReminder(Integer days);
 
+    /**
+     * Gets the number of seconds for which verified credentials and user authorities are cached, so that clients
+     * authenticating with every request don't have their passwords checked each time. 0 disables the cache.
+     *
+     * @return the time for which authentications are cached, in seconds
+     */
+    Integer getAuthenticationCacheTime();
+
+    /**
+     * Sets the number of seconds for which verified credentials and user authorities are cached.
+     *
+     * @param seconds the time for which authentications are cached, in seconds
+     */
+    void setAuthenticationCacheTime(Integer seconds);
+
 }
@@ -385,6 +385,17 @@ public class SettingsRecord implements MotechSettings {
         savePlatformSetting(ConfigurationConstants.PASSWORD_REMINDER_DAYS, intToStr(days));
     }
 
+    @Ignore
+    @Override
+    public Integer getAuthenticationCacheTime() {
+        return getInteger(ConfigurationConstants.AUTHENTICATION_CACHE_TIME);
+    }
+
+    @Override
+    public void setAuthenticationCacheTime(Integer seconds) {
+        savePlatformSetting(ConfigurationConstants.AUTHENTICATION_CACHE_TIME, intToStr(seconds));
+    }
+
     private Integer getInteger(String key) {
         String value = platformSettings.get(key);
         return StringUtils.isBlank(value) ? null : Integer.valueOf(value);
@@ -153,6 +153,16 @@ public interface ConfigurationService {
      */
     Properties getBundleProperties(String bundle, String filename, Properties defaultProperties) throws IOException;
 
+    /**
+     * Returns the version of the properties of the given bundle. The version changes after every change of the
+     * properties made on this node is committed, so that callers can keep the properties in memory and read them
+     * again only when the version is different.
+     *
+     * @param bundle the symbolic name of the bundle
+     * @return the current version of the bundle properties
+     */
+    long getBundlePropertiesVersion(String bundle);
+
     /**
      * <p>
      * Depending on the config source, it will either store properties in the DB or file.
@@ -30,6 +30,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -47,6 +49,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -70,6 +75,8 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     private Properties defaultConfig;
     private Properties configAnnotation;
 
+    private final ConcurrentMap<String, AtomicLong> bundlePropertiesVersions = new ConcurrentHashMap<>();
+
     @Autowired
     public ConfigurationServiceImpl(CoreConfigurationService coreConfigurationService,
                                     SettingsDataService settingsDataService, BundlePropertiesDataService bundlePropertiesDataService,
@@ -264,6 +271,12 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return MapUtils.toProperties(MotechMapUtils.mergeMaps(properties, defaultProperties));
     }
 
+    @Override
+    public long getBundlePropertiesVersion(String bundle) {
+        AtomicLong version = bundlePropertiesVersions.get(bundle);
+        return (version == null) ? 0 : version.get();
+    }
+
     @Override
     @Transactional
     public Map<String, Properties> getAllBundleProperties(String bundle, Map<String, Properties> allDefaultProperties) throws IOException {
@@ -374,6 +387,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             } catch (IOException e) {
                 throw new MotechConfigurationException("Could not delete configuration file", e);
             }
+            changeBundlePropertiesVersion(bundle);
         }
     }
 
@@ -558,6 +572,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         for (ModulePropertiesRecord record : records) {
             bundlePropertiesDataService.delete(record);
         }
+        changeBundlePropertiesVersion(bundle);
     }
 
     @Override
@@ -567,6 +582,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         for (ModulePropertiesRecord record : records) {
             bundlePropertiesDataService.delete(record);
         }
+        changeBundlePropertiesVersion(bundle);
     }
 
     @Override
@@ -624,6 +640,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             rec.setProperties(record.getProperties());
             bundlePropertiesDataService.update(rec);
         }
+        changeBundlePropertiesVersion(record.getBundle());
     }
 
     @Override
@@ -639,6 +656,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     public void removeBundleRecords(List<ModulePropertiesRecord> records) {
         for (ModulePropertiesRecord rec : records) {
             bundlePropertiesDataService.delete(rec);
+            changeBundlePropertiesVersion(rec.getBundle());
         }
     }
 
@@ -681,6 +699,32 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return null;
     }
 
+    private void changeBundlePropertiesVersion(final String bundle) {
+        incrementBundlePropertiesVersion(bundle);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // readers running before the changes are committed could load the old properties again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    incrementBundlePropertiesVersion(bundle);
+                }
+            });
+        }
+    }
+
+    private void incrementBundlePropertiesVersion(String bundle) {
+        AtomicLong version = bundlePropertiesVersions.get(bundle);
+
+        if (version == null) {
+            AtomicLong created = new AtomicLong();
+            AtomicLong existing = bundlePropertiesVersions.putIfAbsent(bundle, created);
+            version = (existing == null) ? created : existing;
+        }
+
+        version.incrementAndGet();
+    }
+
     private SettingsRecord getSettingsRecord() {
         List<SettingsRecord> records = settingsDataService.retrieveAll();
         return records.isEmpty() ? null : records.get(0);
@@ -21,6 +21,7 @@ import static junit.framework.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -88,6 +89,25 @@ public class SettingsFacadeTest {
     }
 
 
+    @Test
+    public void shouldReadPropertiesAgainOnlyAfterTheirVersionChanges() throws IOException {
+        setUpConfig();
+
+        assertEquals(LANGUAGE_VALUE, settingsFacade.getProperty(LANGUAGE_PROP));
+        assertEquals(LANGUAGE_VALUE, settingsFacade.getProperty(LANGUAGE_PROP, FILENAME));
+        settingsFacade.getProperties(FILENAME).put(LANGUAGE_PROP, "pl");
+        assertEquals(LANGUAGE_VALUE, settingsFacade.getProperty(LANGUAGE_PROP));
+
+        verify(configurationService, times(1)).getBundleProperties(eq(BUNDLE_NAME), eq(FILENAME), any(Properties.class));
+
+        when(configurationService.getBundlePropertiesVersion(BUNDLE_NAME)).thenReturn(1L);
+
+        assertEquals(LANGUAGE_VALUE, settingsFacade.getProperty(LANGUAGE_PROP));
+        assertEquals(LANGUAGE_VALUE, settingsFacade.getProperty(LANGUAGE_PROP));
+
+        verify(configurationService, times(2)).getBundleProperties(eq(BUNDLE_NAME), eq(FILENAME), any(Properties.class));
+    }
+
     @Test(expected = MotechConfigurationException.class)
     public void shouldThrowExceptionsComingFromService() throws IOException {
         when(configurationService.registersProperties(anyString(), anyString()))
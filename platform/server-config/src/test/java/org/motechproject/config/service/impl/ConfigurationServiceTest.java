@@ -177,6 +177,22 @@ public class ConfigurationServiceTest {
         assertEquals("somemodule.properties", deletedRecord.getFilename());
     }
 
+    @Test
+    public void shouldChangeBundlePropertiesVersionWhenPropertiesChange() {
+        final String module = "org.motechproject.motech-module1";
+        when(bundlePropertiesDataService.findByBundle(module)).thenReturn(new ArrayList<ModulePropertiesRecord>());
+
+        assertEquals(0, configurationService.getBundlePropertiesVersion(module));
+
+        configurationService.addOrUpdate(FileHelper.getResourceFile("config/org.motechproject.motech-module1/somemodule.properties"));
+        long version = configurationService.getBundlePropertiesVersion(module);
+        assertTrue(version > 0);
+
+        configurationService.deleteByBundle(module);
+        assertTrue(configurationService.getBundlePropertiesVersion(module) > version);
+        assertEquals(0, configurationService.getBundlePropertiesVersion("other-module"));
+    }
+
     @Test
     public void shouldGetEmptyPropertiesWhenNoPropertiesAreFound() throws java.io.IOException {
         final String module = "mds";
@@ -0,0 +1,157 @@
+package org.motechproject.security.authentication;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.security.service.AuthenticationTokenService;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SaveContextOnUpdateOrErrorResponseWrapper;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.motechproject.security.service.AuthenticationTokenService.AUTHORIZATION_HEADER;
+import static org.motechproject.security.service.AuthenticationTokenService.TOKEN_COOKIE;
+import static org.motechproject.security.service.AuthenticationTokenService.TOKEN_HEADER;
+import static org.motechproject.security.service.AuthenticationTokenService.TOKEN_PREFIX;
+
+/**
+ * Security context repository used in the stateless authentication mode. Instead of keeping the security context
+ * in the HTTP session, it is restored from the signed token sent by the client, either in the authorization header
+ * or in a cookie. Once a user authenticates, or when the presented token should be renewed, a new token is returned
+ * both in a response header and in a cookie. Clients sending their credentials with every request using basic
+ * authentication don't get tokens. When the user logs out, all tokens of the user are revoked and the cookie is
+ * cleared.
+ */
+public class MotechTokenSecurityContextRepository implements SecurityContextRepository, LogoutHandler {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final AuthenticationTokenService authenticationTokenService;
+
+    public MotechTokenSecurityContextRepository(AuthenticationTokenService authenticationTokenService) {
+        this.authenticationTokenService = authenticationTokenService;
+    }
+
+    @Override
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        HttpServletRequest request = requestResponseHolder.getRequest();
+        String token = getToken(request);
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        Authentication authentication = null == token ? null : authenticationTokenService.authenticate(token);
+
+        if (null != authentication) {
+            context.setAuthentication(authentication);
+        }
+
+        // basic authentication clients send their credentials anyway, a token would only be another secret to leak
+        boolean tokenNeeded = (null == authentication || !authenticationTokenService.isCurrent(token))
+                && !StringUtils.startsWithIgnoreCase(request.getHeader(AUTHORIZATION_HEADER), BASIC_PREFIX);
+        requestResponseHolder.setResponse(new SaveToTokenResponseWrapper(requestResponseHolder.getResponse(),
+                request, tokenNeeded));
+
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        if (response instanceof SaveToTokenResponseWrapper) {
+            ((SaveToTokenResponseWrapper) response).saveToken(context);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        String token = getToken(request);
+        return null != token && null != authenticationTokenService.authenticate(token);
+    }
+
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        if (null != authentication) {
+            authenticationTokenService.revokeTokens(authentication.getName());
+        }
+
+        addCookie(request, response, "", 0);
+    }
+
+    private static String getToken(HttpServletRequest request) {
+        String header = request.getHeader(AUTHORIZATION_HEADER);
+
+        if (StringUtils.startsWith(header, TOKEN_PREFIX)) {
+            return StringUtils.trimToNull(header.substring(TOKEN_PREFIX.length()));
+        }
+
+        Cookie[] cookies = request.getCookies();
+
+        if (null != cookies) {
+            for (Cookie cookie : cookies) {
+                if (TOKEN_COOKIE.equals(cookie.getName())) {
+                    return StringUtils.trimToNull(cookie.getValue());
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static void addCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        // written by hand, since the servlet API in use does not support HttpOnly cookies
+        StringBuilder cookie = new StringBuilder(TOKEN_COOKIE).append('=').append(value)
+                .append("; Path=").append(request.getContextPath()).append('/')
+                .append("; HttpOnly");
+
+        if (maxAge >= 0) {
+            cookie.append("; Max-Age=").append(maxAge);
+        }
+        if (request.isSecure()) {
+            cookie.append("; Secure");
+        }
+
+        response.addHeader("Set-Cookie", cookie.toString());
+    }
+
+    /**
+     * Adds a new token to the response, before it gets committed.
+     */
+    private final class SaveToTokenResponseWrapper extends SaveContextOnUpdateOrErrorResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final boolean tokenNeeded;
+        private boolean tokenSaved;
+
+        private SaveToTokenResponseWrapper(HttpServletResponse response, HttpServletRequest request,
+                                           boolean tokenNeeded) {
+            super(response, true);
+            this.request = request;
+            this.tokenNeeded = tokenNeeded;
+        }
+
+        @Override
+        protected void saveContext(SecurityContext context) {
+            saveToken(context);
+        }
+
+        private void saveToken(SecurityContext context) {
+            Authentication authentication = context.getAuthentication();
+
+            if (tokenSaved || !tokenNeeded || isCommitted() || null == authentication
+                    || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+                return;
+            }
+
+            String token = authenticationTokenService.createToken(authentication.getName());
+
+            setHeader(TOKEN_HEADER, token);
+            addCookie(request, this, token, -1);
+
+            tokenSaved = true;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.commons.lang.StringUtils;
 import org.motechproject.security.authentication.MotechAccessVoter;
 import org.motechproject.security.authentication.MotechLogoutSuccessHandler;
 import org.motechproject.security.authentication.MotechRestBasicAuthenticationEntryPoint;
+import org.motechproject.security.authentication.MotechTokenSecurityContextRepository;
 import org.motechproject.security.chain.MotechSecurityFilterChain;
 import org.motechproject.security.constants.HTTPMethod;
 import org.motechproject.security.constants.Protocol;
@@ -13,6 +14,7 @@ import org.motechproject.security.constants.SecurityConfigConstants;
 import org.motechproject.security.domain.MotechURLSecurityRule;
 import org.motechproject.config.SettingsFacade;
 import org.motechproject.security.exception.SecurityConfigException;
+import org.motechproject.security.service.AuthenticationTokenService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +47,7 @@ import org.springframework.security.web.context.HttpSessionSecurityContextReposi
 import org.springframework.security.web.context.SecurityContextPersistenceFilter;
 import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.security.web.savedrequest.HttpSessionRequestCache;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.savedrequest.RequestCache;
 import org.springframework.security.web.savedrequest.RequestCacheAwareFilter;
 import org.springframework.security.web.servletapi.SecurityContextHolderAwareRequestFilter;
@@ -58,7 +61,9 @@ import javax.servlet.Filter;
 import javax.servlet.ServletException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,7 +76,9 @@ import static org.motechproject.security.constants.Protocol.HTTP;
  * SecurityFilterChain, which consists of a matcher pattern
  * and a list of Spring security filters. The filters are
  * created and configured base upon the security rule's
- * settings.
+ * settings. Rules with the same security settings share one set
+ * of filters. In the stateless authentication mode, the security
+ * context is kept in signed tokens instead of HTTP sessions.
  */
 @Component
 public class SecurityRuleBuilder {
@@ -90,6 +97,9 @@ public class SecurityRuleBuilder {
     private MotechLogoutSuccessHandler motechLogoutHandler;
     private AuthenticationEntryPoint basicAuthenticationEntryPoint;
     private AuthenticationEntryPoint loginAuthenticationEntryPoint;
+    private AuthenticationTokenService authenticationTokenService;
+
+    private final Map<List<Object>, List<Filter>> filterStacks = new HashMap<>();
 
     /**
      * Builds SecurityFilterChain which is capable of being
@@ -119,16 +129,39 @@ public class SecurityRuleBuilder {
         }
 
         if (!noSecurity(securityRule)) {
+            filters = getFilters(securityRule);
+        }
+
+        LOGGER.info("Built security chain for rule: {} and method: {}", securityRule.getPattern(), method);
+
+        return new MotechSecurityFilterChain(securityRule, matcher, filters);
+    }
+
+    /**
+     * Forgets the filters built so far, so that chains built afterwards get new filters. Should be called before
+     * the whole security chain is rebuilt, so that the filters of removed rules can be released.
+     */
+    public synchronized void clearFilterStacks() {
+        filterStacks.clear();
+    }
+
+    private List<Filter> getFilters(MotechURLSecurityRule securityRule) {
+        // everything the filters are built from, the pattern is left out since a chain only runs for matching requests
+        List<Object> key = Arrays.<Object>asList(securityRule.getProtocol(), securityRule.isRest(),
+                securityRule.getSupportedSchemes(), securityRule.getPermissionAccess(), securityRule.getUserAccess());
+        List<Filter> filters = filterStacks.get(key);
+
+        if (null == filters) {
             try {
                 filters = addFilters(securityRule);
+                filterStacks.put(key, filters);
             } catch (ServletException e) {
                 LOGGER.error("Cannot create {} in {} security rule.", SecurityContextHolderAwareRequestFilter.class, securityRule.getPattern(), e);
+                filters = new ArrayList<>();
             }
         }
 
-        LOGGER.info("Built security chain for rule: {} and method: {}", securityRule.getPattern(), method);
-
-        return new MotechSecurityFilterChain(securityRule, matcher, filters);
+        return filters;
     }
 
     private void validateRule(MotechURLSecurityRule securityRule) {
@@ -174,12 +207,20 @@ public class SecurityRuleBuilder {
     private List<Filter> addFilters(MotechURLSecurityRule securityRule) throws ServletException {
         List<Filter> filters = new ArrayList<>();
 
-        SecurityContextRepository contextRepository = new HttpSessionSecurityContextRepository();
-        RequestCache requestCache = new HttpSessionRequestCache();
+        SecurityContextRepository contextRepository;
+        RequestCache requestCache;
+
+        if (isStateless()) {
+            contextRepository = new MotechTokenSecurityContextRepository(authenticationTokenService);
+            requestCache = new NullRequestCache();
+        } else {
+            contextRepository = new HttpSessionSecurityContextRepository();
+            requestCache = new HttpSessionRequestCache();
+        }
 
         addSecureChannel(filters, securityRule.getProtocol());
         addSecurityContextPersistenceFilter(filters, contextRepository);
-        addLogoutFilter(filters, securityRule);
+        addLogoutFilter(filters, securityRule, contextRepository);
         addAuthenticationFilters(filters, securityRule);
         addRequestCacheFilter(filters, requestCache);
         addSecurityContextHolderAwareRequestFilter(filters);
@@ -196,13 +237,27 @@ public class SecurityRuleBuilder {
         filters.add(sessionManagementFilter);
     }
 
-    private void addLogoutFilter(List<Filter> filters, MotechURLSecurityRule securityRule) {
+    private boolean isStateless() {
+        return null != authenticationTokenService && authenticationTokenService.isEnabled();
+    }
+
+    private void addLogoutFilter(List<Filter> filters, MotechURLSecurityRule securityRule,
+                                 SecurityContextRepository contextRepository) {
         if (securityRule.isRest()) {
             return;
         }
 
         LogoutHandler springLogoutHandler = new SecurityContextLogoutHandler();
-        LogoutFilter logoutFilter = new LogoutFilter("/module/server/login", motechLogoutHandler, springLogoutHandler);
+        LogoutFilter logoutFilter;
+
+        if (contextRepository instanceof LogoutHandler) {
+            // the token repository clears the token cookie
+            logoutFilter = new LogoutFilter("/module/server/login", motechLogoutHandler, springLogoutHandler,
+                    (LogoutHandler) contextRepository);
+        } else {
+            logoutFilter = new LogoutFilter("/module/server/login", motechLogoutHandler, springLogoutHandler);
+        }
+
         logoutFilter.setFilterProcessesUrl("/module/server/j_spring_security_logout");
         filters.add(logoutFilter);
     }
@@ -242,7 +297,7 @@ public class SecurityRuleBuilder {
             }
         }
 
-        buildRequestMap(requestMap, configAtts, securityRule);
+        buildRequestMap(requestMap, configAtts);
 
         FilterInvocationSecurityMetadataSource metadataSource = new DefaultFilterInvocationSecurityMetadataSource((LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>) requestMap);
 
@@ -266,23 +321,9 @@ public class SecurityRuleBuilder {
 
 
     private void buildRequestMap(Map<RequestMatcher, Collection<ConfigAttribute>> requestMap,
-                                 Collection<ConfigAttribute> configAtts, MotechURLSecurityRule securityRule) {
-        String pattern = securityRule.getPattern();
-
-        for (HTTPMethod method : securityRule.getMethodsRequired()) {
-            RequestMatcher matcher;
-
-            if (securityRule.getMethodsRequired().contains(ANY) &&
-                    (pattern.equals(SecurityConfigConstants.ANY_PATTERN) || "/**".equals(pattern))) {
-                matcher = AnyRequestMatcher.INSTANCE;
-            } else if (securityRule.getMethodsRequired().contains(ANY)) {
-                matcher = new AntPathRequestMatcher(pattern, null);
-            } else {
-                matcher = new AntPathRequestMatcher(pattern, method.name());
-            }
-
-            requestMap.put(matcher, configAtts);
-        }
+                                 Collection<ConfigAttribute> configAtts) {
+        // the interceptor only sees requests already matched by the chain, which makes it shareable between rules
+        requestMap.put(AnyRequestMatcher.INSTANCE, configAtts);
     }
 
     private void addExceptionTranslationFilter(List<Filter> filters, RequestCache requestCache, boolean isRest) {
@@ -383,6 +424,11 @@ public class SecurityRuleBuilder {
         this.motechLogoutHandler = motechLogoutHandler;
     }
 
+    @Autowired(required = false)
+    public void setAuthenticationTokenService(AuthenticationTokenService authenticationTokenService) {
+        this.authenticationTokenService = authenticationTokenService;
+    }
+
     @Autowired
     @Qualifier("basicAuthenticationEntryPoint")
     public void setBasicAuthenticationEntryPoint(AuthenticationEntryPoint basicAuthenticationEntryPoint) {
@@ -0,0 +1,111 @@
+package org.motechproject.security.chain;
+
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.firewall.DefaultHttpFirewall;
+import org.springframework.security.web.firewall.FirewalledRequest;
+import org.springframework.security.web.firewall.HttpFirewall;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link org.springframework.security.web.FilterChainProxy} which finds the chain for a request using a
+ * {@link org.motechproject.security.chain.SecurityChainMatcher}, instead of trying every chain in turn. Apart from
+ * that, requests are handled the same way Spring's proxy handles them.
+ */
+public class MotechFilterChainProxy extends FilterChainProxy {
+
+    // the same attribute Spring's proxy uses, so that nested proxies behave the same way
+    private static final String FILTER_APPLIED = FilterChainProxy.class.getName().concat(".APPLIED");
+
+    private final SecurityChainMatcher chainMatcher;
+    private HttpFirewall firewall = new DefaultHttpFirewall();
+
+    public MotechFilterChainProxy(List<SecurityFilterChain> filterChains, SecurityChainMatcher chainMatcher) {
+        super(filterChains);
+        this.chainMatcher = chainMatcher;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        boolean clearContext = request.getAttribute(FILTER_APPLIED) == null;
+
+        if (clearContext) {
+            try {
+                request.setAttribute(FILTER_APPLIED, Boolean.TRUE);
+                doFilterInternal(request, response, chain);
+            } finally {
+                SecurityContextHolder.clearContext();
+                request.removeAttribute(FILTER_APPLIED);
+            }
+        } else {
+            doFilterInternal(request, response, chain);
+        }
+    }
+
+    @Override
+    public void setFirewall(HttpFirewall firewall) {
+        super.setFirewall(firewall);
+        this.firewall = firewall;
+    }
+
+    public SecurityChainMatcher getChainMatcher() {
+        return chainMatcher;
+    }
+
+    private void doFilterInternal(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        FirewalledRequest firewalledRequest = firewall.getFirewalledRequest((HttpServletRequest) request);
+        HttpServletResponse firewalledResponse = firewall.getFirewalledResponse((HttpServletResponse) response);
+
+        SecurityFilterChain securityChain = chainMatcher.getChain(firewalledRequest);
+        List<Filter> filters = null == securityChain ? null : securityChain.getFilters();
+
+        if (null == filters || filters.isEmpty()) {
+            firewalledRequest.reset();
+            chain.doFilter(firewalledRequest, firewalledResponse);
+        } else {
+            new VirtualFilterChain(firewalledRequest, chain, filters).doFilter(firewalledRequest, firewalledResponse);
+        }
+    }
+
+    /**
+     * Runs the filters of the matched security chain, then continues with the original chain.
+     */
+    private static final class VirtualFilterChain implements FilterChain {
+
+        private final FirewalledRequest firewalledRequest;
+        private final FilterChain originalChain;
+        private final List<Filter> additionalFilters;
+        private int currentPosition;
+
+        private VirtualFilterChain(FirewalledRequest firewalledRequest, FilterChain originalChain,
+                                   List<Filter> additionalFilters) {
+            this.firewalledRequest = firewalledRequest;
+            this.originalChain = originalChain;
+            this.additionalFilters = additionalFilters;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if (currentPosition == additionalFilters.size()) {
+                // the request leaves the security filters, remove the path stripping done by the firewall
+                firewalledRequest.reset();
+                originalChain.doFilter(request, response);
+            } else {
+                Filter nextFilter = additionalFilters.get(currentPosition++);
+                nextFilter.doFilter(request, response, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.motechproject.security.chain;
+
+import org.motechproject.security.constants.HTTPMethod;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the security filter chain that should handle a request, without asking every chain whether it matches.
+ * Chains are kept in a tree of the literal path segments their patterns start with, split by the HTTP method they
+ * apply to. For a request only the chains found along its path are candidates, and they are tried in the order
+ * they were added, so the first chain matching the request wins, just like in Spring's FilterChainProxy. The final
+ * decision is always made by the chain itself, the tree only skips chains that can't match.
+ */
+public class SecurityChainMatcher {
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Adds a chain to the matcher. Chains must be added in the order of their priority, highest first.
+     *
+     * @param chain the chain to add
+     * @param pattern the URL pattern of the security rule the chain was built for
+     * @param method the HTTP method the chain was built for
+     */
+    public void addChain(SecurityFilterChain chain, String pattern, HTTPMethod method) {
+        // chains matching any request, or not built by the rule builder, are candidates for every request
+        boolean anyRequest = !(chain instanceof MotechSecurityFilterChain)
+                || ((MotechSecurityFilterChain) chain).getRequestMatcher() instanceof AnyRequestMatcher;
+        Node node = root;
+
+        if (!anyRequest) {
+            for (String segment : tokenize(pattern)) {
+                if (isWildcard(segment)) {
+                    break;
+                }
+
+                Node child = node.children.get(segment);
+                if (null == child) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+        }
+
+        String bucket = anyRequest || null == method || HTTPMethod.ANY == method ? null : method.name();
+
+        List<Candidate> candidates = node.buckets.get(bucket);
+        if (null == candidates) {
+            candidates = new ArrayList<>();
+            node.buckets.put(bucket, candidates);
+        }
+        candidates.add(new Candidate(size++, chain));
+    }
+
+    /**
+     * Returns the chain that should handle the given request.
+     *
+     * @param request the request to match
+     * @return the matching chain with the highest priority, or null if no chain matches the request
+     */
+    public SecurityFilterChain getChain(HttpServletRequest request) {
+        List<Candidate> candidates = new ArrayList<>();
+        String method = request.getMethod();
+        Node node = root;
+
+        collectCandidates(node, method, candidates);
+
+        for (String segment : tokenize(getRequestPath(request))) {
+            node = node.children.get(segment);
+            if (null == node) {
+                break;
+            }
+            collectCandidates(node, method, candidates);
+        }
+
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate one, Candidate other) {
+                return Integer.compare(one.index, other.index);
+            }
+        });
+
+        for (Candidate candidate : candidates) {
+            if (candidate.chain.matches(request)) {
+                return candidate.chain;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the number of chains in this matcher
+     */
+    public int size() {
+        return size;
+    }
+
+    private void collectCandidates(Node node, String method, List<Candidate> candidates) {
+        List<Candidate> anyMethod = node.buckets.get(null);
+        if (null != anyMethod) {
+            candidates.addAll(anyMethod);
+        }
+
+        List<Candidate> forMethod = null == method ? null : node.buckets.get(method);
+        if (null != forMethod) {
+            candidates.addAll(forMethod);
+        }
+    }
+
+    private static String getRequestPath(HttpServletRequest request) {
+        // the same path the AntPathRequestMatcher matches against
+        String path = request.getServletPath();
+
+        if (null != request.getPathInfo()) {
+            path = null == path ? request.getPathInfo() : path + request.getPathInfo();
+        }
+
+        return path;
+    }
+
+    private static String[] tokenize(String path) {
+        // Ant patterns are case insensitive and skip empty segments, so the tree does the same
+        return null == path
+                ? new String[0]
+                : StringUtils.tokenizeToStringArray(path.toLowerCase(), PATH_SEPARATOR, true, true);
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.contains("*") || segment.contains("?") || segment.contains("{");
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final Map<String, List<Candidate>> buckets = new HashMap<>();
+    }
+
+    private static final class Candidate {
+
+        private final int index;
+        private final SecurityFilterChain chain;
+
+        private Candidate(int index, SecurityFilterChain chain) {
+            this.index = index;
+            this.chain = chain;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.motechproject.security.validator.PasswordValidator;
 public interface SettingService {
 
     int DEFAULT_SESSION_TIMEOUT = 30 * 60; // 30 minutes
+    int DEFAULT_AUTHENTICATION_CACHE_TIME = 60; // 1 minute
 
     /**
      * Returns whether providing an email is required for creating a user.
@@ -68,4 +69,12 @@ public interface SettingService {
      */
     int getNumberOfDaysForReminder();
 
+    /**
+     * Gets the number of seconds for which verified credentials and user authorities are cached. If the time is
+     * not configured, the default of 60 seconds is returned. 0 or less means that nothing is cached.
+     *
+     * @return the time for which authentications are cached, in seconds
+     */
+    int getAuthenticationCacheTime();
+
 }
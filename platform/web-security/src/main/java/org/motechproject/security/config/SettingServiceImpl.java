@@ -96,4 +96,11 @@ public class SettingServiceImpl implements SettingService {
         Integer days = motechSettings.getNumberOfDaysForReminder();
         return days == null ? 0 : days;
     }
+
+    @Override
+    public int getAuthenticationCacheTime() {
+        MotechSettings motechSettings = configurationService.getPlatformSettings();
+        Integer cacheTime = motechSettings.getAuthenticationCacheTime();
+        return cacheTime == null ? DEFAULT_AUTHENTICATION_CACHE_TIME : cacheTime;
+    }
 }
@@ -0,0 +1,62 @@
+package org.motechproject.security.domain;
+
+import org.motechproject.mds.annotations.Access;
+import org.motechproject.mds.annotations.Entity;
+import org.motechproject.mds.annotations.Field;
+import org.motechproject.mds.util.SecurityMode;
+import org.motechproject.security.constants.PermissionNames;
+
+import javax.jdo.annotations.Unique;
+
+/**
+ * Entity that holds the state shared by all nodes issuing authentication tokens: the key the tokens are signed with
+ * and the version of the permissions, which changes whenever users, roles or permissions change.
+ */
+@Entity
+@Access(value = SecurityMode.PERMISSIONS, members = {PermissionNames.MANAGE_USER_PERMISSION})
+public class AuthenticationTokenState {
+
+    @Field(required = true)
+    @Unique
+    private String name;
+
+    @Field(required = true)
+    private String signingKey;
+
+    @Field(required = true)
+    private Long permissionsVersion;
+
+    public AuthenticationTokenState() {
+        this(null, null, null);
+    }
+
+    public AuthenticationTokenState(String name, String signingKey, Long permissionsVersion) {
+        this.name = name;
+        this.signingKey = signingKey;
+        this.permissionsVersion = permissionsVersion;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSigningKey() {
+        return signingKey;
+    }
+
+    public void setSigningKey(String signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public Long getPermissionsVersion() {
+        return permissionsVersion;
+    }
+
+    public void setPermissionsVersion(Long permissionsVersion) {
+        this.permissionsVersion = permissionsVersion;
+    }
+}
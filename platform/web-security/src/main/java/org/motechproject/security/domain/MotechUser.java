@@ -60,6 +60,9 @@ public class MotechUser {
     @Field
     private DateTime modificationDate;
 
+    @Field
+    private DateTime tokensNotBefore;
+
     public MotechUser() {
         this(null, null, null, null, null, null, null);
     }
@@ -93,6 +96,8 @@ public class MotechUser {
     public void setPassword(String password) {
         if (!StringUtils.equals(this.password, password)) {
             lastPasswordChange = DateUtil.now();
+            // authentication tokens issued with the old password are no longer accepted
+            tokensNotBefore = lastPasswordChange;
         }
         this.password = password;
     }
@@ -176,6 +181,20 @@ public class MotechUser {
         this.modificationDate = modificationDate;
     }
 
+    /**
+     * Gets the time before which authentication tokens of this user were revoked, because the user logged out or
+     * changed the password.
+     *
+     * @return the time from which tokens of this user are accepted, or null if none were revoked
+     */
+    public DateTime getTokensNotBefore() {
+        return tokensNotBefore;
+    }
+
+    public void setTokensNotBefore(DateTime tokensNotBefore) {
+        this.tokensNotBefore = tokensNotBefore;
+    }
+
     @Ignore
     public DateTime getSafeLastPasswordChange() {
         if (lastPasswordChange == null) {
@@ -0,0 +1,15 @@
+package org.motechproject.security.mds;
+
+import org.motechproject.mds.annotations.Lookup;
+import org.motechproject.mds.annotations.LookupField;
+import org.motechproject.mds.service.MotechDataService;
+import org.motechproject.security.domain.AuthenticationTokenState;
+
+/**
+ * Interface for data service injected by MDS
+ */
+public interface AuthenticationTokenStatesDataService extends MotechDataService<AuthenticationTokenState> {
+
+    @Lookup
+    AuthenticationTokenState findByName(@LookupField(name = "name") String name);
+}
@@ -4,6 +4,7 @@ import org.motechproject.config.domain.LoginMode;
 import org.motechproject.security.domain.MotechUser;
 import org.motechproject.security.exception.EmailExistsException;
 import org.motechproject.security.mds.MotechUsersDataService;
+import org.motechproject.security.service.AuthenticationCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +22,7 @@ import static org.apache.commons.lang.StringUtils.isNotBlank;
 @Repository
 public class MotechUsersDao {
     private MotechUsersDataService dataService;
+    private AuthenticationCacheService authenticationCacheService;
 
     /**
      * Gets MotechUser with given name
@@ -109,6 +111,7 @@ public class MotechUsersDao {
         }
 
         dataService.update(motechUser);
+        invalidateCache(motechUser);
     }
 
     /**
@@ -119,6 +122,7 @@ public class MotechUsersDao {
     @Transactional
     public void remove(MotechUser motechUser) {
         dataService.delete(motechUser);
+        invalidateCache(motechUser);
     }
 
     /**
@@ -165,8 +169,19 @@ public class MotechUsersDao {
         return users;
     }
 
+    private void invalidateCache(MotechUser motechUser) {
+        if (null != authenticationCacheService) {
+            authenticationCacheService.invalidateUser(motechUser.getUserName());
+        }
+    }
+
     @Autowired
     public void setDataService(MotechUsersDataService dataService) {
         this.dataService = dataService;
     }
+
+    @Autowired(required = false)
+    public void setAuthenticationCacheService(AuthenticationCacheService authenticationCacheService) {
+        this.authenticationCacheService = authenticationCacheService;
+    }
 }
@@ -0,0 +1,98 @@
+package org.motechproject.security.service;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Service that keeps recently verified credentials and the authorities of users, so that clients authenticating
+ * on every request, like REST clients using basic authentication, don't hit the database and the password encoder
+ * each time. Credentials are never kept in plain text, entries are looked up by a salted hash of them. Entries expire
+ * after the time configured in the platform settings, and are dropped whenever users, roles or permissions change.
+ * Invalidations are broadcast, so that entries are dropped on every MOTECH instance.
+ */
+public interface AuthenticationCacheService {
+
+    /**
+     * The subject of the event broadcast to drop entries on all instances.
+     */
+    String INVALIDATE_SUBJECT = "org.motechproject.security.authenticationCache.invalidate";
+
+    /**
+     * The parameter of the invalidation event, holding the name of the user whose entries should be dropped. All
+     * entries are dropped if it is missing.
+     */
+    String USERNAME_PARAM = "username";
+
+    /**
+     * Returns an authentication for the given request, if its credentials were verified recently. The returned
+     * authentication is built with the details of the request. As when the user is retrieved from the database,
+     * the details of the request are first replaced with the profile of the user.
+     *
+     * @param username the presented username
+     * @param password the presented password
+     * @param request the authentication request
+     * @return the authentication, or null if the credentials were not verified recently
+     */
+    Authentication getAuthentication(String username, String password, UsernamePasswordAuthenticationToken request);
+
+    /**
+     * Caches the authentication created after successfully verifying the given credentials. Its details are kept as
+     * the profile of the user.
+     *
+     * @param username the presented username
+     * @param password the presented password
+     * @param authentication the successful authentication
+     */
+    void putAuthentication(String username, String password, Authentication authentication);
+
+    /**
+     * Returns the authorities of the given user, if they were collected recently for the same roles.
+     *
+     * @param username the name of the user
+     * @param roles the roles the user has now
+     * @return the cached authorities, or null if there are none for these roles
+     */
+    List<GrantedAuthority> getAuthorities(String username, List<String> roles);
+
+    /**
+     * Caches the authorities collected for the given user.
+     *
+     * @param username the name of the user
+     * @param roles the roles of the user, from which the authorities were collected
+     * @param authorities the authorities of the user
+     */
+    void putAuthorities(String username, List<String> roles, List<GrantedAuthority> authorities);
+
+    /**
+     * Drops all entries of the given user. If called within a transaction, the entries are dropped again once
+     * the transaction completes, so that requests running in the meantime don't cache stale data, and the other
+     * instances are told to drop them after it commits.
+     *
+     * @param username the name of the user
+     */
+    void invalidateUser(String username);
+
+    /**
+     * Drops all entries, for example after roles or permissions were changed. The other instances are told to drop
+     * their entries as well.
+     */
+    void invalidateAll();
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of lookups that were not found in the cache
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of entries currently held in the cache
+     */
+    int getSize();
+}
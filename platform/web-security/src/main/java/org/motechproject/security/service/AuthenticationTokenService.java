@@ -0,0 +1,81 @@
+package org.motechproject.security.service;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * Service for the stateless authentication mode, in which users are not kept in HTTP sessions, but carry a signed
+ * token instead. A token holds the name of the user, the version of the permissions it was issued for, its issue time
+ * and its expiration time, so that it can be verified by any node, without reading the database or checking
+ * the password.
+ * Changing users, roles or permissions bumps the version of the permissions, and tokens issued for an older version
+ * are renewed with the current authorities of the user on their next use.
+ */
+public interface AuthenticationTokenService {
+
+    /**
+     * The header in which clients can send the token, prefixed with {@link #TOKEN_PREFIX}.
+     */
+    String AUTHORIZATION_HEADER = "Authorization";
+
+    /**
+     * The prefix of the token in the authorization header.
+     */
+    String TOKEN_PREFIX = "Bearer ";
+
+    /**
+     * The response header in which new tokens are returned.
+     */
+    String TOKEN_HEADER = "X-Auth-Token";
+
+    /**
+     * The cookie in which new tokens are stored for browsers.
+     */
+    String TOKEN_COOKIE = "MOTECH_AUTH_TOKEN";
+
+    /**
+     * Checks whether the stateless authentication mode is enabled in the settings of the web security module.
+     *
+     * @return true if users should be authenticated with tokens instead of sessions
+     */
+    boolean isEnabled();
+
+    /**
+     * Creates a new token for the given user, valid for the lifetime configured in the settings.
+     *
+     * @param username the name of the authenticated user
+     * @return the signed token
+     */
+    String createToken(String username);
+
+    /**
+     * Verifies the given token and returns the authentication of its user.
+     *
+     * @param token the token presented by the client
+     * @return the authentication of the user, or null if the token is not valid, expired, or its user is no longer
+     * active
+     */
+    Authentication authenticate(String token);
+
+    /**
+     * Checks whether the given token can still be used as it is. Tokens issued for an older version of the
+     * permissions, or past half of their lifetime, should be replaced with new ones.
+     *
+     * @param token the token presented by the client
+     * @return true if the token is valid and should not be renewed yet
+     */
+    boolean isCurrent(String token);
+
+    /**
+     * Revokes all tokens issued so far for the given user, for example when the user logs out. Tokens are also
+     * revoked when the user changes the password.
+     *
+     * @param username the name of the user
+     */
+    void revokeTokens(String username);
+
+    /**
+     * Changes the version of the permissions, so that all tokens get renewed with the current authorities of their
+     * users. Called whenever users, roles or permissions change.
+     */
+    void changePermissionsVersion();
+}
@@ -3,6 +3,8 @@ package org.motechproject.security.service;
 import org.motechproject.commons.api.MotechException;
 import org.motechproject.commons.api.json.MotechJsonReader;
 import org.motechproject.security.builder.SecurityRuleBuilder;
+import org.motechproject.security.chain.MotechFilterChainProxy;
+import org.motechproject.security.chain.SecurityChainMatcher;
 import org.motechproject.security.constants.HTTPMethod;
 import org.motechproject.security.domain.MotechSecurityConfiguration;
 import org.motechproject.security.domain.MotechURLSecurityRule;
@@ -31,7 +33,9 @@ import static org.motechproject.security.constants.SecurityConfigConstants.SYSTE
  * which Spring's security consults for filters when handling requests. In order
  * to dynamically define new secure, a new FilterChainProxy is constructed and the
  * reference is updated. The MotechProxyManager acts as a customized delegate
- * in MotechDelegatingFilterProxy.
+ * in MotechDelegatingFilterProxy. The chains are compiled into a
+ * {@link org.motechproject.security.chain.SecurityChainMatcher}, so that finding
+ * the chain for a request does not require trying every rule.
  */
 @Component
 public class MotechProxyManager {
@@ -142,18 +146,27 @@ public class MotechProxyManager {
         sortedRules.addAll(securityRules);
 
         List<SecurityFilterChain> newFilterChains = new ArrayList<>();
+        SecurityChainMatcher chainMatcher = new SecurityChainMatcher();
+
+        // rules with the same security settings share their filters, forget the ones built for the old rules
+        securityRuleBuilder.clearFilterStacks();
 
         for (MotechURLSecurityRule securityRule : sortedRules) {
             if (securityRule.isActive() && !securityRule.isDeleted()) {
                 LOGGER.debug("Creating SecurityFilterChain for: {}", securityRule.getPattern());
                 for (HTTPMethod method : securityRule.getMethodsRequired()) {
-                    newFilterChains.add(securityRuleBuilder.buildSecurityChain(securityRule, method));
+                    SecurityFilterChain filterChain = securityRuleBuilder.buildSecurityChain(securityRule, method);
+                    newFilterChains.add(filterChain);
+
+                    if (null != filterChain) {
+                        chainMatcher.addChain(filterChain, securityRule.getPattern(), method);
+                    }
                 }
                 LOGGER.debug("Created SecurityFilterChain for: {}", securityRule.getPattern());
             }
         }
 
-        proxy = new FilterChainProxy(newFilterChains);
+        proxy = new MotechFilterChainProxy(newFilterChains, chainMatcher);
         LOGGER.debug("Updated security chain.");
     }
 
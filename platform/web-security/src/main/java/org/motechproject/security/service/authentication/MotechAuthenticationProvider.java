@@ -9,12 +9,14 @@ import org.motechproject.security.domain.MotechUser;
 import org.motechproject.security.domain.MotechUserProfile;
 import org.motechproject.security.domain.UserStatus;
 import org.motechproject.security.repository.MotechUsersDao;
+import org.motechproject.security.service.AuthenticationCacheService;
 import org.motechproject.security.service.AuthoritiesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -35,6 +37,7 @@ public class MotechAuthenticationProvider extends AbstractUserDetailsAuthenticat
     private MotechPasswordEncoder passwordEncoder;
     private AuthoritiesService authoritiesService;
     private SettingService settingService;
+    private AuthenticationCacheService authenticationCacheService;
 
     @Autowired
     public MotechAuthenticationProvider(MotechUsersDao motechUsersDao, MotechPasswordEncoder motechPasswordEncoder,
@@ -45,6 +48,35 @@ public class MotechAuthenticationProvider extends AbstractUserDetailsAuthenticat
         this.settingService = settingService;
     }
 
+    /**
+     * Authenticates the given request. Credentials verified recently are accepted without reading the user from
+     * the database and checking the password again, which makes clients that authenticate on every request, like
+     * REST clients using basic authentication, a lot cheaper to serve.
+     *
+     * @param authentication the authentication request
+     * @return the successful authentication
+     */
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        if (null == authenticationCacheService || !(authentication instanceof UsernamePasswordAuthenticationToken)
+                || !(authentication.getCredentials() instanceof String)) {
+            return super.authenticate(authentication);
+        }
+
+        String username = authentication.getName();
+        String password = (String) authentication.getCredentials();
+
+        Authentication cached = authenticationCacheService.getAuthentication(username, password,
+                (UsernamePasswordAuthenticationToken) authentication);
+
+        if (null == cached) {
+            cached = super.authenticate(authentication);
+            authenticationCacheService.putAuthentication(username, password, cached);
+        }
+
+        return cached;
+    }
+
     /**
      * Checks if entered password isn't empty and if it's valid for given user.
      *
@@ -90,4 +122,8 @@ public class MotechAuthenticationProvider extends AbstractUserDetailsAuthenticat
         }
     }
 
+    @Autowired(required = false)
+    public void setAuthenticationCacheService(AuthenticationCacheService authenticationCacheService) {
+        this.authenticationCacheService = authenticationCacheService;
+    }
 }
@@ -0,0 +1,347 @@
+package org.motechproject.security.service.impl;
+
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.listener.annotations.MotechListener;
+import org.motechproject.security.config.SettingService;
+import org.motechproject.security.service.AuthenticationCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of the {@link org.motechproject.security.service.AuthenticationCacheService}. Both caches are
+ * bounded and evict the least recently used entries. Credentials are looked up by a SHA-256 hash of the username and
+ * the password, salted with a random value generated when the service starts, so the hashes are useless outside
+ * of this instance. Setting the cache time to zero disables caching. Invalidations are broadcast through the event
+ * topic once the transaction commits, every instance drops its entries when it receives them.
+ */
+@Service("authenticationCacheService")
+public class AuthenticationCacheServiceImpl implements AuthenticationCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationCacheServiceImpl.class);
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final int SALT_LENGTH = 32;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final byte[] salt = new byte[SALT_LENGTH];
+    private final Map<String, CredentialsEntry> credentials = new BoundedMap<>();
+    private final Map<String, AuthoritiesEntry> authorities = new BoundedMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private SettingService settingService;
+    private EventRelay eventRelay;
+
+    public AuthenticationCacheServiceImpl() {
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public Authentication getAuthentication(String username, String password,
+                                            UsernamePasswordAuthenticationToken request) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        CredentialsEntry entry;
+        synchronized (credentials) {
+            entry = credentials.get(hash(username, password));
+        }
+
+        if (null == entry || entry.isExpired()) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+
+        if (null != entry.profile) {
+            request.setDetails(entry.profile);
+        }
+
+        return entry.toAuthentication(password, request.getDetails());
+    }
+
+    @Override
+    public void putAuthentication(String username, String password, Authentication authentication) {
+        if (isEnabled() && authentication.getPrincipal() instanceof UserDetails) {
+            // the details of a verified authentication are the profile of the user, not the details of the request
+            CredentialsEntry entry = new CredentialsEntry(username, (UserDetails) authentication.getPrincipal(),
+                    authentication.getAuthorities(), authentication.getDetails(), getExpiryTime());
+
+            synchronized (credentials) {
+                credentials.put(hash(username, password), entry);
+            }
+        }
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities(String username, List<String> roles) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        AuthoritiesEntry entry;
+        synchronized (authorities) {
+            entry = authorities.get(username);
+        }
+
+        if (null == entry || entry.isExpired() || !entry.roles.equals(roles)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return new ArrayList<>(entry.authorities);
+    }
+
+    @Override
+    public void putAuthorities(String username, List<String> roles, List<GrantedAuthority> grantedAuthorities) {
+        if (isEnabled()) {
+            AuthoritiesEntry entry = new AuthoritiesEntry(username, roles, grantedAuthorities, getExpiryTime());
+
+            synchronized (authorities) {
+                authorities.put(username, entry);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateUser(String username) {
+        removeUserEntries(username);
+        broadcastInvalidation(username);
+    }
+
+    @Override
+    public void invalidateAll() {
+        removeAllEntries();
+        broadcastInvalidation(null);
+    }
+
+    /**
+     * Drops the entries listed in an invalidation event broadcast by any instance, including this one.
+     *
+     * @param event the invalidation event
+     */
+    @MotechListener(subjects = INVALIDATE_SUBJECT)
+    public void handleInvalidation(MotechEvent event) {
+        removeEntries((String) event.getParameters().get(USERNAME_PARAM));
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (credentials) {
+            synchronized (authorities) {
+                return credentials.size() + authorities.size();
+            }
+        }
+    }
+
+    @Autowired
+    public void setSettingService(SettingService settingService) {
+        this.settingService = settingService;
+    }
+
+    @Autowired(required = false)
+    public void setEventRelay(EventRelay eventRelay) {
+        this.eventRelay = eventRelay;
+    }
+
+    private void broadcastInvalidation(final String username) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // requests running before the changes are committed could cache the old state of the user again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeEntries(username);
+
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        sendInvalidation(username);
+                    }
+                }
+            });
+        } else {
+            sendInvalidation(username);
+        }
+    }
+
+    private void sendInvalidation(String username) {
+        if (null != eventRelay) {
+            Map<String, Object> parameters = new HashMap<>();
+            if (null != username) {
+                parameters.put(USERNAME_PARAM, username);
+            }
+
+            eventRelay.broadcastEventMessage(new MotechEvent(INVALIDATE_SUBJECT, parameters));
+        }
+    }
+
+    private void removeEntries(String username) {
+        if (null == username) {
+            removeAllEntries();
+        } else {
+            removeUserEntries(username);
+        }
+    }
+
+    private void removeUserEntries(String username) {
+        synchronized (credentials) {
+            Iterator<CredentialsEntry> iterator = credentials.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().username.equalsIgnoreCase(username)) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized (authorities) {
+            Iterator<AuthoritiesEntry> iterator = authorities.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().username.equalsIgnoreCase(username)) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        LOGGER.debug("Removed cached authentication data of user {}", username);
+    }
+
+    private void removeAllEntries() {
+        synchronized (credentials) {
+            credentials.clear();
+        }
+        synchronized (authorities) {
+            authorities.clear();
+        }
+
+        LOGGER.debug("Removed all cached authentication data");
+    }
+
+    private boolean isEnabled() {
+        return settingService.getAuthenticationCacheTime() > 0;
+    }
+
+    private long getExpiryTime() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(settingService.getAuthenticationCacheTime());
+    }
+
+    private String hash(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(salt);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            // separates the username from the password, so that moving characters between them changes the hash
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+
+            return new String(Hex.encode(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not supported by this JVM", e);
+        }
+    }
+
+    private static final class BoundedMap<V> extends LinkedHashMap<String, V> {
+
+        private static final long serialVersionUID = 2462113529786524193L;
+
+        private BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    }
+
+    private static final class CredentialsEntry {
+
+        private final String username;
+        private final UserDetails user;
+        private final List<GrantedAuthority> authorities;
+        private final Object profile;
+        private final long expiryTime;
+
+        private CredentialsEntry(String username, UserDetails user, Collection<? extends GrantedAuthority> authorities,
+                                 Object profile, long expiryTime) {
+            this.username = username;
+            this.user = user;
+            this.authorities = new ArrayList<>(authorities);
+            this.profile = profile;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiryTime > 0;
+        }
+
+        private Authentication toAuthentication(String password, Object details) {
+            // every authentication gets its own principal, since the credentials of both are erased once it is used
+            User principal = new User(user.getUsername(), "", user.isEnabled(), user.isAccountNonExpired(),
+                    user.isCredentialsNonExpired(), user.isAccountNonLocked(), authorities);
+
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(principal,
+                    password, authorities);
+            authentication.setDetails(details);
+
+            return authentication;
+        }
+    }
+
+    private static final class AuthoritiesEntry {
+
+        private final String username;
+        private final List<String> roles;
+        private final List<GrantedAuthority> authorities;
+        private final long expiryTime;
+
+        private AuthoritiesEntry(String username, List<String> roles, List<GrantedAuthority> authorities,
+                                 long expiryTime) {
+            this.username = username;
+            this.roles = new ArrayList<>(roles);
+            this.authorities = new ArrayList<>(authorities);
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiryTime > 0;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package org.motechproject.security.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+import org.motechproject.commons.date.util.DateUtil;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.annotations.MotechListener;
+import org.motechproject.security.domain.AuthenticationTokenState;
+import org.motechproject.security.domain.MotechUser;
+import org.motechproject.security.domain.MotechUserProfile;
+import org.motechproject.security.mds.AuthenticationTokenStatesDataService;
+import org.motechproject.security.repository.MotechUsersDao;
+import org.motechproject.security.service.AuthenticationCacheService;
+import org.motechproject.security.service.AuthenticationTokenService;
+import org.motechproject.security.service.AuthoritiesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the {@link org.motechproject.security.service.AuthenticationTokenService}. Tokens are made of
+ * the user name, the permissions version, the issue time and the expiration time, signed with HMAC-SHA256. The signing
+ * key and the current permissions version are kept in the database, so that all nodes share them, and every node reads
+ * them again at most every few seconds. The authorities of users are kept in memory for the current permissions
+ * version, so the database is only read once per user after the permissions change. Entries of users are also dropped
+ * when the authentication cache of a user is invalidated on any node, for example after a logout or a password change,
+ * so that tokens issued before the time the user revoked them are rejected.
+ */
+@Service("authenticationTokenService")
+public class AuthenticationTokenServiceImpl implements AuthenticationTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationTokenServiceImpl.class);
+
+    public static final String TOKENS_ENABLED_KEY = "security.tokens.enabled";
+    public static final String TOKEN_LIFETIME_KEY = "security.tokens.lifetime";
+
+    private static final String STATE_NAME = "default";
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = ".";
+    private static final int KEY_LENGTH = 32;
+    private static final int TOKEN_PARTS = 5;
+    private static final int MAX_USERS = 1000;
+    private static final long DEFAULT_LIFETIME = TimeUnit.HOURS.toSeconds(8);
+    private static final long STATE_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final Map<String, UserEntry> users = new LinkedHashMap<String, UserEntry>(16, 0.75f, true) {
+        private static final long serialVersionUID = -2887440232451412570L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UserEntry> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    private volatile TokenState tokenState;
+
+    private AuthenticationTokenStatesDataService tokenStatesDataService;
+    private MotechUsersDao motechUsersDao;
+    private AuthoritiesService authoritiesService;
+    private SettingsFacade settingsFacade;
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(StringUtils.trim(settingsFacade.getProperty(TOKENS_ENABLED_KEY)));
+    }
+
+    /**
+     * Creates the signing key when the stateless mode is enabled, so that nodes don't race to create it on their first
+     * requests. Failures are only logged, the key is then created with the first token.
+     */
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            try {
+                getTokenState();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to load the key for signing authentication tokens", e);
+            }
+        }
+    }
+
+    @Override
+    public String createToken(String username) {
+        TokenState state = getTokenState();
+        long expiration = now() + getLifetime();
+        String payload = encode(username) + SEPARATOR + state.permissionsVersion + SEPARATOR
+                + System.currentTimeMillis() + SEPARATOR + expiration;
+
+        return payload + SEPARATOR + sign(payload, state.signingKey);
+    }
+
+    @Override
+    public Authentication authenticate(String token) {
+        ParsedToken parsed = parse(token);
+
+        if (null == parsed) {
+            return null;
+        }
+
+        UserEntry entry = getUserEntry(parsed.username);
+
+        if (null == entry) {
+            LOGGER.debug("User {} of the presented token is no longer active", parsed.username);
+            return null;
+        }
+
+        if (parsed.issueTime < entry.tokensNotBefore) {
+            LOGGER.debug("The presented token of user {} was revoked", parsed.username);
+            return null;
+        }
+
+        User principal = new User(entry.username, "", entry.authorities);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(principal, null,
+                entry.authorities);
+        authentication.setDetails(entry.profile);
+
+        return authentication;
+    }
+
+    @Override
+    public boolean isCurrent(String token) {
+        ParsedToken parsed = parse(token);
+
+        return null != parsed && parsed.permissionsVersion == getTokenState().permissionsVersion
+                && parsed.expiration - now() > getLifetime() / 2;
+    }
+
+    @Override
+    @Transactional
+    public void changePermissionsVersion() {
+        AuthenticationTokenState state = loadTokenState();
+        state.setPermissionsVersion(state.getPermissionsVersion() + 1);
+        tokenStatesDataService.update(state);
+
+        tokenState = new TokenState(state);
+
+        LOGGER.debug("Changed the permissions version of authentication tokens to {}", state.getPermissionsVersion());
+    }
+
+    @Override
+    @Transactional
+    public void revokeTokens(String username) {
+        MotechUser user = motechUsersDao.findByUserName(username);
+
+        if (null != user) {
+            // updating the user invalidates its cached authentication on all nodes, which drops their entries as well
+            user.setTokensNotBefore(DateUtil.now());
+            motechUsersDao.update(user);
+        }
+
+        removeUserEntry(username);
+    }
+
+    /**
+     * Drops the entries of users whose cached authentication was invalidated on any node, so that they are read
+     * again from the database with the next token.
+     *
+     * @param event the invalidation event of the authentication cache
+     */
+    @MotechListener(subjects = AuthenticationCacheService.INVALIDATE_SUBJECT)
+    public void handleUserInvalidation(MotechEvent event) {
+        String username = (String) event.getParameters().get(AuthenticationCacheService.USERNAME_PARAM);
+
+        if (null == username) {
+            synchronized (users) {
+                users.clear();
+            }
+        } else {
+            removeUserEntry(username);
+        }
+    }
+
+    @Autowired
+    public void setTokenStatesDataService(AuthenticationTokenStatesDataService tokenStatesDataService) {
+        this.tokenStatesDataService = tokenStatesDataService;
+    }
+
+    @Autowired
+    public void setMotechUsersDao(MotechUsersDao motechUsersDao) {
+        this.motechUsersDao = motechUsersDao;
+    }
+
+    @Autowired
+    public void setAuthoritiesService(AuthoritiesService authoritiesService) {
+        this.authoritiesService = authoritiesService;
+    }
+
+    @Autowired
+    public void setSettingsFacade(SettingsFacade settingsFacade) {
+        this.settingsFacade = settingsFacade;
+    }
+
+    private ParsedToken parse(String token) {
+        String[] parts = StringUtils.split(token, SEPARATOR);
+
+        if (null == parts || parts.length != TOKEN_PARTS) {
+            return null;
+        }
+
+        TokenState state = getTokenState();
+        String payload = StringUtils.join(parts, SEPARATOR, 0, TOKEN_PARTS - 1);
+        byte[] expected = sign(payload, state.signingKey).getBytes(StandardCharsets.US_ASCII);
+
+        // constant time comparison, so that the signature can't be guessed by measuring the responses
+        if (!MessageDigest.isEqual(expected, parts[TOKEN_PARTS - 1].getBytes(StandardCharsets.US_ASCII))) {
+            return null;
+        }
+
+        try {
+            ParsedToken parsed = new ParsedToken(decode(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                    Long.parseLong(parts[3]));
+            return parsed.expiration > now() ? parsed : null;
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Malformed authentication token", e);
+            return null;
+        }
+    }
+
+    private UserEntry getUserEntry(String username) {
+        long version = getTokenState().permissionsVersion;
+        UserEntry entry;
+
+        synchronized (users) {
+            entry = users.get(username);
+        }
+
+        if (null == entry || entry.permissionsVersion != version) {
+            MotechUser user = motechUsersDao.findByUserName(username);
+
+            if (null == user || !user.isActive()) {
+                removeUserEntry(username);
+                return null;
+            }
+
+            entry = new UserEntry(user.getUserName(), version, authoritiesService.authoritiesFor(user),
+                    new MotechUserProfile(user), user.getTokensNotBefore());
+
+            synchronized (users) {
+                users.put(username, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    private void removeUserEntry(String username) {
+        synchronized (users) {
+            users.remove(username);
+        }
+    }
+
+    private TokenState getTokenState() {
+        TokenState state = tokenState;
+
+        if (null == state || System.currentTimeMillis() - state.loadTime > STATE_CHECK_INTERVAL) {
+            state = new TokenState(loadTokenState());
+            tokenState = state;
+        }
+
+        return state;
+    }
+
+    private AuthenticationTokenState loadTokenState() {
+        AuthenticationTokenState state = tokenStatesDataService.findByName(STATE_NAME);
+
+        if (null == state) {
+            byte[] key = new byte[KEY_LENGTH];
+            new SecureRandom().nextBytes(key);
+
+            try {
+                state = tokenStatesDataService.create(new AuthenticationTokenState(STATE_NAME,
+                        Base64.getEncoder().encodeToString(key), 1L));
+
+                LOGGER.info("Generated the key for signing authentication tokens");
+            } catch (RuntimeException e) {
+                // another node created the key at the same time, the unique name keeps only one of them
+                state = tokenStatesDataService.findByName(STATE_NAME);
+
+                if (null == state) {
+                    throw e;
+                }
+            }
+        }
+
+        return state;
+    }
+
+    private long getLifetime() {
+        String lifetime = settingsFacade.getProperty(TOKEN_LIFETIME_KEY);
+        return StringUtils.isBlank(lifetime) ? DEFAULT_LIFETIME : Long.parseLong(lifetime.trim());
+    }
+
+    private static long now() {
+        return TimeUnit.MILLISECONDS.toSeconds(DateUtil.now().getMillis());
+    }
+
+    private static String sign(String payload, byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(key, SIGNATURE_ALGORITHM));
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign the authentication token", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    private static final class TokenState {
+
+        private final byte[] signingKey;
+        private final long permissionsVersion;
+        private final long loadTime;
+
+        private TokenState(AuthenticationTokenState state) {
+            this.signingKey = Base64.getDecoder().decode(state.getSigningKey());
+            this.permissionsVersion = state.getPermissionsVersion();
+            this.loadTime = System.currentTimeMillis();
+        }
+    }
+
+    private static final class ParsedToken {
+
+        private final String username;
+        private final long permissionsVersion;
+        private final long issueTime;
+        private final long expiration;
+
+        private ParsedToken(String username, long permissionsVersion, long issueTime, long expiration) {
+            this.username = username;
+            this.permissionsVersion = permissionsVersion;
+            this.issueTime = issueTime;
+            this.expiration = expiration;
+        }
+    }
+
+    private static final class UserEntry {
+
+        private final String username;
+        private final long permissionsVersion;
+        private final List<GrantedAuthority> authorities;
+        private final MotechUserProfile profile;
+        private final long tokensNotBefore;
+
+        private UserEntry(String username, long permissionsVersion, List<GrantedAuthority> authorities,
+                          MotechUserProfile profile, DateTime tokensNotBefore) {
+            this.username = username;
+            this.permissionsVersion = permissionsVersion;
+            this.authorities = new ArrayList<>(authorities);
+            this.profile = profile;
+            this.tokensNotBefore = null == tokensNotBefore ? 0 : tokensNotBefore.getMillis();
+        }
+    }
+}
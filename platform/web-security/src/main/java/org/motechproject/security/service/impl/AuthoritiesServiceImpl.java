@@ -2,6 +2,7 @@ package org.motechproject.security.service.impl;
 
 import org.motechproject.security.domain.MotechUser;
 import org.motechproject.security.model.RoleDto;
+import org.motechproject.security.service.AuthenticationCacheService;
 import org.motechproject.security.service.AuthoritiesService;
 import org.motechproject.security.service.MotechRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,16 +17,25 @@ import java.util.List;
 
 /**
  * Implementation for {@link AuthoritiesService}. Given a MotechUser, retrieves the roles granted to that user
- * and for each role collects permissions associated with the role.
+ * and for each role collects permissions associated with the role. The collected authorities are cached, as long as
+ * the roles of the user stay the same.
  */
 @Service
 public class AuthoritiesServiceImpl implements AuthoritiesService {
 
     private MotechRoleService motechRoleService;
+    private AuthenticationCacheService authenticationCacheService;
 
     @Override
     @Transactional
     public List<GrantedAuthority> authoritiesFor(MotechUser user) {
+        if (null != authenticationCacheService) {
+            List<GrantedAuthority> cached = authenticationCacheService.getAuthorities(user.getUserName(), user.getRoles());
+            if (null != cached) {
+                return cached;
+            }
+        }
+
         List<GrantedAuthority> authorities = new ArrayList<>();
         for (String role : user.getRoles()) {
             RoleDto motechRole = motechRoleService.getRole(role);
@@ -35,6 +45,11 @@ public class AuthoritiesServiceImpl implements AuthoritiesService {
                 }
             }
         }
+
+        if (null != authenticationCacheService) {
+            authenticationCacheService.putAuthorities(user.getUserName(), user.getRoles(), authorities);
+        }
+
         return authorities;
     }
 
@@ -43,4 +58,9 @@ public class AuthoritiesServiceImpl implements AuthoritiesService {
         this.motechRoleService = motechRoleService;
     }
 
+    @Autowired(required = false)
+    public void setAuthenticationCacheService(AuthenticationCacheService authenticationCacheService) {
+        this.authenticationCacheService = authenticationCacheService;
+    }
+
 }
@@ -3,6 +3,8 @@ package org.motechproject.security.service.impl;
 import org.motechproject.security.domain.MotechUser;
 import org.motechproject.security.helper.SessionHandler;
 import org.motechproject.security.repository.MotechUsersDao;
+import org.motechproject.security.service.AuthenticationCacheService;
+import org.motechproject.security.service.AuthenticationTokenService;
 import org.motechproject.security.service.AuthoritiesService;
 import org.motechproject.security.service.UserContextService;
 import org.slf4j.Logger;
@@ -33,6 +35,8 @@ public class UserContextServiceImpl implements UserContextService {
     private SessionHandler sessionHandler;
     private MotechUsersDao motechUsersDao;
     private AuthoritiesService authoritiesService;
+    private AuthenticationCacheService authenticationCacheService;
+    private AuthenticationTokenService authenticationTokenService;
 
     @Override
     @Transactional
@@ -42,6 +46,8 @@ public class UserContextServiceImpl implements UserContextService {
 
         LOGGER.info("Refreshing context for all active users, number of sessions: {}", sessions.size());
 
+        invalidateCache(null);
+
         for (HttpSession session : sessions) {
             SecurityContext context = (SecurityContext) session.getAttribute("SPRING_SECURITY_CONTEXT");
 
@@ -70,6 +76,8 @@ public class UserContextServiceImpl implements UserContextService {
     public void refreshUserContextIfActive(String userName) {
         LOGGER.info("Refreshing context for user: {}", userName);
 
+        invalidateCache(userName);
+
         MotechUser user = motechUsersDao.findByUserName(userName);
         Collection<HttpSession> sessions = sessionHandler.getAllSessions();
 
@@ -93,6 +101,14 @@ public class UserContextServiceImpl implements UserContextService {
     @Override
     public void logoutUser(String userName) {
         LOGGER.info("Logging out user: {}", userName);
+
+        invalidateCache(userName);
+
+        // users authenticated with tokens have no sessions to invalidate, their tokens are revoked instead
+        if (null != authenticationTokenService && authenticationTokenService.isEnabled()) {
+            authenticationTokenService.revokeTokens(userName);
+        }
+
         Collection<HttpSession> sessions = sessionHandler.getAllSessions();
 
         for (HttpSession session : sessions) {
@@ -108,6 +124,21 @@ public class UserContextServiceImpl implements UserContextService {
         }
     }
 
+    private void invalidateCache(String userName) {
+        if (null != authenticationCacheService) {
+            if (null == userName) {
+                authenticationCacheService.invalidateAll();
+            } else {
+                authenticationCacheService.invalidateUser(userName);
+            }
+        }
+
+        // users authenticated with tokens have no sessions to refresh, their tokens get renewed instead
+        if (null != authenticationTokenService && authenticationTokenService.isEnabled()) {
+            authenticationTokenService.changePermissionsVersion();
+        }
+    }
+
     private AbstractAuthenticationToken getToken(Authentication authentication, MotechUser user) {
         AbstractAuthenticationToken token = null;
         if (authentication instanceof UsernamePasswordAuthenticationToken) {
@@ -137,4 +168,14 @@ public class UserContextServiceImpl implements UserContextService {
     public void setAuthoritiesService(AuthoritiesService authoritiesService) {
         this.authoritiesService = authoritiesService;
     }
+
+    @Autowired(required = false)
+    public void setAuthenticationCacheService(AuthenticationCacheService authenticationCacheService) {
+        this.authenticationCacheService = authenticationCacheService;
+    }
+
+    @Autowired(required = false)
+    public void setAuthenticationTokenService(AuthenticationTokenService authenticationTokenService) {
+        this.authenticationTokenService = authenticationTokenService;
+    }
 }
@@ -0,0 +1,83 @@
+package org.motechproject.security.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.security.service.AuthenticationTokenService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.motechproject.security.service.AuthenticationTokenService.TOKEN_HEADER;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MotechTokenSecurityContextRepositoryTest {
+
+    @Mock
+    private AuthenticationTokenService authenticationTokenService;
+
+    private MotechTokenSecurityContextRepository repository;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        repository = new MotechTokenSecurityContextRepository(authenticationTokenService);
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+
+        when(authenticationTokenService.createToken("bob")).thenReturn("token");
+    }
+
+    @Test
+    public void shouldIssueTokenAfterFormLogin() {
+        saveAuthentication();
+
+        assertEquals("token", response.getHeader(TOKEN_HEADER));
+    }
+
+    @Test
+    public void shouldNotIssueTokensForBasicAuthentication() {
+        request.addHeader("Authorization", "Basic Ym9iOnBhc3N3b3Jk");
+
+        saveAuthentication();
+
+        assertNull(response.getHeader(TOKEN_HEADER));
+        verify(authenticationTokenService, never()).createToken(anyString());
+    }
+
+    @Test
+    public void shouldRevokeTokensOnLogout() {
+        repository.logout(request, response, authentication());
+
+        verify(authenticationTokenService).revokeTokens("bob");
+    }
+
+    private void saveAuthentication() {
+        HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, response);
+        SecurityContext context = repository.loadContext(holder);
+        context.setAuthentication(authentication());
+
+        repository.saveContext(context, holder.getRequest(), holder.getResponse());
+    }
+
+    private Authentication authentication() {
+        return new UsernamePasswordAuthenticationToken("bob", "password",
+                Arrays.asList(new SimpleGrantedAuthority("viewUsers")));
+    }
+}
@@ -0,0 +1,135 @@
+package org.motechproject.security.chain;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.security.constants.HTTPMethod;
+import org.motechproject.security.domain.MotechURLSecurityRule;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.motechproject.security.constants.HTTPMethod.ANY;
+import static org.motechproject.security.constants.HTTPMethod.GET;
+import static org.motechproject.security.constants.HTTPMethod.POST;
+
+public class SecurityChainMatcherTest {
+
+    private static final int RULE_COUNT = 500;
+    private static final int MODULE_COUNT = 50;
+
+    private List<SecurityFilterChain> chains;
+    private SecurityChainMatcher chainMatcher;
+
+    @Before
+    public void setUp() {
+        chains = new ArrayList<>();
+        chainMatcher = new SecurityChainMatcher();
+    }
+
+    @Test
+    public void shouldReturnFirstMatchingChainInPriorityOrder() {
+        SecurityFilterChain specific = addChain("/module/web-api/rest/**", GET);
+        SecurityFilterChain post = addChain("/module/web-api/**", POST);
+        SecurityFilterChain module = addChain("/module/web-api/**", ANY);
+        SecurityFilterChain catchAll = addChain("/**", ANY);
+
+        assertSame(specific, chainMatcher.getChain(request("GET", "/module/web-api/rest/users")));
+        assertSame(post, chainMatcher.getChain(request("POST", "/module/web-api/rest/users")));
+        assertSame(module, chainMatcher.getChain(request("PUT", "/module/web-api/rest/users")));
+        assertSame(module, chainMatcher.getChain(request("GET", "/MODULE/Web-Api")));
+        assertSame(catchAll, chainMatcher.getChain(request("GET", "/module/other")));
+        assertEquals(4, chainMatcher.size());
+    }
+
+    @Test
+    public void shouldReturnNullIfNoChainMatches() {
+        addChain("/module/web-api/**", GET);
+        addChain("/module/*/resources/**", ANY);
+
+        assertNull(chainMatcher.getChain(request("GET", "/module/other/api")));
+        assertNull(chainMatcher.getChain(request("POST", "/module/web-api/users")));
+    }
+
+    @Test
+    public void shouldMatchLikeLinearScanWithManyRules() {
+        for (int i = 0; i < RULE_COUNT; i++) {
+            String module = "/module/m" + (i % MODULE_COUNT);
+            HTTPMethod method = HTTPMethod.values()[i % 3];
+
+            switch (i % 4) {
+                case 0:
+                    addChain(module + "/api/r" + i + "/**", method);
+                    break;
+                case 1:
+                    addChain(module + "/*/x" + i, method);
+                    break;
+                case 2:
+                    addChain(module + "/**/y" + i + "/*.json", method);
+                    break;
+                default:
+                    addChain(module + "/**", method);
+            }
+        }
+        addChain("/**", ANY);
+
+        for (int i = 0; i < RULE_COUNT; i++) {
+            String module = "/module/m" + (i % MODULE_COUNT);
+
+            for (String method : new String[] {"GET", "POST", "DELETE"}) {
+                assertMatchesLikeLinearScan(request(method, module + "/api/r" + i + "/items"));
+                assertMatchesLikeLinearScan(request(method, module + "/anything/x" + i));
+                assertMatchesLikeLinearScan(request(method, module + "/a/b/y" + i + "/data.json"));
+                assertMatchesLikeLinearScan(request(method, module));
+                assertMatchesLikeLinearScan(request(method, "/other" + module));
+            }
+        }
+    }
+
+    private void assertMatchesLikeLinearScan(MockHttpServletRequest request) {
+        SecurityFilterChain expected = null;
+
+        for (SecurityFilterChain chain : chains) {
+            if (chain.matches(request)) {
+                expected = chain;
+                break;
+            }
+        }
+
+        assertSame(request.getMethod() + " " + request.getServletPath(), expected, chainMatcher.getChain(request));
+    }
+
+    private SecurityFilterChain addChain(String pattern, HTTPMethod method) {
+        RequestMatcher requestMatcher;
+
+        if ("/**".equals(pattern)) {
+            requestMatcher = AnyRequestMatcher.INSTANCE;
+        } else if (ANY == method) {
+            requestMatcher = new AntPathRequestMatcher(pattern);
+        } else {
+            requestMatcher = new AntPathRequestMatcher(pattern, method.name());
+        }
+
+        MotechURLSecurityRule rule = new MotechURLSecurityRule();
+        rule.setPattern(pattern);
+
+        SecurityFilterChain chain = new MotechSecurityFilterChain(rule, requestMatcher);
+        chains.add(chain);
+        chainMatcher.addChain(chain, pattern, method);
+
+        return chain;
+    }
+
+    private MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -116,4 +116,13 @@ public class SettingsDataServiceTest {
         when(motechSettings.isPasswordResetReminderEnabled()).thenReturn(false);
         assertFalse(settingService.isPasswordResetReminderEnabled());
     }
+
+    @Test
+    public void shouldReturnAuthenticationCacheTime() {
+        when(motechSettings.getAuthenticationCacheTime()).thenReturn(30);
+        assertEquals(30, settingService.getAuthenticationCacheTime());
+
+        when(motechSettings.getAuthenticationCacheTime()).thenReturn(null);
+        assertEquals(SettingService.DEFAULT_AUTHENTICATION_CACHE_TIME, settingService.getAuthenticationCacheTime());
+    }
 }
@@ -13,9 +13,11 @@ import org.motechproject.security.domain.MotechUser;
 import org.motechproject.security.domain.MotechUserProfile;
 import org.motechproject.security.domain.UserStatus;
 import org.motechproject.security.repository.MotechUsersDao;
+import org.motechproject.security.service.AuthenticationCacheService;
 import org.motechproject.security.service.AuthoritiesService;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -24,9 +26,11 @@ import java.util.Locale;
 import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -138,4 +142,18 @@ public class MotechAuthenticationProviderTest {
         Assert.assertEquals((Integer) 0, capturedUser.getFailureLoginCounter());
         Assert.assertEquals(UserStatus.MUST_CHANGE_PASSWORD, capturedUser.getUserStatus());
     }
+
+    @Test
+    public void shouldReturnCachedAuthentication() {
+        AuthenticationCacheService authenticationCacheService = mock(AuthenticationCacheService.class);
+        Authentication cached = mock(Authentication.class);
+        UsernamePasswordAuthenticationToken request = new UsernamePasswordAuthenticationToken("bob", "password");
+        when(authenticationCacheService.getAuthentication("bob", "password", request)).thenReturn(cached);
+        authenticationProvider.setAuthenticationCacheService(authenticationCacheService);
+
+        Authentication result = authenticationProvider.authenticate(request);
+
+        assertSame(cached, result);
+        verifyZeroInteractions(motechUsersDao, passwordEncoder);
+    }
 }
@@ -0,0 +1,190 @@
+package org.motechproject.security.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.security.config.SettingService;
+import org.motechproject.security.service.AuthenticationCacheService;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationCacheServiceImplTest {
+
+    private static final List<GrantedAuthority> AUTHORITIES =
+            Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("viewUsers"));
+
+    @Mock
+    private SettingService settingService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    private AuthenticationCacheServiceImpl authenticationCacheService;
+
+    @Before
+    public void setUp() {
+        when(settingService.getAuthenticationCacheTime()).thenReturn(60);
+
+        authenticationCacheService = new AuthenticationCacheServiceImpl();
+        authenticationCacheService.setSettingService(settingService);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void shouldReturnCachedAuthenticationOnlyForTheSameCredentials() {
+        authenticationCacheService.putAuthentication("bob", "password", authentication());
+
+        UsernamePasswordAuthenticationToken request = new UsernamePasswordAuthenticationToken("bob", "password");
+        request.setDetails("requestDetails");
+        Authentication cached = authenticationCacheService.getAuthentication("bob", "password", request);
+
+        assertNotNull(cached);
+        assertEquals("bob", cached.getName());
+        assertEquals("password", cached.getCredentials());
+        assertEquals(AUTHORITIES, cached.getAuthorities());
+        // the request gets the profile of the user, as if it was retrieved from the database
+        assertEquals("profile", request.getDetails());
+        assertEquals("profile", cached.getDetails());
+        assertNotSame(cached, authenticationCacheService.getAuthentication("bob", "password", request()));
+
+        assertNull(authenticationCacheService.getAuthentication("bob", "wrongPassword", request()));
+        assertNull(authenticationCacheService.getAuthentication("bobp", "assword", request()));
+
+        assertEquals(2, authenticationCacheService.getHitCount());
+        assertEquals(2, authenticationCacheService.getMissCount());
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() {
+        when(settingService.getAuthenticationCacheTime()).thenReturn(0);
+
+        authenticationCacheService.putAuthentication("bob", "password", authentication());
+        authenticationCacheService.putAuthorities("bob", Arrays.asList("Admin"), AUTHORITIES);
+
+        assertEquals(0, authenticationCacheService.getSize());
+        assertNull(authenticationCacheService.getAuthentication("bob", "password", request()));
+    }
+
+    @Test
+    public void shouldReturnCachedAuthoritiesOnlyForTheSameRoles() {
+        authenticationCacheService.putAuthorities("bob", Arrays.asList("Admin"), AUTHORITIES);
+
+        assertEquals(AUTHORITIES, authenticationCacheService.getAuthorities("bob", Arrays.asList("Admin")));
+        assertNull(authenticationCacheService.getAuthorities("bob", Arrays.asList("Admin", "User")));
+        assertNull(authenticationCacheService.getAuthorities("alice", Arrays.asList("Admin")));
+    }
+
+    @Test
+    public void shouldInvalidateEntriesOfUser() {
+        authenticationCacheService.putAuthentication("bob", "password", authentication());
+        authenticationCacheService.putAuthorities("bob", Arrays.asList("Admin"), AUTHORITIES);
+        authenticationCacheService.putAuthorities("alice", Arrays.asList("Admin"), AUTHORITIES);
+
+        authenticationCacheService.invalidateUser("bob");
+
+        assertNull(authenticationCacheService.getAuthentication("bob", "password", request()));
+        assertNull(authenticationCacheService.getAuthorities("bob", Arrays.asList("Admin")));
+        assertNotNull(authenticationCacheService.getAuthorities("alice", Arrays.asList("Admin")));
+
+        authenticationCacheService.invalidateAll();
+
+        assertEquals(0, authenticationCacheService.getSize());
+    }
+
+    @Test
+    public void shouldInvalidateEntriesOfUserAgainAfterTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        authenticationCacheService.invalidateUser("bob");
+
+        // a concurrent request caches the state from before the commit
+        authenticationCacheService.putAuthentication("bob", "password", authentication());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertNull(authenticationCacheService.getAuthentication("bob", "password", request()));
+    }
+
+    @Test
+    public void shouldBroadcastInvalidationAfterCommit() {
+        authenticationCacheService.setEventRelay(eventRelay);
+        TransactionSynchronizationManager.initSynchronization();
+
+        authenticationCacheService.invalidateUser("bob");
+        verify(eventRelay, never()).broadcastEventMessage(any(MotechEvent.class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).broadcastEventMessage(captor.capture());
+        assertEquals(AuthenticationCacheService.INVALIDATE_SUBJECT, captor.getValue().getSubject());
+        assertEquals("bob", captor.getValue().getParameters().get(AuthenticationCacheService.USERNAME_PARAM));
+    }
+
+    @Test
+    public void shouldDropEntriesWhenInvalidationIsReceived() {
+        authenticationCacheService.putAuthentication("bob", "password", authentication());
+        authenticationCacheService.putAuthorities("alice", Arrays.asList("Admin"), AUTHORITIES);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(AuthenticationCacheService.USERNAME_PARAM, "bob");
+        authenticationCacheService.handleInvalidation(
+                new MotechEvent(AuthenticationCacheService.INVALIDATE_SUBJECT, parameters));
+
+        assertNull(authenticationCacheService.getAuthentication("bob", "password", request()));
+        assertNotNull(authenticationCacheService.getAuthorities("alice", Arrays.asList("Admin")));
+
+        authenticationCacheService.handleInvalidation(new MotechEvent(AuthenticationCacheService.INVALIDATE_SUBJECT));
+
+        assertEquals(0, authenticationCacheService.getSize());
+    }
+
+    private UsernamePasswordAuthenticationToken request() {
+        return new UsernamePasswordAuthenticationToken("bob", "password");
+    }
+
+    private Authentication authentication() {
+        UserDetails user = new User("bob", "encodedPassword", AUTHORITIES);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user,
+                "password", AUTHORITIES);
+        authentication.setDetails("profile");
+        return authentication;
+    }
+}
@@ -0,0 +1,173 @@
+package org.motechproject.security.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.commons.date.util.DateUtil;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.security.domain.AuthenticationTokenState;
+import org.motechproject.security.domain.MotechUser;
+import org.motechproject.security.domain.MotechUserProfile;
+import org.motechproject.security.domain.UserStatus;
+import org.motechproject.security.mds.AuthenticationTokenStatesDataService;
+import org.motechproject.security.repository.MotechUsersDao;
+import org.motechproject.security.service.AuthenticationCacheService;
+import org.motechproject.security.service.AuthoritiesService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationTokenServiceImplTest {
+
+    private static final List<GrantedAuthority> AUTHORITIES =
+            Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("viewUsers"));
+
+    @Mock
+    private AuthenticationTokenStatesDataService tokenStatesDataService;
+
+    @Mock
+    private MotechUsersDao motechUsersDao;
+
+    @Mock
+    private AuthoritiesService authoritiesService;
+
+    @Mock
+    private SettingsFacade settingsFacade;
+
+    private AuthenticationTokenServiceImpl authenticationTokenService;
+
+    private MotechUser user;
+    private AuthenticationTokenState state;
+
+    @Before
+    public void setUp() {
+        user = new MotechUser("bob", "encodedPassword", "bob@motech.org", "", Arrays.asList("Admin"), "",
+                Locale.ENGLISH);
+        state = new AuthenticationTokenState("default", "c2lnbmluZy1rZXktZm9yLXRlc3Rz", 1L);
+
+        when(tokenStatesDataService.findByName("default")).thenReturn(state);
+        when(motechUsersDao.findByUserName("bob")).thenReturn(user);
+        when(authoritiesService.authoritiesFor(user)).thenReturn(AUTHORITIES);
+        when(settingsFacade.getProperty(AuthenticationTokenServiceImpl.TOKEN_LIFETIME_KEY)).thenReturn("3600");
+
+        authenticationTokenService = new AuthenticationTokenServiceImpl();
+        authenticationTokenService.setTokenStatesDataService(tokenStatesDataService);
+        authenticationTokenService.setMotechUsersDao(motechUsersDao);
+        authenticationTokenService.setAuthoritiesService(authoritiesService);
+        authenticationTokenService.setSettingsFacade(settingsFacade);
+    }
+
+    @Test
+    public void shouldAuthenticateWithTokenReadingTheUserOnlyOnce() {
+        String token = authenticationTokenService.createToken("bob");
+
+        Authentication authentication = authenticationTokenService.authenticate(token);
+        authenticationTokenService.authenticate(token);
+
+        assertNotNull(authentication);
+        assertTrue(authentication.isAuthenticated());
+        assertEquals("bob", authentication.getName());
+        assertEquals(AUTHORITIES, authentication.getAuthorities());
+        assertEquals("bob", ((MotechUserProfile) authentication.getDetails()).getUserName());
+        assertTrue(authenticationTokenService.isCurrent(token));
+
+        verify(motechUsersDao, times(1)).findByUserName("bob");
+    }
+
+    @Test
+    public void shouldRejectTamperedTokens() {
+        String token = authenticationTokenService.createToken("bob");
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + parts[2] + "." + (Long.parseLong(parts[3]) + 1000) + "."
+                + parts[4];
+
+        assertNull(authenticationTokenService.authenticate(forged));
+        assertNull(authenticationTokenService.authenticate("not-a-token"));
+        assertNull(authenticationTokenService.authenticate(token.substring(0, token.length() - 2)));
+    }
+
+    @Test
+    public void shouldRenewTokensAfterPermissionsChange() {
+        String token = authenticationTokenService.createToken("bob");
+        authenticationTokenService.authenticate(token);
+
+        authenticationTokenService.changePermissionsVersion();
+
+        assertEquals(Long.valueOf(2), state.getPermissionsVersion());
+        verify(tokenStatesDataService).update(state);
+        assertFalse(authenticationTokenService.isCurrent(token));
+
+        // the token is still accepted, with authorities read again for the new version
+        assertNotNull(authenticationTokenService.authenticate(token));
+        verify(motechUsersDao, times(2)).findByUserName("bob");
+    }
+
+    @Test
+    public void shouldRejectTokensOfBlockedUsers() {
+        user.setUserStatus(UserStatus.BLOCKED);
+
+        assertNull(authenticationTokenService.authenticate(authenticationTokenService.createToken("bob")));
+    }
+
+    @Test
+    public void shouldRejectTokensIssuedBeforeTheyWereRevoked() {
+        String token = authenticationTokenService.createToken("bob");
+        assertNotNull(authenticationTokenService.authenticate(token));
+
+        authenticationTokenService.revokeTokens("bob");
+
+        verify(motechUsersDao).update(user);
+        assertNotNull(user.getTokensNotBefore());
+
+        user.setTokensNotBefore(DateUtil.now().plusMinutes(1));
+        assertNull(authenticationTokenService.authenticate(token));
+
+        // other nodes learn about the revocation from the invalidation of the authentication cache
+        user.setTokensNotBefore(DateUtil.now().minusMinutes(1));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(AuthenticationCacheService.USERNAME_PARAM, "bob");
+        authenticationTokenService.handleUserInvalidation(
+                new MotechEvent(AuthenticationCacheService.INVALIDATE_SUBJECT, parameters));
+
+        assertNotNull(authenticationTokenService.authenticate(token));
+    }
+
+    @Test
+    public void shouldRevokeTokensWhenPasswordChanges() {
+        user.setPassword("newEncodedPassword");
+
+        assertEquals(user.getLastPasswordChange(), user.getTokensNotBefore());
+    }
+
+    @Test
+    public void shouldUseSigningKeyCreatedByAnotherNode() {
+        when(settingsFacade.getProperty(AuthenticationTokenServiceImpl.TOKENS_ENABLED_KEY)).thenReturn("true");
+        when(tokenStatesDataService.findByName("default")).thenReturn(null, state);
+        when(tokenStatesDataService.create(any(AuthenticationTokenState.class)))
+                .thenThrow(new IllegalStateException("Unique constraint violated"));
+
+        authenticationTokenService.init();
+
+        assertNotNull(authenticationTokenService.authenticate(authenticationTokenService.createToken("bob")));
+    }
+}